@@ -0,0 +1,11 @@
+package com.facturation.facture.config;
+
+/**
+ * Clé d'idempotence déjà utilisée avec un corps de requête différent (HTTP 422)
+ */
+public class CleIdempotenceReutiliseeException extends RuntimeException {
+
+    public CleIdempotenceReutiliseeException(String message) {
+        super(message);
+    }
+}
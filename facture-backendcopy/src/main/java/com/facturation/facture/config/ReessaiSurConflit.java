@@ -0,0 +1,17 @@
+package com.facturation.facture.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Rejouer la méthode (et sa transaction) en cas de conflit de verrouillage
+ * optimiste ou de segments de stock occupés, avec un délai croissant entre
+ * les tentatives.
+ * Voir {@link ReessaiSurConflitAspect}.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReessaiSurConflit {
+}
@@ -0,0 +1,84 @@
+package com.facturation.facture.config;
+
+import com.facturation.facture.service.StockSegmenteService;
+import com.facturation.facture.service.SupervisionService;
+import jakarta.persistence.OptimisticLockException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Réessai des méthodes annotées {@link ReessaiSurConflit} (conflit de version,
+ * ou segments de stock tenus par d'autres commandes). Les autres échecs de
+ * verrou pessimiste (attente expirée, interblocage) ne sont pas rejoués.
+ *
+ * L'aspect s'exécute avant l'intercepteur transactionnel : chaque tentative
+ * ouvre donc une nouvelle transaction et relit les entités à jour. Si une
+ * transaction est déjà en cours (appel imbriqué), il n'y a pas de réessai :
+ * c'est à l'appelant le plus externe de rejouer.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReessaiSurConflitAspect {
+
+    public static final String COMPTEUR_CONFLITS = "verrouillage.conflits";
+    public static final String COMPTEUR_REESSAIS = "verrouillage.reessais";
+    public static final String COMPTEUR_ABANDONS = "verrouillage.abandons";
+
+    private static final Logger log = LoggerFactory.getLogger(ReessaiSurConflitAspect.class);
+
+    private final SupervisionService supervisionService;
+
+    @Value("${facturation.reessai.tentatives-max:4}")
+    private int tentativesMax;
+
+    @Value("${facturation.reessai.delai-initial-ms:20}")
+    private long delaiInitialMs;
+
+    @Value("${facturation.reessai.delai-max-ms:500}")
+    private long delaiMaxMs;
+
+    public ReessaiSurConflitAspect(SupervisionService supervisionService) {
+        this.supervisionService = supervisionService;
+    }
+
+    @Around("@annotation(com.facturation.facture.config.ReessaiSurConflit) || " +
+            "@within(com.facturation.facture.config.ReessaiSurConflit)")
+    public Object executerAvecReessai(ProceedingJoinPoint point) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return point.proceed();
+        }
+
+        long delai = delaiInitialMs;
+        for (int tentative = 1; ; tentative++) {
+            try {
+                return point.proceed();
+            } catch (OptimisticLockingFailureException | OptimisticLockException
+                     | StockSegmenteService.SegmentsOccupesException e) {
+                supervisionService.incrementer(COMPTEUR_CONFLITS);
+                if (tentative >= tentativesMax) {
+                    supervisionService.incrementer(COMPTEUR_ABANDONS);
+                    throw new RuntimeException(
+                            "Les données ont été modifiées par une autre opération, veuillez réessayer", e);
+                }
+                supervisionService.incrementer(COMPTEUR_REESSAIS);
+                log.debug("Conflit de verrouillage sur {} (tentative {})", point.getSignature().toShortString(), tentative);
+
+                // Délai exponentiel avec part aléatoire pour désynchroniser les concurrents
+                Thread.sleep(delai + ThreadLocalRandom.current().nextLong(delai + 1));
+                delai = Math.min(delai * 2, delaiMaxMs);
+            }
+        }
+    }
+}
@@ -1,18 +1,23 @@
 package com.facturation.facture.controller;
 
 import com.facturation.facture.dto.CommandeDTO;
+import com.facturation.facture.dto.PageLignesCommandeDTO;
+import com.facturation.facture.dto.RapportTransitionStatutDTO;
+import com.facturation.facture.dto.TransitionStatutMasseDTO;
 import com.facturation.facture.model.Commande;
+import com.facturation.facture.model.LigneCommande;
 import com.facturation.facture.model.enums.StatutCommande;
 import com.facturation.facture.model.enums.ModePaiement;
 import com.facturation.facture.service.CommandeService;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/admin/commandes")
@@ -32,9 +37,7 @@ public class AdminCommandeController {
     public ResponseEntity<?> obtenirToutesLesCommandes() {
         try {
             List<Commande> commandes = commandeService.obtenirToutesLesCommandes();
-            List<CommandeDTO> commandesDTO = commandes.stream()
-                    .map(CommandeDTO::fromEntity)
-                   .collect(Collectors.toList());
+            List<CommandeDTO> commandesDTO = commandeService.convertirEnDTO(commandes);
            return ResponseEntity.ok(commandesDTO);
       } catch (Exception e) {
          return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -46,7 +49,7 @@ public class AdminCommandeController {
                                                    @RequestParam StatutCommande statut) {
         try {
             Commande commande = commandeService.changerStatutCommande(id, statut);
-            return ResponseEntity.ok(CommandeDTO.fromEntity(commande));
+            return ResponseEntity.ok(commandeService.convertirEnDTO(commande));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
@@ -55,12 +58,43 @@ public class AdminCommandeController {
         }
     }
 
+    /**
+     * Changer le statut d'un lot de commandes (liste d'ids ou filtre)
+     */
+    @PatchMapping("/statut-en-masse")
+    public ResponseEntity<?> changerStatutCommandesEnMasse(@Valid @RequestBody TransitionStatutMasseDTO demande) {
+        try {
+            RapportTransitionStatutDTO rapport = commandeService.changerStatutCommandesEnMasse(demande);
+            return ResponseEntity.ok(rapport);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+
+    /**
+     * Lire les lignes d'une commande page par page (grandes commandes)
+     */
+    @GetMapping("/{id}/lignes")
+    public ResponseEntity<?> obtenirLignesCommande(@PathVariable Long id,
+                                                   @RequestParam(defaultValue = "0") int page,
+                                                   @RequestParam(defaultValue = "50") int taille) {
+        try {
+            Page<LigneCommande> lignes = commandeService.obtenirLignesCommande(id, page, taille);
+            return ResponseEntity.ok(PageLignesCommandeDTO.fromPage(id, lignes));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PatchMapping("/{id}/mode-paiement")
     public ResponseEntity<?> changerModePaiement(@PathVariable Long id,
                                                  @RequestParam ModePaiement modePaiement) {
         try {
             Commande commande = commandeService.changerModePaiement(id, modePaiement);
-            return ResponseEntity.ok(CommandeDTO.fromEntity(commande));
+            return ResponseEntity.ok(commandeService.convertirEnDTO(commande));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
@@ -73,7 +107,7 @@ public class AdminCommandeController {
     public ResponseEntity<?> obtenirCommandeAvecDetails(@PathVariable Long id) {
         try {
             return commandeService.obtenirCommandeAvecDetails(id)
-                    .map(commande -> ResponseEntity.ok(CommandeDTO.fromEntity(commande)))
+                    .map(commande -> ResponseEntity.ok(commandeService.convertirEnDTO(commande)))
                     .orElseGet(() -> ResponseEntity.notFound().build());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
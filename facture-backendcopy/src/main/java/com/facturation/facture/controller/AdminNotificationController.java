@@ -0,0 +1,48 @@
+package com.facturation.facture.controller;
+
+import com.facturation.facture.dto.NotificationDTO;
+import com.facturation.facture.service.NotificationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/admin/notifications")
+@CrossOrigin(origins = "http://localhost:3000")
+public class AdminNotificationController {
+
+    private final NotificationService notificationService;
+
+    @Autowired
+    public AdminNotificationController(NotificationService notificationService) {
+        this.notificationService = notificationService;
+    }
+
+    /**
+     * Notifications non lues d'un administrateur (alertes de stock faible...)
+     */
+    @GetMapping
+    public ResponseEntity<List<NotificationDTO>> obtenirNonLues(@RequestParam Long idAdmin) {
+        return ResponseEntity.ok(
+                notificationService.obtenirNonLues(idAdmin)
+                        .stream()
+                        .map(NotificationDTO::fromEntity)
+                        .collect(Collectors.toList())
+        );
+    }
+
+    @PatchMapping("/{id}/lue")
+    public ResponseEntity<Void> marquerLue(@PathVariable Long id, @RequestParam Long idAdmin) {
+        notificationService.marquerLue(id, idAdmin);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PatchMapping("/lues")
+    public ResponseEntity<Map<String, Integer>> marquerToutesLues(@RequestParam Long idAdmin) {
+        return ResponseEntity.ok(Map.of("marquees", notificationService.marquerToutesLues(idAdmin)));
+    }
+}
@@ -1,16 +1,28 @@
 package com.facturation.facture.controller;
 
+import com.facturation.facture.dto.IndicateursCatalogueDTO;
 import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.dto.RapportImportProduitsDTO;
+import com.facturation.facture.dto.SuggestionReapprovisionnementDTO;
 import com.facturation.facture.model.Produit;
+import com.facturation.facture.service.ImportProduitService;
+import com.facturation.facture.service.JournalStockService;
 import com.facturation.facture.service.ProduitService;
+import com.facturation.facture.service.RechercheProduitsService;
+import com.facturation.facture.service.StockSegmenteService;
+import com.facturation.facture.service.VelociteVentesService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -19,10 +31,24 @@ import java.util.stream.Collectors;
 public class AdminProduitController {
 
     private final ProduitService produitService;
+    private final StockSegmenteService stockSegmenteService;
+    private final JournalStockService journalStockService;
+    private final ImportProduitService importProduitService;
+    private final VelociteVentesService velociteVentesService;
+    private final RechercheProduitsService rechercheProduitsService;
 
     @Autowired
-    public AdminProduitController(ProduitService produitService) {
+    public AdminProduitController(ProduitService produitService, StockSegmenteService stockSegmenteService,
+                                  JournalStockService journalStockService,
+                                  ImportProduitService importProduitService,
+                                  VelociteVentesService velociteVentesService,
+                                  RechercheProduitsService rechercheProduitsService) {
         this.produitService = produitService;
+        this.stockSegmenteService = stockSegmenteService;
+        this.journalStockService = journalStockService;
+        this.importProduitService = importProduitService;
+        this.velociteVentesService = velociteVentesService;
+        this.rechercheProduitsService = rechercheProduitsService;
     }
 
     @GetMapping
@@ -51,6 +77,12 @@ public class AdminProduitController {
                 .body(ProduitDTO.fromEntity(produitSauvegarde));
     }
 
+    // Import CSV (corps brut text/csv, lu au fil de l'eau) : créations et mises à jour en masse
+    @PostMapping(value = "/import", consumes = {"text/csv", "text/plain", "application/octet-stream"})
+    public ResponseEntity<RapportImportProduitsDTO> importerProduits(InputStream fichier) {
+        return ResponseEntity.ok(importProduitService.importer(fichier));
+    }
+
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProduit(@PathVariable Long id) {
@@ -72,14 +104,56 @@ public class AdminProduitController {
         );
     }
 
+    // Stock réparti sur plusieurs segments pour un produit très demandé (vente flash)
+    @PatchMapping("/{id}/stock-segmente")
+    public ResponseEntity<ProduitDTO> activerStockSegmente(@PathVariable Long id,
+                                                           @RequestParam(required = false) Integer segments) {
+        if (segments != null) {
+            stockSegmenteService.activer(id, segments);
+        } else {
+            stockSegmenteService.activer(id);
+        }
+        return ResponseEntity.ok(ProduitDTO.fromEntity(produitService.obtenirProduitParId(id).orElseThrow()));
+    }
+
+    @PatchMapping("/{id}/stock-simple")
+    public ResponseEntity<ProduitDTO> desactiverStockSegmente(@PathVariable Long id) {
+        stockSegmenteService.desactiver(id);
+        return ResponseEntity.ok(ProduitDTO.fromEntity(produitService.obtenirProduitParId(id).orElseThrow()));
+    }
+
+    // Stock d'un produit à une date, reconstitué depuis le journal des mouvements
+    @GetMapping("/{id}/stock-a-date")
+    public ResponseEntity<Map<String, Object>> obtenirStockADate(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime date) {
+        return ResponseEntity.ok(Map.of(
+                "produitId", id,
+                "date", date,
+                "quantite", journalStockService.quantiteADate(id, date)));
+    }
+
+    // Produits qui devraient passer sous le seuil d'alerte d'ici N jours (rythme de ventes en mémoire)
+    @GetMapping("/reapprovisionnement")
+    public ResponseEntity<List<SuggestionReapprovisionnementDTO>> obtenirSuggestionsReapprovisionnement(
+            @RequestParam(defaultValue = "14") int jours) {
+        return ResponseEntity.ok(velociteVentesService.obtenirSuggestions(jours));
+    }
+
+    // Recherche plein texte en mémoire (classée par pertinence) ; terme vide = tous les produits
     @GetMapping("/recherche")
-    public ResponseEntity<List<ProduitDTO>> rechercherProduits(@RequestParam String terme) {
-        return ResponseEntity.ok(
-                produitService.rechercherProduits(terme)
-                        .stream()
-                        .map(ProduitDTO::fromEntity)
-                        .collect(Collectors.toList())
-        );
+    public ResponseEntity<List<ProduitDTO>> rechercherProduits(@RequestParam String terme,
+                                                               @RequestParam(required = false) Integer limite) {
+        if (terme.isBlank()) {
+            return getAllProduits();
+        }
+        return ResponseEntity.ok(rechercheProduitsService.rechercher(terme, limite));
+    }
+
+    // Indicateurs du catalogue (tenus en mémoire, sans requête d'agrégat)
+    @GetMapping("/statistiques")
+    public ResponseEntity<IndicateursCatalogueDTO> obtenirIndicateurs() {
+        return ResponseEntity.ok(produitService.obtenirIndicateurs());
     }
 
     @GetMapping("/statistiques/prix-moyen")
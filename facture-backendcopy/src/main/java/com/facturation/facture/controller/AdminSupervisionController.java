@@ -0,0 +1,29 @@
+package com.facturation.facture.controller;
+
+import com.facturation.facture.service.SupervisionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/supervision")
+@CrossOrigin(origins = "http://localhost:3000")
+public class AdminSupervisionController {
+
+    private final SupervisionService supervisionService;
+
+    @Autowired
+    public AdminSupervisionController(SupervisionService supervisionService) {
+        this.supervisionService = supervisionService;
+    }
+
+    /**
+     * Compteurs de supervision de l'instance (conflits, réessais, traitements planifiés)
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Long>> obtenirCompteurs() {
+        return ResponseEntity.ok(supervisionService.obtenirCompteurs());
+    }
+}
@@ -1,16 +1,23 @@
 package com.facturation.facture.controller;
 
+import com.facturation.facture.config.CleIdempotenceReutiliseeException;
 import com.facturation.facture.dto.CommandeDTO;
+import com.facturation.facture.dto.OperationLigneDTO;
+import com.facturation.facture.dto.PageLignesCommandeDTO;
+import com.facturation.facture.dto.RapportCommandesMasseDTO;
 import com.facturation.facture.model.Commande;
+import com.facturation.facture.model.LigneCommande;
 import com.facturation.facture.service.CommandeService;
+import com.facturation.facture.service.IdempotenceService;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/client/commandes")
@@ -18,10 +25,12 @@ import java.util.stream.Collectors;
 public class ClientCommandeController {
 
     private final CommandeService commandeService;
+    private final IdempotenceService idempotenceService;
 
     @Autowired
-    public ClientCommandeController(CommandeService commandeService) {
+    public ClientCommandeController(CommandeService commandeService, IdempotenceService idempotenceService) {
         this.commandeService = commandeService;
+        this.idempotenceService = idempotenceService;
     }
 
     /**
@@ -31,9 +40,7 @@ public class ClientCommandeController {
     public ResponseEntity<?> getMesCommandes(@PathVariable Long idClient) {
         try {
             List<Commande> commandes = commandeService.getCommandesParClient(idClient);
-            List<CommandeDTO> commandeDTOs = commandes.stream()
-                    .map(CommandeDTO::fromEntity)
-                    .collect(Collectors.toList());
+            List<CommandeDTO> commandeDTOs = commandeService.convertirEnDTO(commandes);
             return ResponseEntity.ok(commandeDTOs);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -57,7 +64,7 @@ public class ClientCommandeController {
                         .body(Map.of("error", "Accès non autorisé à cette commande"));
             }
 
-            return ResponseEntity.ok(CommandeDTO.fromEntity(commande));
+            return ResponseEntity.ok(commandeService.convertirEnDTO(commande));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -70,7 +77,8 @@ public class ClientCommandeController {
     @PostMapping("/creer-avec-produits")
     public ResponseEntity<?> creerCommandeAvecProduits(
             @RequestBody CommandeDTO commandeDTO,
-            @RequestParam Long idClient) {
+            @RequestParam Long idClient,
+            @RequestHeader(value = "Idempotency-Key", required = false) String cleIdempotence) {
         try {
             // S'assurer que l'ID client est défini dans le DTO
             if (commandeDTO.getClient() == null) {
@@ -78,8 +86,32 @@ public class ClientCommandeController {
             }
             commandeDTO.getClient().setId(idClient);
 
-            Commande commande = commandeService.creerCommandeAvecProduits(commandeDTO);
-            return ResponseEntity.status(HttpStatus.CREATED).body(CommandeDTO.fromEntity(commande));
+            // Un doublon (double clic, nouvelle tentative) rejoue la première réponse
+            // Même clé mais autre contenu : refusée (422) plutôt que rejouée
+            IdempotenceService.Execution<CommandeDTO> execution = idempotenceService.executer(cleIdempotence, commandeDTO,
+                    () -> commandeService.convertirEnDTO(commandeService.creerCommandeAvecProduits(commandeDTO)));
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header("Idempotent-Replay", String.valueOf(execution.isRejeu()))
+                    .body(execution.getResultat());
+        } catch (CleIdempotenceReutiliseeException e) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+
+    /**
+     * Créer un lot de commandes en une seule requête (partenaires B2B)
+     * Retourne un rapport succès/erreur par commande, dans l'ordre de soumission
+     */
+    @PostMapping("/creer-en-masse")
+    public ResponseEntity<?> creerCommandesEnMasse(@RequestBody List<CommandeDTO> commandesDTO) {
+        try {
+            RapportCommandesMasseDTO rapport = commandeService.creerCommandesEnMasse(commandesDTO);
+            return ResponseEntity.ok(rapport);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
@@ -96,7 +128,7 @@ public class ClientCommandeController {
         try {
             Commande commande = commandeService.creerCommande(idClient);
             return ResponseEntity.status(HttpStatus.CREATED)
-                    .body(CommandeDTO.fromEntity(commande));
+                    .body(commandeService.convertirEnDTO(commande));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
@@ -123,7 +155,7 @@ public class ClientCommandeController {
             }
 
             Commande commande = commandeService.ajouterProduitACommande(idCommande, idProduit, quantite);
-            return ResponseEntity.ok(CommandeDTO.fromEntity(commande));
+            return ResponseEntity.ok(commandeService.convertirEnDTO(commande));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
@@ -149,7 +181,7 @@ public class ClientCommandeController {
             }
 
             Commande commande = commandeService.supprimerProduitDeCommande(idCommande, idProduit);
-            return ResponseEntity.ok(CommandeDTO.fromEntity(commande));
+            return ResponseEntity.ok(commandeService.convertirEnDTO(commande));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
@@ -176,7 +208,7 @@ public class ClientCommandeController {
             }
 
             Commande commande = commandeService.modifierQuantiteProduit(idCommande, idProduit, nouvelleQuantite);
-            return ResponseEntity.ok(CommandeDTO.fromEntity(commande));
+            return ResponseEntity.ok(commandeService.convertirEnDTO(commande));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
@@ -185,6 +217,55 @@ public class ClientCommandeController {
         }
     }
 
+    /**
+     * Lire les lignes d'une commande page par page (grandes commandes)
+     */
+    @GetMapping("/{idCommande}/lignes")
+    public ResponseEntity<?> getLignesCommande(
+            @PathVariable Long idCommande,
+            @RequestParam Long idClient,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int taille) {
+        try {
+            if (!commandeService.commandeAppartientAuClient(idCommande, idClient)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "Accès non autorisé à cette commande"));
+            }
+
+            Page<LigneCommande> lignes = commandeService.obtenirLignesCommande(idCommande, page, taille);
+            return ResponseEntity.ok(PageLignesCommandeDTO.fromPage(idCommande, lignes));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Appliquer plusieurs modifications de lignes en une requête
+     * (ajouts, suppressions, changements de quantité)
+     */
+    @PatchMapping("/{idCommande}/lignes")
+    public ResponseEntity<?> modifierLignesCommande(
+            @PathVariable Long idCommande,
+            @RequestParam Long idClient,
+            @Valid @RequestBody List<OperationLigneDTO> operations) {
+        try {
+            // Vérifier que la commande appartient au client
+            Commande commandeExistante = commandeService.getCommandeById(idCommande);
+            if (!commandeExistante.getClient().getId().equals(idClient)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "Accès non autorisé à cette commande"));
+            }
+
+            Commande commande = commandeService.appliquerOperationsLignes(idCommande, operations);
+            return ResponseEntity.ok(commandeService.convertirEnDTO(commande));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur lors de la modification de la commande"));
+        }
+    }
+
     /**
      * Annuler une commande (si le statut le permet)
      */
@@ -201,7 +282,7 @@ public class ClientCommandeController {
             }
 
             Commande commande = commandeService.annulerCommande(idCommande);
-            return ResponseEntity.ok(CommandeDTO.fromEntity(commande));
+            return ResponseEntity.ok(commandeService.convertirEnDTO(commande));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
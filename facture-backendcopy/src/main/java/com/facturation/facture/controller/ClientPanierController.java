@@ -0,0 +1,138 @@
+package com.facturation.facture.controller;
+
+import com.facturation.facture.model.Commande;
+import com.facturation.facture.service.CommandeService;
+import com.facturation.facture.service.PanierService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/client/panier")
+@CrossOrigin(origins = "http://localhost:3000")
+public class ClientPanierController {
+
+    private final PanierService panierService;
+    private final CommandeService commandeService;
+
+    @Autowired
+    public ClientPanierController(PanierService panierService, CommandeService commandeService) {
+        this.panierService = panierService;
+        this.commandeService = commandeService;
+    }
+
+    /**
+     * Récupérer le panier d'un client
+     */
+    @GetMapping("/{idClient}")
+    public ResponseEntity<?> getPanier(@PathVariable Long idClient, Authentication authentication) {
+        if (!estProprietaire(idClient, authentication)) {
+            return accesRefuse();
+        }
+        return ResponseEntity.ok(panierService.obtenirPanier(idClient));
+    }
+
+    /**
+     * Ajouter un produit au panier
+     */
+    @PostMapping("/{idClient}/produits/{idProduit}")
+    public ResponseEntity<?> ajouterProduit(
+            @PathVariable Long idClient,
+            @PathVariable Long idProduit,
+            @RequestParam Integer quantite,
+            Authentication authentication) {
+        if (!estProprietaire(idClient, authentication)) {
+            return accesRefuse();
+        }
+        try {
+            return ResponseEntity.ok(panierService.ajouterProduit(idClient, idProduit, quantite));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Modifier la quantité d'un produit du panier
+     */
+    @PutMapping("/{idClient}/produits/{idProduit}")
+    public ResponseEntity<?> modifierQuantite(
+            @PathVariable Long idClient,
+            @PathVariable Long idProduit,
+            @RequestParam Integer quantite,
+            Authentication authentication) {
+        if (!estProprietaire(idClient, authentication)) {
+            return accesRefuse();
+        }
+        try {
+            return ResponseEntity.ok(panierService.modifierQuantite(idClient, idProduit, quantite));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Retirer un produit du panier
+     */
+    @DeleteMapping("/{idClient}/produits/{idProduit}")
+    public ResponseEntity<?> supprimerProduit(
+            @PathVariable Long idClient,
+            @PathVariable Long idProduit,
+            Authentication authentication) {
+        if (!estProprietaire(idClient, authentication)) {
+            return accesRefuse();
+        }
+        try {
+            return ResponseEntity.ok(panierService.supprimerProduit(idClient, idProduit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Vider le panier
+     */
+    @DeleteMapping("/{idClient}")
+    public ResponseEntity<?> viderPanier(@PathVariable Long idClient, Authentication authentication) {
+        if (!estProprietaire(idClient, authentication)) {
+            return accesRefuse();
+        }
+        panierService.viderPanier(idClient);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Valider le panier : création de la commande et de sa facture
+     */
+    @PostMapping("/{idClient}/valider")
+    public ResponseEntity<?> validerPanier(@PathVariable Long idClient, Authentication authentication) {
+        if (!estProprietaire(idClient, authentication)) {
+            return accesRefuse();
+        }
+        try {
+            Commande commande = panierService.validerPanier(idClient);
+            return ResponseEntity.status(HttpStatus.CREATED).body(commandeService.convertirEnDTO(commande));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur lors de la validation du panier"));
+        }
+    }
+
+    /**
+     * Le panier (et les réservations de stock qui l'accompagnent) n'est
+     * accessible qu'à son client, identifié par le jeton d'authentification
+     */
+    private boolean estProprietaire(Long idClient, Authentication authentication) {
+        return authentication != null && panierService.estProprietaire(idClient, authentication.getName());
+    }
+
+    private static ResponseEntity<?> accesRefuse() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("error", "Accès non autorisé à ce panier"));
+    }
+}
@@ -1,12 +1,20 @@
 package com.facturation.facture.controller;
 
 import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.dto.RechercheFacettesDTO;
+import com.facturation.facture.dto.SuggestionAutocompletionDTO;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.service.AutocompletionService;
+import com.facturation.facture.service.CatalogueService;
 import com.facturation.facture.service.ProduitService;
+import com.facturation.facture.service.RechercheFacettesService;
+import com.facturation.facture.service.ReservationStockService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -16,26 +24,65 @@ import java.util.stream.Collectors;
 public class ClientProduitController {
 
     private final ProduitService produitService;
+    private final ReservationStockService reservationStockService;
+    private final CatalogueService catalogueService;
+    private final AutocompletionService autocompletionService;
+    private final RechercheFacettesService rechercheFacettesService;
 
     @Autowired
-    public ClientProduitController(ProduitService produitService) {
+    public ClientProduitController(ProduitService produitService, ReservationStockService reservationStockService,
+                                   CatalogueService catalogueService, AutocompletionService autocompletionService,
+                                   RechercheFacettesService rechercheFacettesService) {
         this.produitService = produitService;
+        this.reservationStockService = reservationStockService;
+        this.catalogueService = catalogueService;
+        this.autocompletionService = autocompletionService;
+        this.rechercheFacettesService = rechercheFacettesService;
     }
 
+    // Catalogue en mémoire ; le stock disponible (réservations des paniers) est calculé à chaque appel
     @GetMapping
     public ResponseEntity<List<ProduitDTO>> getAllProduits() {
-        return ResponseEntity.ok(
-                produitService.obtenirProduitsDisponibles()
-                        .stream()
-                        .map(ProduitDTO::fromEntity)
-                        .collect(Collectors.toList())
-        );
+        CatalogueService.Catalogue catalogue = catalogueService.obtenirCatalogue();
+        List<ProduitDTO> produits = new ArrayList<>(catalogue.getProduitsDisponibles().size());
+        for (ProduitDTO produit : catalogue.getProduitsDisponibles()) {
+            ProduitDTO dto = produit.copie();
+            dto.setQuantiteDisponible(reservationStockService.quantiteDisponible(dto.getId(), dto.getQuantiteStock()));
+            produits.add(dto);
+        }
+        return ResponseEntity.ok()
+                .header(CatalogueService.ENTETE_VERSION, catalogue.getEtiquette())
+                .body(produits);
+    }
+
+    // Complétions pendant la saisie (produits disponibles et catégories, les plus vendus d'abord)
+    @GetMapping("/autocompletion")
+    public ResponseEntity<List<SuggestionAutocompletionDTO>> completer(@RequestParam String prefixe,
+                                                                       @RequestParam(required = false) Integer limite) {
+        return ResponseEntity.ok(autocompletionService.completer(prefixe, limite));
+    }
+
+    // Recherche à facettes : filtres combinés, décomptes par catégorie, histogramme des prix et stock (en mémoire)
+    @GetMapping("/facettes")
+    public ResponseEntity<RechercheFacettesDTO> rechercherParFacettes(
+            @RequestParam(required = false) List<Long> categorieId,
+            @RequestParam(required = false) BigDecimal prixMin,
+            @RequestParam(required = false) BigDecimal prixMax,
+            @RequestParam(required = false) Boolean enStock,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int taille,
+            @RequestParam(defaultValue = "10") int tranches) {
+        RechercheFacettesDTO resultat = rechercheFacettesService.rechercher(categorieId, prixMin, prixMax, enStock,
+                page, taille, tranches);
+        return ResponseEntity.ok()
+                .header(CatalogueService.ENTETE_VERSION, catalogueService.etiquette(resultat.getVersionCatalogue()))
+                .body(resultat);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<ProduitDTO> getProduitById(@PathVariable Long id) {
         return produitService.obtenirProduitParId(id)
-                .map(ProduitDTO::fromEntity)
+                .map(this::versDTO)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -47,8 +94,17 @@ public class ClientProduitController {
         return ResponseEntity.ok(
                 produitService.obtenirProduitsParFourchettePrix(prixMin, prixMax)
                         .stream()
-                        .map(ProduitDTO::fromEntity)
+                        .map(this::versDTO)
                         .collect(Collectors.toList())
         );
     }
+
+    /**
+     * Convertir un produit pour le catalogue, avec le stock disponible (hors réservations des paniers)
+     */
+    private ProduitDTO versDTO(Produit produit) {
+        ProduitDTO dto = ProduitDTO.fromEntity(produit);
+        dto.setQuantiteDisponible(reservationStockService.quantiteDisponible(produit));
+        return dto;
+    }
 }
@@ -2,15 +2,19 @@ package com.facturation.facture.controller;
 
 import com.facturation.facture.dto.ProduitDTO;
 import com.facturation.facture.model.Produit;
+import com.facturation.facture.service.CatalogueService;
 import com.facturation.facture.service.ProduitService;
+import com.facturation.facture.service.RechercheProduitsService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -20,10 +24,15 @@ import java.util.stream.Collectors;
 public class ProduitController {
 
     private final ProduitService produitService;
+    private final CatalogueService catalogueService;
+    private final RechercheProduitsService rechercheProduitsService;
 
     @Autowired
-    public ProduitController(ProduitService produitService) {
+    public ProduitController(ProduitService produitService, CatalogueService catalogueService,
+                             RechercheProduitsService rechercheProduitsService) {
         this.produitService = produitService;
+        this.catalogueService = catalogueService;
+        this.rechercheProduitsService = rechercheProduitsService;
     }
 
     /**
@@ -43,21 +52,38 @@ public class ProduitController {
     }
 
     /**
-     * Obtenir tous les produits disponibles
+     * Obtenir tous les produits disponibles, depuis le catalogue en mémoire.
+     * L'étiquette du catalogue sert d'ETag : 304 si le client a déjà cette version.
      */
     @GetMapping("/disponibles")
-    public ResponseEntity<List<ProduitDTO>> obtenirProduitsDisponibles() {
+    public ResponseEntity<List<ProduitDTO>> obtenirProduitsDisponibles(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String versionClient) {
         try {
-            List<Produit> produits = produitService.obtenirProduitsDisponibles();
-            List<ProduitDTO> produitsDTO = produits.stream()
-                    .map(ProduitDTO::fromEntity)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(produitsDTO);
+            CatalogueService.Catalogue catalogue = catalogueService.obtenirCatalogue();
+            String etag = "\"" + catalogue.getEtiquette() + "\"";
+            if (etag.equals(versionClient)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .header(CatalogueService.ENTETE_VERSION, catalogue.getEtiquette())
+                    .body(catalogue.getProduitsDisponibles());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * Version actuelle du catalogue (pour invalider un cache côté client)
+     */
+    @GetMapping("/disponibles/version")
+    public ResponseEntity<Map<String, Object>> obtenirVersionCatalogue() {
+        CatalogueService.Catalogue catalogue = catalogueService.obtenirCatalogue();
+        return ResponseEntity.ok(Map.of(
+                "version", catalogue.getEtiquette(),
+                "dateGeneration", catalogue.getDateGeneration()));
+    }
+
     /**
      * Obtenir un produit par son ID
      */
@@ -129,19 +155,16 @@ public class ProduitController {
     }
 
     /**
-     * Rechercher des produits
+     * Rechercher des produits (index en mémoire, classés par pertinence ;
+     * terme vide = tous les produits)
      */
     @GetMapping("/recherche")
-    public ResponseEntity<List<ProduitDTO>> rechercherProduits(@RequestParam String terme) {
-        try {
-            List<Produit> produits = produitService.rechercherProduits(terme);
-            List<ProduitDTO> produitsDTO = produits.stream()
-                    .map(ProduitDTO::fromEntity)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(produitsDTO);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    public ResponseEntity<List<ProduitDTO>> rechercherProduits(@RequestParam String terme,
+                                                               @RequestParam(required = false) Integer limite) {
+        if (terme.isBlank()) {
+            return obtenirTousLesProduits();
         }
+        return ResponseEntity.ok(rechercheProduitsService.rechercher(terme, limite));
     }
 
     /**
@@ -42,6 +42,9 @@ public class CommandeDTO {
     private List<LigneCommandeDTO> lignesCommande;
     private Integer nombreArticles;
 
+    // Grande commande : les lignes ne sont pas incluses, elles se lisent page par page
+    private boolean lignesPaginees;
+
     // Constructeurs
     public CommandeDTO() {}
 
@@ -73,6 +76,28 @@ public class CommandeDTO {
         return dto;
     }
 
+    // Conversion résumée (grandes commandes) : totaux sans les lignes
+    public static CommandeDTO fromEntityResume(Commande commande, long nombreLignes) {
+        if (commande == null) return null;
+
+        CommandeDTO dto = new CommandeDTO();
+        dto.setId(commande.getId());
+        dto.setNumeroCommande(commande.getNumeroCommande());
+        dto.setDateCommande(commande.getDateCommande());
+        dto.setDateModification(commande.getDateModification());
+        dto.setStatut(commande.getStatut());
+        dto.setSousTotal(commande.getSousTotal());
+        dto.setTauxTVA(commande.getTauxTVA());
+        dto.setMontantTVA(commande.getMontantTVA());
+        dto.setTotalHT(commande.getTotalHT());
+        dto.setTotalTTC(commande.getTotalTTC());
+        dto.setCommentaire(commande.getCommentaire());
+        dto.setClient(UserDTO.fromEntity(commande.getClient()));
+        dto.setNombreArticles((int) nombreLignes);
+        dto.setLignesPaginees(true);
+        return dto;
+    }
+
     // Méthode de conversion vers l'entité
     public Commande toEntity() {
         Commande commande = new Commande();
@@ -137,4 +162,7 @@ public class CommandeDTO {
 
     public Integer getNombreArticles() { return nombreArticles; }
     public void setNombreArticles(Integer nombreArticles) { this.nombreArticles = nombreArticles; }
+
+    public boolean isLignesPaginees() { return lignesPaginees; }
+    public void setLignesPaginees(boolean lignesPaginees) { this.lignesPaginees = lignesPaginees; }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.facturation.facture.dto;
 
+import com.facturation.facture.model.Commande;
 import com.facturation.facture.model.Facture;
 import com.facturation.facture.model.enums.StatutFacture;
 import com.facturation.facture.model.enums.ModePaiement;
@@ -45,6 +46,9 @@ public class FactureDTO {
     private String emailClient;
     private String telephoneClient;
 
+    // Vrai si la facture n'existe pas encore en base (commande EN_ATTENTE, facturation différée)
+    private boolean provisoire;
+
     // Constructeurs
     public FactureDTO() {}
 
@@ -107,6 +111,29 @@ public class FactureDTO {
         return facture;
     }
 
+    // Facture provisoire construite depuis une commande EN_ATTENTE non encore facturée
+    public static FactureDTO fromCommandeEnAttente(Commande commande) {
+        FactureDTO dto = new FactureDTO();
+        dto.setProvisoire(true);
+        dto.setDateCreation(commande.getDateCommande());
+        dto.setDateFacture(commande.getDateCommande());
+        dto.setDateModification(commande.getDateModification());
+        dto.setStatut(StatutFacture.EN_ATTENTE);
+        dto.setMontantHT(commande.getTotalHT());
+        dto.setMontantTVA(commande.getMontantTVA());
+        dto.setMontantTTC(commande.getTotalTTC());
+        dto.setStatutCommande(commande.getStatut() != null ? commande.getStatut().name() : null);
+        dto.setCommandeId(commande.getId());
+        dto.setNumeroCommande(commande.getNumeroCommande());
+
+        if (commande.getClient() != null) {
+            dto.setNomClient(commande.getClient().getNom());
+            dto.setClientId(commande.getClient().getId());
+            dto.setEmailClient(commande.getClient().getEmail());
+        }
+        return dto;
+    }
+
     // Version avec commande complète
     public static FactureDTO fromEntityWithCommande(Facture facture) {
         FactureDTO dto = fromEntity(facture);
@@ -174,6 +201,9 @@ public class FactureDTO {
     public String getTelephoneClient() { return telephoneClient; }
     public void setTelephoneClient(String telephoneClient) { this.telephoneClient = telephoneClient; }
 
+    public boolean isProvisoire() { return provisoire; }
+    public void setProvisoire(boolean provisoire) { this.provisoire = provisoire; }
+
     // Méthodes utilitaires
     public boolean estPayee() {
         return StatutFacture.PAYEE.equals(this.statut);
@@ -0,0 +1,41 @@
+package com.facturation.facture.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Indicateurs du catalogue (produits disponibles uniquement pour les stocks,
+ * le prix moyen et la valeur du stock)
+ */
+public class IndicateursCatalogueDTO {
+
+    private long nombreProduits;
+    private long produitsDisponibles;
+    private long produitsStockFaible;
+    private long produitsRuptureStock;
+    private BigDecimal prixMoyen;
+    private BigDecimal valeurTotaleStock;
+    private LocalDateTime derniereReconciliation;
+
+    // Getters et Setters
+    public long getNombreProduits() { return nombreProduits; }
+    public void setNombreProduits(long nombreProduits) { this.nombreProduits = nombreProduits; }
+
+    public long getProduitsDisponibles() { return produitsDisponibles; }
+    public void setProduitsDisponibles(long produitsDisponibles) { this.produitsDisponibles = produitsDisponibles; }
+
+    public long getProduitsStockFaible() { return produitsStockFaible; }
+    public void setProduitsStockFaible(long produitsStockFaible) { this.produitsStockFaible = produitsStockFaible; }
+
+    public long getProduitsRuptureStock() { return produitsRuptureStock; }
+    public void setProduitsRuptureStock(long produitsRuptureStock) { this.produitsRuptureStock = produitsRuptureStock; }
+
+    public BigDecimal getPrixMoyen() { return prixMoyen; }
+    public void setPrixMoyen(BigDecimal prixMoyen) { this.prixMoyen = prixMoyen; }
+
+    public BigDecimal getValeurTotaleStock() { return valeurTotaleStock; }
+    public void setValeurTotaleStock(BigDecimal valeurTotaleStock) { this.valeurTotaleStock = valeurTotaleStock; }
+
+    public LocalDateTime getDerniereReconciliation() { return derniereReconciliation; }
+    public void setDerniereReconciliation(LocalDateTime derniereReconciliation) { this.derniereReconciliation = derniereReconciliation; }
+}
@@ -0,0 +1,78 @@
+package com.facturation.facture.dto;
+
+import com.facturation.facture.model.Notification;
+import com.facturation.facture.model.enums.TypeNotification;
+
+import java.time.LocalDateTime;
+
+public class NotificationDTO {
+
+    private Long id;
+    private String titre;
+    private String message;
+    private TypeNotification type;
+    private Boolean lue;
+    private LocalDateTime dateCreation;
+
+    public static NotificationDTO fromEntity(Notification notification) {
+        if (notification == null) return null;
+
+        NotificationDTO dto = new NotificationDTO();
+        dto.setId(notification.getId());
+        dto.setTitre(notification.getTitre());
+        dto.setMessage(notification.getMessage());
+        dto.setType(notification.getType());
+        dto.setLue(notification.getLue());
+        dto.setDateCreation(notification.getDateCreation());
+        return dto;
+    }
+
+    // Getters et Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitre() {
+        return titre;
+    }
+
+    public void setTitre(String titre) {
+        this.titre = titre;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public TypeNotification getType() {
+        return type;
+    }
+
+    public void setType(TypeNotification type) {
+        this.type = type;
+    }
+
+    public Boolean getLue() {
+        return lue;
+    }
+
+    public void setLue(Boolean lue) {
+        this.lue = lue;
+    }
+
+    public LocalDateTime getDateCreation() {
+        return dateCreation;
+    }
+
+    public void setDateCreation(LocalDateTime dateCreation) {
+        this.dateCreation = dateCreation;
+    }
+}
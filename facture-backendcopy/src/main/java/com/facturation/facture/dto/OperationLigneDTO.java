@@ -0,0 +1,37 @@
+package com.facturation.facture.dto;
+
+import com.facturation.facture.model.enums.TypeOperationLigne;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Opération unitaire sur une ligne de commande (ajout, suppression, quantité)
+ */
+public class OperationLigneDTO {
+
+    @NotNull(message = "Le type d'opération est obligatoire")
+    private TypeOperationLigne type;
+
+    @NotNull(message = "Le produit est obligatoire")
+    private Long produitId;
+
+    // Quantité ajoutée (AJOUTER) ou nouvelle quantité (DEFINIR_QUANTITE)
+    private Integer quantite;
+
+    public OperationLigneDTO() {}
+
+    public OperationLigneDTO(TypeOperationLigne type, Long produitId, Integer quantite) {
+        this.type = type;
+        this.produitId = produitId;
+        this.quantite = quantite;
+    }
+
+    // Getters et Setters
+    public TypeOperationLigne getType() { return type; }
+    public void setType(TypeOperationLigne type) { this.type = type; }
+
+    public Long getProduitId() { return produitId; }
+    public void setProduitId(Long produitId) { this.produitId = produitId; }
+
+    public Integer getQuantite() { return quantite; }
+    public void setQuantite(Integer quantite) { this.quantite = quantite; }
+}
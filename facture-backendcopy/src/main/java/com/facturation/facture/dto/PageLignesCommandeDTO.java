@@ -0,0 +1,54 @@
+package com.facturation.facture.dto;
+
+import com.facturation.facture.model.LigneCommande;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Page de lignes d'une commande (grandes commandes)
+ */
+public class PageLignesCommandeDTO {
+
+    private Long commandeId;
+    private List<LigneCommandeDTO> lignes;
+    private int page;
+    private int taille;
+    private long totalLignes;
+    private int totalPages;
+
+    public PageLignesCommandeDTO() {}
+
+    public static PageLignesCommandeDTO fromPage(Long commandeId, Page<LigneCommande> page) {
+        PageLignesCommandeDTO dto = new PageLignesCommandeDTO();
+        dto.setCommandeId(commandeId);
+        dto.setLignes(page.getContent().stream()
+                .map(LigneCommandeDTO::fromEntity)
+                .collect(Collectors.toList()));
+        dto.setPage(page.getNumber());
+        dto.setTaille(page.getSize());
+        dto.setTotalLignes(page.getTotalElements());
+        dto.setTotalPages(page.getTotalPages());
+        return dto;
+    }
+
+    // Getters et Setters
+    public Long getCommandeId() { return commandeId; }
+    public void setCommandeId(Long commandeId) { this.commandeId = commandeId; }
+
+    public List<LigneCommandeDTO> getLignes() { return lignes; }
+    public void setLignes(List<LigneCommandeDTO> lignes) { this.lignes = lignes; }
+
+    public int getPage() { return page; }
+    public void setPage(int page) { this.page = page; }
+
+    public int getTaille() { return taille; }
+    public void setTaille(int taille) { this.taille = taille; }
+
+    public long getTotalLignes() { return totalLignes; }
+    public void setTotalLignes(long totalLignes) { this.totalLignes = totalLignes; }
+
+    public int getTotalPages() { return totalPages; }
+    public void setTotalPages(int totalPages) { this.totalPages = totalPages; }
+}
@@ -33,6 +33,12 @@ public class ProduitDTO {
 
     private Boolean disponible = true;
 
+    // Stock moins les réservations des paniers en cours (catalogue client)
+    private Integer quantiteDisponible;
+
+    // Stock réparti sur plusieurs segments (lecture seule, voir StockSegmenteService)
+    private Boolean stockSegmente;
+
     private String imagePath;
 
     private LocalDateTime dateCreation;
@@ -75,6 +81,7 @@ public class ProduitDTO {
         dto.setQuantiteStock(produit.getQuantiteStock());
         dto.setSeuilAlerte(produit.getSeuilAlerte());
         dto.setDisponible(produit.getDisponible());
+        dto.setStockSegmente(produit.getStockSegmente());
         dto.setImagePath(produit.getImagePath());
         dto.setDateCreation(produit.getDateCreation());
         dto.setDateModification(produit.getDateModification());
@@ -88,6 +95,17 @@ public class ProduitDTO {
         return dto;
     }
 
+    // Copie (les produits du catalogue en mémoire sont partagés et ne sont jamais modifiés)
+    public ProduitDTO copie() {
+        ProduitDTO dto = new ProduitDTO(id, nom, description, prix, quantiteStock, seuilAlerte, disponible,
+                imagePath, categorieId, categorieNom);
+        dto.setQuantiteDisponible(quantiteDisponible);
+        dto.setStockSegmente(stockSegmente);
+        dto.setDateCreation(dateCreation);
+        dto.setDateModification(dateModification);
+        return dto;
+    }
+
     // Méthode de conversion vers l'entité (partielle - la catégorie doit être gérée dans le service)
     public Produit toEntity() {
         Produit produit = new Produit();
@@ -127,6 +145,12 @@ public class ProduitDTO {
     public Integer getSeuilAlerte() { return seuilAlerte; }
     public void setSeuilAlerte(Integer seuilAlerte) { this.seuilAlerte = seuilAlerte; }
 
+    public Integer getQuantiteDisponible() { return quantiteDisponible; }
+    public void setQuantiteDisponible(Integer quantiteDisponible) { this.quantiteDisponible = quantiteDisponible; }
+
+    public Boolean getStockSegmente() { return stockSegmente; }
+    public void setStockSegmente(Boolean stockSegmente) { this.stockSegmente = stockSegmente; }
+
     public Boolean getDisponible() { return disponible; }
     public void setDisponible(Boolean disponible) { this.disponible = disponible; }
 
@@ -0,0 +1,83 @@
+package com.facturation.facture.dto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rapport de traitement d'un lot de commandes : un résultat par commande soumise
+ */
+public class RapportCommandesMasseDTO {
+
+    private int total;
+    private int succes;
+    private int echecs;
+    private List<ResultatCommande> resultats = new ArrayList<>();
+
+    public RapportCommandesMasseDTO() {}
+
+    public void ajouterSucces(int index, Long commandeId, String numeroCommande, BigDecimal totalTTC) {
+        ResultatCommande resultat = new ResultatCommande();
+        resultat.setIndex(index);
+        resultat.setSucces(true);
+        resultat.setCommandeId(commandeId);
+        resultat.setNumeroCommande(numeroCommande);
+        resultat.setTotalTTC(totalTTC);
+        resultats.add(resultat);
+        succes++;
+        total++;
+    }
+
+    public void ajouterEchec(int index, String erreur) {
+        ResultatCommande resultat = new ResultatCommande();
+        resultat.setIndex(index);
+        resultat.setSucces(false);
+        resultat.setErreur(erreur);
+        resultats.add(resultat);
+        echecs++;
+        total++;
+    }
+
+    // Getters et Setters
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+
+    public int getSucces() { return succes; }
+    public void setSucces(int succes) { this.succes = succes; }
+
+    public int getEchecs() { return echecs; }
+    public void setEchecs(int echecs) { this.echecs = echecs; }
+
+    public List<ResultatCommande> getResultats() { return resultats; }
+    public void setResultats(List<ResultatCommande> resultats) { this.resultats = resultats; }
+
+    /**
+     * Résultat du traitement d'une commande du lot (index = position dans la requête)
+     */
+    public static class ResultatCommande {
+        private int index;
+        private boolean succes;
+        private Long commandeId;
+        private String numeroCommande;
+        private BigDecimal totalTTC;
+        private String erreur;
+
+        public int getIndex() { return index; }
+        public void setIndex(int index) { this.index = index; }
+
+        public boolean isSucces() { return succes; }
+        public void setSucces(boolean succes) { this.succes = succes; }
+
+        public Long getCommandeId() { return commandeId; }
+        public void setCommandeId(Long commandeId) { this.commandeId = commandeId; }
+
+        public String getNumeroCommande() { return numeroCommande; }
+        public void setNumeroCommande(String numeroCommande) { this.numeroCommande = numeroCommande; }
+
+        public BigDecimal getTotalTTC() { return totalTTC; }
+        public void setTotalTTC(BigDecimal totalTTC) { this.totalTTC = totalTTC; }
+
+        public String getErreur() { return erreur; }
+        public void setErreur(String erreur) { this.erreur = erreur; }
+    }
+}
@@ -0,0 +1,71 @@
+package com.facturation.facture.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rapport d'un import de produits : compteurs et détail des lignes rejetées
+ * (détail limité aux premières erreurs, le compteur reste exact)
+ */
+public class RapportImportProduitsDTO {
+
+    private int lignes;
+    private int creees;
+    private int misesAJour;
+    private int erreurs;
+    private boolean erreursTronquees;
+    private List<ErreurLigne> detailErreurs = new ArrayList<>();
+
+    public RapportImportProduitsDTO() {}
+
+    public void ajouterErreur(int ligne, String message, int erreursMax) {
+        erreurs++;
+        if (detailErreurs.size() < erreursMax) {
+            ErreurLigne erreur = new ErreurLigne();
+            erreur.setLigne(ligne);
+            erreur.setMessage(message);
+            detailErreurs.add(erreur);
+        } else {
+            erreursTronquees = true;
+        }
+    }
+
+    public void ajouterLignes(int nombre) { lignes += nombre; }
+
+    public void ajouterCreees(int nombre) { creees += nombre; }
+
+    public void ajouterMisesAJour(int nombre) { misesAJour += nombre; }
+
+    // Getters et Setters
+    public int getLignes() { return lignes; }
+    public void setLignes(int lignes) { this.lignes = lignes; }
+
+    public int getCreees() { return creees; }
+    public void setCreees(int creees) { this.creees = creees; }
+
+    public int getMisesAJour() { return misesAJour; }
+    public void setMisesAJour(int misesAJour) { this.misesAJour = misesAJour; }
+
+    public int getErreurs() { return erreurs; }
+    public void setErreurs(int erreurs) { this.erreurs = erreurs; }
+
+    public boolean isErreursTronquees() { return erreursTronquees; }
+    public void setErreursTronquees(boolean erreursTronquees) { this.erreursTronquees = erreursTronquees; }
+
+    public List<ErreurLigne> getDetailErreurs() { return detailErreurs; }
+    public void setDetailErreurs(List<ErreurLigne> detailErreurs) { this.detailErreurs = detailErreurs; }
+
+    /**
+     * Ligne rejetée (numéro de ligne dans le fichier, en-tête = ligne 1)
+     */
+    public static class ErreurLigne {
+        private int ligne;
+        private String message;
+
+        public int getLigne() { return ligne; }
+        public void setLigne(int ligne) { this.ligne = ligne; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+    }
+}
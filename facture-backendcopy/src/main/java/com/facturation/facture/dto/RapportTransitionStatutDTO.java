@@ -0,0 +1,65 @@
+package com.facturation.facture.dto;
+
+import com.facturation.facture.model.enums.StatutCommande;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rapport d'un changement de statut en masse : commandes modifiées et rejets motivés
+ */
+public class RapportTransitionStatutDTO {
+
+    private StatutCommande nouveauStatut;
+    private int modifiees;
+    private int facturesModifiees;
+    private List<Long> idsModifies = new ArrayList<>();
+    private List<Rejet> rejets = new ArrayList<>();
+
+    public RapportTransitionStatutDTO() {}
+
+    public RapportTransitionStatutDTO(StatutCommande nouveauStatut) {
+        this.nouveauStatut = nouveauStatut;
+    }
+
+    public void ajouterRejet(Long id, String raison) {
+        rejets.add(new Rejet(id, raison));
+    }
+
+    // Getters et Setters
+    public StatutCommande getNouveauStatut() { return nouveauStatut; }
+    public void setNouveauStatut(StatutCommande nouveauStatut) { this.nouveauStatut = nouveauStatut; }
+
+    public int getModifiees() { return modifiees; }
+    public void setModifiees(int modifiees) { this.modifiees = modifiees; }
+
+    public int getFacturesModifiees() { return facturesModifiees; }
+    public void setFacturesModifiees(int facturesModifiees) { this.facturesModifiees = facturesModifiees; }
+
+    public List<Long> getIdsModifies() { return idsModifies; }
+    public void setIdsModifies(List<Long> idsModifies) { this.idsModifies = idsModifies; }
+
+    public List<Rejet> getRejets() { return rejets; }
+    public void setRejets(List<Rejet> rejets) { this.rejets = rejets; }
+
+    /**
+     * Commande non modifiée et raison du rejet
+     */
+    public static class Rejet {
+        private Long id;
+        private String raison;
+
+        public Rejet() {}
+
+        public Rejet(Long id, String raison) {
+            this.id = id;
+            this.raison = raison;
+        }
+
+        public Long getId() { return id; }
+        public void setId(Long id) { this.id = id; }
+
+        public String getRaison() { return raison; }
+        public void setRaison(String raison) { this.raison = raison; }
+    }
+}
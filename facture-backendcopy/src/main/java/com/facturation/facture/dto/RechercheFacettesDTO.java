@@ -0,0 +1,108 @@
+package com.facturation.facture.dto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Résultat d'une recherche à facettes dans le catalogue : une page des
+ * produits correspondant à tous les filtres et les décomptes par facette.
+ * Chaque facette ignore son propre filtre (les décomptes par catégorie tiennent
+ * compte du prix et du stock, mais pas des catégories choisies, etc.).
+ */
+public class RechercheFacettesDTO {
+
+    private List<ProduitDTO> produits = new ArrayList<>();
+    private int page;
+    private int taille;
+    private long total;
+    private int totalPages;
+    private List<FacetteCategorie> categories = new ArrayList<>();
+    private List<TranchePrix> tranchesPrix = new ArrayList<>();
+    private long enStock;
+    private long enRupture;
+    private long versionCatalogue;
+
+    // Getters et Setters
+    public List<ProduitDTO> getProduits() { return produits; }
+    public void setProduits(List<ProduitDTO> produits) { this.produits = produits; }
+
+    public int getPage() { return page; }
+    public void setPage(int page) { this.page = page; }
+
+    public int getTaille() { return taille; }
+    public void setTaille(int taille) { this.taille = taille; }
+
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+
+    public int getTotalPages() { return totalPages; }
+    public void setTotalPages(int totalPages) { this.totalPages = totalPages; }
+
+    public List<FacetteCategorie> getCategories() { return categories; }
+    public void setCategories(List<FacetteCategorie> categories) { this.categories = categories; }
+
+    public List<TranchePrix> getTranchesPrix() { return tranchesPrix; }
+    public void setTranchesPrix(List<TranchePrix> tranchesPrix) { this.tranchesPrix = tranchesPrix; }
+
+    public long getEnStock() { return enStock; }
+    public void setEnStock(long enStock) { this.enStock = enStock; }
+
+    public long getEnRupture() { return enRupture; }
+    public void setEnRupture(long enRupture) { this.enRupture = enRupture; }
+
+    public long getVersionCatalogue() { return versionCatalogue; }
+    public void setVersionCatalogue(long versionCatalogue) { this.versionCatalogue = versionCatalogue; }
+
+    /**
+     * Nombre de produits d'une catégorie
+     */
+    public static class FacetteCategorie {
+        private Long categorieId;
+        private String nom;
+        private long nombre;
+
+        public FacetteCategorie() {}
+
+        public FacetteCategorie(Long categorieId, String nom, long nombre) {
+            this.categorieId = categorieId;
+            this.nom = nom;
+            this.nombre = nombre;
+        }
+
+        public Long getCategorieId() { return categorieId; }
+        public void setCategorieId(Long categorieId) { this.categorieId = categorieId; }
+
+        public String getNom() { return nom; }
+        public void setNom(String nom) { this.nom = nom; }
+
+        public long getNombre() { return nombre; }
+        public void setNombre(long nombre) { this.nombre = nombre; }
+    }
+
+    /**
+     * Nombre de produits dont le prix est compris entre prixMin et prixMax (inclus)
+     */
+    public static class TranchePrix {
+        private BigDecimal prixMin;
+        private BigDecimal prixMax;
+        private long nombre;
+
+        public TranchePrix() {}
+
+        public TranchePrix(BigDecimal prixMin, BigDecimal prixMax, long nombre) {
+            this.prixMin = prixMin;
+            this.prixMax = prixMax;
+            this.nombre = nombre;
+        }
+
+        public BigDecimal getPrixMin() { return prixMin; }
+        public void setPrixMin(BigDecimal prixMin) { this.prixMin = prixMin; }
+
+        public BigDecimal getPrixMax() { return prixMax; }
+        public void setPrixMax(BigDecimal prixMax) { this.prixMax = prixMax; }
+
+        public long getNombre() { return nombre; }
+        public void setNombre(long nombre) { this.nombre = nombre; }
+    }
+}
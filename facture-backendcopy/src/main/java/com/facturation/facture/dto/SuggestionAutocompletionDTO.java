@@ -0,0 +1,43 @@
+package com.facturation.facture.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Complétion proposée pendant la saisie : nom d'un produit disponible ou
+ * d'une catégorie
+ */
+public class SuggestionAutocompletionDTO {
+
+    public static final String TYPE_PRODUIT = "PRODUIT";
+    public static final String TYPE_CATEGORIE = "CATEGORIE";
+
+    private String type;
+    private Long id;
+    private String libelle;
+
+    // Popularité (ventes par jour) servant au classement, non exposée
+    @JsonIgnore
+    private double popularite;
+
+    public SuggestionAutocompletionDTO() {}
+
+    public SuggestionAutocompletionDTO(String type, Long id, String libelle, double popularite) {
+        this.type = type;
+        this.id = id;
+        this.libelle = libelle;
+        this.popularite = popularite;
+    }
+
+    // Getters et Setters
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getLibelle() { return libelle; }
+    public void setLibelle(String libelle) { this.libelle = libelle; }
+
+    public double getPopularite() { return popularite; }
+    public void setPopularite(double popularite) { this.popularite = popularite; }
+}
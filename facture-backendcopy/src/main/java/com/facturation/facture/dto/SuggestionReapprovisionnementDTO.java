@@ -0,0 +1,42 @@
+package com.facturation.facture.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Produit dont le stock devrait passer sous le seuil d'alerte dans l'horizon
+ * demandé, au rythme de ventes actuel
+ */
+public class SuggestionReapprovisionnementDTO {
+
+    private Long produitId;
+    private String nom;
+    private int quantiteStock;
+    private int seuilAlerte;
+    private BigDecimal ventesParJour;
+    private BigDecimal joursAvantSeuil;
+    private int quantiteSuggeree;
+
+    public SuggestionReapprovisionnementDTO() {}
+
+    // Getters et Setters
+    public Long getProduitId() { return produitId; }
+    public void setProduitId(Long produitId) { this.produitId = produitId; }
+
+    public String getNom() { return nom; }
+    public void setNom(String nom) { this.nom = nom; }
+
+    public int getQuantiteStock() { return quantiteStock; }
+    public void setQuantiteStock(int quantiteStock) { this.quantiteStock = quantiteStock; }
+
+    public int getSeuilAlerte() { return seuilAlerte; }
+    public void setSeuilAlerte(int seuilAlerte) { this.seuilAlerte = seuilAlerte; }
+
+    public BigDecimal getVentesParJour() { return ventesParJour; }
+    public void setVentesParJour(BigDecimal ventesParJour) { this.ventesParJour = ventesParJour; }
+
+    public BigDecimal getJoursAvantSeuil() { return joursAvantSeuil; }
+    public void setJoursAvantSeuil(BigDecimal joursAvantSeuil) { this.joursAvantSeuil = joursAvantSeuil; }
+
+    public int getQuantiteSuggeree() { return quantiteSuggeree; }
+    public void setQuantiteSuggeree(int quantiteSuggeree) { this.quantiteSuggeree = quantiteSuggeree; }
+}
@@ -0,0 +1,42 @@
+package com.facturation.facture.dto;
+
+import com.facturation.facture.model.enums.StatutCommande;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Changement de statut d'un lot de commandes : soit une liste d'ids,
+ * soit un filtre (statut actuel et période de commande facultative)
+ */
+public class TransitionStatutMasseDTO {
+
+    @NotNull(message = "Le nouveau statut est obligatoire")
+    private StatutCommande nouveauStatut;
+
+    private List<Long> ids;
+
+    // Filtre utilisé quand aucun id n'est fourni
+    private StatutCommande statutActuel;
+    private LocalDateTime dateDebut;
+    private LocalDateTime dateFin;
+
+    public TransitionStatutMasseDTO() {}
+
+    // Getters et Setters
+    public StatutCommande getNouveauStatut() { return nouveauStatut; }
+    public void setNouveauStatut(StatutCommande nouveauStatut) { this.nouveauStatut = nouveauStatut; }
+
+    public List<Long> getIds() { return ids; }
+    public void setIds(List<Long> ids) { this.ids = ids; }
+
+    public StatutCommande getStatutActuel() { return statutActuel; }
+    public void setStatutActuel(StatutCommande statutActuel) { this.statutActuel = statutActuel; }
+
+    public LocalDateTime getDateDebut() { return dateDebut; }
+    public void setDateDebut(LocalDateTime dateDebut) { this.dateDebut = dateDebut; }
+
+    public LocalDateTime getDateFin() { return dateFin; }
+    public void setDateFin(LocalDateTime dateFin) { this.dateFin = dateFin; }
+}
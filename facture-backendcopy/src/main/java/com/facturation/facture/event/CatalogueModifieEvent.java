@@ -0,0 +1,35 @@
+package com.facturation.facture.event;
+
+import com.facturation.facture.service.CatalogueService;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Nouvel instantané du catalogue en mémoire, avec les produits créés, modifiés
+ * ou supprimés depuis le précédent (tous les produits après un rechargement
+ * complet, aucun si seul le stock a changé)
+ */
+public class CatalogueModifieEvent {
+
+    private final CatalogueService.Catalogue catalogue;
+    private final Collection<Long> idsModifies;
+
+    public CatalogueModifieEvent(CatalogueService.Catalogue catalogue, Collection<Long> idsModifies) {
+        this.catalogue = catalogue;
+        this.idsModifies = idsModifies != null ? Collections.unmodifiableCollection(idsModifies) : null;
+    }
+
+    public CatalogueService.Catalogue getCatalogue() {
+        return catalogue;
+    }
+
+    // null après un rechargement complet
+    public Collection<Long> getIdsModifies() {
+        return idsModifies;
+    }
+
+    public boolean isComplet() {
+        return idsModifies == null;
+    }
+}
@@ -0,0 +1,17 @@
+package com.facturation.facture.event;
+
+/**
+ * Catégorie modifiée ou supprimée
+ */
+public class CategorieModifieEvent {
+
+    private final Long idCategorie;
+
+    public CategorieModifieEvent(Long idCategorie) {
+        this.idCategorie = idCategorie;
+    }
+
+    public Long getIdCategorie() {
+        return idCategorie;
+    }
+}
@@ -0,0 +1,21 @@
+package com.facturation.facture.event;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Quantités vendues par produit, publiées quand une ou plusieurs commandes
+ * passent au statut PAYEE (dans la transaction du changement de statut)
+ */
+public class CommandePayeeEvent {
+
+    private final Map<Long, Integer> quantites;
+
+    public CommandePayeeEvent(Map<Long, Integer> quantites) {
+        this.quantites = Collections.unmodifiableMap(quantites);
+    }
+
+    public Map<Long, Integer> getQuantites() {
+        return quantites;
+    }
+}
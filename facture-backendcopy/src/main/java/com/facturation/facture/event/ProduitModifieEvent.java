@@ -0,0 +1,27 @@
+package com.facturation.facture.event;
+
+/**
+ * Produit créé, modifié (seuil d'alerte, disponibilité...) ou supprimé
+ */
+public class ProduitModifieEvent {
+
+    private final Long idProduit;
+    private final boolean supprime;
+
+    public ProduitModifieEvent(Long idProduit) {
+        this(idProduit, false);
+    }
+
+    public ProduitModifieEvent(Long idProduit, boolean supprime) {
+        this.idProduit = idProduit;
+        this.supprime = supprime;
+    }
+
+    public Long getIdProduit() {
+        return idProduit;
+    }
+
+    public boolean isSupprime() {
+        return supprime;
+    }
+}
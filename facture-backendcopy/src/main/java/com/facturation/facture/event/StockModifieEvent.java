@@ -0,0 +1,21 @@
+package com.facturation.facture.event;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Variations du stock de produits, publiées par le journal de stock dans la
+ * transaction qui les applique (quantités signées, par id de produit)
+ */
+public class StockModifieEvent {
+
+    private final Map<Long, Integer> variations;
+
+    public StockModifieEvent(Map<Long, Integer> variations) {
+        this.variations = Collections.unmodifiableMap(variations);
+    }
+
+    public Map<Long, Integer> getVariations() {
+        return variations;
+    }
+}
@@ -0,0 +1,17 @@
+package com.facturation.facture.event;
+
+/**
+ * Compte utilisateur modifié (email, statut) ou supprimé
+ */
+public class UtilisateurModifieEvent {
+
+    private final Long idUtilisateur;
+
+    public UtilisateurModifieEvent(Long idUtilisateur) {
+        this.idUtilisateur = idUtilisateur;
+    }
+
+    public Long getIdUtilisateur() {
+        return idUtilisateur;
+    }
+}
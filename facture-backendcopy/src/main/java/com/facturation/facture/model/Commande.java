@@ -7,7 +7,9 @@ import jakarta.validation.constraints.NotNull;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 
@@ -19,6 +21,11 @@ public class Commande {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Verrouillage optimiste : incrémentée à chaque mise à jour
+    @Version
+    @Column(name = "version", columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     @Column(name = "numero_commande", unique = true, nullable = false)
     private String numeroCommande;
 
@@ -55,6 +62,10 @@ public class Commande {
     @Column(name = "commentaire")
     private String commentaire;
 
+    // Stock des lignes déjà décrémenté pour cette commande (à restituer en cas d'annulation)
+    @Column(name = "stock_reserve", columnDefinition = "BOOLEAN DEFAULT FALSE")
+    private Boolean stockReserve = false;
+
     // Relation avec User (client)
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "client_id", nullable = false)
@@ -67,6 +78,11 @@ public class Commande {
     @OneToOne(mappedBy = "commande", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Facture facture;
 
+    // Index des lignes par produit (non persisté), construit au premier accès puis
+    // tenu à jour par les méthodes métier, LigneCommande.setProduit et le chargement
+    @Transient
+    private Map<Long, LigneCommande> lignesParProduit;
+
     // Constructeurs
     public Commande() {
         this.dateCommande = LocalDateTime.now();
@@ -91,6 +107,12 @@ public class Commande {
         this.dateModification = LocalDateTime.now();
     }
 
+    // Chargement ou rafraîchissement : les lignes indexées ne sont plus celles de la commande
+    @PostLoad
+    public void postLoad() {
+        this.lignesParProduit = null;
+    }
+
     // Méthodes métier
 
     /**
@@ -109,6 +131,10 @@ public class Commande {
         }
         this.lignesCommande.add(ligneCommande);
         ligneCommande.setCommande(this);
+        if (this.lignesParProduit != null && ligneCommande.getProduit() != null) {
+            this.lignesParProduit.put(ligneCommande.getProduit().getId(), ligneCommande);
+        }
+        ajusterSousTotal(sousTotalDe(ligneCommande));
     }
 
     /**
@@ -119,10 +145,34 @@ public class Commande {
             this.lignesCommande.remove(ligneCommande);
             ligneCommande.setCommande(null);
         }
+        if (this.lignesParProduit != null && ligneCommande.getProduit() != null) {
+            this.lignesParProduit.remove(ligneCommande.getProduit().getId());
+        }
+        ajusterSousTotal(sousTotalDe(ligneCommande).negate());
+    }
+
+    /**
+     * Modifier la quantité d'une ligne et répercuter la variation sur les totaux
+     */
+    public void modifierQuantiteLigne(LigneCommande ligneCommande, Integer quantite) {
+        BigDecimal ancienSousTotal = sousTotalDe(ligneCommande);
+        ligneCommande.setQuantite(quantite);
+        ligneCommande.calculerSousTotal();
+        ajusterSousTotal(sousTotalDe(ligneCommande).subtract(ancienSousTotal));
     }
 
     /**
-     * Calculer les totaux de la commande
+     * Changer le taux de TVA (les totaux sont recalculés depuis le sous-total)
+     */
+    public void changerTauxTVA(BigDecimal nouveauTaux) {
+        this.tauxTVA = nouveauTaux;
+        ajusterSousTotal(BigDecimal.ZERO);
+    }
+
+    /**
+     * Calculer les totaux de la commande (recalcul complet depuis les lignes).
+     * Les modifications courantes maintiennent les totaux par variations ;
+     * le recalcul complet sert au contrôle (voir verifierTotaux).
      */
     public void calculerTotaux() {
         BigDecimal sousTotalCalcule = BigDecimal.ZERO;
@@ -134,6 +184,33 @@ public class Commande {
             }
         }
 
+        appliquerSousTotal(sousTotalCalcule);
+    }
+
+    /**
+     * Contrôler les totaux maintenus par variations avec un recalcul complet.
+     * Retourne false (et corrige les totaux) en cas d'écart.
+     */
+    public boolean verifierTotaux() {
+        BigDecimal sousTotalMaintenu = this.sousTotal != null ? this.sousTotal : BigDecimal.ZERO;
+        calculerTotaux();
+        return sousTotalMaintenu.compareTo(this.sousTotal) == 0;
+    }
+
+    /**
+     * Répercuter la variation de sous-total d'une ligne sur les totaux,
+     * sans parcourir (ni charger) les autres lignes
+     */
+    public void ajusterSousTotal(BigDecimal variation) {
+        BigDecimal sousTotalActuel = this.sousTotal != null ? this.sousTotal : BigDecimal.ZERO;
+        appliquerSousTotal(sousTotalActuel.add(variation));
+    }
+
+    private static BigDecimal sousTotalDe(LigneCommande ligne) {
+        return ligne.getSousTotal() != null ? ligne.getSousTotal() : BigDecimal.ZERO;
+    }
+
+    private void appliquerSousTotal(BigDecimal sousTotalCalcule) {
         this.sousTotal = sousTotalCalcule;
         this.totalHT = sousTotalCalcule;
 
@@ -171,17 +248,35 @@ public class Commande {
     }
 
     /**
-     * Obtenir une ligne de commande par produit
+     * Obtenir une ligne de commande par produit (accès indexé)
      */
     public LigneCommande getLigneCommandeParProduit(Long idProduit) {
         if (this.lignesCommande == null) {
             return null;
         }
 
-        return this.lignesCommande.stream()
-                .filter(ligne -> ligne.getProduit().getId().equals(idProduit))
-                .findFirst()
-                .orElse(null);
+        if (this.lignesParProduit == null) {
+            this.lignesParProduit = new HashMap<>();
+            for (LigneCommande ligne : this.lignesCommande) {
+                this.lignesParProduit.put(ligne.getProduit().getId(), ligne);
+            }
+        }
+        return this.lignesParProduit.get(idProduit);
+    }
+
+    /**
+     * Réindexer une ligne dont le produit a changé
+     */
+    public void reindexerLigne(LigneCommande ligneCommande, Produit ancienProduit) {
+        if (this.lignesParProduit == null) {
+            return;
+        }
+        if (ancienProduit != null) {
+            this.lignesParProduit.remove(ancienProduit.getId(), ligneCommande);
+        }
+        if (ligneCommande.getProduit() != null) {
+            this.lignesParProduit.put(ligneCommande.getProduit().getId(), ligneCommande);
+        }
     }
 
     /**
@@ -200,6 +295,14 @@ public class Commande {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getNumeroCommande() {
         return numeroCommande;
     }
@@ -280,6 +383,14 @@ public class Commande {
         this.commentaire = commentaire;
     }
 
+    public Boolean getStockReserve() {
+        return stockReserve;
+    }
+
+    public void setStockReserve(Boolean stockReserve) {
+        this.stockReserve = stockReserve;
+    }
+
     public User getClient() {
         return client;
     }
@@ -294,6 +405,7 @@ public class Commande {
 
     public void setLignesCommande(List<LigneCommande> lignesCommande) {
         this.lignesCommande = lignesCommande;
+        this.lignesParProduit = null;
     }
 
     public Facture getFacture() {
@@ -0,0 +1,33 @@
+package com.facturation.facture.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Compteur de numérotation (une ligne par préfixe et par jour, ex. "CMD-20250101")
+ */
+@Entity
+@Table(name = "compteurs_sequence")
+public class CompteurSequence {
+
+    @Id
+    @Column(name = "cle", length = 50)
+    private String cle;
+
+    @Column(name = "valeur", nullable = false)
+    private Long valeur = 0L;
+
+    // Constructeurs
+    public CompteurSequence() {}
+
+    public CompteurSequence(String cle) {
+        this.cle = cle;
+        this.valeur = 0L;
+    }
+
+    // Getters et Setters
+    public String getCle() { return cle; }
+    public void setCle(String cle) { this.cle = cle; }
+
+    public Long getValeur() { return valeur; }
+    public void setValeur(Long valeur) { this.valeur = valeur; }
+}
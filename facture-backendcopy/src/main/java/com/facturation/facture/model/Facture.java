@@ -16,6 +16,11 @@ public class Facture {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Verrouillage optimiste : incrémentée à chaque mise à jour
+    @Version
+    @Column(name = "version", columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     @Column(name = "numero_facture", unique = true, nullable = false)
     private String numeroFacture;
 
@@ -129,6 +134,14 @@ public class Facture {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getNumeroFacture() {
         return numeroFacture;
     }
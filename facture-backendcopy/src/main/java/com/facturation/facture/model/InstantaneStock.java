@@ -0,0 +1,52 @@
+package com.facturation.facture.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Instantané du stock d'un produit : quantité résultant de tous les mouvements
+ * datés d'avant arrete_au. Le stock à une date est le dernier instantané
+ * antérieur plus les mouvements suivants.
+ */
+@Entity
+@Table(name = "instantanes_stock", indexes = {
+        @Index(name = "idx_instantane_stock_produit_arrete", columnList = "produit_id, arrete_au")
+})
+public class InstantaneStock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "produit_id", nullable = false)
+    private Long produitId;
+
+    @Column(name = "quantite", nullable = false)
+    private Integer quantite;
+
+    @Column(name = "arrete_au", nullable = false)
+    private LocalDateTime arreteAu;
+
+    // Constructeurs
+    public InstantaneStock() {}
+
+    public InstantaneStock(Long produitId, Integer quantite, LocalDateTime arreteAu) {
+        this.produitId = produitId;
+        this.quantite = quantite;
+        this.arreteAu = arreteAu;
+    }
+
+    // Getters et Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getProduitId() { return produitId; }
+    public void setProduitId(Long produitId) { this.produitId = produitId; }
+
+    public Integer getQuantite() { return quantite; }
+    public void setQuantite(Integer quantite) { this.quantite = quantite; }
+
+    public LocalDateTime getArreteAu() { return arreteAu; }
+    public void setArreteAu(LocalDateTime arreteAu) { this.arreteAu = arreteAu; }
+}
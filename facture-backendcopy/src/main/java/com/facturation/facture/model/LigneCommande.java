@@ -5,10 +5,12 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.Hibernate;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "lignes_commande")
+@Table(name = "lignes_commande",
+        indexes = @Index(name = "idx_ligne_commande_produit", columnList = "commande_id, produit_id"))
 public class LigneCommande {
 
     @Id
@@ -119,6 +121,11 @@ public class LigneCommande {
     }
 
     public void setProduit(Produit produit) {
+        Produit ancienProduit = this.produit;
         this.produit = produit;
+        // Une commande non chargée n'a pas encore d'index à corriger
+        if (this.commande != null && ancienProduit != produit && Hibernate.isInitialized(this.commande)) {
+            this.commande.reindexerLigne(this, ancienProduit);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.facturation.facture.model;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * Ligne d'un panier en mémoire (non persistée)
+ */
+public class LignePanier implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long produitId;
+    private String nomProduit;
+    private BigDecimal prixUnitaire;
+    private Integer quantite;
+    private BigDecimal sousTotal;
+
+    public LignePanier() {}
+
+    public LignePanier(Long produitId, String nomProduit, BigDecimal prixUnitaire, Integer quantite) {
+        this.produitId = produitId;
+        this.nomProduit = nomProduit;
+        this.prixUnitaire = prixUnitaire;
+        this.quantite = quantite;
+        calculerSousTotal();
+    }
+
+    public void calculerSousTotal() {
+        if (this.quantite != null && this.prixUnitaire != null) {
+            this.sousTotal = this.prixUnitaire.multiply(BigDecimal.valueOf(this.quantite));
+        } else {
+            this.sousTotal = BigDecimal.ZERO;
+        }
+    }
+
+    // Getters et Setters
+    public Long getProduitId() { return produitId; }
+    public void setProduitId(Long produitId) { this.produitId = produitId; }
+
+    public String getNomProduit() { return nomProduit; }
+    public void setNomProduit(String nomProduit) { this.nomProduit = nomProduit; }
+
+    public BigDecimal getPrixUnitaire() { return prixUnitaire; }
+    public void setPrixUnitaire(BigDecimal prixUnitaire) { this.prixUnitaire = prixUnitaire; }
+
+    public Integer getQuantite() { return quantite; }
+    public void setQuantite(Integer quantite) { this.quantite = quantite; }
+
+    public BigDecimal getSousTotal() { return sousTotal; }
+    public void setSousTotal(BigDecimal sousTotal) { this.sousTotal = sousTotal; }
+}
@@ -0,0 +1,61 @@
+package com.facturation.facture.model;
+
+import com.facturation.facture.model.enums.TypeMouvementStock;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mouvement du journal de stock (ajout seul) : variation signée du stock d'un
+ * produit, enregistrée dans la transaction qui la produit
+ */
+@Entity
+@Table(name = "mouvements_stock", indexes = {
+        @Index(name = "idx_mouvement_stock_produit_date", columnList = "produit_id, date_mouvement")
+})
+public class MouvementStock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "produit_id", nullable = false)
+    private Long produitId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 20)
+    private TypeMouvementStock type;
+
+    // Positive pour une entrée, négative pour une sortie
+    @Column(name = "quantite", nullable = false)
+    private Integer quantite;
+
+    @Column(name = "date_mouvement", nullable = false)
+    private LocalDateTime dateMouvement;
+
+    // Constructeurs
+    public MouvementStock() {}
+
+    public MouvementStock(Long produitId, TypeMouvementStock type, Integer quantite, LocalDateTime dateMouvement) {
+        this.produitId = produitId;
+        this.type = type;
+        this.quantite = quantite;
+        this.dateMouvement = dateMouvement;
+    }
+
+    // Getters et Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getProduitId() { return produitId; }
+    public void setProduitId(Long produitId) { this.produitId = produitId; }
+
+    public TypeMouvementStock getType() { return type; }
+    public void setType(TypeMouvementStock type) { this.type = type; }
+
+    public Integer getQuantite() { return quantite; }
+    public void setQuantite(Integer quantite) { this.quantite = quantite; }
+
+    public LocalDateTime getDateMouvement() { return dateMouvement; }
+    public void setDateMouvement(LocalDateTime dateMouvement) { this.dateMouvement = dateMouvement; }
+}
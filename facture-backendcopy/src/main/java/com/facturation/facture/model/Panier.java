@@ -0,0 +1,178 @@
+package com.facturation.facture.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Panier d'un client, tenu en mémoire jusqu'à sa validation en commande.
+ * Les totaux sont mis à jour par différence à chaque modification de ligne.
+ */
+public class Panier implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final BigDecimal CENT = new BigDecimal("100");
+
+    private final Long clientId;
+    private final Map<Long, LignePanier> lignes = new LinkedHashMap<>();
+    private BigDecimal tauxTVA = new BigDecimal("20.00");
+    private BigDecimal sousTotal = BigDecimal.ZERO;
+    private BigDecimal montantTVA = BigDecimal.ZERO;
+    private BigDecimal totalTTC = BigDecimal.ZERO;
+    private LocalDateTime dateModification = LocalDateTime.now();
+
+    // Dernier accès (lecture ou écriture), utilisé pour l'expiration et l'éviction
+    private transient volatile long dernierAcces = System.currentTimeMillis();
+
+    // Email du client déjà vérifié en base pour ce panier (voir PanierService.estProprietaire)
+    private transient volatile String emailClient;
+
+    // Commande en cours de création à partir du panier : modifications refusées jusqu'à son issue
+    private transient volatile boolean validationEnCours;
+
+    // Retiré de la mémoire (vidé, validé, évincé ou expiré) : l'instance ne doit plus être modifiée
+    private transient volatile boolean retire;
+
+    public Panier(Long clientId) {
+        this.clientId = clientId;
+    }
+
+    /**
+     * Ajouter une quantité d'un produit (cumulée si le produit est déjà présent)
+     */
+    public synchronized void ajouterProduit(Long produitId, String nomProduit, BigDecimal prixUnitaire, int quantite) {
+        LignePanier ligne = lignes.get(produitId);
+        if (ligne == null) {
+            ligne = new LignePanier(produitId, nomProduit, prixUnitaire, quantite);
+            lignes.put(produitId, ligne);
+            appliquerDifference(ligne.getSousTotal());
+        } else {
+            BigDecimal ancienSousTotal = ligne.getSousTotal();
+            ligne.setQuantite(ligne.getQuantite() + quantite);
+            ligne.calculerSousTotal();
+            appliquerDifference(ligne.getSousTotal().subtract(ancienSousTotal));
+        }
+    }
+
+    /**
+     * Définir la quantité d'un produit ; une quantité nulle ou négative retire la ligne
+     */
+    public synchronized void modifierQuantite(Long produitId, int quantite) {
+        LignePanier ligne = lignes.get(produitId);
+        if (ligne == null) {
+            throw new RuntimeException("Produit non trouvé dans le panier");
+        }
+        if (quantite <= 0) {
+            supprimerProduit(produitId);
+            return;
+        }
+        BigDecimal ancienSousTotal = ligne.getSousTotal();
+        ligne.setQuantite(quantite);
+        ligne.calculerSousTotal();
+        appliquerDifference(ligne.getSousTotal().subtract(ancienSousTotal));
+    }
+
+    /**
+     * Retirer un produit du panier
+     */
+    public synchronized void supprimerProduit(Long produitId) {
+        LignePanier ligne = lignes.remove(produitId);
+        if (ligne == null) {
+            throw new RuntimeException("Produit non trouvé dans le panier");
+        }
+        appliquerDifference(ligne.getSousTotal().negate());
+    }
+
+    /**
+     * Vider le panier
+     */
+    public synchronized void vider() {
+        lignes.clear();
+        sousTotal = BigDecimal.ZERO;
+        montantTVA = BigDecimal.ZERO;
+        totalTTC = BigDecimal.ZERO;
+        toucher();
+    }
+
+    public synchronized boolean estVide() {
+        return lignes.isEmpty();
+    }
+
+    /**
+     * Quantité d'un produit dans le panier (0 s'il n'y est pas)
+     */
+    public synchronized int getQuantite(Long produitId) {
+        LignePanier ligne = lignes.get(produitId);
+        return ligne != null ? ligne.getQuantite() : 0;
+    }
+
+    private void appliquerDifference(BigDecimal difference) {
+        sousTotal = sousTotal.add(difference);
+        montantTVA = sousTotal.multiply(tauxTVA).divide(CENT);
+        totalTTC = sousTotal.add(montantTVA);
+        toucher();
+    }
+
+    private void toucher() {
+        dateModification = LocalDateTime.now();
+        dernierAcces = System.currentTimeMillis();
+    }
+
+    public void marquerAcces() {
+        dernierAcces = System.currentTimeMillis();
+    }
+
+    @JsonIgnore
+    public long getDernierAcces() {
+        return dernierAcces;
+    }
+
+    @JsonIgnore
+    public String getEmailClient() {
+        return emailClient;
+    }
+
+    public void setEmailClient(String emailClient) {
+        this.emailClient = emailClient;
+    }
+
+    @JsonIgnore
+    public boolean isValidationEnCours() {
+        return validationEnCours;
+    }
+
+    public void setValidationEnCours(boolean validationEnCours) {
+        this.validationEnCours = validationEnCours;
+    }
+
+    @JsonIgnore
+    public boolean isRetire() {
+        return retire;
+    }
+
+    public void setRetire(boolean retire) {
+        this.retire = retire;
+    }
+
+    // Getters
+    public Long getClientId() { return clientId; }
+
+    public synchronized List<LignePanier> getLignes() { return new ArrayList<>(lignes.values()); }
+
+    public synchronized Integer getNombreArticles() {
+        return lignes.values().stream().mapToInt(LignePanier::getQuantite).sum();
+    }
+
+    public BigDecimal getTauxTVA() { return tauxTVA; }
+    public BigDecimal getSousTotal() { return sousTotal; }
+    public BigDecimal getMontantTVA() { return montantTVA; }
+    public BigDecimal getTotalTTC() { return totalTTC; }
+    public LocalDateTime getDateModification() { return dateModification; }
+}
@@ -11,13 +11,20 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "produits")
+@Table(name = "produits", indexes = {
+        @Index(name = "idx_produits_nom", columnList = "nom")
+})
 public class Produit {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Verrouillage optimiste : incrémentée à chaque mise à jour
+    @Version
+    @Column(name = "version", columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+
     @NotBlank(message = "Le nom est obligatoire")
     @Column(name = "nom", nullable = false, length = 100)
     private String nom;
@@ -41,6 +48,11 @@ public class Produit {
     @Column(name = "disponible", nullable = false)
     private Boolean disponible = true;
 
+    // Stock réparti sur plusieurs segments (produits très demandés) : quantite_stock
+    // est alors la somme des segments, recalculée périodiquement
+    @Column(name = "stock_segmente", columnDefinition = "BOOLEAN DEFAULT FALSE")
+    private Boolean stockSegmente = false;
+
     @Column(name = "image_path")
     private String imagePath;
 
@@ -84,6 +96,14 @@ public class Produit {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getNom() {
         return nom;
     }
@@ -132,6 +152,14 @@ public class Produit {
         this.disponible = disponible;
     }
 
+    public Boolean getStockSegmente() {
+        return stockSegmente;
+    }
+
+    public void setStockSegmente(Boolean stockSegmente) {
+        this.stockSegmente = stockSegmente;
+    }
+
     public String getImagePath() {
         return imagePath;
     }
@@ -0,0 +1,58 @@
+package com.facturation.facture.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Réservation temporaire de stock par un panier (copie de sauvegarde des
+ * réservations tenues en mémoire, rechargée au démarrage)
+ */
+@Entity
+@Table(name = "reservations_stock", indexes = {
+        @Index(name = "idx_reservation_stock_expiration", columnList = "expiration")
+})
+public class ReservationStock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "produit_id", nullable = false)
+    private Long produitId;
+
+    @Column(name = "client_id", nullable = false)
+    private Long clientId;
+
+    @Column(name = "quantite", nullable = false)
+    private Integer quantite;
+
+    @Column(name = "expiration", nullable = false)
+    private LocalDateTime expiration;
+
+    // Constructeurs
+    public ReservationStock() {}
+
+    public ReservationStock(Long produitId, Long clientId, Integer quantite, LocalDateTime expiration) {
+        this.produitId = produitId;
+        this.clientId = clientId;
+        this.quantite = quantite;
+        this.expiration = expiration;
+    }
+
+    // Getters et Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getProduitId() { return produitId; }
+    public void setProduitId(Long produitId) { this.produitId = produitId; }
+
+    public Long getClientId() { return clientId; }
+    public void setClientId(Long clientId) { this.clientId = clientId; }
+
+    public Integer getQuantite() { return quantite; }
+    public void setQuantite(Integer quantite) { this.quantite = quantite; }
+
+    public LocalDateTime getExpiration() { return expiration; }
+    public void setExpiration(LocalDateTime expiration) { this.expiration = expiration; }
+}
@@ -0,0 +1,49 @@
+package com.facturation.facture.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Segment du stock d'un produit en stock segmenté : le stock est réparti sur
+ * plusieurs lignes que les commandes décrémentent indépendamment
+ */
+@Entity
+@Table(name = "stocks_segments", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_stock_segment_produit_numero", columnNames = {"produit_id", "numero"})
+})
+public class SegmentStock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "produit_id", nullable = false)
+    private Long produitId;
+
+    @Column(name = "numero", nullable = false)
+    private Integer numero;
+
+    @Column(name = "quantite", nullable = false)
+    private Integer quantite;
+
+    // Constructeurs
+    public SegmentStock() {}
+
+    public SegmentStock(Long produitId, Integer numero, Integer quantite) {
+        this.produitId = produitId;
+        this.numero = numero;
+        this.quantite = quantite;
+    }
+
+    // Getters et Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getProduitId() { return produitId; }
+    public void setProduitId(Long produitId) { this.produitId = produitId; }
+
+    public Integer getNumero() { return numero; }
+    public void setNumero(Integer numero) { this.numero = numero; }
+
+    public Integer getQuantite() { return quantite; }
+    public void setQuantite(Integer quantite) { this.quantite = quantite; }
+}
@@ -0,0 +1,10 @@
+package com.facturation.facture.model.enums;
+
+public enum TypeMouvementStock {
+    CREATION,
+    COMMANDE,
+    RESTITUTION,
+    VENTE,
+    REAPPROVISIONNEMENT,
+    AJUSTEMENT
+}
@@ -0,0 +1,7 @@
+package com.facturation.facture.model.enums;
+
+public enum TypeOperationLigne {
+    AJOUTER,
+    SUPPRIMER,
+    DEFINIR_QUANTITE
+}
@@ -3,13 +3,18 @@ package com.facturation.facture.repository;
 import com.facturation.facture.model.Commande;
 import com.facturation.facture.model.User;
 import com.facturation.facture.model.enums.StatutCommande;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -160,10 +165,113 @@ public interface CommandeRepository extends JpaRepository<Commande, Long> {
     List<Commande> findCommandesEnAttente(@Param("dateExpiration") LocalDateTime dateExpiration);
 
     /**
-     * Trouver le dernier numéro de commande pour générer le prochain
+     * Identifiants des commandes en attente expirées, par pagination sur l'id (keyset)
      */
-    @Query("SELECT c.numeroCommande FROM Commande c ORDER BY c.id DESC LIMIT 1")
-    Optional<String> findLastNumeroCommande();
+    @Query("SELECT c.id FROM Commande c WHERE c.statut = 'EN_ATTENTE' " +
+            "AND c.dateCommande <= :dateExpiration AND c.id > :dernierId ORDER BY c.id")
+    List<Long> findIdsCommandesEnAttenteExpirees(@Param("dateExpiration") LocalDateTime dateExpiration,
+                                                 @Param("dernierId") Long dernierId,
+                                                 Pageable page);
+
+    /**
+     * Annuler en une requête les commandes encore en attente parmi les ids donnés
+     */
+    @Modifying
+    @Query("UPDATE Commande c SET c.statut = :annulee, c.dateModification = :maintenant, " +
+            "c.version = c.version + 1 WHERE c.id IN :ids AND c.statut = 'EN_ATTENTE'")
+    int annulerCommandesEnAttente(@Param("ids") Collection<Long> ids,
+                                  @Param("annulee") StatutCommande annulee,
+                                  @Param("maintenant") LocalDateTime maintenant);
+
+    /**
+     * Id et statut des commandes demandées (contrôle groupé des transitions)
+     */
+    @Query("SELECT c.id, c.statut FROM Commande c WHERE c.id IN :ids")
+    List<Object[]> findStatutsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Ids des commandes d'un statut, sur une période de commande facultative,
+     * limités à la page demandée
+     */
+    @Query("SELECT c.id FROM Commande c WHERE c.statut = :statut " +
+            "AND (:dateDebut IS NULL OR c.dateCommande >= :dateDebut) " +
+            "AND (:dateFin IS NULL OR c.dateCommande <= :dateFin) ORDER BY c.id")
+    List<Long> findIdsByStatutEtPeriode(@Param("statut") StatutCommande statut,
+                                        @Param("dateDebut") LocalDateTime dateDebut,
+                                        @Param("dateFin") LocalDateTime dateFin,
+                                        Pageable pageable);
+
+    /**
+     * Changer en une requête le statut des commandes données, si elles ont encore l'ancien statut
+     */
+    @Modifying
+    @Query("UPDATE Commande c SET c.statut = :nouveauStatut, c.dateModification = :maintenant, " +
+            "c.version = c.version + 1 WHERE c.id IN :ids AND c.statut = :ancienStatut")
+    int changerStatutCommandes(@Param("ids") Collection<Long> ids,
+                               @Param("ancienStatut") StatutCommande ancienStatut,
+                               @Param("nouveauStatut") StatutCommande nouveauStatut,
+                               @Param("maintenant") LocalDateTime maintenant);
+
+    /**
+     * Verrouiller (SELECT ... FOR UPDATE) les commandes d'un statut dont le stock
+     * est encore réservé, parmi les ids donnés
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c.id FROM Commande c WHERE c.id IN :ids AND c.statut = :statut AND c.stockReserve = true")
+    List<Long> verrouillerIdsAvecStockReserve(@Param("ids") Collection<Long> ids,
+                                              @Param("statut") StatutCommande statut);
+
+    /**
+     * Verrouiller (SELECT ... FOR UPDATE, par id croissant) les commandes d'un
+     * statut dont le stock n'est pas encore réservé, parmi les ids donnés
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c.id FROM Commande c WHERE c.id IN :ids AND c.statut = :statut " +
+            "AND (c.stockReserve = false OR c.stockReserve IS NULL) ORDER BY c.id")
+    List<Long> verrouillerIdsSansStockReserve(@Param("ids") Collection<Long> ids,
+                                              @Param("statut") StatutCommande statut);
+
+    /**
+     * Marquer en une requête le stock des commandes données comme réservé
+     */
+    @Modifying
+    @Query("UPDATE Commande c SET c.stockReserve = true, c.version = c.version + 1 WHERE c.id IN :ids")
+    int reserverStockCommandes(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Marquer en une requête le stock des commandes données comme restitué
+     */
+    @Modifying
+    @Query("UPDATE Commande c SET c.stockReserve = false, c.version = c.version + 1 WHERE c.id IN :ids")
+    int libererStockCommandes(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Commandes (avec client) sans facture parmi les ids donnés (facturation différée)
+     */
+    @Query("SELECT c FROM Commande c LEFT JOIN FETCH c.client WHERE c.id IN :ids " +
+            "AND NOT EXISTS (SELECT f FROM Facture f WHERE f.commande = c)")
+    List<Commande> findCommandesSansFactureByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Commandes en attente pas encore facturées (facturation différée)
+     */
+    @Query("SELECT c FROM Commande c LEFT JOIN FETCH c.client WHERE c.statut = 'EN_ATTENTE' " +
+            "AND NOT EXISTS (SELECT f FROM Facture f WHERE f.commande = c) ORDER BY c.dateCommande DESC")
+    List<Commande> findCommandesEnAttenteSansFacture();
+
+    /**
+     * Commandes en attente pas encore facturées d'un client
+     */
+    @Query("SELECT c FROM Commande c LEFT JOIN FETCH c.client WHERE c.statut = 'EN_ATTENTE' AND c.client.id = :idClient " +
+            "AND NOT EXISTS (SELECT f FROM Facture f WHERE f.commande = c) ORDER BY c.dateCommande DESC")
+    List<Commande> findCommandesEnAttenteSansFactureByClientId(@Param("idClient") Long idClient);
+
+    /**
+     * Compter les commandes en attente pas encore facturées
+     */
+    @Query("SELECT COUNT(c) FROM Commande c WHERE c.statut = 'EN_ATTENTE' " +
+            "AND NOT EXISTS (SELECT f FROM Facture f WHERE f.commande = c)")
+    Long countCommandesEnAttenteSansFacture();
 
     /**
      * Recherche par commentaire (recherche textuelle)
@@ -0,0 +1,25 @@
+package com.facturation.facture.repository;
+
+import com.facturation.facture.model.CompteurSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CompteurSequenceRepository extends JpaRepository<CompteurSequence, String> {
+
+    // Créer le compteur s'il n'existe pas encore (sans erreur si une autre instance l'a déjà créé)
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO compteurs_sequence (cle, valeur) VALUES (:cle, 0)", nativeQuery = true)
+    int initialiser(@Param("cle") String cle);
+
+    // Incrément atomique : le verrou de ligne est tenu jusqu'à la fin de la transaction
+    @Modifying
+    @Query("UPDATE CompteurSequence c SET c.valeur = c.valeur + :pas WHERE c.cle = :cle")
+    int incrementer(@Param("cle") String cle, @Param("pas") long pas);
+
+    @Query("SELECT c.valeur FROM CompteurSequence c WHERE c.cle = :cle")
+    Long lireValeur(@Param("cle") String cle);
+}
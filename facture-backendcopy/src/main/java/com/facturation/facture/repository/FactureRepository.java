@@ -5,12 +5,14 @@ package com.facturation.facture.repository;
 import com.facturation.facture.model.Facture;
 import com.facturation.facture.model.enums.StatutFacture;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -121,4 +123,44 @@ public interface FactureRepository extends JpaRepository<Facture, Long> {
 
     @Query("SELECT f FROM Facture f LEFT JOIN FETCH f.commande c LEFT JOIN FETCH c.lignesCommande WHERE f.id = :id")
     Facture findByIdWithCommandeAndLignes(@Param("id") Long id);
+
+    // Annuler en une requête les factures en attente des commandes annulées parmi les ids donnés
+    @Modifying
+    @Query("UPDATE Facture f SET f.statut = :annulee, f.statutCommande = 'ANNULEE', " +
+            "f.dateModification = :maintenant, f.version = f.version + 1 " +
+            "WHERE f.statut = 'EN_ATTENTE' AND f.commande.id IN " +
+            "(SELECT c.id FROM Commande c WHERE c.id IN :ids AND c.statut = 'ANNULEE')")
+    int annulerFacturesDesCommandesAnnulees(@Param("ids") Collection<Long> ids,
+                                            @Param("annulee") StatutFacture annulee,
+                                            @Param("maintenant") LocalDateTime maintenant);
+
+    // Synchronisation en masse des factures après un changement de statut des commandes
+    // (mêmes règles que la synchronisation unitaire dans CommandeService)
+    @Modifying
+    @Query("UPDATE Facture f SET f.statut = :payee, f.datePaiement = COALESCE(f.datePaiement, :maintenant), " +
+            "f.statutCommande = :statutCommande, f.dateModification = :maintenant, f.version = f.version + 1 " +
+            "WHERE f.commande.id IN :ids")
+    int marquerFacturesPayees(@Param("ids") Collection<Long> ids,
+                              @Param("payee") StatutFacture payee,
+                              @Param("statutCommande") String statutCommande,
+                              @Param("maintenant") LocalDateTime maintenant);
+
+    @Modifying
+    @Query("UPDATE Facture f SET f.statut = :statut, " +
+            "f.statutCommande = :statutCommande, f.dateModification = :maintenant, f.version = f.version + 1 " +
+            "WHERE f.commande.id IN :ids")
+    int changerStatutFactures(@Param("ids") Collection<Long> ids,
+                              @Param("statut") StatutFacture statut,
+                              @Param("statutCommande") String statutCommande,
+                              @Param("maintenant") LocalDateTime maintenant);
+
+    // Les factures déjà payées restent payées
+    @Modifying
+    @Query("UPDATE Facture f SET f.statut = CASE WHEN f.statut = 'PAYEE' THEN f.statut ELSE :enAttente END, " +
+            "f.statutCommande = :statutCommande, f.dateModification = :maintenant, f.version = f.version + 1 " +
+            "WHERE f.commande.id IN :ids")
+    int remettreFacturesEnAttente(@Param("ids") Collection<Long> ids,
+                                  @Param("enAttente") StatutFacture enAttente,
+                                  @Param("statutCommande") String statutCommande,
+                                  @Param("maintenant") LocalDateTime maintenant);
 }
\ No newline at end of file
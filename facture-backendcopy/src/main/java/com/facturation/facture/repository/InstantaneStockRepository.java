@@ -0,0 +1,30 @@
+package com.facturation.facture.repository;
+
+import com.facturation.facture.model.InstantaneStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface InstantaneStockRepository extends JpaRepository<InstantaneStock, Long> {
+
+    /**
+     * Dernier instantané d'un produit arrêté au plus tard à la date donnée
+     */
+    Optional<InstantaneStock> findFirstByProduitIdAndArreteAuLessThanEqualOrderByArreteAuDesc(
+            Long produitId, LocalDateTime date);
+
+    /**
+     * Instantané d'ouverture (stock actuel) des produits qui n'en ont pas encore
+     */
+    @Modifying
+    @Query(value = "INSERT INTO instantanes_stock (produit_id, quantite, arrete_au) " +
+            "SELECT p.id, p.quantite_stock, :maintenant FROM produits p " +
+            "WHERE NOT EXISTS (SELECT 1 FROM instantanes_stock i WHERE i.produit_id = p.id)", nativeQuery = true)
+    int ouvrirProduitsSansInstantane(@Param("maintenant") LocalDateTime maintenant);
+}
@@ -0,0 +1,48 @@
+package com.facturation.facture.repository;
+
+import com.facturation.facture.model.LigneCommande;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Insertions groupées des lignes de commande.
+ *
+ * Les lignes utilisent un identifiant IDENTITY, ce qui empêche Hibernate de
+ * regrouper les INSERT : on passe donc par un batch JDBC (une seule requête
+ * multi-lignes avec rewriteBatchedStatements côté MySQL).
+ */
+@Repository
+public class LigneCommandeBatchRepository {
+
+    private static final String SQL_INSERTION =
+            "INSERT INTO lignes_commande (commande_id, produit_id, quantite, prix_unitaire, sous_total, nom_produit) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public LigneCommandeBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insérer toutes les lignes d'une commande en un seul batch
+     */
+    public void insererLignes(Long commandeId, List<LigneCommande> lignes) {
+        if (lignes == null || lignes.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(SQL_INSERTION, lignes, lignes.size(), (ps, ligne) -> {
+            ps.setLong(1, commandeId);
+            ps.setLong(2, ligne.getProduit().getId());
+            ps.setInt(3, ligne.getQuantite());
+            ps.setBigDecimal(4, ligne.getPrixUnitaire());
+            ps.setBigDecimal(5, ligne.getSousTotal());
+            ps.setString(6, ligne.getNomProduit());
+        });
+    }
+}
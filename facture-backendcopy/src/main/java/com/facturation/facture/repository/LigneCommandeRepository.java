@@ -3,12 +3,17 @@ package com.facturation.facture.repository;
 import com.facturation.facture.model.LigneCommande;
 import com.facturation.facture.model.Commande;
 import com.facturation.facture.model.Produit;
+import com.facturation.facture.model.enums.StatutCommande;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -42,6 +47,48 @@ public interface LigneCommandeRepository extends JpaRepository<LigneCommande, Lo
      */
     Optional<LigneCommande> findByCommandeAndProduit(Commande commande, Produit produit);
 
+    /**
+     * Ligne d'un produit dans une commande, sans charger les autres lignes
+     */
+    Optional<LigneCommande> findByCommandeIdAndProduitId(Long commandeId, Long produitId);
+
+    /**
+     * Nombre de lignes d'une commande
+     */
+    long countByCommandeId(Long commandeId);
+
+    /**
+     * Nombre de lignes de plusieurs commandes en une requête (commandeId, nombre)
+     */
+    @Query("SELECT lc.commande.id, COUNT(lc) FROM LigneCommande lc " +
+            "WHERE lc.commande.id IN :commandeIds GROUP BY lc.commande.id")
+    List<Object[]> countByCommandeIds(@Param("commandeIds") Collection<Long> commandeIds);
+
+    /**
+     * Quantités commandées par produit sur plusieurs commandes (produitId, quantité)
+     */
+    @Query("SELECT lc.produit.id, SUM(lc.quantite) FROM LigneCommande lc " +
+            "WHERE lc.commande.id IN :commandeIds GROUP BY lc.produit.id")
+    List<Object[]> sumQuantitesParProduit(@Param("commandeIds") Collection<Long> commandeIds);
+
+    /**
+     * Ventes depuis une date (produitId, date de commande, quantité), pour les commandes
+     * aux statuts donnés ; lue au démarrage par le suivi de la vélocité des ventes
+     */
+    @Query("SELECT lc.produit.id, lc.commande.dateCommande, lc.quantite FROM LigneCommande lc " +
+            "WHERE lc.commande.statut IN :statuts AND lc.commande.dateCommande >= :depuis " +
+            "ORDER BY lc.commande.dateCommande")
+    List<Object[]> findVentesDepuis(@Param("statuts") Collection<StatutCommande> statuts,
+                                    @Param("depuis") LocalDateTime depuis);
+
+    /**
+     * Page de lignes d'une commande (avec produit et catégorie)
+     */
+    @Query(value = "SELECT lc FROM LigneCommande lc LEFT JOIN FETCH lc.produit p LEFT JOIN FETCH p.categorie " +
+            "WHERE lc.commande.id = :commandeId",
+            countQuery = "SELECT COUNT(lc) FROM LigneCommande lc WHERE lc.commande.id = :commandeId")
+    Page<LigneCommande> findPageByCommandeId(@Param("commandeId") Long commandeId, Pageable pageable);
+
     /**
      * Recherche des lignes de commande par quantité minimum
      */
@@ -0,0 +1,46 @@
+package com.facturation.facture.repository;
+
+import com.facturation.facture.model.MouvementStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MouvementStockRepository extends JpaRepository<MouvementStock, Long> {
+
+    /**
+     * Somme des variations d'un produit entre deux dates (bornes incluses)
+     */
+    @Query("SELECT COALESCE(SUM(m.quantite), 0) FROM MouvementStock m " +
+            "WHERE m.produitId = :idProduit AND m.dateMouvement >= :depuis AND m.dateMouvement <= :jusqua")
+    Long sommeVariations(@Param("idProduit") Long idProduit,
+                         @Param("depuis") LocalDateTime depuis,
+                         @Param("jusqua") LocalDateTime jusqua);
+
+    /**
+     * Pour chaque produit ayant des mouvements depuis son dernier instantané et
+     * avant la date donnée : (produitId, quantité du dernier instantané, somme des
+     * mouvements). Une seule requête : l'instantané et ses mouvements sont lus ensemble.
+     */
+    @Query("SELECT i.produitId, i.quantite, SUM(m.quantite) FROM InstantaneStock i, MouvementStock m " +
+            "WHERE m.produitId = i.produitId " +
+            "AND i.arreteAu = (SELECT MAX(i2.arreteAu) FROM InstantaneStock i2 WHERE i2.produitId = i.produitId) " +
+            "AND m.dateMouvement >= i.arreteAu AND m.dateMouvement < :jusqua " +
+            "GROUP BY i.produitId, i.quantite")
+    List<Object[]> variationsDepuisDernierInstantane(@Param("jusqua") LocalDateTime jusqua);
+
+    /**
+     * Supprimer les mouvements couverts par le dernier instantané arrêté avant
+     * l'horizon de rétention : seuls disparaissent des mouvements déjà intégrés
+     * à un instantané, le stock à toute date postérieure reste exact.
+     */
+    @Modifying
+    @Query("DELETE FROM MouvementStock m WHERE m.dateMouvement < :horizon AND m.dateMouvement < " +
+            "(SELECT MAX(i.arreteAu) FROM InstantaneStock i WHERE i.produitId = m.produitId AND i.arreteAu <= :horizon)")
+    int supprimerCouvertsParInstantane(@Param("horizon") LocalDateTime horizon);
+}
@@ -0,0 +1,45 @@
+package com.facturation.facture.repository;
+
+import com.facturation.facture.model.Notification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Insertions groupées des notifications (identifiant IDENTITY : batch JDBC
+ * plutôt que saveAll, que Hibernate ne regroupe pas)
+ */
+@Repository
+public class NotificationBatchRepository {
+
+    private static final String SQL_INSERTION =
+            "INSERT INTO notifications (titre, message, type, lue, date_creation, user_id) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public NotificationBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insérer des notifications en un seul batch
+     */
+    public void inserer(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(SQL_INSERTION, notifications, notifications.size(), (ps, notification) -> {
+            ps.setString(1, notification.getTitre());
+            ps.setString(2, notification.getMessage());
+            ps.setString(3, notification.getType().name());
+            ps.setBoolean(4, Boolean.TRUE.equals(notification.getLue()));
+            ps.setTimestamp(5, Timestamp.valueOf(notification.getDateCreation()));
+            ps.setLong(6, notification.getUser().getId());
+        });
+    }
+}
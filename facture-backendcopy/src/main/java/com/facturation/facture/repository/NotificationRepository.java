@@ -0,0 +1,33 @@
+package com.facturation.facture.repository;
+
+import com.facturation.facture.model.Notification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface NotificationRepository extends JpaRepository<Notification, Long> {
+
+    /**
+     * Notifications non lues d'un utilisateur, les plus récentes d'abord
+     */
+    List<Notification> findByUserIdAndLueFalseOrderByDateCreationDesc(Long userId);
+
+    /**
+     * Marquer une notification d'un utilisateur comme lue
+     */
+    @Modifying
+    @Query("UPDATE Notification n SET n.lue = true WHERE n.id = :id AND n.user.id = :userId")
+    int marquerLue(@Param("id") Long id, @Param("userId") Long userId);
+
+    /**
+     * Marquer toutes les notifications d'un utilisateur comme lues
+     */
+    @Modifying
+    @Query("UPDATE Notification n SET n.lue = true WHERE n.user.id = :userId AND n.lue = false")
+    int marquerToutesLues(@Param("userId") Long userId);
+}
@@ -0,0 +1,99 @@
+package com.facturation.facture.repository;
+
+import com.facturation.facture.model.Produit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Écritures groupées des produits (import de fichiers).
+ *
+ * Les produits utilisent un identifiant IDENTITY, ce qui empêche Hibernate de
+ * regrouper les INSERT : créations et mises à jour partent en batch JDBC.
+ */
+@Repository
+public class ProduitBatchRepository {
+
+    private static final String SQL_INSERTION =
+            "INSERT INTO produits (nom, description, prix, quantite_stock, seuil_alerte, disponible, stock_segmente, " +
+            "categorie_id, date_creation, date_modification, version) VALUES (?, ?, ?, ?, ?, ?, FALSE, ?, ?, ?, 0)";
+
+    private static final String SQL_MISE_A_JOUR =
+            "UPDATE produits SET nom = ?, description = ?, prix = ?, quantite_stock = ?, seuil_alerte = ?, " +
+            "disponible = ?, categorie_id = ?, date_modification = ?, version = version + 1 WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ProduitBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insérer des produits en un seul batch
+     *
+     * @return les identifiants générés, dans l'ordre des produits
+     */
+    public List<Long> inserer(List<Produit> produits) {
+        List<Long> ids = new ArrayList<>();
+        if (produits.isEmpty()) {
+            return ids;
+        }
+
+        Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.execute((Connection connexion) -> {
+            try (PreparedStatement ps = connexion.prepareStatement(SQL_INSERTION, Statement.RETURN_GENERATED_KEYS)) {
+                for (Produit produit : produits) {
+                    ps.setString(1, produit.getNom());
+                    ps.setString(2, produit.getDescription());
+                    ps.setBigDecimal(3, produit.getPrix());
+                    ps.setInt(4, produit.getQuantiteStock());
+                    ps.setInt(5, produit.getSeuilAlerte());
+                    ps.setBoolean(6, produit.getDisponible());
+                    ps.setLong(7, produit.getCategorie().getId());
+                    ps.setTimestamp(8, maintenant);
+                    ps.setTimestamp(9, maintenant);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet cles = ps.getGeneratedKeys()) {
+                    while (cles.next()) {
+                        ids.add(cles.getLong(1));
+                    }
+                }
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * Mettre à jour des produits existants en un seul batch (tous les champs importables)
+     */
+    public void mettreAJour(List<Produit> produits) {
+        if (produits.isEmpty()) {
+            return;
+        }
+
+        Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(SQL_MISE_A_JOUR, produits, produits.size(), (ps, produit) -> {
+            ps.setString(1, produit.getNom());
+            ps.setString(2, produit.getDescription());
+            ps.setBigDecimal(3, produit.getPrix());
+            ps.setInt(4, produit.getQuantiteStock());
+            ps.setInt(5, produit.getSeuilAlerte());
+            ps.setBoolean(6, produit.getDisponible());
+            ps.setLong(7, produit.getCategorie().getId());
+            ps.setTimestamp(8, maintenant);
+            ps.setLong(9, produit.getId());
+        });
+    }
+}
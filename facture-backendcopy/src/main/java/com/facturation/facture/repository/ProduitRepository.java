@@ -1,13 +1,17 @@
 package com.facturation.facture.repository;
 
 import com.facturation.facture.model.Produit;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -77,6 +81,35 @@ public interface ProduitRepository extends JpaRepository<Produit, Long> {
     @Query("SELECT p FROM Produit p WHERE p.quantiteStock <= p.seuilAlerte AND p.disponible = true")
     List<Produit> findProduitsStockFaible();
 
+    /**
+     * État du stock de tous les produits (id, nom, stock, seuil d'alerte, disponible, segmenté, prix),
+     * chargé en mémoire par les indicateurs du catalogue
+     */
+    @Query("SELECT p.id, p.nom, p.quantiteStock, p.seuilAlerte, p.disponible, p.stockSegmente, p.prix FROM Produit p")
+    List<Object[]> findEtatsStock();
+
+    /**
+     * Tous les produits avec leur catégorie (construction du catalogue en mémoire)
+     */
+    @Query("SELECT p FROM Produit p LEFT JOIN FETCH p.categorie")
+    List<Produit> findAllAvecCategorie();
+
+    /**
+     * Produits par id avec leur catégorie (actualisation du catalogue en mémoire)
+     */
+    @Query("SELECT p FROM Produit p LEFT JOIN FETCH p.categorie WHERE p.id IN :ids")
+    List<Produit> findAllByIdAvecCategorie(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Verrouiller les produits désignés par id ou par nom (import de fichiers) en
+     * une seule requête, par id croissant comme les autres verrouillages de
+     * produits. Noms comparés selon la collation de la colonne (index
+     * idx_produits_nom, insensible à la casse sous MySQL).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Produit p WHERE p.id IN :ids OR p.nom IN :noms ORDER BY p.id")
+    List<Produit> verrouillerParIdsOuNoms(@Param("ids") Collection<Long> ids, @Param("noms") Collection<String> noms);
+
     /**
      * Recherche des produits en rupture de stock
      */
@@ -178,4 +211,27 @@ public interface ProduitRepository extends JpaRepository<Produit, Long> {
     @Query("SELECT p.categorie.nom, COUNT(p), AVG(p.prix), SUM(p.quantiteStock) " +
             "FROM Produit p WHERE p.disponible = true GROUP BY p.categorie.id, p.categorie.nom")
     List<Object[]> getStatistiquesParCategorie();
-}
\ No newline at end of file
+
+    /**
+     * Décrémenter le stock en une requête, seulement s'il couvre la quantité
+     * (0 = stock insuffisant ou stock segmenté). Le contexte de persistance de
+     * l'appelant n'est pas vidé : le produit concerné est à relire (refresh).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Produit p SET p.quantiteStock = p.quantiteStock - :quantite, p.dateModification = :maintenant, " +
+            "p.version = p.version + 1 WHERE p.id = :id AND p.quantiteStock >= :quantite AND p.stockSegmente = false")
+    int decrementerStock(@Param("id") Long id,
+                         @Param("quantite") Integer quantite,
+                         @Param("maintenant") LocalDateTime maintenant);
+
+    /**
+     * Incrémenter le stock en une requête (0 = produit absent ou stock segmenté),
+     * sans vider le contexte de persistance de l'appelant
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Produit p SET p.quantiteStock = p.quantiteStock + :quantite, p.dateModification = :maintenant, " +
+            "p.version = p.version + 1 WHERE p.id = :id AND p.stockSegmente = false")
+    int incrementerStock(@Param("id") Long id,
+                         @Param("quantite") Integer quantite,
+                         @Param("maintenant") LocalDateTime maintenant);
+}
@@ -0,0 +1,17 @@
+package com.facturation.facture.repository;
+
+import com.facturation.facture.model.ReservationStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ReservationStockRepository extends JpaRepository<ReservationStock, Long> {
+
+    /**
+     * Réservations encore actives à la date donnée
+     */
+    List<ReservationStock> findByExpirationAfter(LocalDateTime date);
+}
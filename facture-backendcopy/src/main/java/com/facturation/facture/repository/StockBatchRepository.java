@@ -0,0 +1,163 @@
+package com.facturation.facture.repository;
+
+import com.facturation.facture.model.InstantaneStock;
+import com.facturation.facture.model.MouvementStock;
+import com.facturation.facture.model.ReservationStock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mouvements de stock groupés.
+ *
+ * Chaque produit est décrémenté par un UPDATE conditionnel (le stock ne peut
+ * pas passer sous zéro, sans lecture préalable) ; les UPDATE d'une commande
+ * partent en un seul batch JDBC. Les produits sont traités par id croissant
+ * pour que deux commandes concurrentes verrouillent les lignes dans le même
+ * ordre (pas d'interblocage).
+ *
+ * Les produits en stock segmenté ne sont pas modifiés ici (voir
+ * StockSegmenteRepository) : leurs UPDATE ne trouvent aucune ligne.
+ */
+@Repository
+public class StockBatchRepository {
+
+    private static final String SQL_RESERVATION =
+            "UPDATE produits SET quantite_stock = quantite_stock - ?, version = version + 1 " +
+            "WHERE id = ? AND quantite_stock >= ? AND stock_segmente = FALSE";
+
+    private static final String SQL_RESTITUTION =
+            "UPDATE produits SET quantite_stock = quantite_stock + ?, version = version + 1 " +
+            "WHERE id = ? AND stock_segmente = FALSE";
+
+    private static final String SQL_INSERTION_MOUVEMENT =
+            "INSERT INTO mouvements_stock (produit_id, type, quantite, date_mouvement) VALUES (?, ?, ?, ?)";
+
+    private static final String SQL_INSERTION_INSTANTANE =
+            "INSERT INTO instantanes_stock (produit_id, quantite, arrete_au) VALUES (?, ?, ?)";
+
+    private static final String SQL_INSERTION_RESERVATION =
+            "INSERT INTO reservations_stock (produit_id, client_id, quantite, expiration) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public StockBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Décrémenter le stock de chaque produit si la quantité est disponible
+     *
+     * @return les ids des produits dont le stock était insuffisant ou segmenté (non décrémentés)
+     */
+    public List<Long> decrementer(Map<Long, Integer> quantitesParProduit) {
+        List<Map.Entry<Long, Integer>> mouvements = trier(quantitesParProduit);
+        if (mouvements.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        int[][] resultats = jdbcTemplate.batchUpdate(SQL_RESERVATION, mouvements, mouvements.size(), (ps, mouvement) -> {
+            ps.setInt(1, mouvement.getValue());
+            ps.setLong(2, mouvement.getKey());
+            ps.setInt(3, mouvement.getValue());
+        });
+
+        return nonModifies(mouvements, resultats);
+    }
+
+    /**
+     * Remettre en stock les quantités données
+     *
+     * @return les ids des produits non modifiés (absents ou en stock segmenté)
+     */
+    public List<Long> incrementer(Map<Long, Integer> quantitesParProduit) {
+        List<Map.Entry<Long, Integer>> mouvements = trier(quantitesParProduit);
+        if (mouvements.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        int[][] resultats = jdbcTemplate.batchUpdate(SQL_RESTITUTION, mouvements, mouvements.size(), (ps, mouvement) -> {
+            ps.setInt(1, mouvement.getValue());
+            ps.setLong(2, mouvement.getKey());
+        });
+        return nonModifies(mouvements, resultats);
+    }
+
+    /**
+     * Insérer des réservations de paniers en un seul batch (identifiant IDENTITY)
+     */
+    public void insererReservations(List<ReservationStock> reservations) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(SQL_INSERTION_RESERVATION, reservations, reservations.size(), (ps, reservation) -> {
+            ps.setLong(1, reservation.getProduitId());
+            ps.setLong(2, reservation.getClientId());
+            ps.setInt(3, reservation.getQuantite());
+            ps.setTimestamp(4, Timestamp.valueOf(reservation.getExpiration()));
+        });
+    }
+
+    /**
+     * Ajouter des mouvements au journal de stock en un seul batch (identifiant IDENTITY)
+     */
+    public void insererMouvements(List<MouvementStock> mouvements) {
+        if (mouvements.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(SQL_INSERTION_MOUVEMENT, mouvements, mouvements.size(), (ps, mouvement) -> {
+            ps.setLong(1, mouvement.getProduitId());
+            ps.setString(2, mouvement.getType().name());
+            ps.setInt(3, mouvement.getQuantite());
+            ps.setTimestamp(4, Timestamp.valueOf(mouvement.getDateMouvement()));
+        });
+    }
+
+    /**
+     * Insérer des instantanés de stock en un seul batch (identifiant IDENTITY)
+     */
+    public void insererInstantanes(List<InstantaneStock> instantanes) {
+        if (instantanes.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(SQL_INSERTION_INSTANTANE, instantanes, instantanes.size(), (ps, instantane) -> {
+            ps.setLong(1, instantane.getProduitId());
+            ps.setInt(2, instantane.getQuantite());
+            ps.setTimestamp(3, Timestamp.valueOf(instantane.getArreteAu()));
+        });
+    }
+
+    private static List<Long> nonModifies(List<Map.Entry<Long, Integer>> mouvements, int[][] resultats) {
+        List<Long> ids = new ArrayList<>();
+        int index = 0;
+        for (int[] lot : resultats) {
+            for (int lignesModifiees : lot) {
+                if (lignesModifiees == 0) {
+                    ids.add(mouvements.get(index).getKey());
+                }
+                index++;
+            }
+        }
+        return ids;
+    }
+
+    private static List<Map.Entry<Long, Integer>> trier(Map<Long, Integer> quantitesParProduit) {
+        List<Map.Entry<Long, Integer>> mouvements = new ArrayList<>();
+        new TreeMap<>(quantitesParProduit).forEach((idProduit, quantite) -> {
+            if (quantite != null && quantite > 0) {
+                mouvements.add(Map.entry(idProduit, quantite));
+            }
+        });
+        return mouvements;
+    }
+}
@@ -0,0 +1,180 @@
+package com.facturation.facture.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Segments du stock des produits en stock segmenté.
+ *
+ * Une commande ne verrouille qu'un segment (UPDATE conditionnel sur une seule
+ * ligne) : des commandes concurrentes sur un même produit se répartissent sur
+ * les segments au lieu d'attendre toutes la même ligne de la table produits.
+ * Les opérations qui portent sur tous les segments d'un produit les verrouillent
+ * par numéro croissant. Pendant une commande, les segments libres sont
+ * regroupés sans attendre (SKIP LOCKED) ; une commande n'attend jamais les
+ * segments tenus par une autre en gardant les siens (voir StockSegmenteService).
+ */
+@Repository
+public class StockSegmenteRepository {
+
+    private static final String SQL_DECREMENT =
+            "UPDATE stocks_segments SET quantite = quantite - ? WHERE produit_id = ? AND numero = ? AND quantite >= ?";
+
+    private static final String SQL_INCREMENT =
+            "UPDATE stocks_segments SET quantite = quantite + ? WHERE produit_id = ? AND numero = ?";
+
+    private static final String SQL_VERROUILLAGE =
+            "SELECT numero, quantite FROM stocks_segments WHERE produit_id = ? ORDER BY numero FOR UPDATE";
+
+    private static final String SQL_VERROUILLAGE_LIBRES =
+            "SELECT numero, quantite FROM stocks_segments WHERE produit_id = ? ORDER BY numero FOR UPDATE SKIP LOCKED";
+
+    private static final String SQL_MISE_A_JOUR =
+            "UPDATE stocks_segments SET quantite = ? WHERE produit_id = ? AND numero = ?";
+
+    private static final String SQL_INSERTION =
+            "INSERT INTO stocks_segments (produit_id, numero, quantite) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public StockSegmenteRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Décrémenter un segment s'il couvre la quantité
+     *
+     * @return false si le segment est insuffisant (ou n'existe pas)
+     */
+    public boolean decrementerSegment(Long idProduit, int numero, int quantite) {
+        return jdbcTemplate.update(SQL_DECREMENT, quantite, idProduit, numero, quantite) > 0;
+    }
+
+    /**
+     * Ajouter une quantité à un segment
+     *
+     * @return false si le segment n'existe pas
+     */
+    public boolean incrementerSegment(Long idProduit, int numero, int quantite) {
+        return jdbcTemplate.update(SQL_INCREMENT, quantite, idProduit, numero) > 0;
+    }
+
+    /**
+     * Verrouiller tous les segments d'un produit
+     *
+     * @return les quantités par numéro de segment (vide si le produit n'est pas segmenté)
+     */
+    public Map<Integer, Integer> verrouillerSegments(Long idProduit) {
+        return lireSegments(SQL_VERROUILLAGE, idProduit);
+    }
+
+    /**
+     * Verrouiller les segments d'un produit qui ne sont pas tenus par une autre
+     * transaction (sans attendre)
+     */
+    public Map<Integer, Integer> verrouillerSegmentsLibres(Long idProduit) {
+        return lireSegments(SQL_VERROUILLAGE_LIBRES, idProduit);
+    }
+
+    /**
+     * Remplacer les quantités des segments donnés (segments verrouillés au préalable)
+     */
+    public void definirSegments(Long idProduit, Map<Integer, Integer> quantitesParNumero) {
+        List<Object[]> valeurs = new ArrayList<>();
+        quantitesParNumero.forEach((numero, quantite) -> valeurs.add(new Object[]{quantite, idProduit, numero}));
+        jdbcTemplate.batchUpdate(SQL_MISE_A_JOUR, valeurs);
+    }
+
+    /**
+     * Créer les segments d'un produit en un seul batch
+     */
+    public void creerSegments(Long idProduit, int[] quantites) {
+        List<Object[]> valeurs = new ArrayList<>();
+        for (int numero = 0; numero < quantites.length; numero++) {
+            valeurs.add(new Object[]{idProduit, numero, quantites[numero]});
+        }
+        jdbcTemplate.batchUpdate(SQL_INSERTION, valeurs);
+    }
+
+    public void supprimerSegments(Long idProduit) {
+        jdbcTemplate.update("DELETE FROM stocks_segments WHERE produit_id = ?", idProduit);
+    }
+
+    /**
+     * Verrouiller la ligne produit et lire son stock, si le produit est dans le mode donné
+     *
+     * @return quantite_stock, ou null si le produit n'existe pas ou n'est pas dans ce mode
+     */
+    public Integer verrouillerProduit(Long idProduit, boolean segmente) {
+        List<Integer> stock = jdbcTemplate.queryForList(
+                "SELECT quantite_stock FROM produits WHERE id = ? AND stock_segmente = ? FOR UPDATE",
+                Integer.class, idProduit, segmente);
+        return stock.isEmpty() ? null : stock.get(0);
+    }
+
+    /**
+     * Basculer un produit en stock segmenté ou simple. En repassant en stock
+     * simple, quantite_stock reçoit la somme des segments.
+     */
+    public int changerMode(Long idProduit, boolean segmente, int quantiteStock) {
+        return jdbcTemplate.update(
+                "UPDATE produits SET stock_segmente = ?, quantite_stock = ?, version = version + 1 WHERE id = ?",
+                segmente, quantiteStock, idProduit);
+    }
+
+    /**
+     * Nombre de segments d'un produit en stock segmenté (0 s'il est en stock simple)
+     */
+    public int nombreSegments(Long idProduit) {
+        Integer nombre = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM stocks_segments s JOIN produits p ON p.id = s.produit_id " +
+                "WHERE s.produit_id = ? AND p.stock_segmente = TRUE", Integer.class, idProduit);
+        return nombre != null ? nombre : 0;
+    }
+
+    /**
+     * Quantités des segments par produit (lecture sans verrou)
+     */
+    public Map<Long, int[]> quantitesParProduit() {
+        Map<Long, List<Integer>> lignes = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT s.produit_id, s.quantite FROM stocks_segments s JOIN produits p ON p.id = s.produit_id " +
+                "WHERE p.stock_segmente = TRUE ORDER BY s.produit_id, s.numero",
+                rs -> {
+                    lignes.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>()).add(rs.getInt(2));
+                });
+        Map<Long, int[]> quantites = new HashMap<>();
+        lignes.forEach((idProduit, valeurs) ->
+                quantites.put(idProduit, valeurs.stream().mapToInt(Integer::intValue).toArray()));
+        return quantites;
+    }
+
+    private Map<Integer, Integer> lireSegments(String sql, Long idProduit) {
+        Map<Integer, Integer> segments = new TreeMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            segments.put(rs.getInt(1), rs.getInt(2));
+        }, idProduit);
+        return segments;
+    }
+
+    /**
+     * Reporter dans quantite_stock la somme des segments (sans changer la version :
+     * la valeur est dérivée des segments)
+     */
+    public void synchroniserStocks(Map<Long, Integer> totaux) {
+        List<Object[]> valeurs = new ArrayList<>();
+        totaux.forEach((idProduit, total) -> valeurs.add(new Object[]{total, idProduit}));
+        if (!valeurs.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "UPDATE produits SET quantite_stock = ? WHERE id = ? AND stock_segmente = TRUE", valeurs);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.event.ProduitModifieEvent;
+import com.facturation.facture.event.StockModifieEvent;
+import com.facturation.facture.model.Notification;
+import com.facturation.facture.model.User;
+import com.facturation.facture.model.enums.Role;
+import com.facturation.facture.model.enums.TypeNotification;
+import com.facturation.facture.repository.NotificationBatchRepository;
+import com.facturation.facture.repository.UserRepository;
+import com.facturation.facture.service.IndicateursCatalogueService.EtatStock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Détection des stocks faibles.
+ *
+ * Les produits dont le stock baisse (variations publiées par le journal de
+ * stock, une fois la transaction validée) ou qui sont modifiés sont revus au
+ * prochain envoi, sur le stock et le seuil d'alerte tenus en mémoire par
+ * IndicateursCatalogueService : aucune requête ne lit la table produits. Un
+ * produit que les indicateurs n'ont pas encore relu est revu à l'envoi suivant.
+ *
+ * Une alerte est émise à chaque passage sous le seuil constaté à l'envoi ;
+ * un produit signalé n'est réarmé que lorsque son stock repasse au-dessus du
+ * seuil (ou, s'il y reste, à la fin de la fenêtre de regroupement
+ * facturation.stock.alerte.fenetre-minutes). Les notifications des
+ * administrateurs sont écrites par batch.
+ */
+@Service
+public class AlerteStockService {
+
+    public static final String COMPTEUR_EMISES = "alertes.stock.emises";
+    public static final String COMPTEUR_REGROUPEES = "alertes.stock.regroupees";
+    public static final String COMPTEUR_NOTIFICATIONS = "alertes.stock.notifications";
+
+    private static final Logger log = LoggerFactory.getLogger(AlerteStockService.class);
+
+    private final IndicateursCatalogueService indicateursCatalogueService;
+    private final UserRepository userRepository;
+    private final NotificationBatchRepository notificationBatchRepository;
+    private final SupervisionService supervisionService;
+    private final TransactionTemplate transactionTemplate;
+
+    // Produits à revoir au prochain envoi (stock en baisse ou produit modifié)
+    private final Set<Long> aVerifier = ConcurrentHashMap.newKeySet();
+
+    // Date de la dernière alerte émise par produit (epoch millis)
+    private final Map<Long, Long> dernieresAlertes = new ConcurrentHashMap<>();
+
+    @Value("${facturation.stock.alerte.fenetre-minutes:60}")
+    private long fenetreMinutes = 60;
+
+    @Autowired
+    public AlerteStockService(IndicateursCatalogueService indicateursCatalogueService, UserRepository userRepository,
+                              NotificationBatchRepository notificationBatchRepository,
+                              SupervisionService supervisionService,
+                              PlatformTransactionManager transactionManager) {
+        this.indicateursCatalogueService = indicateursCatalogueService;
+        this.userRepository = userRepository;
+        this.notificationBatchRepository = notificationBatchRepository;
+        this.supervisionService = supervisionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Revoir au prochain envoi les produits dont le stock a baissé, et ceux
+     * déjà signalés dont le stock remonte (réarmement)
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void surStockModifie(StockModifieEvent evenement) {
+        evenement.getVariations().forEach((idProduit, variation) -> {
+            if (variation < 0 || (variation > 0 && dernieresAlertes.containsKey(idProduit))) {
+                aVerifier.add(idProduit);
+            }
+        });
+    }
+
+    /**
+     * Revoir au prochain envoi un produit créé ou modifié
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void surProduitModifie(ProduitModifieEvent evenement) {
+        aVerifier.add(evenement.getIdProduit());
+    }
+
+    /**
+     * Revoir les produits signalés et notifier les administrateurs des stocks faibles
+     *
+     * @return le nombre de notifications écrites
+     */
+    @Scheduled(fixedDelayString = "${facturation.stock.alerte.envoi-ms:10000}")
+    public int envoyerAlertes() {
+        if (aVerifier.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(aVerifier);
+        ids.forEach(aVerifier::remove);
+
+        long maintenant = System.currentTimeMillis();
+        long debutFenetre = maintenant - TimeUnit.MINUTES.toMillis(fenetreMinutes);
+        dernieresAlertes.values().removeIf(date -> date <= debutFenetre);
+
+        // Produits disponibles seulement ; ceux que les indicateurs n'ont pas encore relus attendent
+        Map<Long, EtatStock> etats = indicateursCatalogueService.obtenirEtatsStock(ids);
+        Map<Long, EtatStock> enAlerte = new LinkedHashMap<>();
+        for (Long idProduit : ids) {
+            if (indicateursCatalogueService.estARelire(idProduit)) {
+                aVerifier.add(idProduit);
+                continue;
+            }
+            EtatStock etat = etats.get(idProduit);
+            if (etat == null) {
+                continue;
+            }
+            if (etat.getStock() > etat.getSeuilAlerte()) {
+                // Stock revenu au-dessus du seuil : le prochain passage en dessous sera signalé
+                dernieresAlertes.remove(idProduit);
+                continue;
+            }
+            if (dernieresAlertes.containsKey(idProduit)) {
+                supervisionService.incrementer(COMPTEUR_REGROUPEES);
+                continue;
+            }
+            enAlerte.put(idProduit, etat);
+        }
+        if (enAlerte.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            Integer ecrites = transactionTemplate.execute(status -> {
+                List<Notification> notifications = new ArrayList<>();
+                for (User administrateur : userRepository.findByRoleAndActifTrue(Role.ADMIN)) {
+                    enAlerte.values().forEach(etat -> notifications.add(notification(etat, administrateur)));
+                }
+                notificationBatchRepository.inserer(notifications);
+                return notifications.size();
+            });
+
+            enAlerte.keySet().forEach(id -> dernieresAlertes.put(id, maintenant));
+            int nombre = ecrites != null ? ecrites : 0;
+            supervisionService.ajouter(COMPTEUR_EMISES, enAlerte.size());
+            supervisionService.ajouter(COMPTEUR_NOTIFICATIONS, nombre);
+            log.info("Stock faible : {} produit(s) signalé(s), {} notification(s) écrite(s)", enAlerte.size(), nombre);
+            return nombre;
+        } catch (RuntimeException e) {
+            aVerifier.addAll(enAlerte.keySet());
+            log.warn("Envoi des alertes de stock impossible : {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    private static Notification notification(EtatStock etat, User administrateur) {
+        String titre = "Stock faible : " + etat.getNom();
+        if (titre.length() > 100) {
+            titre = titre.substring(0, 97) + "...";
+        }
+        String message = "Le stock du produit '" + etat.getNom() + "' est de " + Math.max(0, etat.getStock())
+                + " (seuil d'alerte : " + etat.getSeuilAlerte() + ").";
+        return new Notification(titre, message, TypeNotification.STOCK_FAIBLE, administrateur);
+    }
+}
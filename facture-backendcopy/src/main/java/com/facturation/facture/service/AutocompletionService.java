@@ -0,0 +1,120 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.dto.SuggestionAutocompletionDTO;
+import com.facturation.facture.event.CatalogueModifieEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Complétion pendant la saisie : noms de produits disponibles et de catégories
+ * commençant (à un début de mot) par le préfixe saisi, les plus vendus d'abord.
+ *
+ * L'index (voir IndexAutocompletion) est immuable et servi sans verrou. Il
+ * suit le catalogue en mémoire : seuls les produits dont le nom ou la
+ * disponibilité change sont réindexés ; un rechargement complet du catalogue
+ * le reconstruit. La popularité (rythme de ventes) est recalculée par une
+ * reconstruction complète toutes les
+ * facturation.recherche.autocompletion.popularite-ms.
+ */
+@Service
+public class AutocompletionService {
+
+    public static final int LIMITE_MAX = 20;
+    public static final int LIMITE_DEFAUT = 10;
+
+    private static final Logger log = LoggerFactory.getLogger(AutocompletionService.class);
+
+    private final CatalogueService catalogueService;
+    private final VelociteVentesService velociteVentesService;
+
+    private volatile IndexAutocompletion index;
+
+    @Autowired
+    public AutocompletionService(CatalogueService catalogueService, VelociteVentesService velociteVentesService) {
+        this.catalogueService = catalogueService;
+        this.velociteVentesService = velociteVentesService;
+    }
+
+    /**
+     * Meilleures complétions du préfixe
+     */
+    public List<SuggestionAutocompletionDTO> completer(String prefixe, Integer limite) {
+        int maximum = limite != null ? limite : LIMITE_DEFAUT;
+        if (maximum < 1 || maximum > LIMITE_MAX) {
+            throw new RuntimeException("La limite doit être comprise entre 1 et " + LIMITE_MAX);
+        }
+        return obtenirIndex().completer(prefixe, maximum);
+    }
+
+    /**
+     * Suivre les instantanés du catalogue
+     */
+    @EventListener
+    public synchronized void surCatalogueModifie(CatalogueModifieEvent evenement) {
+        CatalogueService.Catalogue catalogue = evenement.getCatalogue();
+        IndexAutocompletion actuel = index;
+        if (evenement.isComplet() || actuel == null) {
+            index = construire(catalogue);
+            return;
+        }
+
+        List<ProduitDTO> modifies = new ArrayList<>();
+        List<Long> supprimes = new ArrayList<>();
+        for (Long idProduit : evenement.getIdsModifies()) {
+            ProduitDTO produit = catalogue.getProduit(idProduit);
+            if (produit != null) {
+                modifies.add(produit);
+            } else {
+                supprimes.add(idProduit);
+            }
+        }
+        index = actuel.avec(modifies, supprimes, velociteVentesService::obtenirVelocite);
+    }
+
+    /**
+     * Reconstruire l'index avec les rythmes de ventes actuels
+     */
+    @Scheduled(fixedDelayString = "${facturation.recherche.autocompletion.popularite-ms:300000}",
+            initialDelayString = "${facturation.recherche.autocompletion.popularite-ms:300000}")
+    public void actualiserPopularite() {
+        // Catalogue construit hors du verrou (sa construction publie un événement traité sous ce verrou),
+        // puis relu sous le verrou pour ne pas revenir à un instantané déjà remplacé
+        catalogueService.obtenirCatalogue();
+        synchronized (this) {
+            index = construire(catalogueService.obtenirCatalogue());
+        }
+    }
+
+    private IndexAutocompletion construire(CatalogueService.Catalogue catalogue) {
+        long debut = System.currentTimeMillis();
+        Map<Long, Double> velocites = velociteVentesService.obtenirVelocites();
+        IndexAutocompletion construit = IndexAutocompletion.construire(catalogue.getProduitsDisponibles(),
+                idProduit -> velocites.getOrDefault(idProduit, 0d), LIMITE_MAX);
+        log.debug("Index d'autocomplétion construit ({} libellé(s), {} ms)",
+                construit.taille(), System.currentTimeMillis() - debut);
+        return construit;
+    }
+
+    private IndexAutocompletion obtenirIndex() {
+        IndexAutocompletion actuel = index;
+        if (actuel != null) {
+            return actuel;
+        }
+        CatalogueService.Catalogue catalogue = catalogueService.obtenirCatalogue();
+        synchronized (this) {
+            if (index == null) {
+                index = construire(catalogue);
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.event.CatalogueModifieEvent;
+import com.facturation.facture.event.CategorieModifieEvent;
+import com.facturation.facture.event.ProduitModifieEvent;
+import com.facturation.facture.event.StockModifieEvent;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.repository.ProduitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Collator;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Catalogue public tenu en mémoire : instantané immuable des produits (avec
+ * le nom de leur catégorie), servi sans verrou ni requête.
+ *
+ * Chaque modification produit un nouvel instantané (copie sur écriture) avec
+ * un numéro de version incrémenté. Les modifications sont regroupées : les
+ * variations de stock du journal et les produits créés, modifiés ou supprimés
+ * (relus par id) sont appliqués toutes les
+ * facturation.catalogue.instantane.actualisation-ms ; une catégorie modifiée
+ * ou supprimée provoque un rechargement complet, également fait
+ * périodiquement (facturation.catalogue.instantane.rechargement-ms).
+ *
+ * La version repart de 1 à chaque démarrage et chaque instance a la sienne :
+ * les clients reçoivent une étiquette (ETag, X-Catalogue-Version) qui la
+ * préfixe d'un identifiant tiré au démarrage de l'instance.
+ */
+@Service
+public class CatalogueService {
+
+    // En-tête de réponse portant la version du catalogue servi
+    public static final String ENTETE_VERSION = "X-Catalogue-Version";
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogueService.class);
+
+    // Identifiant de l'instance, tiré au démarrage
+    private final String instance = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    private final ProduitRepository produitRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher evenements;
+
+    // Modifications en attente du prochain instantané
+    private final Map<Long, Integer> variationsEnAttente = new ConcurrentHashMap<>();
+    private final Set<Long> aRelire = ConcurrentHashMap.newKeySet();
+    private volatile boolean rechargementDemande;
+
+    private volatile Catalogue catalogue;
+
+    @Autowired
+    public CatalogueService(ProduitRepository produitRepository, PlatformTransactionManager transactionManager,
+                            ApplicationEventPublisher evenements) {
+        this.produitRepository = produitRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.evenements = evenements;
+    }
+
+    /**
+     * Instantané actuel du catalogue (construit au premier appel s'il n'existe pas encore)
+     */
+    public Catalogue obtenirCatalogue() {
+        Catalogue actuel = catalogue;
+        if (actuel != null) {
+            return actuel;
+        }
+        synchronized (this) {
+            if (catalogue == null) {
+                publier(charger(null), null);
+            }
+            return catalogue;
+        }
+    }
+
+    /**
+     * Étiquette d'une version du catalogue servie aux clients : la version seule
+     * ne distingue ni deux démarrages ni deux instances
+     */
+    public String etiquette(long version) {
+        return instance + "-" + version;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void surStockModifie(StockModifieEvent evenement) {
+        evenement.getVariations().forEach((idProduit, variation) ->
+                variationsEnAttente.merge(idProduit, variation, Integer::sum));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void surProduitModifie(ProduitModifieEvent evenement) {
+        aRelire.add(evenement.getIdProduit());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void surCategorieModifiee(CategorieModifieEvent evenement) {
+        rechargementDemande = true;
+    }
+
+    /**
+     * Publier un nouvel instantané si des modifications sont en attente.
+     * Le stock d'un produit déjà présent n'est pas recopié depuis la base :
+     * seules les variations le modifient.
+     */
+    @Scheduled(fixedDelayString = "${facturation.catalogue.instantane.actualisation-ms:500}")
+    public synchronized void actualiser() {
+        Catalogue actuel = catalogue;
+        if (actuel == null || rechargementDemande) {
+            rechargementDemande = false;
+            try {
+                publier(charger(actuel), null);
+            } catch (RuntimeException e) {
+                rechargementDemande = true;
+                log.warn("Rechargement du catalogue impossible : {}", e.getMessage());
+            }
+            return;
+        }
+        if (variationsEnAttente.isEmpty() && aRelire.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> variations = prendreVariations();
+        Set<Long> ids = new LinkedHashSet<>(aRelire);
+        aRelire.removeAll(ids);
+
+        Map<Long, ProduitDTO> produits = new HashMap<>(actuel.produits);
+        variations.forEach((idProduit, variation) -> {
+            ProduitDTO produit = produits.get(idProduit);
+            if (produit == null) {
+                // Produit inconnu : son stock sera lu en base
+                ids.add(idProduit);
+                return;
+            }
+            ProduitDTO copie = produit.copie();
+            copie.setQuantiteStock((produit.getQuantiteStock() != null ? produit.getQuantiteStock() : 0) + variation);
+            produits.put(idProduit, copie);
+        });
+
+        if (!ids.isEmpty()) {
+            try {
+                List<Produit> relus = transactionTemplate.execute(status -> produitRepository.findAllByIdAvecCategorie(ids));
+                Set<Long> trouves = new HashSet<>();
+                for (Produit produit : relus) {
+                    trouves.add(produit.getId());
+                    ProduitDTO dto = ProduitDTO.fromEntity(produit);
+                    ProduitDTO existant = produits.get(produit.getId());
+                    if (existant != null) {
+                        dto.setQuantiteStock(existant.getQuantiteStock());
+                    }
+                    produits.put(produit.getId(), dto);
+                }
+                ids.stream().filter(id -> !trouves.contains(id)).forEach(produits::remove);
+            } catch (RuntimeException e) {
+                aRelire.addAll(ids);
+                variations.forEach((idProduit, variation) -> variationsEnAttente.merge(idProduit, variation, Integer::sum));
+                log.warn("Actualisation du catalogue impossible : {}", e.getMessage());
+                return;
+            }
+        }
+
+        publier(new Catalogue(actuel.version + 1, etiquette(actuel.version + 1), produits), ids);
+    }
+
+    /**
+     * Reconstruire entièrement le catalogue (corrige une éventuelle dérive du stock)
+     */
+    @Scheduled(fixedDelayString = "${facturation.catalogue.instantane.rechargement-ms:600000}",
+            initialDelayString = "${facturation.catalogue.instantane.rechargement-ms:600000}")
+    public void recharger() {
+        rechargementDemande = true;
+        actualiser();
+    }
+
+    /**
+     * Construire le catalogue au démarrage
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        actualiser();
+    }
+
+    /**
+     * Remplacer l'instantané et le signaler avec les produits dont le texte a pu
+     * changer (null = tous, après un rechargement complet ; vide = stock seulement)
+     */
+    private void publier(Catalogue nouveau, Collection<Long> idsModifies) {
+        catalogue = nouveau;
+        evenements.publishEvent(new CatalogueModifieEvent(nouveau, idsModifies));
+    }
+
+    /**
+     * Lire tous les produits. Les variations reçues avant la lecture y sont
+     * comprises ; celles reçues pendant la lecture peuvent l'être ou non : le
+     * stock de ces produits est repris de l'instantané précédent, à jour de
+     * toutes leurs variations, et un produit qu'il ne contient pas encore est
+     * relu par id au prochain passage (comme dans actualiser).
+     */
+    private Catalogue charger(Catalogue precedent) {
+        Map<Long, Integer> anterieures = prendreVariations();
+        aRelire.clear();
+        List<Produit> tous;
+        try {
+            tous = transactionTemplate.execute(status -> produitRepository.findAllAvecCategorie());
+        } catch (RuntimeException e) {
+            anterieures.forEach((idProduit, variation) -> variationsEnAttente.merge(idProduit, variation, Integer::sum));
+            throw e;
+        }
+        Map<Long, ProduitDTO> produits = new HashMap<>();
+        for (Produit produit : tous) {
+            produits.put(produit.getId(), ProduitDTO.fromEntity(produit));
+        }
+
+        prendreVariations().forEach((idProduit, variation) -> {
+            ProduitDTO lu = produits.get(idProduit);
+            ProduitDTO publie = precedent != null ? precedent.produits.get(idProduit) : null;
+            if (lu == null) {
+                return;
+            }
+            if (publie == null) {
+                produits.remove(idProduit);
+                aRelire.add(idProduit);
+                return;
+            }
+            lu.setQuantiteStock((publie.getQuantiteStock() != null ? publie.getQuantiteStock() : 0)
+                    + anterieures.getOrDefault(idProduit, 0) + variation);
+        });
+        log.debug("Catalogue chargé en mémoire ({} produit(s))", produits.size());
+        long version = precedent != null ? precedent.version + 1 : 1;
+        return new Catalogue(version, etiquette(version), produits);
+    }
+
+    private Map<Long, Integer> prendreVariations() {
+        Map<Long, Integer> variations = new HashMap<>();
+        for (Long idProduit : new ArrayList<>(variationsEnAttente.keySet())) {
+            Integer variation = variationsEnAttente.remove(idProduit);
+            if (variation != null) {
+                variations.put(idProduit, variation);
+            }
+        }
+        return variations;
+    }
+
+    /**
+     * Instantané immuable du catalogue. Les produits sont partagés entre les
+     * lecteurs : les copier (ProduitDTO.copie) avant toute modification.
+     */
+    public static final class Catalogue {
+
+        // Tri par nom comme la collation de la base (sans casse ni accents)
+        private static final Comparator<ProduitDTO> ORDRE_NOM;
+
+        static {
+            Collator collator = Collator.getInstance(Locale.FRENCH);
+            collator.setStrength(Collator.PRIMARY);
+            Comparator<ProduitDTO> parNom = Comparator.comparing(ProduitDTO::getNom, collator);
+            ORDRE_NOM = parNom.thenComparing(ProduitDTO::getId);
+        }
+
+        private final long version;
+        private final String etiquette;
+        private final LocalDateTime dateGeneration = LocalDateTime.now();
+        private final Map<Long, ProduitDTO> produits;
+        private final List<ProduitDTO> produitsDisponibles;
+
+        private Catalogue(long version, String etiquette, Map<Long, ProduitDTO> produits) {
+            this.version = version;
+            this.etiquette = etiquette;
+            this.produits = produits;
+            List<ProduitDTO> disponibles = new ArrayList<>();
+            for (ProduitDTO produit : produits.values()) {
+                if (Boolean.TRUE.equals(produit.getDisponible())) {
+                    disponibles.add(produit);
+                }
+            }
+            disponibles.sort(ORDRE_NOM);
+            this.produitsDisponibles = Collections.unmodifiableList(disponibles);
+        }
+
+        public long getVersion() { return version; }
+
+        // Version servie aux clients (ETag, X-Catalogue-Version), unique d'un démarrage et d'une instance à l'autre
+        public String getEtiquette() { return etiquette; }
+
+        public LocalDateTime getDateGeneration() { return dateGeneration; }
+
+        // Produit par id, disponible ou non (null si inconnu)
+        public ProduitDTO getProduit(Long idProduit) { return produits.get(idProduit); }
+
+        public Collection<ProduitDTO> getProduits() { return Collections.unmodifiableCollection(produits.values()); }
+
+        // Produits disponibles triés par nom (comme findAllDisponiblesOrderByNom)
+        public List<ProduitDTO> getProduitsDisponibles() { return produitsDisponibles; }
+    }
+}
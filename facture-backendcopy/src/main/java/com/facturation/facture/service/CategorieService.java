@@ -1,9 +1,11 @@
 package com.facturation.facture.service;
 
 import com.facturation.facture.dto.CategorieDTO;
+import com.facturation.facture.event.CategorieModifieEvent;
 import com.facturation.facture.model.Categorie;
 import com.facturation.facture.repository.CategorieRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -16,6 +18,9 @@ public class CategorieService {
     @Autowired
     private CategorieRepository categorieRepository;
 
+    @Autowired
+    private ApplicationEventPublisher evenements;
+
     // Convertir entité -> DTO
     private CategorieDTO toDTO(Categorie categorie) {
         CategorieDTO dto = new CategorieDTO();
@@ -56,11 +61,15 @@ public class CategorieService {
             c.setNom(dto.getNom());
             c.setDescription(dto.getDescription());
             c.setActif(dto.getActif());
-            return toDTO(categorieRepository.save(c));
+            CategorieDTO resultat = toDTO(categorieRepository.save(c));
+            // Nom de catégorie repris par le catalogue en mémoire
+            evenements.publishEvent(new CategorieModifieEvent(id));
+            return resultat;
         });
     }
 
     public void deleteCategorie(Long id) {
         categorieRepository.deleteById(id);
+        evenements.publishEvent(new CategorieModifieEvent(id));
     }
 }
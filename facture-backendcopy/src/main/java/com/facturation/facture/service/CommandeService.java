@@ -1,19 +1,44 @@
 package com.facturation.facture.service;
 
+import com.facturation.facture.config.ReessaiSurConflit;
 import com.facturation.facture.dto.CommandeDTO;
 import com.facturation.facture.dto.LigneCommandeDTO;
+import com.facturation.facture.dto.OperationLigneDTO;
+import com.facturation.facture.dto.RapportCommandesMasseDTO;
+import com.facturation.facture.dto.RapportTransitionStatutDTO;
+import com.facturation.facture.dto.TransitionStatutMasseDTO;
+import com.facturation.facture.event.CommandePayeeEvent;
 import com.facturation.facture.model.*;
 import com.facturation.facture.model.enums.StatutCommande;
+import com.facturation.facture.model.enums.TypeOperationLigne;
 import com.facturation.facture.repository.*;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 // Ajoutez ces imports en haut du fichier
@@ -28,28 +53,73 @@ import org.springframework.security.core.context.SecurityContextHolder;
 @Transactional
 public class CommandeService {
 
+    // Nombre maximal d'ids par clause IN dans les requêtes en masse
+    private static final int TAILLE_CLAUSE_IN = 1000;
+
+    private static final int TAILLE_MAX_PAGE_LIGNES = 500;
+
+    public static final String COMPTEUR_VERIFICATIONS_TOTAUX = "totaux.verifications";
+    public static final String COMPTEUR_ECARTS_TOTAUX = "totaux.ecarts-corriges";
+
     private final CommandeRepository commandeRepository;
     private final UserRepository clientRepository;
     private final ProduitRepository produitRepository;
     private final LigneCommandeRepository ligneCommandeRepository;
     private final FactureRepository factureRepository;
+    private final LigneCommandeBatchRepository ligneCommandeBatchRepository;
+    private final SequenceService sequenceService;
+    private final SupervisionService supervisionService;
+    private final StockService stockService;
+    private final ReservationStockService reservationStockService;
+    private final ApplicationEventPublisher evenements;
+
+    // Facturation différée : pas de facture tant que la commande est EN_ATTENTE
+    @Value("${facturation.facture.creation-differee:false}")
+    private boolean creationFactureDifferee;
+
+    @Value("${facturation.commande.masse.taille-max:1000}")
+    private int tailleMaxLotCommandes;
+
+    @Value("${facturation.commande.masse.taille-tranche:50}")
+    private int tailleTrancheCommandes;
+
+    // Au-delà de ce nombre de lignes, la commande est renvoyée sans ses lignes (lecture paginée)
+    @Value("${facturation.commande.grande.seuil-lignes:200}")
+    private int seuilGrandeCommande;
+
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
     public CommandeService(CommandeRepository commandeRepository,
                            UserRepository clientRepository,
                            ProduitRepository produitRepository,
                            LigneCommandeRepository ligneCommandeRepository,
-                           FactureRepository factureRepository) {
+                           FactureRepository factureRepository,
+                           LigneCommandeBatchRepository ligneCommandeBatchRepository,
+                           SequenceService sequenceService,
+                           SupervisionService supervisionService,
+                           StockService stockService,
+                           ReservationStockService reservationStockService,
+                           ApplicationEventPublisher evenements,
+                           PlatformTransactionManager transactionManager) {
         this.commandeRepository = commandeRepository;
         this.clientRepository = clientRepository;
         this.produitRepository = produitRepository;
         this.ligneCommandeRepository = ligneCommandeRepository;
         this.factureRepository = factureRepository;
+        this.ligneCommandeBatchRepository = ligneCommandeBatchRepository;
+        this.sequenceService = sequenceService;
+        this.supervisionService = supervisionService;
+        this.stockService = stockService;
+        this.reservationStockService = reservationStockService;
+        this.evenements = evenements;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /**
      * Créer une nouvelle commande avec produits et facture automatique
      */
+    @ReessaiSurConflit
     public Commande creerCommandeAvecProduits(CommandeDTO commandeDTO) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null) {
@@ -59,54 +129,238 @@ public class CommandeService {
         }
 
         // Récupérer l'utilisateur connecté depuis Spring Security
-        String email = authentication.getName(); // ou getUsername()
-        User client = clientRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé : " + email));
+        User client = obtenirClientConnecte(authentication);
 
-        // Créer la commande pour ce client
-        Commande commande = new Commande(client);
-        commande.setNumeroCommande(genererNumeroCommande());
-        commande.setStatut(StatutCommande.EN_ATTENTE);// Statut initial
+        if (commandeDTO.getLignesCommande() == null || commandeDTO.getLignesCommande().isEmpty()) {
+            throw new RuntimeException("Une commande doit contenir au moins un produit");
+        }
 
-        // Ajouter les produits envoyés dans le DTO
-        if (commandeDTO.getLignesCommande() != null && !commandeDTO.getLignesCommande().isEmpty()) {
-            for (LigneCommandeDTO ligneDTO : commandeDTO.getLignesCommande()) {
-                if (ligneDTO.getProduit() == null || ligneDTO.getProduit().getId() == null) {
-                    throw new RuntimeException("Produit manquant dans une ligne de commande");
-                }
+        // Charger tous les produits référencés en une seule requête
+        Map<Long, Produit> produits = chargerProduits(commandeDTO.getLignesCommande());
+
+        Commande commande = construireCommande(client, commandeDTO.getLignesCommande(), produits);
+
+        // Le stock réservé par les paniers des autres clients n'est pas pris
+        reservationStockService.verifierDisponibilite(client.getId(), quantitesParProduit(commande), produits);
+        return enregistrerCommande(commande, true);
+    }
+
+    /**
+     * Créer une commande pour un client à partir de lignes (validation d'un panier)
+     */
+    @ReessaiSurConflit
+    public Commande creerCommandePourClient(Long idClient, List<LigneCommandeDTO> lignesDTO) {
+        User client = clientRepository.findById(idClient)
+                .orElseThrow(() -> new RuntimeException("Client non trouvé avec l'ID : " + idClient));
+
+        if (lignesDTO == null || lignesDTO.isEmpty()) {
+            throw new RuntimeException("Une commande doit contenir au moins un produit");
+        }
+
+        Commande commande = construireCommande(client, lignesDTO, chargerProduits(lignesDTO));
+        return enregistrerCommande(commande, true);
+    }
+
+    /**
+     * Créer un lot de commandes (intégration B2B).
+     * Les produits sont chargés une seule fois pour tout le lot, puis les commandes
+     * sont écrites par tranches, chacune dans sa propre transaction. Une commande
+     * invalide est rejetée sans annuler les autres.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public RapportCommandesMasseDTO creerCommandesEnMasse(List<CommandeDTO> commandesDTO) {
+        if (commandesDTO == null || commandesDTO.isEmpty()) {
+            throw new RuntimeException("Le lot de commandes est vide");
+        }
+        if (commandesDTO.size() > tailleMaxLotCommandes) {
+            throw new RuntimeException("Un lot ne peut pas dépasser " + tailleMaxLotCommandes + " commandes");
+        }
 
-                Produit produit = produitRepository.findById(ligneDTO.getProduit().getId())
-                        .orElseThrow(() -> new RuntimeException("Produit non trouvé"));
+        User client = obtenirClientConnecte(SecurityContextHolder.getContext().getAuthentication());
 
-                if (!produit.getDisponible()) {
-                    throw new RuntimeException("Le produit " + produit.getNom() + " n'est pas disponible");
+        // Une seule requête produits pour l'ensemble du lot
+        List<LigneCommandeDTO> toutesLesLignes = new ArrayList<>();
+        for (CommandeDTO commandeDTO : commandesDTO) {
+            if (commandeDTO != null && commandeDTO.getLignesCommande() != null) {
+                toutesLesLignes.addAll(commandeDTO.getLignesCommande());
+            }
+        }
+        Map<Long, Produit> produits = chargerProduits(toutesLesLignes);
+
+        RapportCommandesMasseDTO rapport = new RapportCommandesMasseDTO();
+
+        // Validation en mémoire : les commandes invalides ne touchent pas la base. La demande
+        // cumulée du lot ne doit pas prendre le stock réservé par les paniers des autres clients.
+        Map<Long, Integer> demandeLot = new HashMap<>();
+        Map<Integer, Commande> commandesValides = new LinkedHashMap<>();
+        Map<Integer, List<LigneCommande>> lignesParCommande = new HashMap<>();
+        for (int i = 0; i < commandesDTO.size(); i++) {
+            CommandeDTO commandeDTO = commandesDTO.get(i);
+            try {
+                if (commandeDTO == null) {
+                    throw new RuntimeException("Commande vide");
                 }
+                Commande commande = construireCommande(client, commandeDTO.getLignesCommande(), produits);
+                commande.setCommentaire(commandeDTO.getCommentaire());
+                Map<Long, Integer> demande = new HashMap<>(demandeLot);
+                quantitesParProduit(commande).forEach((idProduit, quantite) -> demande.merge(idProduit, quantite, Integer::sum));
+                reservationStockService.verifierDisponibilite(client.getId(), demande, produits);
+                demandeLot.putAll(demande);
+                commandesValides.put(i, commande);
+                lignesParCommande.put(i, new ArrayList<>(commande.getLignesCommande()));
+            } catch (RuntimeException e) {
+                rapport.ajouterEchec(i, e.getMessage());
+            }
+        }
 
-                if (ligneDTO.getQuantite() == null || ligneDTO.getQuantite() <= 0) {
-                    throw new RuntimeException("Quantité invalide pour le produit " + produit.getNom());
+        // Écriture par tranches, une transaction par tranche
+        List<Integer> index = new ArrayList<>(commandesValides.keySet());
+        for (int debut = 0; debut < index.size(); debut += tailleTrancheCommandes) {
+            List<Integer> tranche = index.subList(debut, Math.min(debut + tailleTrancheCommandes, index.size()));
+            try {
+                List<Commande> enregistrees = transactionTemplate.execute(status -> {
+                    List<Commande> resultat = new ArrayList<>();
+                    for (Integer i : tranche) {
+                        resultat.add(enregistrerCommande(commandesValides.get(i), false));
+                    }
+                    return resultat;
+                });
+                for (int j = 0; j < tranche.size(); j++) {
+                    Commande commande = enregistrees.get(j);
+                    rapport.ajouterSucces(tranche.get(j), commande.getId(),
+                            commande.getNumeroCommande(), commande.getTotalTTC());
+                }
+            } catch (RuntimeException e) {
+                // La tranche a été annulée : on rejoue ses commandes une par une
+                // pour isoler celle qui échoue
+                for (Integer i : tranche) {
+                    enregistrerCommandeIsolee(i, commandesValides.get(i), lignesParCommande.get(i), rapport);
                 }
+            }
+        }
+
+        rapport.getResultats().sort(Comparator.comparingInt(RapportCommandesMasseDTO.ResultatCommande::getIndex));
+        return rapport;
+    }
+
+    /**
+     * Enregistrer une seule commande du lot dans sa propre transaction
+     */
+    private void enregistrerCommandeIsolee(int index, Commande commande, List<LigneCommande> lignes,
+                                           RapportCommandesMasseDTO rapport) {
+        // Repartir d'un état transitoire après l'annulation de la tranche
+        commande.setId(null);
+        commande.setVersion(null);
+        commande.setFacture(null);
+        commande.setLignesCommande(new ArrayList<>(lignes));
+        try {
+            Commande enregistree = transactionTemplate.execute(status -> enregistrerCommande(commande, false));
+            rapport.ajouterSucces(index, enregistree.getId(), enregistree.getNumeroCommande(), enregistree.getTotalTTC());
+        } catch (RuntimeException e) {
+            rapport.ajouterEchec(index, e.getMessage());
+        }
+    }
 
-                LigneCommande ligne = new LigneCommande();
-                ligne.setCommande(commande);
-                ligne.setProduit(produit);
-                ligne.setQuantite(ligneDTO.getQuantite());
-                ligne.setPrixUnitaire(produit.getPrix());
-                ligne.calculerSousTotal();
+    /**
+     * Récupérer le client authentifié
+     */
+    private User obtenirClientConnecte(Authentication authentication) {
+        if (authentication == null) {
+            throw new RuntimeException("Aucun utilisateur authentifié");
+        }
+        String email = authentication.getName(); // ou getUsername()
+        return clientRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé : " + email));
+    }
 
-                commande.ajouterLigneCommande(ligne);
+    /**
+     * Charger en une requête les produits référencés par des lignes de commande
+     */
+    private Map<Long, Produit> chargerProduits(Collection<LigneCommandeDTO> lignesDTO) {
+        Set<Long> idsProduits = new HashSet<>();
+        for (LigneCommandeDTO ligneDTO : lignesDTO) {
+            if (ligneDTO.getProduit() != null && ligneDTO.getProduit().getId() != null) {
+                idsProduits.add(ligneDTO.getProduit().getId());
             }
-        } else {
+        }
+
+        Map<Long, Produit> produits = new HashMap<>();
+        for (Produit produit : produitRepository.findAllById(idsProduits)) {
+            produits.put(produit.getId(), produit);
+        }
+        return produits;
+    }
+
+    /**
+     * Construire en mémoire une commande EN_ATTENTE et ses lignes, sans accès base
+     */
+    private Commande construireCommande(User client, List<LigneCommandeDTO> lignesDTO, Map<Long, Produit> produits) {
+        if (lignesDTO == null || lignesDTO.isEmpty()) {
             throw new RuntimeException("Une commande doit contenir au moins un produit");
         }
 
-        // Calcul des totaux
-        commande.calculerTotaux();
+        Commande commande = new Commande(client);
+        commande.setStatut(StatutCommande.EN_ATTENTE);// Statut initial
+
+        for (LigneCommandeDTO ligneDTO : lignesDTO) {
+            if (ligneDTO.getProduit() == null || ligneDTO.getProduit().getId() == null) {
+                throw new RuntimeException("Produit manquant dans une ligne de commande");
+            }
+
+            Produit produit = produits.get(ligneDTO.getProduit().getId());
+            if (produit == null) {
+                throw new RuntimeException("Produit non trouvé");
+            }
+
+            if (!produit.getDisponible()) {
+                throw new RuntimeException("Le produit " + produit.getNom() + " n'est pas disponible");
+            }
+
+            if (ligneDTO.getQuantite() == null || ligneDTO.getQuantite() <= 0) {
+                throw new RuntimeException("Quantité invalide pour le produit " + produit.getNom());
+            }
+
+            LigneCommande ligne = new LigneCommande();
+            ligne.setCommande(commande);
+            ligne.setProduit(produit);
+            ligne.setNomProduit(produit.getNom());
+            ligne.setQuantite(ligneDTO.getQuantite());
+            ligne.setPrixUnitaire(produit.getPrix());
+            ligne.calculerSousTotal();
+
+            // Les totaux de la commande sont maintenus à chaque ajout de ligne
+            commande.ajouterLigneCommande(ligne);
+        }
+
+        return commande;
+    }
+
+    /**
+     * Persister une commande construite en mémoire : réservation du stock,
+     * la commande, ses lignes en un seul batch JDBC, puis sa facture
+     */
+    private Commande enregistrerCommande(Commande commande, boolean rechargerLignes) {
+        // Échoue avant toute écriture si un produit n'a pas le stock demandé
+        stockService.reserverStock(commande);
+
+        // Les lignes sont insérées par batch : on les retire de la cascade JPA
+        List<LigneCommande> lignes = commande.getLignesCommande();
+        commande.setLignesCommande(new ArrayList<>());
+        commande.setNumeroCommande(sequenceService.prochainNumeroCommande());
 
-        // Sauvegarder la commande d'abord
         Commande commandeSauvegardee = commandeRepository.save(commande);
+        ligneCommandeBatchRepository.insererLignes(commandeSauvegardee.getId(), lignes);
 
-        // Créer automatiquement la facture avec tous les détails
-        creerFactureComplete(commandeSauvegardee);
+        if (rechargerLignes) {
+            // Recharger les lignes insérées (gérées par JPA) pour la réponse
+            commandeSauvegardee.setLignesCommande(
+                    ligneCommandeRepository.findByCommandeIdWithProduit(commandeSauvegardee.getId()));
+        }
+
+        // Créer automatiquement la facture (sauf en mode facturation différée)
+        if (!creationFactureDifferee) {
+            creerFactureComplete(commandeSauvegardee);
+        }
 
         return commandeSauvegardee;
     }
@@ -126,7 +380,7 @@ public class CommandeService {
         facture.setDateModification(maintenant);
 
         // Générer le numéro de facture
-        facture.setNumeroFacture(genererNumeroFacture());
+        facture.setNumeroFacture(sequenceService.prochainNumeroFacture());
 
         // Informations client
         if (commande.getClient() != null) {
@@ -180,6 +434,7 @@ public class CommandeService {
     /**
      * Valider une commande et mettre à jour la facture
      */
+    @ReessaiSurConflit
     public Commande validerCommande(Long idCommande) {
         Optional<Commande> commandeOpt = commandeRepository.findByIdWithLignesCommande(idCommande);
         if (commandeOpt.isEmpty()) {
@@ -204,13 +459,24 @@ public class CommandeService {
             }
         }
 
+        // Commandes antérieures à la réservation du stock : le stock est pris à la validation
+        if (!Boolean.TRUE.equals(commande.getStockReserve())) {
+            stockService.reserverStock(commande);
+        }
+
         // Changer le statut vers VALIDEE (ou TRAITEE selon votre enum)
         commande.setStatut(StatutCommande.PAYEE); // Ou TRAITEE si vous avez ce statut
         commande.setDateModification(LocalDateTime.now());
-        calculerTotauxCommande(commande);
+
+        // Contrôle complet des totaux maintenus par variations (corrigés en cas d'écart)
+        supervisionService.incrementer(COMPTEUR_VERIFICATIONS_TOTAUX);
+        if (!commande.verifierTotaux()) {
+            supervisionService.incrementer(COMPTEUR_ECARTS_TOTAUX);
+        }
 
         // Mettre à jour automatiquement la facture associée
         mettreAJourFactureAutomatiquement(commande);
+        publierVentes(commande);
 
         return commandeRepository.save(commande);
     }
@@ -218,6 +484,7 @@ public class CommandeService {
     /**
      * Changer le statut d'une commande (pour l'admin)
      */
+    @ReessaiSurConflit
     public Commande changerStatutCommande(Long idCommande, StatutCommande nouveauStatut) {
         Optional<Commande> commandeOpt = commandeRepository.findById(idCommande);
         if (commandeOpt.isEmpty()) {
@@ -234,16 +501,189 @@ public class CommandeService {
 
         commande.setStatut(nouveauStatut);
         commande.setDateModification(LocalDateTime.now());
+        if (nouveauStatut == StatutCommande.ANNULEE) {
+            stockService.restituerStock(commande);
+        } else if (ancienStatut == StatutCommande.EN_ATTENTE && !Boolean.TRUE.equals(commande.getStockReserve())) {
+            stockService.reserverStock(commande);
+        }
 
         // Mettre à jour automatiquement la facture
         mettreAJourFactureAutomatiquement(commande);
+        if (nouveauStatut == StatutCommande.PAYEE && ancienStatut != StatutCommande.PAYEE) {
+            publierVentes(commande);
+        }
 
         return commandeRepository.save(commande);
     }
 
+    /**
+     * Changer le statut d'un lot de commandes (pour l'admin).
+     * Les transitions sont contrôlées sur une seule lecture groupée des statuts,
+     * puis appliquées par UPDATE ensemblistes sur commandes et factures dans la
+     * même transaction. Les commandes refusées sont rapportées avec leur motif.
+     * Le stock des commandes EN_ATTENTE non encore réservé est pris par tranche
+     * avant le changement de statut ; un produit en rupture fait échouer le lot.
+     */
+    public RapportTransitionStatutDTO changerStatutCommandesEnMasse(TransitionStatutMasseDTO demande) {
+        StatutCommande nouveauStatut = demande.getNouveauStatut();
+        if (nouveauStatut == null) {
+            throw new RuntimeException("Le nouveau statut est obligatoire");
+        }
+        RapportTransitionStatutDTO rapport = new RapportTransitionStatutDTO(nouveauStatut);
+
+        // Statut actuel des commandes concernées, regroupées par statut
+        Map<StatutCommande, List<Long>> idsParStatut = new EnumMap<>(StatutCommande.class);
+        if (demande.getIds() != null && !demande.getIds().isEmpty()) {
+            Set<Long> idsDemandes = new LinkedHashSet<>(demande.getIds());
+            if (idsDemandes.size() > tailleMaxLotCommandes) {
+                throw new RuntimeException("Un lot ne peut pas dépasser " + tailleMaxLotCommandes + " commandes");
+            }
+            Set<Long> idsTrouves = new HashSet<>();
+            for (List<Long> tranche : decouper(new ArrayList<>(idsDemandes))) {
+                for (Object[] ligne : commandeRepository.findStatutsByIds(tranche)) {
+                    Long id = (Long) ligne[0];
+                    idsTrouves.add(id);
+                    idsParStatut.computeIfAbsent((StatutCommande) ligne[1], statut -> new ArrayList<>()).add(id);
+                }
+            }
+            for (Long id : idsDemandes) {
+                if (!idsTrouves.contains(id)) {
+                    rapport.ajouterRejet(id, "Commande non trouvée avec l'ID : " + id);
+                }
+            }
+        } else if (demande.getStatutActuel() != null) {
+            // Même plafond que pour une liste d'ids : une commande de plus que la limite suffit à refuser le filtre
+            List<Long> ids = commandeRepository.findIdsByStatutEtPeriode(demande.getStatutActuel(),
+                    demande.getDateDebut(), demande.getDateFin(), PageRequest.of(0, tailleMaxLotCommandes + 1));
+            if (ids.size() > tailleMaxLotCommandes) {
+                throw new RuntimeException("Un lot ne peut pas dépasser " + tailleMaxLotCommandes
+                        + " commandes, réduisez la période");
+            }
+            idsParStatut.put(demande.getStatutActuel(), ids);
+        } else {
+            throw new RuntimeException("Indiquez une liste d'ids ou le statut actuel des commandes à modifier");
+        }
+
+        LocalDateTime maintenant = LocalDateTime.now();
+        for (Map.Entry<StatutCommande, List<Long>> groupe : idsParStatut.entrySet()) {
+            StatutCommande ancienStatut = groupe.getKey();
+            List<Long> ids = groupe.getValue();
+
+            if (ancienStatut == nouveauStatut) {
+                ids.forEach(id -> rapport.ajouterRejet(id, "La commande est déjà au statut " + nouveauStatut));
+                continue;
+            }
+            if (!peutChangerStatut(ancienStatut, nouveauStatut)) {
+                String raison = "Transition de statut invalide : " + ancienStatut + " -> " + nouveauStatut;
+                ids.forEach(id -> rapport.ajouterRejet(id, raison));
+                continue;
+            }
+
+            // Commandes antérieures à la réservation du stock : le stock est pris à la sortie de EN_ATTENTE
+            boolean reserverStock = ancienStatut == StatutCommande.EN_ATTENTE && nouveauStatut != StatutCommande.ANNULEE;
+            for (List<Long> tranche : decouper(ids)) {
+                if (reserverStock) {
+                    stockService.reserverStockCommandes(tranche, StatutCommande.EN_ATTENTE);
+                }
+                int modifiees = commandeRepository.changerStatutCommandes(tranche, ancienStatut, nouveauStatut, maintenant);
+                if (modifiees == tranche.size()) {
+                    rapport.getIdsModifies().addAll(tranche);
+                    continue;
+                }
+                // Certaines commandes ont changé de statut entre la lecture et la mise à jour
+                for (Object[] ligne : commandeRepository.findStatutsByIds(tranche)) {
+                    if (ligne[1] == nouveauStatut) {
+                        rapport.getIdsModifies().add((Long) ligne[0]);
+                    } else {
+                        rapport.ajouterRejet((Long) ligne[0], "Statut modifié par une autre opération");
+                    }
+                }
+            }
+        }
+
+        rapport.setModifiees(rapport.getIdsModifies().size());
+        if (nouveauStatut == StatutCommande.ANNULEE) {
+            for (List<Long> tranche : decouper(rapport.getIdsModifies())) {
+                stockService.restituerStockCommandes(tranche);
+            }
+        }
+        if (!rapport.getIdsModifies().isEmpty()) {
+            rapport.setFacturesModifiees(
+                    synchroniserFacturesEnMasse(rapport.getIdsModifies(), nouveauStatut, maintenant));
+        }
+        if (nouveauStatut == StatutCommande.PAYEE && !rapport.getIdsModifies().isEmpty()) {
+            Map<Long, Integer> quantites = new HashMap<>();
+            for (List<Long> tranche : decouper(rapport.getIdsModifies())) {
+                for (Object[] ligne : ligneCommandeRepository.sumQuantitesParProduit(tranche)) {
+                    quantites.merge((Long) ligne[0], ((Number) ligne[1]).intValue(), Integer::sum);
+                }
+            }
+            evenements.publishEvent(new CommandePayeeEvent(quantites));
+        }
+        return rapport;
+    }
+
+    /**
+     * Publier les quantités vendues d'une commande payée (vélocité des ventes)
+     */
+    private void publierVentes(Commande commande) {
+        Map<Long, Integer> quantites = new HashMap<>();
+        for (LigneCommande ligne : commande.getLignesCommande()) {
+            quantites.merge(ligne.getProduit().getId(), ligne.getQuantite(), Integer::sum);
+        }
+        if (!quantites.isEmpty()) {
+            evenements.publishEvent(new CommandePayeeEvent(quantites));
+        }
+    }
+
+    /**
+     * Répercuter un changement de statut en masse sur les factures
+     * (mêmes règles que mettreAJourFactureAutomatiquement)
+     */
+    private int synchroniserFacturesEnMasse(List<Long> ids, StatutCommande statut, LocalDateTime maintenant) {
+        int factures = 0;
+        for (List<Long> tranche : decouper(ids)) {
+            switch (statut) {
+                case PAYEE:
+                    factures += factureRepository.marquerFacturesPayees(
+                            tranche, StatutFacture.PAYEE, statut.name(), maintenant);
+                    break;
+                case ANNULEE:
+                    factures += factureRepository.changerStatutFactures(
+                            tranche, StatutFacture.ANNULEE, statut.name(), maintenant);
+                    break;
+                default:
+                    factures += factureRepository.remettreFacturesEnAttente(
+                            tranche, StatutFacture.EN_ATTENTE, statut.name(), maintenant);
+                    break;
+            }
+
+            // Facturation différée : créer les factures des commandes qui quittent EN_ATTENTE
+            if (creationFactureDifferee && statut != StatutCommande.EN_ATTENTE && statut != StatutCommande.ANNULEE) {
+                for (Commande commande : commandeRepository.findCommandesSansFactureByIds(tranche)) {
+                    creerFactureComplete(commande);
+                    factures++;
+                }
+            }
+        }
+        return factures;
+    }
+
+    /**
+     * Découper une liste d'ids en tranches (taille des clauses IN)
+     */
+    private static List<List<Long>> decouper(List<Long> ids) {
+        List<List<Long>> tranches = new ArrayList<>();
+        for (int debut = 0; debut < ids.size(); debut += TAILLE_CLAUSE_IN) {
+            tranches.add(ids.subList(debut, Math.min(debut + TAILLE_CLAUSE_IN, ids.size())));
+        }
+        return tranches;
+    }
+
     /**
      * Mettre à jour le mode de paiement d'une facture
      */
+    @ReessaiSurConflit
     public Commande changerModePaiement(Long idCommande, ModePaiement modePaiement) {
         Optional<Commande> commandeOpt = commandeRepository.findById(idCommande);
         if (commandeOpt.isEmpty()) {
@@ -265,6 +705,14 @@ public class CommandeService {
      * Mettre à jour la facture automatiquement quand la commande change
      */
     private void mettreAJourFactureAutomatiquement(Commande commande) {
+        if (commande.getFacture() == null && creationFactureDifferee) {
+            // Facturation différée : la facture n'est créée qu'à la sortie de EN_ATTENTE
+            if (commande.getStatut() != StatutCommande.EN_ATTENTE && commande.getStatut() != StatutCommande.ANNULEE) {
+                creerFactureComplete(commande);
+            }
+            return;
+        }
+
         if (commande.getFacture() != null) {
             Facture facture = commande.getFacture();
 
@@ -327,34 +775,6 @@ public class CommandeService {
         }
     }
 
-    /**
-     * Générer un numéro de facture unique
-     */
-    private String genererNumeroFacture() {
-        String dateStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        long countFactures = factureRepository.count();
-        return String.format("FAC-%s-%04d", dateStr, countFactures + 1);
-    }
-
-    /**
-     * Générer un numéro de commande unique
-     */
-    private String genererNumeroCommande() {
-        String dateStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        Optional<String> lastNumero = commandeRepository.findLastNumeroCommande();
-
-        int sequence = 1;
-        if (lastNumero.isPresent()) {
-            String last = lastNumero.get();
-            if (last.startsWith("CMD-" + dateStr)) {
-                String sequenceStr = last.substring(last.lastIndexOf("-") + 1);
-                sequence = Integer.parseInt(sequenceStr) + 1;
-            }
-        }
-
-        return String.format("CMD-%s-%04d", dateStr, sequence);
-    }
-
     /**
      * Créer une nouvelle commande simple (garde pour compatibilité)
      */
@@ -366,7 +786,7 @@ public class CommandeService {
 
         Commande commande = new Commande();
         commande.setClient(clientOpt.get());
-        commande.setNumeroCommande(genererNumeroCommande());
+        commande.setNumeroCommande(sequenceService.prochainNumeroCommande());
         commande.setDateCommande(LocalDateTime.now());
         commande.setDateModification(LocalDateTime.now());
         commande.setStatut(StatutCommande.EN_ATTENTE);
@@ -375,9 +795,13 @@ public class CommandeService {
         commande.setMontantTVA(BigDecimal.ZERO);
         commande.setTotalHT(BigDecimal.ZERO);
         commande.setTotalTTC(BigDecimal.ZERO);
+        // Commande vide : chaque ajout de ligne réservera son stock
+        commande.setStockReserve(true);
 
         Commande commandeSauvegardee = commandeRepository.save(commande);
-        creerFactureComplete(commandeSauvegardee);
+        if (!creationFactureDifferee) {
+            creerFactureComplete(commandeSauvegardee);
+        }
 
         return commandeSauvegardee;
     }
@@ -387,6 +811,7 @@ public class CommandeService {
     /**
      * Ajouter un produit à une commande
      */
+    @ReessaiSurConflit
     public Commande ajouterProduitACommande(Long idCommande, Long idProduit, Integer quantite) {
         Optional<Commande> commandeOpt = commandeRepository.findById(idCommande);
         if (commandeOpt.isEmpty()) {
@@ -409,23 +834,31 @@ public class CommandeService {
             throw new RuntimeException("Le produit '" + produit.getNom() + "' n'est plus disponible");
         }
 
-        Optional<LigneCommande> ligneExistante = ligneCommandeRepository.findByCommandeAndProduit(commande, produit);
+        // Seule la ligne du produit est lue (index commande_id, produit_id), pas toute la commande
+        Optional<LigneCommande> ligneExistante = ligneCommandeRepository.findByCommandeIdAndProduitId(idCommande, idProduit);
 
+        BigDecimal variation;
         if (ligneExistante.isPresent()) {
             LigneCommande ligne = ligneExistante.get();
+            BigDecimal ancienSousTotal = sousTotalLigne(ligne);
             ligne.setQuantite(ligne.getQuantite() + quantite);
+            ligne.calculerSousTotal();
             ligneCommandeRepository.save(ligne);
+            variation = ligne.getSousTotal().subtract(ancienSousTotal);
         } else {
             LigneCommande nouvelleLigne = new LigneCommande();
             nouvelleLigne.setCommande(commande);
             nouvelleLigne.setProduit(produit);
+            nouvelleLigne.setNomProduit(produit.getNom());
             nouvelleLigne.setQuantite(quantite);
             nouvelleLigne.setPrixUnitaire(produit.getPrix());
             nouvelleLigne.calculerSousTotal();
             ligneCommandeRepository.save(nouvelleLigne);
+            variation = nouvelleLigne.getSousTotal();
         }
 
-        calculerTotauxCommande(commande);
+        stockService.ajusterReservation(commande, idProduit, quantite);
+        commande.ajusterSousTotal(variation);
         Commande commandeModifiee = commandeRepository.save(commande);
 
         // Mettre à jour la facture automatiquement
@@ -434,22 +867,173 @@ public class CommandeService {
         return commandeModifiee;
     }
 
-    private void calculerTotauxCommande(Commande commande) {
-        BigDecimal sousTotal = BigDecimal.ZERO;
+    /**
+     * Appliquer plusieurs opérations sur les lignes d'une commande en une fois :
+     * un seul recalcul des totaux et une seule synchronisation de la facture
+     */
+    @ReessaiSurConflit
+    public Commande appliquerOperationsLignes(Long idCommande, List<OperationLigneDTO> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new RuntimeException("Aucune opération à appliquer");
+        }
+
+        Commande commande = commandeRepository.findByIdWithLignesCommande(idCommande)
+                .orElseThrow(() -> new RuntimeException("Commande non trouvée avec l'ID : " + idCommande));
 
-        if (commande.getLignesCommande() != null) {
-            for (LigneCommande ligne : commande.getLignesCommande()) {
-                sousTotal = sousTotal.add(ligne.getSousTotal());
+        if (!peutEtreModifiee(commande)) {
+            throw new RuntimeException("Cette commande ne peut plus être modifiée car son statut est : " + commande.getStatut());
+        }
+
+        // Charger en une requête les produits ajoutés qui ne sont pas encore dans la commande
+        Set<Long> idsProduitsAjoutes = new HashSet<>();
+        for (OperationLigneDTO operation : operations) {
+            if (operation.getType() == null || operation.getProduitId() == null) {
+                throw new RuntimeException("Chaque opération doit préciser un type et un produit");
             }
+            if (operation.getType() == TypeOperationLigne.AJOUTER && !commande.contientProduit(operation.getProduitId())) {
+                idsProduitsAjoutes.add(operation.getProduitId());
+            }
+        }
+        Map<Long, Produit> produits = new HashMap<>();
+        for (Produit produit : produitRepository.findAllById(idsProduitsAjoutes)) {
+            produits.put(produit.getId(), produit);
         }
+        Map<Long, Integer> quantitesAvant = quantitesParProduit(commande);
 
-        commande.setSousTotal(sousTotal);
-        commande.setTotalHT(sousTotal);
+        for (OperationLigneDTO operation : operations) {
+            Long idProduit = operation.getProduitId();
+            LigneCommande ligne = commande.getLigneCommandeParProduit(idProduit);
 
-        BigDecimal montantTVA = sousTotal.multiply(commande.getTauxTVA()).divide(new BigDecimal("100"));
-        commande.setMontantTVA(montantTVA);
-        commande.setTotalTTC(sousTotal.add(montantTVA));
-        commande.setDateModification(LocalDateTime.now());
+            switch (operation.getType()) {
+                case AJOUTER:
+                    if (operation.getQuantite() == null || operation.getQuantite() <= 0) {
+                        throw new RuntimeException("Quantité invalide pour le produit " + idProduit);
+                    }
+                    if (ligne != null) {
+                        commande.modifierQuantiteLigne(ligne, ligne.getQuantite() + operation.getQuantite());
+                    } else {
+                        Produit produit = produits.get(idProduit);
+                        if (produit == null) {
+                            throw new RuntimeException("Produit non trouvé avec l'ID : " + idProduit);
+                        }
+                        if (!produit.getDisponible()) {
+                            throw new RuntimeException("Le produit '" + produit.getNom() + "' n'est plus disponible");
+                        }
+                        LigneCommande nouvelleLigne = new LigneCommande(operation.getQuantite(), produit.getPrix(), commande, produit);
+                        commande.ajouterLigneCommande(nouvelleLigne);
+                    }
+                    break;
+                case DEFINIR_QUANTITE:
+                    if (ligne == null) {
+                        throw new RuntimeException("Produit non trouvé dans cette commande : " + idProduit);
+                    }
+                    if (operation.getQuantite() != null && operation.getQuantite() > 0) {
+                        commande.modifierQuantiteLigne(ligne, operation.getQuantite());
+                        break;
+                    }
+                    // Une quantité nulle ou négative retire la ligne
+                    retirerLigne(commande, ligne);
+                    break;
+                case SUPPRIMER:
+                    if (ligne == null) {
+                        throw new RuntimeException("Produit non trouvé dans cette commande : " + idProduit);
+                    }
+                    retirerLigne(commande, ligne);
+                    break;
+                default:
+                    throw new RuntimeException("Opération non supportée : " + operation.getType());
+            }
+        }
+
+        // Une seule réservation groupée pour la variation nette de chaque produit
+        Map<Long, Integer> variations = quantitesParProduit(commande);
+        quantitesAvant.forEach((idProduit, quantite) -> variations.merge(idProduit, -quantite, Integer::sum));
+        stockService.ajusterReservation(commande, variations);
+
+        // Les totaux ont été mis à jour opération par opération
+        Commande commandeModifiee = commandeRepository.save(commande);
+
+        // Une seule synchronisation de la facture pour l'ensemble des opérations
+        mettreAJourFactureAutomatiquement(commandeModifiee);
+
+        return commandeModifiee;
+    }
+
+    private void retirerLigne(Commande commande, LigneCommande ligne) {
+        commande.supprimerLigneCommande(ligne);
+        if (ligne.getId() != null) {
+            ligneCommandeRepository.delete(ligne);
+        }
+    }
+
+    private static Map<Long, Integer> quantitesParProduit(Commande commande) {
+        Map<Long, Integer> quantites = new HashMap<>();
+        for (LigneCommande ligne : commande.getLignesCommande()) {
+            quantites.merge(ligne.getProduit().getId(), ligne.getQuantite(), Integer::sum);
+        }
+        return quantites;
+    }
+
+    private static BigDecimal sousTotalLigne(LigneCommande ligne) {
+        return ligne.getSousTotal() != null ? ligne.getSousTotal() : BigDecimal.ZERO;
+    }
+
+    /**
+     * Convertir une commande pour la réponse : au-delà du seuil de lignes,
+     * seuls les totaux sont renvoyés et les lignes se lisent page par page
+     */
+    public CommandeDTO convertirEnDTO(Commande commande) {
+        if (commande == null) {
+            return null;
+        }
+        long nombreLignes = Hibernate.isInitialized(commande.getLignesCommande())
+                ? commande.getLignesCommande().size()
+                : ligneCommandeRepository.countByCommandeId(commande.getId());
+        if (nombreLignes > seuilGrandeCommande) {
+            return CommandeDTO.fromEntityResume(commande, nombreLignes);
+        }
+        return CommandeDTO.fromEntity(commande);
+    }
+
+    /**
+     * Convertir une liste de commandes (nombre de lignes lu en une requête groupée)
+     */
+    public List<CommandeDTO> convertirEnDTO(List<Commande> commandes) {
+        List<Long> idsNonCharges = commandes.stream()
+                .filter(commande -> !Hibernate.isInitialized(commande.getLignesCommande()))
+                .map(Commande::getId)
+                .collect(Collectors.toList());
+
+        Map<Long, Long> nombreLignesParCommande = new HashMap<>();
+        for (List<Long> tranche : decouper(idsNonCharges)) {
+            for (Object[] ligne : ligneCommandeRepository.countByCommandeIds(tranche)) {
+                nombreLignesParCommande.put((Long) ligne[0], (Long) ligne[1]);
+            }
+        }
+
+        List<CommandeDTO> resultat = new ArrayList<>(commandes.size());
+        for (Commande commande : commandes) {
+            long nombreLignes = Hibernate.isInitialized(commande.getLignesCommande())
+                    ? commande.getLignesCommande().size()
+                    : nombreLignesParCommande.getOrDefault(commande.getId(), 0L);
+            resultat.add(nombreLignes > seuilGrandeCommande
+                    ? CommandeDTO.fromEntityResume(commande, nombreLignes)
+                    : CommandeDTO.fromEntity(commande));
+        }
+        return resultat;
+    }
+
+    /**
+     * Lire une page de lignes d'une commande
+     */
+    @Transactional(readOnly = true)
+    public Page<LigneCommande> obtenirLignesCommande(Long idCommande, int page, int taille) {
+        if (!commandeRepository.existsById(idCommande)) {
+            throw new RuntimeException("Commande non trouvée avec l'ID : " + idCommande);
+        }
+        int tailleBornee = Math.max(1, Math.min(taille, TAILLE_MAX_PAGE_LIGNES));
+        return ligneCommandeRepository.findPageByCommandeId(
+                idCommande, PageRequest.of(Math.max(0, page), tailleBornee, Sort.by("id")));
     }
 
     private boolean peutEtreModifiee(Commande commande) {
@@ -485,6 +1069,7 @@ public class CommandeService {
     /**
      * Annuler une commande
      */
+    @ReessaiSurConflit
     public Commande annulerCommande(Long idCommande) {
         Optional<Commande> commandeOpt = commandeRepository.findById(idCommande);
         if (commandeOpt.isEmpty()) {
@@ -503,6 +1088,7 @@ public class CommandeService {
 
         commande.setStatut(StatutCommande.ANNULEE);
         commande.setDateModification(LocalDateTime.now());
+        stockService.restituerStock(commande);
 
         // Mettre à jour automatiquement la facture associée
         mettreAJourFactureAutomatiquement(commande);
@@ -513,8 +1099,9 @@ public class CommandeService {
     /**
      * Supprimer un produit d'une commande
      */
+    @ReessaiSurConflit
     public Commande supprimerProduitDeCommande(Long idCommande, Long idProduit) {
-        Optional<Commande> commandeOpt = commandeRepository.findByIdWithLignesCommande(idCommande);
+        Optional<Commande> commandeOpt = commandeRepository.findById(idCommande);
         if (commandeOpt.isEmpty()) {
             throw new RuntimeException("Commande non trouvée avec l'ID : " + idCommande);
         }
@@ -525,22 +1112,14 @@ public class CommandeService {
             throw new RuntimeException("Cette commande ne peut plus être modifiée");
         }
 
-        LigneCommande ligneASupprimer = null;
-        for (LigneCommande ligne : commande.getLignesCommande()) {
-            if (ligne.getProduit().getId().equals(idProduit)) {
-                ligneASupprimer = ligne;
-                break;
-            }
-        }
-
-        if (ligneASupprimer == null) {
-            throw new RuntimeException("Produit non trouvé dans cette commande");
-        }
+        LigneCommande ligneASupprimer = ligneCommandeRepository.findByCommandeIdAndProduitId(idCommande, idProduit)
+                .orElseThrow(() -> new RuntimeException("Produit non trouvé dans cette commande"));
 
-        commande.getLignesCommande().remove(ligneASupprimer);
+        BigDecimal ancienSousTotal = sousTotalLigne(ligneASupprimer);
+        stockService.ajusterReservation(commande, idProduit, -ligneASupprimer.getQuantite());
         ligneCommandeRepository.delete(ligneASupprimer);
 
-        calculerTotauxCommande(commande);
+        commande.ajusterSousTotal(ancienSousTotal.negate());
         Commande commandeModifiee = commandeRepository.save(commande);
 
         // Mettre à jour la facture automatiquement
@@ -552,12 +1131,13 @@ public class CommandeService {
     /**
      * Modifier la quantité d'un produit dans une commande
      */
+    @ReessaiSurConflit
     public Commande modifierQuantiteProduit(Long idCommande, Long idProduit, Integer nouvelleQuantite) {
         if (nouvelleQuantite <= 0) {
             return supprimerProduitDeCommande(idCommande, idProduit);
         }
 
-        Optional<Commande> commandeOpt = commandeRepository.findByIdWithLignesCommande(idCommande);
+        Optional<Commande> commandeOpt = commandeRepository.findById(idCommande);
         if (commandeOpt.isEmpty()) {
             throw new RuntimeException("Commande non trouvée avec l'ID : " + idCommande);
         }
@@ -568,23 +1148,16 @@ public class CommandeService {
             throw new RuntimeException("Cette commande ne peut plus être modifiée");
         }
 
-        LigneCommande ligneAModifier = null;
-        for (LigneCommande ligne : commande.getLignesCommande()) {
-            if (ligne.getProduit().getId().equals(idProduit)) {
-                ligneAModifier = ligne;
-                break;
-            }
-        }
-
-        if (ligneAModifier == null) {
-            throw new RuntimeException("Produit non trouvé dans cette commande");
-        }
+        LigneCommande ligneAModifier = ligneCommandeRepository.findByCommandeIdAndProduitId(idCommande, idProduit)
+                .orElseThrow(() -> new RuntimeException("Produit non trouvé dans cette commande"));
 
+        BigDecimal ancienSousTotal = sousTotalLigne(ligneAModifier);
+        stockService.ajusterReservation(commande, idProduit, nouvelleQuantite - ligneAModifier.getQuantite());
         ligneAModifier.setQuantite(nouvelleQuantite);
         ligneAModifier.calculerSousTotal();
         ligneCommandeRepository.save(ligneAModifier);
 
-        calculerTotauxCommande(commande);
+        commande.ajusterSousTotal(ligneAModifier.getSousTotal().subtract(ancienSousTotal));
         Commande commandeModifiee = commandeRepository.save(commande);
 
         // Mettre à jour la facture automatiquement
@@ -596,6 +1169,7 @@ public class CommandeService {
     /**
      * Mettre à jour le commentaire d'une commande
      */
+    @ReessaiSurConflit
     public Commande mettreAJourCommentaire(Long idCommande, String commentaire) {
         Optional<Commande> commandeOpt = commandeRepository.findById(idCommande);
         if (commandeOpt.isEmpty()) {
@@ -632,8 +1206,9 @@ public class CommandeService {
     /**
      * Mettre à jour le taux TVA d'une commande
      */
+    @ReessaiSurConflit
     public Commande mettreAJourTauxTVA(Long idCommande, BigDecimal nouveauTaux) {
-        Optional<Commande> commandeOpt = commandeRepository.findByIdWithLignesCommande(idCommande);
+        Optional<Commande> commandeOpt = commandeRepository.findById(idCommande);
         if (commandeOpt.isEmpty()) {
             throw new RuntimeException("Commande non trouvée avec l'ID : " + idCommande);
         }
@@ -644,8 +1219,8 @@ public class CommandeService {
             throw new RuntimeException("Cette commande ne peut plus être modifiée");
         }
 
-        commande.setTauxTVA(nouveauTaux);
-        calculerTotauxCommande(commande);
+        // La TVA se recalcule depuis le sous-total, sans relire les lignes
+        commande.changerTauxTVA(nouveauTaux);
         Commande commandeModifiee = commandeRepository.save(commande);
 
         // Mettre à jour la facture automatiquement
@@ -0,0 +1,131 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.model.enums.StatutCommande;
+import com.facturation.facture.model.enums.StatutFacture;
+import com.facturation.facture.repository.CommandeRepository;
+import com.facturation.facture.repository.FactureRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Annulation périodique des commandes restées EN_ATTENTE au-delà du délai
+ * d'expiration.
+ *
+ * Les commandes expirées sont parcourues par pages d'identifiants (keyset sur
+ * l'id, sans OFFSET) et annulées par tranches : une tranche = une transaction
+ * courte contenant deux UPDATE ensemblistes, un sur commandes et un sur
+ * factures, puis la restitution groupée du stock réservé. Aucune entité
+ * n'est chargée.
+ */
+@Service
+public class ExpirationCommandeService {
+
+    public static final String COMPTEUR_EXECUTIONS = "expiration.executions";
+    public static final String COMPTEUR_TRANCHES = "expiration.tranches";
+    public static final String COMPTEUR_COMMANDES = "expiration.commandes-annulees";
+    public static final String COMPTEUR_FACTURES = "expiration.factures-annulees";
+    public static final String COMPTEUR_DUREE_MS = "expiration.duree-ms";
+
+    private static final Logger log = LoggerFactory.getLogger(ExpirationCommandeService.class);
+
+    private final CommandeRepository commandeRepository;
+    private final FactureRepository factureRepository;
+    private final SupervisionService supervisionService;
+    private final StockService stockService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${facturation.expiration.actif:true}")
+    private boolean actif;
+
+    @Value("${facturation.expiration.delai-heures:48}")
+    private long delaiHeures;
+
+    @Value("${facturation.expiration.taille-tranche:500}")
+    private int tailleTranche;
+
+    @Autowired
+    public ExpirationCommandeService(CommandeRepository commandeRepository,
+                                     FactureRepository factureRepository,
+                                     SupervisionService supervisionService,
+                                     StockService stockService,
+                                     PlatformTransactionManager transactionManager) {
+        this.commandeRepository = commandeRepository;
+        this.factureRepository = factureRepository;
+        this.supervisionService = supervisionService;
+        this.stockService = stockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${facturation.expiration.intervalle-ms:600000}",
+               initialDelayString = "${facturation.expiration.delai-initial-ms:60000}")
+    public void executerPlanifie() {
+        if (actif) {
+            annulerCommandesExpirees();
+        }
+    }
+
+    /**
+     * Annuler toutes les commandes en attente plus anciennes que le délai d'expiration
+     *
+     * @return le nombre de commandes annulées
+     */
+    public int annulerCommandesExpirees() {
+        long debut = System.currentTimeMillis();
+        LocalDateTime dateExpiration = LocalDateTime.now().minusHours(delaiHeures);
+        PageRequest page = PageRequest.of(0, Math.max(1, tailleTranche));
+
+        int commandesAnnulees = 0;
+        int facturesAnnulees = 0;
+        int tranches = 0;
+        Long dernierId = 0L;
+
+        while (true) {
+            List<Long> ids = commandeRepository.findIdsCommandesEnAttenteExpirees(dateExpiration, dernierId, page);
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            int[] resultat = transactionTemplate.execute(status -> annulerTranche(ids));
+            commandesAnnulees += resultat[0];
+            facturesAnnulees += resultat[1];
+            tranches++;
+            dernierId = ids.get(ids.size() - 1);
+
+            if (ids.size() < page.getPageSize()) {
+                break;
+            }
+        }
+
+        long duree = System.currentTimeMillis() - debut;
+        supervisionService.incrementer(COMPTEUR_EXECUTIONS);
+        supervisionService.ajouter(COMPTEUR_TRANCHES, tranches);
+        supervisionService.ajouter(COMPTEUR_COMMANDES, commandesAnnulees);
+        supervisionService.ajouter(COMPTEUR_FACTURES, facturesAnnulees);
+        supervisionService.ajouter(COMPTEUR_DUREE_MS, duree);
+
+        if (commandesAnnulees > 0) {
+            log.info("Expiration : {} commande(s) et {} facture(s) annulée(s) en {} tranche(s), {} ms",
+                    commandesAnnulees, facturesAnnulees, tranches, duree);
+        }
+        return commandesAnnulees;
+    }
+
+    private int[] annulerTranche(List<Long> ids) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        // La condition sur le statut écarte les commandes validées entre la lecture et la mise à jour
+        int commandes = commandeRepository.annulerCommandesEnAttente(ids, StatutCommande.ANNULEE, maintenant);
+        int factures = factureRepository.annulerFacturesDesCommandesAnnulees(ids, StatutFacture.ANNULEE, maintenant);
+        stockService.restituerStockCommandes(ids);
+        return new int[] { commandes, factures };
+    }
+}
@@ -1,5 +1,6 @@
 package com.facturation.facture.service;
 
+import com.facturation.facture.config.ReessaiSurConflit;
 import com.facturation.facture.dto.FactureDTO;
 import com.facturation.facture.model.*;
 import com.facturation.facture.model.enums.StatutFacture;
@@ -9,6 +10,7 @@ import com.facturation.facture.repository.CommandeRepository;
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,6 +21,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -32,6 +35,9 @@ public class FactureService {
     private final FactureRepository factureRepository;
     private final CommandeRepository commandeRepository;
 
+    @Value("${facturation.facture.creation-differee:false}")
+    private boolean creationFactureDifferee;
+
     @Autowired
     public FactureService(FactureRepository factureRepository, CommandeRepository commandeRepository) {
         this.factureRepository = factureRepository;
@@ -372,9 +378,33 @@ public class FactureService {
 
         List<Facture> factures = obtenirFacturesAvecFiltresEntity(statut, dateDebut, dateFin, clientId);
 
-        return factures.stream()
+        List<FactureDTO> resultat = factures.stream()
                 .map(FactureDTO::fromEntity)
                 .collect(Collectors.toList());
+        if (statut == null || statut == StatutFacture.EN_ATTENTE) {
+            resultat.addAll(obtenirFacturesProvisoires(dateDebut, dateFin, clientId));
+        }
+        return resultat;
+    }
+
+    /**
+     * Factures provisoires des commandes EN_ATTENTE non encore facturées
+     * (facturation différée), construites depuis les données de la commande
+     */
+    private List<FactureDTO> obtenirFacturesProvisoires(LocalDate dateDebut, LocalDate dateFin, Long clientId) {
+        if (!creationFactureDifferee) {
+            return new ArrayList<>();
+        }
+
+        List<Commande> commandes = clientId != null
+                ? commandeRepository.findCommandesEnAttenteSansFactureByClientId(clientId)
+                : commandeRepository.findCommandesEnAttenteSansFacture();
+
+        return commandes.stream()
+                .filter(c -> dateDebut == null || !c.getDateCommande().isBefore(dateDebut.atStartOfDay()))
+                .filter(c -> dateFin == null || !c.getDateCommande().isAfter(dateFin.atTime(23, 59, 59)))
+                .map(FactureDTO::fromCommandeEnAttente)
+                .collect(Collectors.toList());
     }
 
     /**
@@ -383,9 +413,11 @@ public class FactureService {
     @Transactional(readOnly = true)
     public List<FactureDTO> obtenirFacturesNonTraitees() {
         List<Facture> factures = factureRepository.findByStatutOrderByDateCreationAsc(StatutFacture.EN_ATTENTE);
-        return factures.stream()
+        List<FactureDTO> resultat = factures.stream()
                 .map(FactureDTO::fromEntity)
                 .collect(Collectors.toList());
+        resultat.addAll(obtenirFacturesProvisoires(null, null, null));
+        return resultat;
     }
 
     /**
@@ -410,9 +442,11 @@ public class FactureService {
     @Transactional(readOnly = true)
     public List<FactureDTO> obtenirHistoriqueFacturesClient(Long clientId) {
         List<Facture> factures = factureRepository.findByCommande_Client_IdOrderByDateFactureDesc(clientId);
-        return factures.stream()
+        List<FactureDTO> resultat = obtenirFacturesProvisoires(null, null, clientId);
+        resultat.addAll(factures.stream()
                 .map(FactureDTO::fromEntity)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+        return resultat;
     }
 
     /**
@@ -422,8 +456,10 @@ public class FactureService {
     public FactureStatistiques obtenirStatistiquesFactures() {
         FactureStatistiques stats = new FactureStatistiques();
 
-        stats.setTotalFactures(factureRepository.count());
-        stats.setFacturesEnAttente(factureRepository.countByStatut(StatutFacture.EN_ATTENTE));
+        // En facturation différée, les commandes en attente comptent comme factures en attente
+        long facturesProvisoires = creationFactureDifferee ? commandeRepository.countCommandesEnAttenteSansFacture() : 0L;
+        stats.setTotalFactures(factureRepository.count() + facturesProvisoires);
+        stats.setFacturesEnAttente(factureRepository.countByStatut(StatutFacture.EN_ATTENTE) + facturesProvisoires);
         stats.setFacturesPayees(factureRepository.countByStatut(StatutFacture.PAYEE));
         stats.setFacturesAnnulees(factureRepository.countByStatut(StatutFacture.ANNULEE));
 
@@ -445,6 +481,7 @@ public class FactureService {
     /**
      * Marquer une facture comme payée
      */
+    @ReessaiSurConflit
     public FactureDTO marquerFacturePayee(Long factureId, ModePaiement modePaiement) {
         Optional<Facture> factureOpt = factureRepository.findById(factureId);
         if (factureOpt.isEmpty()) {
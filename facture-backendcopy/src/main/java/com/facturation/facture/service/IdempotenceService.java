@@ -0,0 +1,204 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.config.CleIdempotenceReutiliseeException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Requêtes idempotentes (en-tête Idempotency-Key).
+ *
+ * La clé client est associée à l'utilisateur authentifié. La première requête
+ * exécute le traitement ; les doublons concurrents attendent son résultat et
+ * les répétitions ultérieures rejouent la réponse mémorisée sans accès base.
+ * Chaque entrée garde l'empreinte (SHA-256) du corps de la requête : une clé
+ * réutilisée avec un autre corps est refusée au lieu de rejouer la première
+ * réponse. Le stockage est borné en taille et les entrées expirent après un délai.
+ */
+@Service
+public class IdempotenceService {
+
+    @Value("${facturation.idempotence.duree-vie-minutes:30}")
+    private long dureeVieMinutes;
+
+    @Value("${facturation.idempotence.capacite:10000}")
+    private int capacite;
+
+    @Value("${facturation.idempotence.attente-secondes:30}")
+    private long attenteSecondes;
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, Entree> entrees = new ConcurrentHashMap<>();
+
+    // Ordre d'insertion des clés, pour évincer les plus anciennes quand le stockage est plein
+    private final ConcurrentLinkedQueue<String> ordreInsertion = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public IdempotenceService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Exécuter un traitement une seule fois pour une clé d'idempotence et un
+     * corps de requête donnés
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Execution<T> executer(String cleClient, Object requete, Supplier<T> traitement) {
+        if (cleClient == null || cleClient.isBlank()) {
+            return new Execution<>(traitement.get(), false);
+        }
+        if (cleClient.length() > 255) {
+            throw new RuntimeException("La clé d'idempotence ne peut pas dépasser 255 caractères");
+        }
+
+        String cle = construireCle(cleClient.trim());
+        String empreinte = empreinte(requete);
+        Entree nouvelle = new Entree(empreinte, System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(dureeVieMinutes));
+        Entree existante = entrees.putIfAbsent(cle, nouvelle);
+
+        if (existante != null && !existante.estExpiree()) {
+            if (!existante.empreinte.equals(empreinte)) {
+                throw new CleIdempotenceReutiliseeException(
+                        "La clé d'idempotence a déjà été utilisée pour une requête différente");
+            }
+            // Doublon : attendre (ou rejouer) le résultat de la première exécution
+            return new Execution<>((T) attendre(existante), true);
+        }
+        if (existante != null && !entrees.replace(cle, existante, nouvelle)) {
+            // Une autre requête a remplacé l'entrée expirée entre-temps
+            return executer(cleClient, requete, traitement);
+        }
+
+        ordreInsertion.add(cle);
+        evincerSiPlein();
+
+        try {
+            T resultat = traitement.get();
+            nouvelle.resultat.complete(resultat);
+            return new Execution<>(resultat, false);
+        } catch (RuntimeException e) {
+            // Un échec n'est pas mémorisé : le client peut réessayer avec la même clé
+            entrees.remove(cle, nouvelle);
+            nouvelle.resultat.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Purger périodiquement les entrées expirées
+     */
+    @Scheduled(fixedDelayString = "${facturation.idempotence.purge-ms:60000}")
+    public void purgerEntreesExpirees() {
+        entrees.entrySet().removeIf(e -> e.getValue().estExpiree());
+        ordreInsertion.removeIf(cle -> !entrees.containsKey(cle));
+    }
+
+    /**
+     * Nombre d'entrées actuellement mémorisées
+     */
+    public int getNombreEntrees() {
+        return entrees.size();
+    }
+
+    private String construireCle(String cleClient) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String utilisateur = authentication != null ? authentication.getName() : "anonyme";
+        return utilisateur + ":" + cleClient;
+    }
+
+    /**
+     * Empreinte SHA-256 du corps de la requête (sérialisé en JSON)
+     */
+    private String empreinte(Object requete) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(objectMapper.writeValueAsBytes(requete)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Impossible de calculer l'empreinte de la requête", e);
+        }
+    }
+
+    private Object attendre(Entree entree) {
+        try {
+            return entree.resultat.get(attenteSecondes, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("La requête originale a échoué", e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Une requête avec la même clé d'idempotence est toujours en cours");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Attente de la requête originale interrompue");
+        }
+    }
+
+    private void evincerSiPlein() {
+        if (entrees.size() <= capacite) {
+            return;
+        }
+        purgerEntreesExpirees();
+
+        // Évincer les plus anciennes entrées terminées ; les exécutions en cours sont conservées
+        Iterator<String> iterateur = ordreInsertion.iterator();
+        while (entrees.size() > capacite && iterateur.hasNext()) {
+            String cle = iterateur.next();
+            Entree entree = entrees.get(cle);
+            if (entree == null || entree.resultat.isDone()) {
+                entrees.remove(cle);
+                iterateur.remove();
+            }
+        }
+    }
+
+    private static class Entree {
+        private final CompletableFuture<Object> resultat = new CompletableFuture<>();
+        private final String empreinte;
+        private final long expiration;
+
+        private Entree(String empreinte, long expiration) {
+            this.empreinte = empreinte;
+            this.expiration = expiration;
+        }
+
+        private boolean estExpiree() {
+            return System.currentTimeMillis() > expiration;
+        }
+    }
+
+    /**
+     * Résultat d'une exécution idempotente ; rejeu = réponse issue d'une exécution précédente
+     */
+    public static class Execution<T> {
+        private final T resultat;
+        private final boolean rejeu;
+
+        public Execution(T resultat, boolean rejeu) {
+            this.resultat = resultat;
+            this.rejeu = rejeu;
+        }
+
+        public T getResultat() { return resultat; }
+        public boolean isRejeu() { return rejeu; }
+    }
+}
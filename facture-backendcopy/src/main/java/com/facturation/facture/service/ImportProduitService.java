@@ -0,0 +1,463 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.RapportImportProduitsDTO;
+import com.facturation.facture.event.ProduitModifieEvent;
+import com.facturation.facture.model.Categorie;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.model.enums.TypeMouvementStock;
+import com.facturation.facture.repository.CategorieRepository;
+import com.facturation.facture.repository.ProduitBatchRepository;
+import com.facturation.facture.repository.ProduitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Import de produits et de stocks depuis un fichier CSV.
+ *
+ * Le fichier est lu au fil de l'eau et traité par lots
+ * (facturation.import.taille-lot lignes, une transaction par lot) : seul le
+ * lot courant est tenu en mémoire. Pour chaque lot, les produits désignés
+ * (par id ou par nom) sont relus et verrouillés en une requête, par id
+ * croissant ; les lignes sont validées avec les règles de ProduitService,
+ * puis créations et mises à jour partent en batch JDBC. Les écarts de stock sont journalisés comme des
+ * ajustements. Une ligne invalide est rejetée sans bloquer les autres ; un
+ * lot en erreur est rejeté en entier.
+ *
+ * En-tête obligatoire ; colonnes reconnues (ordre libre, séparateur ; ou ,) :
+ * id, nom, description, prix, quantite_stock, seuil_alerte, categorie (id ou
+ * nom), disponible. Un champ vide laisse la valeur existante inchangée.
+ */
+@Service
+public class ImportProduitService {
+
+    public static final String COMPTEUR_LIGNES = "import.produits.lignes";
+    public static final String COMPTEUR_ERREURS = "import.produits.erreurs";
+
+    private static final Logger log = LoggerFactory.getLogger(ImportProduitService.class);
+
+    // Nom normalisé (minuscules, sans accents ni séparateurs) -> colonne
+    private static final Map<String, String> COLONNES = Map.ofEntries(
+            Map.entry("id", "id"),
+            Map.entry("nom", "nom"),
+            Map.entry("description", "description"),
+            Map.entry("prix", "prix"),
+            Map.entry("quantitestock", "quantite_stock"),
+            Map.entry("stock", "quantite_stock"),
+            Map.entry("seuilalerte", "seuil_alerte"),
+            Map.entry("categorie", "categorie"),
+            Map.entry("categorieid", "categorie"),
+            Map.entry("disponible", "disponible"));
+
+    private final ProduitRepository produitRepository;
+    private final CategorieRepository categorieRepository;
+    private final ProduitBatchRepository produitBatchRepository;
+    private final StockSegmenteService stockSegmenteService;
+    private final JournalStockService journalStockService;
+    private final SupervisionService supervisionService;
+    private final ApplicationEventPublisher evenements;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${facturation.import.taille-lot:500}")
+    private int tailleLot = 500;
+
+    @Value("${facturation.import.erreurs-max:1000}")
+    private int erreursMax = 1000;
+
+    @Autowired
+    public ImportProduitService(ProduitRepository produitRepository, CategorieRepository categorieRepository,
+                                ProduitBatchRepository produitBatchRepository,
+                                StockSegmenteService stockSegmenteService,
+                                JournalStockService journalStockService,
+                                SupervisionService supervisionService,
+                                ApplicationEventPublisher evenements,
+                                PlatformTransactionManager transactionManager) {
+        this.produitRepository = produitRepository;
+        this.categorieRepository = categorieRepository;
+        this.produitBatchRepository = produitBatchRepository;
+        this.stockSegmenteService = stockSegmenteService;
+        this.journalStockService = journalStockService;
+        this.supervisionService = supervisionService;
+        this.evenements = evenements;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Importer un fichier CSV (UTF-8) de produits
+     *
+     * @return le rapport ligne par ligne
+     */
+    public RapportImportProduitsDTO importer(InputStream flux) {
+        RapportImportProduitsDTO rapport = new RapportImportProduitsDTO();
+        try (BufferedReader lecteur = new BufferedReader(new InputStreamReader(flux, StandardCharsets.UTF_8))) {
+            LecteurCsv csv = new LecteurCsv(lecteur, detecterSeparateur(lecteur));
+            List<String> entete = csv.lire();
+            if (entete == null) {
+                throw new RuntimeException("Le fichier est vide");
+            }
+            Map<String, Integer> colonnes = lireEntete(entete);
+            Map<String, Categorie> categories = chargerCategories();
+
+            List<LigneImport> lot = new ArrayList<>();
+            try {
+                List<String> champs;
+                while ((champs = csv.lire()) != null) {
+                    if (champs.size() == 1 && champs.get(0).isBlank()) {
+                        continue;
+                    }
+                    lot.add(new LigneImport(csv.getNumeroLigne(), champs));
+                    if (lot.size() >= tailleLot) {
+                        traiterLot(lot, colonnes, categories, rapport);
+                        lot.clear();
+                    }
+                }
+            } catch (IOException e) {
+                // Fichier mal formé : les lots déjà traités restent importés
+                rapport.ajouterErreur(csv.getNumeroLigne(), "Lecture interrompue : " + e.getMessage(), erreursMax);
+            }
+            if (!lot.isEmpty()) {
+                traiterLot(lot, colonnes, categories, rapport);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Lecture du fichier impossible : " + e.getMessage());
+        }
+
+        supervisionService.ajouter(COMPTEUR_LIGNES, rapport.getLignes());
+        supervisionService.ajouter(COMPTEUR_ERREURS, rapport.getErreurs());
+        log.info("Import de produits : {} ligne(s), {} création(s), {} mise(s) à jour, {} erreur(s)",
+                rapport.getLignes(), rapport.getCreees(), rapport.getMisesAJour(), rapport.getErreurs());
+        return rapport;
+    }
+
+    private void traiterLot(List<LigneImport> lot, Map<String, Integer> colonnes,
+                            Map<String, Categorie> categories, RapportImportProduitsDTO rapport) {
+        rapport.ajouterLignes(lot.size());
+        try {
+            ResultatLot resultat = transactionTemplate.execute(status -> appliquerLot(lot, colonnes, categories));
+            rapport.ajouterCreees(resultat.creees);
+            rapport.ajouterMisesAJour(resultat.misesAJour);
+            resultat.erreurs.forEach((ligne, message) -> rapport.ajouterErreur(ligne, message, erreursMax));
+        } catch (RuntimeException e) {
+            log.warn("Import de produits : lot des lignes {} à {} rejeté : {}",
+                    lot.get(0).numero, lot.get(lot.size() - 1).numero, e.getMessage());
+            for (LigneImport ligne : lot) {
+                rapport.ajouterErreur(ligne.numero, "Lot rejeté : " + e.getMessage(), erreursMax);
+            }
+        }
+    }
+
+    /**
+     * Valider et écrire un lot de lignes (dans la transaction du lot)
+     */
+    private ResultatLot appliquerLot(List<LigneImport> lot, Map<String, Integer> colonnes,
+                                     Map<String, Categorie> categories) {
+        ResultatLot resultat = new ResultatLot();
+
+        List<LigneProduit> lignes = new ArrayList<>();
+        Set<Long> ids = new HashSet<>();
+        Set<String> noms = new HashSet<>();
+        for (LigneImport ligne : lot) {
+            try {
+                LigneProduit ligneProduit = lire(ligne, colonnes, categories);
+                lignes.add(ligneProduit);
+                if (ligneProduit.id != null) {
+                    ids.add(ligneProduit.id);
+                }
+                if (ligneProduit.nom != null) {
+                    noms.add(ligneProduit.nom);
+                }
+            } catch (RuntimeException e) {
+                resultat.erreurs.put(ligne.numero, e.getMessage());
+            }
+        }
+
+        // Produits désignés par le lot relus et verrouillés en une requête, par id
+        // croissant : deux lots concurrents ne peuvent pas s'interbloquer
+        Map<Long, Produit> parId = new HashMap<>();
+        Map<String, Produit> parNom = new HashMap<>();
+        List<Produit> designes = ids.isEmpty() && noms.isEmpty() ? List.of()
+                : produitRepository.verrouillerParIdsOuNoms(ids, noms);
+        for (Produit produit : designes) {
+            parId.put(produit.getId(), produit);
+            parNom.put(cle(produit.getNom()), produit);
+        }
+
+        // Créations par nom : une seconde ligne d'un même nouveau produit complète la première
+        Map<String, Produit> creations = new LinkedHashMap<>();
+        Map<Long, Produit> misesAJour = new LinkedHashMap<>();
+        for (LigneProduit ligne : lignes) {
+            try {
+                if (ligne.id == null && ligne.nom == null) {
+                    throw new IllegalArgumentException("La ligne ne désigne aucun produit (id ou nom obligatoire)");
+                }
+                Produit existant = ligne.id != null ? parId.get(ligne.id) : parNom.get(cle(ligne.nom));
+                if (ligne.id != null && existant == null) {
+                    throw new RuntimeException("Produit non trouvé avec l'ID : " + ligne.id);
+                }
+
+                if (existant == null) {
+                    Produit precedent = creations.get(cle(ligne.nom));
+                    if (precedent == null && ligne.categorie == null) {
+                        throw new IllegalArgumentException("La catégorie est obligatoire pour un nouveau produit");
+                    }
+                    Produit produit = precedent != null ? copie(precedent) : new Produit();
+                    ligne.appliquer(produit);
+                    ProduitService.validerProduit(produit);
+                    creations.put(cle(produit.getNom()), produit);
+                    if (precedent != null) {
+                        resultat.misesAJour++;
+                    } else {
+                        resultat.creees++;
+                    }
+                } else {
+                    // Plusieurs lignes d'un même produit : chacune part de la précédente
+                    Produit produit = copie(misesAJour.getOrDefault(existant.getId(), existant));
+                    ligne.appliquer(produit);
+                    ProduitService.validerProduit(produit);
+                    String nom = cle(produit.getNom());
+                    Produit homonyme = parNom.get(nom);
+                    if ((homonyme != null && !homonyme.getId().equals(existant.getId())) || creations.containsKey(nom)) {
+                        throw new RuntimeException("Un autre produit utilise déjà ce nom : " + produit.getNom());
+                    }
+                    misesAJour.put(existant.getId(), produit);
+                    resultat.misesAJour++;
+                }
+            } catch (RuntimeException e) {
+                resultat.erreurs.put(ligne.numero, e.getMessage());
+            }
+        }
+
+        // Écarts de stock des mises à jour, journalisés comme des ajustements d'inventaire
+        Map<Long, Integer> entrees = new HashMap<>();
+        Map<Long, Integer> sorties = new HashMap<>();
+        misesAJour.forEach((idProduit, produit) -> {
+            Produit existant = parId.get(idProduit);
+            int ancienneQuantite = existant.getQuantiteStock();
+            if (Boolean.TRUE.equals(existant.getStockSegmente())
+                    && !produit.getQuantiteStock().equals(existant.getQuantiteStock())) {
+                Integer totalSegments = stockSegmenteService.redefinir(idProduit, produit.getQuantiteStock());
+                if (totalSegments != null) {
+                    ancienneQuantite = totalSegments;
+                }
+            }
+            int variation = produit.getQuantiteStock() - ancienneQuantite;
+            if (variation > 0) {
+                entrees.put(idProduit, variation);
+            } else if (variation < 0) {
+                sorties.put(idProduit, -variation);
+            }
+        });
+        produitBatchRepository.mettreAJour(new ArrayList<>(misesAJour.values()));
+        journalStockService.enregistrerEntrees(TypeMouvementStock.AJUSTEMENT, entrees);
+        journalStockService.enregistrerSorties(TypeMouvementStock.AJUSTEMENT, sorties);
+        misesAJour.keySet().forEach(idProduit -> evenements.publishEvent(new ProduitModifieEvent(idProduit)));
+
+        List<Produit> nouveaux = new ArrayList<>(creations.values());
+        List<Long> idsCrees = produitBatchRepository.inserer(nouveaux);
+        Map<Long, Integer> stocksInitiaux = new HashMap<>();
+        for (int i = 0; i < idsCrees.size(); i++) {
+            stocksInitiaux.put(idsCrees.get(i), nouveaux.get(i).getQuantiteStock());
+        }
+        journalStockService.ouvrir(stocksInitiaux);
+        return resultat;
+    }
+
+    private LigneProduit lire(LigneImport ligne, Map<String, Integer> colonnes, Map<String, Categorie> categories) {
+        if (ligne.champs.size() > colonnes.size()) {
+            throw new IllegalArgumentException("La ligne contient " + ligne.champs.size()
+                    + " champs, l'en-tête en déclare " + colonnes.size());
+        }
+        LigneProduit produit = new LigneProduit();
+        produit.numero = ligne.numero;
+        String id = champ(ligne, colonnes, "id");
+        produit.id = id != null ? entier(id, "id").longValue() : null;
+        produit.nom = champ(ligne, colonnes, "nom");
+        produit.description = champ(ligne, colonnes, "description");
+        String prix = champ(ligne, colonnes, "prix");
+        if (prix != null) {
+            try {
+                produit.prix = new BigDecimal(prix.replace(',', '.'));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Valeur invalide pour prix : '" + prix + "'");
+            }
+        }
+        String quantite = champ(ligne, colonnes, "quantite_stock");
+        produit.quantiteStock = quantite != null ? entier(quantite, "quantite_stock") : null;
+        String seuil = champ(ligne, colonnes, "seuil_alerte");
+        produit.seuilAlerte = seuil != null ? entier(seuil, "seuil_alerte") : null;
+        String disponible = champ(ligne, colonnes, "disponible");
+        produit.disponible = disponible != null ? booleen(disponible) : null;
+        String categorie = champ(ligne, colonnes, "categorie");
+        if (categorie != null) {
+            produit.categorie = categories.get(cle(categorie));
+            if (produit.categorie == null) {
+                throw new RuntimeException("Catégorie non trouvée : " + categorie);
+            }
+        }
+        return produit;
+    }
+
+    private static Map<String, Integer> lireEntete(List<String> entete) {
+        Map<String, Integer> colonnes = new HashMap<>();
+        for (int i = 0; i < entete.size(); i++) {
+            String nom = entete.get(i);
+            String colonne = COLONNES.get(normaliser(nom));
+            if (colonne == null) {
+                throw new RuntimeException("Colonne inconnue dans l'en-tête : '" + nom.trim() + "'");
+            }
+            if (colonnes.put(colonne, i) != null) {
+                throw new RuntimeException("Colonne en double dans l'en-tête : '" + nom.trim() + "'");
+            }
+        }
+        if (!colonnes.containsKey("id") && !colonnes.containsKey("nom")) {
+            throw new RuntimeException("L'en-tête doit contenir une colonne id ou nom");
+        }
+        return colonnes;
+    }
+
+    /**
+     * Catégories par id et par nom (en minuscules) : quelques dizaines de lignes, lues une fois par import
+     */
+    private Map<String, Categorie> chargerCategories() {
+        Map<String, Categorie> categories = new HashMap<>();
+        for (Categorie categorie : categorieRepository.findAll()) {
+            categories.put(String.valueOf(categorie.getId()), categorie);
+            categories.putIfAbsent(cle(categorie.getNom()), categorie);
+        }
+        return categories;
+    }
+
+    /**
+     * Séparateur de l'en-tête (; ou ,), après un éventuel BOM UTF-8
+     */
+    private static char detecterSeparateur(BufferedReader lecteur) throws IOException {
+        lecteur.mark(1);
+        if (lecteur.read() != '\uFEFF') {
+            lecteur.reset();
+        }
+        lecteur.mark(8192);
+        String entete = lecteur.readLine();
+        lecteur.reset();
+        if (entete == null) {
+            return ';';
+        }
+        long pointsVirgules = entete.chars().filter(c -> c == ';').count();
+        long virgules = entete.chars().filter(c -> c == ',').count();
+        return virgules > pointsVirgules ? ',' : ';';
+    }
+
+    private static String champ(LigneImport ligne, Map<String, Integer> colonnes, String colonne) {
+        Integer index = colonnes.get(colonne);
+        if (index == null || index >= ligne.champs.size()) {
+            return null;
+        }
+        String valeur = ligne.champs.get(index).trim();
+        return valeur.isEmpty() ? null : valeur;
+    }
+
+    private static Integer entier(String valeur, String colonne) {
+        try {
+            return Integer.valueOf(valeur);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valeur invalide pour " + colonne + " : '" + valeur + "'");
+        }
+    }
+
+    private static Boolean booleen(String valeur) {
+        switch (valeur.toLowerCase(Locale.ROOT)) {
+            case "true": case "oui": case "1":
+                return true;
+            case "false": case "non": case "0":
+                return false;
+            default:
+                throw new IllegalArgumentException("Valeur invalide pour disponible : '" + valeur + "'");
+        }
+    }
+
+    private static String cle(String nom) {
+        return nom.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String normaliser(String nom) {
+        return Normalizer.normalize(nom.trim().toLowerCase(Locale.ROOT), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .replaceAll("[_\\s-]", "");
+    }
+
+    private static Produit copie(Produit source) {
+        Produit produit = new Produit();
+        produit.setId(source.getId());
+        produit.setNom(source.getNom());
+        produit.setDescription(source.getDescription());
+        produit.setPrix(source.getPrix());
+        produit.setQuantiteStock(source.getQuantiteStock());
+        produit.setSeuilAlerte(source.getSeuilAlerte());
+        produit.setDisponible(source.getDisponible());
+        produit.setStockSegmente(source.getStockSegmente());
+        produit.setCategorie(source.getCategorie());
+        return produit;
+    }
+
+    private static class LigneImport {
+        private final int numero;
+        private final List<String> champs;
+
+        private LigneImport(int numero, List<String> champs) {
+            this.numero = numero;
+            this.champs = champs;
+        }
+    }
+
+    /**
+     * Valeurs lues d'une ligne (null = colonne absente ou champ vide)
+     */
+    private static class LigneProduit {
+        private int numero;
+        private Long id;
+        private String nom;
+        private String description;
+        private BigDecimal prix;
+        private Integer quantiteStock;
+        private Integer seuilAlerte;
+        private Boolean disponible;
+        private Categorie categorie;
+
+        private void appliquer(Produit produit) {
+            if (nom != null) produit.setNom(nom);
+            if (description != null) produit.setDescription(description);
+            if (prix != null) produit.setPrix(prix);
+            if (quantiteStock != null) produit.setQuantiteStock(quantiteStock);
+            if (seuilAlerte != null) produit.setSeuilAlerte(seuilAlerte);
+            if (disponible != null) produit.setDisponible(disponible);
+            if (categorie != null) produit.setCategorie(categorie);
+        }
+    }
+
+    private static class ResultatLot {
+        private int creees;
+        private int misesAJour;
+        private final Map<Integer, String> erreurs = new TreeMap<>();
+    }
+}
@@ -0,0 +1,469 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.dto.SuggestionAutocompletionDTO;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Index immuable de complétion des noms de produits disponibles et de leurs
+ * catégories.
+ *
+ * Chaque début de mot d'un libellé normalisé (sans accents ni casse) est une
+ * entrée d'un tableau trié : les entrées commençant par un préfixe forment une
+ * plage contiguë, trouvée par recherche dichotomique. Les meilleures
+ * complétions des préfixes dont la plage dépasse PLAGE_MAX entrées sont
+ * calculées d'avance (une requête les copie dans la liste de résultats) ; les
+ * autres plages sont parcourues. Le préfixe d'une requête est normalisé dans
+ * un tableau propre au thread et comparé caractère par caractère aux entrées
+ * comme aux clés des complétions calculées d'avance. Les complétions sont
+ * partagées entre les requêtes (ne pas les modifier).
+ *
+ * Une mise à jour produit un nouvel index : seules les entrées des produits
+ * modifiés sont retirées ou insérées (fusion avec le tableau trié) et seuls
+ * les préfixes qu'elles touchent sont recalculés.
+ */
+final class IndexAutocompletion {
+
+    // Au-delà de ce nombre d'entrées, les complétions d'un préfixe sont calculées d'avance
+    private static final int PLAGE_MAX = 256;
+    private static final int MOTS_MAX = 8;
+
+    // Préfixe normalisé de la requête en cours (agrandi si besoin)
+    private static final ThreadLocal<char[]> PREFIXES = ThreadLocal.withInitial(() -> new char[64]);
+
+    // Popularité décroissante, puis libellé le plus court, puis ordre alphabétique (ordre total)
+    private static final Comparator<SuggestionAutocompletionDTO> ORDRE =
+            Comparator.comparingDouble(SuggestionAutocompletionDTO::getPopularite).reversed()
+                    .thenComparingInt(suggestion -> suggestion.getLibelle().length())
+                    .thenComparing(SuggestionAutocompletionDTO::getLibelle)
+                    .thenComparing(SuggestionAutocompletionDTO::getType)
+                    .thenComparing(SuggestionAutocompletionDTO::getId);
+
+    // Nombre de complétions retenues par préfixe précalculé
+    private final int maximum;
+
+    // Entrées triées : libellé et position du début de mot dans son texte normalisé
+    private final Libelle[] entrees;
+    private final int[] decalages;
+
+    private final Map<Long, Libelle> produits;
+    private final Map<Long, Libelle> categories;
+    private final Map<String, SuggestionAutocompletionDTO[]> meilleures;
+
+    // Copie de meilleures en table à adressage ouvert, cherchée sans créer de chaîne
+    private String[] clesPrecalculees;
+    private SuggestionAutocompletionDTO[][] precalculees;
+
+    private IndexAutocompletion(int maximum, Libelle[] entrees, int[] decalages, Map<Long, Libelle> produits,
+                                Map<Long, Libelle> categories, Map<String, SuggestionAutocompletionDTO[]> meilleures) {
+        this.maximum = maximum;
+        this.entrees = entrees;
+        this.decalages = decalages;
+        this.produits = produits;
+        this.categories = categories;
+        this.meilleures = meilleures;
+    }
+
+    /**
+     * Construire l'index des produits disponibles ; une catégorie a pour
+     * popularité la somme de celles de ses produits
+     */
+    static IndexAutocompletion construire(Collection<ProduitDTO> disponibles, ToDoubleFunction<Long> popularite,
+                                          int maximum) {
+        Map<Long, Libelle> produits = new HashMap<>();
+        Map<Long, Double> popularitesCategories = new HashMap<>();
+        Map<Long, String> nomsCategories = new HashMap<>();
+        for (ProduitDTO produit : disponibles) {
+            double ventes = popularite.applyAsDouble(produit.getId());
+            Libelle libelle = Libelle.creer(SuggestionAutocompletionDTO.TYPE_PRODUIT, produit.getId(), produit.getNom(), ventes);
+            if (libelle != null) {
+                produits.put(produit.getId(), libelle);
+            }
+            if (produit.getCategorieId() != null) {
+                popularitesCategories.merge(produit.getCategorieId(), ventes, Double::sum);
+                nomsCategories.put(produit.getCategorieId(), produit.getCategorieNom());
+            }
+        }
+        Map<Long, Libelle> categories = new HashMap<>();
+        popularitesCategories.forEach((idCategorie, ventes) -> {
+            Libelle libelle = Libelle.creer(SuggestionAutocompletionDTO.TYPE_CATEGORIE, idCategorie,
+                    nomsCategories.get(idCategorie), ventes);
+            if (libelle != null) {
+                categories.put(idCategorie, libelle);
+            }
+        });
+
+        List<Entree> nouvelles = new ArrayList<>();
+        produits.values().forEach(libelle -> libelle.ajouterEntrees(nouvelles));
+        categories.values().forEach(libelle -> libelle.ajouterEntrees(nouvelles));
+        nouvelles.sort(IndexAutocompletion::comparer);
+
+        Libelle[] entrees = new Libelle[nouvelles.size()];
+        int[] decalages = new int[nouvelles.size()];
+        for (int i = 0; i < entrees.length; i++) {
+            entrees[i] = nouvelles.get(i).libelle;
+            decalages[i] = nouvelles.get(i).decalage;
+        }
+
+        IndexAutocompletion index = new IndexAutocompletion(maximum, entrees, decalages, produits, categories, new HashMap<>());
+        index.precalculer(0, entrees.length, 1);
+        index.figer();
+        return index;
+    }
+
+    /**
+     * Index tenant compte des produits créés, modifiés ou supprimés (this si
+     * aucun libellé ne change). Les catégories apparues sont ajoutées ; les
+     * popularités des autres libellés restent celles du dernier calcul complet.
+     */
+    IndexAutocompletion avec(Collection<ProduitDTO> modifies, Collection<Long> idsSupprimes,
+                             ToDoubleFunction<Long> popularite) {
+        if (modifies.isEmpty() && idsSupprimes.isEmpty()) {
+            return this;
+        }
+        Map<Long, Libelle> produits = new HashMap<>(this.produits);
+        Map<Long, Libelle> categories = this.categories;
+        Set<Libelle> retires = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Libelle> ajoutes = new ArrayList<>();
+
+        for (Long idProduit : idsSupprimes) {
+            Libelle ancien = produits.remove(idProduit);
+            if (ancien != null) {
+                retires.add(ancien);
+            }
+        }
+        for (ProduitDTO produit : modifies) {
+            Libelle ancien = produits.get(produit.getId());
+            if (!Boolean.TRUE.equals(produit.getDisponible())) {
+                if (ancien != null) {
+                    produits.remove(produit.getId());
+                    retires.add(ancien);
+                }
+                continue;
+            }
+            if (ancien == null || !ancien.suggestion.getLibelle().equals(produit.getNom())) {
+                double ventes = popularite.applyAsDouble(produit.getId());
+                Libelle nouveau = Libelle.creer(SuggestionAutocompletionDTO.TYPE_PRODUIT, produit.getId(), produit.getNom(), ventes);
+                if (ancien != null) {
+                    produits.remove(produit.getId());
+                    retires.add(ancien);
+                }
+                if (nouveau != null) {
+                    produits.put(produit.getId(), nouveau);
+                    ajoutes.add(nouveau);
+                }
+            }
+            if (produit.getCategorieId() != null && !categories.containsKey(produit.getCategorieId())) {
+                Libelle categorie = Libelle.creer(SuggestionAutocompletionDTO.TYPE_CATEGORIE, produit.getCategorieId(),
+                        produit.getCategorieNom(), popularite.applyAsDouble(produit.getId()));
+                if (categorie != null) {
+                    if (categories == this.categories) {
+                        categories = new HashMap<>(this.categories);
+                    }
+                    categories.put(produit.getCategorieId(), categorie);
+                    ajoutes.add(categorie);
+                }
+            }
+        }
+        if (retires.isEmpty() && ajoutes.isEmpty()) {
+            return this;
+        }
+
+        // Fusion des entrées conservées (déjà triées) et des nouvelles
+        List<Entree> nouvelles = new ArrayList<>();
+        ajoutes.forEach(libelle -> libelle.ajouterEntrees(nouvelles));
+        nouvelles.sort(IndexAutocompletion::comparer);
+        int conservees = 0;
+        for (Libelle libelle : entrees) {
+            if (!retires.contains(libelle)) {
+                conservees++;
+            }
+        }
+        Libelle[] fusion = new Libelle[conservees + nouvelles.size()];
+        int[] decalagesFusion = new int[fusion.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < fusion.length; k++) {
+            while (i < entrees.length && retires.contains(entrees[i])) {
+                i++;
+            }
+            if (j < nouvelles.size() && (i == entrees.length
+                    || comparer(nouvelles.get(j).libelle, nouvelles.get(j).decalage, entrees[i], decalages[i]) < 0)) {
+                fusion[k] = nouvelles.get(j).libelle;
+                decalagesFusion[k] = nouvelles.get(j).decalage;
+                j++;
+            } else {
+                fusion[k] = entrees[i];
+                decalagesFusion[k] = decalages[i];
+                i++;
+            }
+        }
+
+        IndexAutocompletion index = new IndexAutocompletion(maximum, fusion, decalagesFusion, produits, categories,
+                new HashMap<>(meilleures));
+        // Seules les plages des préfixes des libellés retirés ou ajoutés ont changé
+        Set<String> prefixes = new LinkedHashSet<>();
+        retires.forEach(libelle -> libelle.ajouterPrefixes(prefixes));
+        ajoutes.forEach(libelle -> libelle.ajouterPrefixes(prefixes));
+        for (String prefixe : prefixes) {
+            char[] caracteres = prefixe.toCharArray();
+            int debut = index.premiereEntree(caracteres, caracteres.length, 0);
+            int fin = index.premiereEntree(caracteres, caracteres.length, 1);
+            if (fin - debut > PLAGE_MAX) {
+                index.meilleures.put(prefixe, index.meilleuresEntre(debut, fin, maximum).toArray(new SuggestionAutocompletionDTO[0]));
+            } else {
+                index.meilleures.remove(prefixe);
+            }
+        }
+        index.figer();
+        return index;
+    }
+
+    int taille() {
+        return produits.size() + categories.size();
+    }
+
+    /**
+     * Meilleures complétions du préfixe (au plus limite, limite <= maximum).
+     * Seule la liste de résultats est allouée.
+     */
+    List<SuggestionAutocompletionDTO> completer(String prefixe, int limite) {
+        char[] normalise = PREFIXES.get();
+        if (normalise.length < 2 * prefixe.length()) {
+            normalise = new char[2 * prefixe.length()];
+            PREFIXES.set(normalise);
+        }
+        int longueur = IndexRechercheProduits.plier(prefixe, normalise);
+        if (longueur == 0) {
+            return new ArrayList<>(0);
+        }
+        int debut = premiereEntree(normalise, longueur, 0);
+        int fin = premiereEntree(normalise, longueur, 1);
+        if (fin - debut <= PLAGE_MAX) {
+            return meilleuresEntre(debut, fin, limite);
+        }
+        SuggestionAutocompletionDTO[] calculees = precalculees(normalise, longueur);
+        int nombre = Math.min(limite, calculees.length);
+        List<SuggestionAutocompletionDTO> suggestions = new ArrayList<>(nombre);
+        for (int i = 0; i < nombre; i++) {
+            suggestions.add(calculees[i]);
+        }
+        return suggestions;
+    }
+
+    // Meilleures complétions des entrées [debut, fin)
+    private List<SuggestionAutocompletionDTO> meilleuresEntre(int debut, int fin, int limite) {
+        List<SuggestionAutocompletionDTO> suggestions = new ArrayList<>(Math.min(limite, fin - debut) + 1);
+        for (int i = debut; i < fin; i++) {
+            SuggestionAutocompletionDTO suggestion = entrees[i].suggestion;
+            if (suggestions.size() == limite && ORDRE.compare(suggestion, suggestions.get(limite - 1)) >= 0) {
+                continue;
+            }
+            // Un libellé peut avoir plusieurs mots commençant par le préfixe
+            if (suggestions.contains(suggestion)) {
+                continue;
+            }
+            int position = suggestions.size();
+            while (position > 0 && ORDRE.compare(suggestion, suggestions.get(position - 1)) < 0) {
+                position--;
+            }
+            suggestions.add(position, suggestion);
+            if (suggestions.size() > limite) {
+                suggestions.remove(limite);
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Calculer les meilleures complétions des préfixes dont la plage dépasse
+     * PLAGE_MAX entrées, en descendant dans les plages [debut, fin) dont les
+     * entrées partagent leurs (longueur - 1) premiers caractères
+     */
+    private void precalculer(int debut, int fin, int longueur) {
+        int i = debut;
+        while (i < fin) {
+            if (entrees[i].texte.length() - decalages[i] < longueur) {
+                i++;
+                continue;
+            }
+            int j = i + 1;
+            while (j < fin && memePrefixe(j, i, longueur)) {
+                j++;
+            }
+            if (j - i > PLAGE_MAX) {
+                // Une requête normalisée ne finit jamais par une espace
+                if (entrees[i].texte.charAt(decalages[i] + longueur - 1) != ' ') {
+                    meilleures.put(entrees[i].texte.substring(decalages[i], decalages[i] + longueur),
+                            meilleuresEntre(i, j, maximum).toArray(new SuggestionAutocompletionDTO[0]));
+                }
+                precalculer(i, j, longueur + 1);
+            }
+            i = j;
+        }
+    }
+
+    /**
+     * Recopier meilleures dans la table à adressage ouvert (taux de remplissage au plus 1/2)
+     */
+    private void figer() {
+        int capacite = Integer.highestOneBit(Math.max(1, meilleures.size()) * 2) * 2;
+        clesPrecalculees = new String[capacite];
+        precalculees = new SuggestionAutocompletionDTO[capacite][];
+        meilleures.forEach((prefixe, suggestions) -> {
+            int position = disperser(prefixe.hashCode()) & (capacite - 1);
+            while (clesPrecalculees[position] != null) {
+                position = (position + 1) & (capacite - 1);
+            }
+            clesPrecalculees[position] = prefixe;
+            precalculees[position] = suggestions;
+        });
+    }
+
+    // Complétions calculées d'avance du préfixe (null s'il n'en a pas)
+    private SuggestionAutocompletionDTO[] precalculees(char[] prefixe, int longueur) {
+        int hash = 0;
+        for (int k = 0; k < longueur; k++) {
+            hash = 31 * hash + prefixe[k];
+        }
+        int masque = clesPrecalculees.length - 1;
+        for (int position = disperser(hash) & masque; clesPrecalculees[position] != null; position = (position + 1) & masque) {
+            String cle = clesPrecalculees[position];
+            if (egal(cle, prefixe, longueur)) {
+                return precalculees[position];
+            }
+        }
+        return null;
+    }
+
+    private static int disperser(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // Première entrée qui n'est pas avant le préfixe (decalage 0) ou qui est après toutes celles qui le commencent (1)
+    private int premiereEntree(char[] prefixe, int longueurPrefixe, int decalage) {
+        int bas = 0;
+        int haut = entrees.length;
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            if (comparer(milieu, prefixe, longueurPrefixe) < decalage) {
+                bas = milieu + 1;
+            } else {
+                haut = milieu;
+            }
+        }
+        return bas;
+    }
+
+    // Comparaison de l'entrée avec le préfixe sur la longueur du préfixe (0 = l'entrée commence par le préfixe)
+    private int comparer(int i, char[] prefixe, int longueurPrefixe) {
+        String texte = entrees[i].texte;
+        int decalage = decalages[i];
+        int longueur = Math.min(texte.length() - decalage, longueurPrefixe);
+        for (int k = 0; k < longueur; k++) {
+            int ecart = texte.charAt(decalage + k) - prefixe[k];
+            if (ecart != 0) {
+                return ecart;
+            }
+        }
+        return longueur == longueurPrefixe ? 0 : -1;
+    }
+
+    private static boolean egal(String cle, char[] prefixe, int longueur) {
+        if (cle.length() != longueur) {
+            return false;
+        }
+        for (int k = 0; k < longueur; k++) {
+            if (cle.charAt(k) != prefixe[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean memePrefixe(int i, int j, int longueur) {
+        return entrees[i].texte.length() - decalages[i] >= longueur
+                && entrees[i].texte.regionMatches(decalages[i], entrees[j].texte, decalages[j], longueur);
+    }
+
+    private static int comparer(Entree a, Entree b) {
+        return comparer(a.libelle, a.decalage, b.libelle, b.decalage);
+    }
+
+    private static int comparer(Libelle a, int decalageA, Libelle b, int decalageB) {
+        String texteA = a.texte;
+        String texteB = b.texte;
+        int longueur = Math.min(texteA.length() - decalageA, texteB.length() - decalageB);
+        for (int k = 0; k < longueur; k++) {
+            int ecart = texteA.charAt(decalageA + k) - texteB.charAt(decalageB + k);
+            if (ecart != 0) {
+                return ecart;
+            }
+        }
+        return (texteA.length() - decalageA) - (texteB.length() - decalageB);
+    }
+
+    private static final class Libelle {
+        private final SuggestionAutocompletionDTO suggestion;
+        // Libellé normalisé (mots séparés par une espace)
+        private final String texte;
+
+        private Libelle(SuggestionAutocompletionDTO suggestion, String texte) {
+            this.suggestion = suggestion;
+            this.texte = texte;
+        }
+
+        // null si le libellé est vide une fois normalisé
+        private static Libelle creer(String type, Long id, String libelle, double popularite) {
+            String texte = IndexRechercheProduits.normaliser(libelle);
+            if (texte.isEmpty()) {
+                return null;
+            }
+            return new Libelle(new SuggestionAutocompletionDTO(type, id, libelle, popularite), texte);
+        }
+
+        // Une entrée par début de mot (les MOTS_MAX premiers)
+        private void ajouterEntrees(List<Entree> cible) {
+            int mots = 0;
+            for (int i = 0; i < texte.length() && mots < MOTS_MAX; i++) {
+                if (i == 0 || texte.charAt(i - 1) == ' ') {
+                    cible.add(new Entree(this, i));
+                    mots++;
+                }
+            }
+        }
+
+        private void ajouterPrefixes(Set<String> cible) {
+            List<Entree> debuts = new ArrayList<>();
+            ajouterEntrees(debuts);
+            for (Entree debut : debuts) {
+                for (int fin = debut.decalage + 1; fin <= texte.length(); fin++) {
+                    if (texte.charAt(fin - 1) != ' ') {
+                        cible.add(texte.substring(debut.decalage, fin));
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Entree {
+        private final Libelle libelle;
+        private final int decalage;
+
+        private Entree(Libelle libelle, int decalage) {
+            this.libelle = libelle;
+            this.decalage = decalage;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.dto.RechercheFacettesDTO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Index en colonnes des produits disponibles d'un instantané du catalogue :
+ * une colonne par critère filtrable (catégorie en indice dense, prix en
+ * centimes, présence de stock), dans l'ordre du catalogue (par nom).
+ *
+ * Une recherche parcourt les colonnes une seule fois : pour chaque produit,
+ * chaque filtre est évalué une fois, puis le produit est compté dans chaque
+ * facette dont les autres filtres sont satisfaits, et retenu s'il les
+ * satisfait tous.
+ */
+final class IndexFacettes {
+
+    private final long version;
+
+    private final ProduitDTO[] produits;
+    private final int[] categories;
+    private final long[] prix;
+    private final boolean[] stock;
+
+    // Catégories par nom ; indice dense -> id, nom
+    private final Long[] idsCategories;
+    private final String[] nomsCategories;
+    private final Map<Long, Integer> indicesCategories;
+
+    private final long prixMinimum;
+    private final long prixMaximum;
+
+    IndexFacettes(long version, List<ProduitDTO> disponibles) {
+        int nombre = disponibles.size();
+        this.version = version;
+        this.produits = disponibles.toArray(new ProduitDTO[0]);
+        this.categories = new int[nombre];
+        this.prix = new long[nombre];
+        this.stock = new boolean[nombre];
+
+        Map<Long, String> noms = new HashMap<>();
+        for (ProduitDTO produit : disponibles) {
+            if (produit.getCategorieId() != null) {
+                noms.putIfAbsent(produit.getCategorieId(), produit.getCategorieNom());
+            }
+        }
+        Collator collator = Collator.getInstance(Locale.FRENCH);
+        collator.setStrength(Collator.PRIMARY);
+        List<Map.Entry<Long, String>> triees = new ArrayList<>(noms.entrySet());
+        triees.sort(Comparator.comparing((Map.Entry<Long, String> e) -> e.getValue() != null ? e.getValue() : "", collator)
+                .thenComparing(Map.Entry::getKey));
+        this.idsCategories = new Long[triees.size()];
+        this.nomsCategories = new String[triees.size()];
+        this.indicesCategories = new HashMap<>();
+        for (int c = 0; c < triees.size(); c++) {
+            idsCategories[c] = triees.get(c).getKey();
+            nomsCategories[c] = triees.get(c).getValue();
+            indicesCategories.put(idsCategories[c], c);
+        }
+
+        long minimum = Long.MAX_VALUE;
+        long maximum = Long.MIN_VALUE;
+        for (int i = 0; i < nombre; i++) {
+            ProduitDTO produit = produits[i];
+            Integer categorie = produit.getCategorieId() != null ? indicesCategories.get(produit.getCategorieId()) : null;
+            categories[i] = categorie != null ? categorie : -1;
+            prix[i] = centimes(produit.getPrix());
+            stock[i] = produit.getQuantiteStock() != null && produit.getQuantiteStock() > 0;
+            minimum = Math.min(minimum, prix[i]);
+            maximum = Math.max(maximum, prix[i]);
+        }
+        this.prixMinimum = nombre > 0 ? minimum : 0;
+        this.prixMaximum = nombre > 0 ? maximum : 0;
+    }
+
+    static IndexFacettes construire(CatalogueService.Catalogue catalogue) {
+        return new IndexFacettes(catalogue.getVersion(), catalogue.getProduitsDisponibles());
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * Page des produits correspondant à tous les filtres (null = filtre
+     * inactif) et décomptes par facette. Les produits sont ceux du catalogue
+     * (partagés : les copier avant de les modifier).
+     */
+    RechercheFacettesDTO rechercher(Collection<Long> idsCategoriesRetenues, BigDecimal prixMin, BigDecimal prixMax,
+                                    Boolean enStock, int page, int taille, int nombreTranches) {
+        // Filtres traduits en colonnes : catégories retenues par indice, bornes en centimes
+        boolean[] categoriesRetenues = null;
+        if (idsCategoriesRetenues != null && !idsCategoriesRetenues.isEmpty()) {
+            categoriesRetenues = new boolean[idsCategories.length];
+            for (Long idCategorie : idsCategoriesRetenues) {
+                Integer categorie = indicesCategories.get(idCategorie);
+                if (categorie != null) {
+                    categoriesRetenues[categorie] = true;
+                }
+            }
+        }
+        long borneMin = prixMin != null ? prixMin.movePointRight(2).setScale(0, RoundingMode.CEILING).longValue() : Long.MIN_VALUE;
+        long borneMax = prixMax != null ? prixMax.movePointRight(2).setScale(0, RoundingMode.FLOOR).longValue() : Long.MAX_VALUE;
+        boolean filtreStock = enStock != null;
+        boolean stockVoulu = Boolean.TRUE.equals(enStock);
+
+        long largeur = Math.max(1, (prixMaximum - prixMinimum + nombreTranches) / nombreTranches);
+        long[] parCategorie = new long[idsCategories.length];
+        long[] parTranche = new long[nombreTranches];
+        long produitsEnStock = 0;
+        long produitsEnRupture = 0;
+        long total = 0;
+        long debutPage = (long) page * taille;
+        List<ProduitDTO> selection = new ArrayList<>(taille);
+
+        for (int i = 0; i < produits.length; i++) {
+            int categorie = categories[i];
+            boolean okCategorie = categoriesRetenues == null || (categorie >= 0 && categoriesRetenues[categorie]);
+            boolean okPrix = prix[i] >= borneMin && prix[i] <= borneMax;
+            boolean okStock = !filtreStock || stock[i] == stockVoulu;
+
+            if (okPrix && okStock && categorie >= 0) {
+                parCategorie[categorie]++;
+            }
+            if (okCategorie && okStock) {
+                parTranche[(int) Math.min(nombreTranches - 1, (prix[i] - prixMinimum) / largeur)]++;
+            }
+            if (okCategorie && okPrix) {
+                if (stock[i]) {
+                    produitsEnStock++;
+                } else {
+                    produitsEnRupture++;
+                }
+            }
+            if (okCategorie && okPrix && okStock) {
+                if (total >= debutPage && selection.size() < taille) {
+                    selection.add(produits[i]);
+                }
+                total++;
+            }
+        }
+
+        RechercheFacettesDTO resultat = new RechercheFacettesDTO();
+        resultat.setProduits(selection);
+        resultat.setPage(page);
+        resultat.setTaille(taille);
+        resultat.setTotal(total);
+        resultat.setTotalPages(taille > 0 ? (int) ((total + taille - 1) / taille) : 0);
+        for (int c = 0; c < idsCategories.length; c++) {
+            resultat.getCategories().add(new RechercheFacettesDTO.FacetteCategorie(idsCategories[c], nomsCategories[c], parCategorie[c]));
+        }
+        if (produits.length > 0) {
+            for (int t = 0; t < nombreTranches; t++) {
+                long debut = prixMinimum + t * largeur;
+                resultat.getTranchesPrix().add(new RechercheFacettesDTO.TranchePrix(
+                        BigDecimal.valueOf(debut, 2), BigDecimal.valueOf(debut + largeur - 1, 2), parTranche[t]));
+            }
+        }
+        resultat.setEnStock(produitsEnStock);
+        resultat.setEnRupture(produitsEnRupture);
+        resultat.setVersionCatalogue(version);
+        return resultat;
+    }
+
+    private static long centimes(BigDecimal montant) {
+        return montant != null ? montant.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue() : 0;
+    }
+}
@@ -0,0 +1,660 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.ProduitDTO;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Index inversé de trigrammes sur le nom, la catégorie et la description des
+ * produits, sans accents ni casse.
+ *
+ * Chaque produit indexé reçoit un numéro de document ; une modification
+ * supprime logiquement l'ancien document et en ajoute un nouveau, les listes
+ * de documents restant triées. L'index est compacté quand les documents
+ * supprimés dépassent le quart du total.
+ *
+ * Recherche : tous les mots de la requête doivent correspondre. Un mot de
+ * moins de 3 lettres est cherché en début de mot, un mot plus long par ses
+ * trigrammes. Les correspondances exactes (sous-chaînes) sont classées par
+ * champ (nom, puis catégorie, puis description) et par qualité (mot entier,
+ * début de mot, fragment) ; le classement s'arrête dès que la limite est
+ * atteinte avec des scores qu'aucun autre candidat ne peut dépasser. Si elles
+ * ne suffisent pas, les mots sont cherchés avec une faute de frappe (5 lettres
+ * et plus) ou deux (10 lettres et plus).
+ */
+class IndexRechercheProduits {
+
+    private static final int NOMBRE_CHAMPS = 3;
+    private static final int TOUS_CHAMPS = (1 << NOMBRE_CHAMPS) - 1;
+    private static final double[] POIDS_CHAMPS = {3.0, 1.5, 1.0};
+
+    private static final double SCORE_MOT_ENTIER = 1.0;
+    private static final double SCORE_DEBUT_MOT = 0.9;
+    private static final double SCORE_FRAGMENT = 0.7;
+    private static final double SCORE_APPROCHE = 0.5;
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATEURS = Pattern.compile("[^a-z0-9]+");
+
+    // Pliage caractère par caractère (même résultat que normaliser) des caractères
+    // sous PLIAGE_LIMITE : jusqu'à deux caractères, '\0' = ignoré (marque), ' ' =
+    // séparateur. Au-delà, aucun caractère ne se décompose en lettre latine.
+    private static final int PLIAGE_LIMITE = 0x3400;
+    private static final char[] PLIAGE_PREMIER = new char[PLIAGE_LIMITE];
+    private static final char[] PLIAGE_SECOND = new char[PLIAGE_LIMITE];
+
+    static {
+        for (char c = 0; c < PLIAGE_LIMITE; c++) {
+            String decompose = ACCENTS.matcher(Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD)).replaceAll("");
+            String plie = decompose.toLowerCase(Locale.ROOT).replace("œ", "oe").replace("æ", "ae");
+            for (int k = 0; k < Math.min(plie.length(), 2); k++) {
+                char p = plie.charAt(k);
+                char resultat = (p >= 'a' && p <= 'z') || (p >= '0' && p <= '9') ? p : ' ';
+                if (k == 0) {
+                    PLIAGE_PREMIER[c] = resultat;
+                } else {
+                    PLIAGE_SECOND[c] = resultat;
+                }
+            }
+        }
+    }
+
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    // Documents par numéro (null = supprimé), numéro actuel par produit, listes par clé
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<Long, Integer> numeros = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private int supprimes;
+
+    IndexRechercheProduits(Collection<ProduitDTO> produits) {
+        produits.forEach(this::ajouter);
+    }
+
+    /**
+     * Réindexer des produits créés ou modifiés et retirer les produits supprimés
+     */
+    void mettreAJour(Collection<ProduitDTO> modifies, Collection<Long> idsSupprimes) {
+        verrou.writeLock().lock();
+        try {
+            for (Long idProduit : idsSupprimes) {
+                retirer(idProduit);
+            }
+            for (ProduitDTO produit : modifies) {
+                retirer(produit.getId());
+                ajouter(produit);
+            }
+            if (supprimes > 1000 && supprimes * 4 > documents.size()) {
+                compacter();
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    int taille() {
+        verrou.readLock().lock();
+        try {
+            return numeros.size();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Identifiants des produits correspondant à la requête, les plus pertinents
+     * d'abord (à score égal, dans l'ordre d'indexation)
+     */
+    List<Long> rechercher(String requete, int limite) {
+        List<String> mots = new ArrayList<>(new LinkedHashSet<>(mots(requete)));
+        if (mots.isEmpty()) {
+            return List.of();
+        }
+
+        verrou.readLock().lock();
+        try {
+            // Parcourir d'abord les mots aux listes les plus courtes
+            mots.sort(Comparator.comparingLong(this::volume));
+            Recherche recherche = new Recherche(mots);
+
+            List<Long> ids = new ArrayList<>();
+            recherche.exacte(limite, ids);
+            if (ids.size() < limite && mots.stream().anyMatch(mot -> fautesTolerees(mot) > 0)) {
+                recherche.approchee(limite, ids);
+            }
+            return ids;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Texte sans accents, en minuscules, les séparateurs réduits à un espace
+     */
+    static String normaliser(String texte) {
+        if (texte == null) {
+            return "";
+        }
+        String sansAccents = ACCENTS.matcher(Normalizer.normalize(texte, Normalizer.Form.NFD)).replaceAll("");
+        String minuscules = sansAccents.toLowerCase(Locale.ROOT).replace("œ", "oe").replace("æ", "ae");
+        return SEPARATEURS.matcher(minuscules).replaceAll(" ").trim();
+    }
+
+    /**
+     * Normaliser un texte dans un tableau, sans allocation (même résultat que
+     * normaliser ; le tableau doit pouvoir recevoir 2 caractères par caractère du texte)
+     *
+     * @return le nombre de caractères écrits
+     */
+    static int plier(String texte, char[] cible) {
+        int longueur = 0;
+        boolean separateur = false;
+        for (int i = 0; i < texte.length(); i++) {
+            char c = texte.charAt(i);
+            char premier;
+            char second = 0;
+            if (c < PLIAGE_LIMITE) {
+                premier = PLIAGE_PREMIER[c];
+                second = PLIAGE_SECOND[c];
+            } else {
+                int point = texte.codePointAt(i);
+                i += Character.charCount(point) - 1;
+                premier = estMarque(point) ? 0 : ' ';
+            }
+            for (int k = 0; k < 2; k++) {
+                char plie = k == 0 ? premier : second;
+                if (plie == ' ') {
+                    separateur = longueur > 0;
+                } else if (plie != 0) {
+                    if (separateur) {
+                        cible[longueur++] = ' ';
+                        separateur = false;
+                    }
+                    cible[longueur++] = plie;
+                }
+            }
+        }
+        return longueur;
+    }
+
+    private static boolean estMarque(int point) {
+        int type = Character.getType(point);
+        return type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK
+                || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    private static List<String> mots(String texte) {
+        String normalise = normaliser(texte);
+        return normalise.isEmpty() ? List.of() : Arrays.asList(normalise.split(" "));
+    }
+
+    // Clés cherchées pour un mot de la requête : début de mot (moins de 3 lettres) ou trigrammes
+    private static List<String> cles(String mot) {
+        if (mot.length() < 3) {
+            return List.of("^" + mot);
+        }
+        Set<String> trigrammes = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= mot.length(); i++) {
+            trigrammes.add(mot.substring(i, i + 3));
+        }
+        return new ArrayList<>(trigrammes);
+    }
+
+    private static int fautesTolerees(String mot) {
+        return mot.length() >= 10 ? 2 : mot.length() >= 5 ? 1 : 0;
+    }
+
+    // Taille de la plus courte liste du mot (borne du nombre de documents candidats)
+    private long volume(String mot) {
+        long volume = Long.MAX_VALUE;
+        for (String cle : cles(mot)) {
+            Postings liste = postings.get(cle);
+            volume = Math.min(volume, liste != null ? liste.taille : 0);
+        }
+        return volume;
+    }
+
+    private void ajouter(ProduitDTO produit) {
+        Document document = new Document(produit);
+        int doc = documents.size();
+        documents.add(document);
+        numeros.put(produit.getId(), doc);
+
+        // Clés du document, avec les champs où elles apparaissent en début et en fin de mot
+        Map<String, Integer> clesDocument = new HashMap<>();
+        for (int champ = 0; champ < NOMBRE_CHAMPS; champ++) {
+            int present = 1 << champ;
+            int debut = present << NOMBRE_CHAMPS;
+            int fin = present << (2 * NOMBRE_CHAMPS);
+            for (String mot : document.mots[champ]) {
+                int longueur = mot.length();
+                clesDocument.merge("^" + mot.substring(0, 1), present | debut | (longueur == 1 ? fin : 0), (a, b) -> a | b);
+                if (longueur >= 2) {
+                    clesDocument.merge("^" + mot.substring(0, 2), present | debut | (longueur == 2 ? fin : 0), (a, b) -> a | b);
+                }
+                for (int i = 0; i + 3 <= longueur; i++) {
+                    int masque = present | (i == 0 ? debut : 0) | (i + 3 == longueur ? fin : 0);
+                    clesDocument.merge(mot.substring(i, i + 3), masque, (a, b) -> a | b);
+                }
+            }
+        }
+        clesDocument.forEach((cle, masque) ->
+                postings.computeIfAbsent(cle, c -> new Postings()).ajouter(doc, masque.shortValue()));
+    }
+
+    private void retirer(Long idProduit) {
+        Integer doc = numeros.remove(idProduit);
+        if (doc != null) {
+            documents.set(doc, null);
+            supprimes++;
+        }
+    }
+
+    private void compacter() {
+        List<ProduitDTO> produits = new ArrayList<>(numeros.size());
+        for (Document document : documents) {
+            if (document != null) {
+                produits.add(document.produit);
+            }
+        }
+        documents.clear();
+        numeros.clear();
+        postings.clear();
+        supprimes = 0;
+        produits.forEach(this::ajouter);
+    }
+
+    /**
+     * Distance de Damerau-Levenshtein (transpositions adjacentes), arrêtée dès
+     * qu'elle dépasse le maximum (retourne alors maximum + 1)
+     */
+    static int distance(String a, String b, int maximum) {
+        if (Math.abs(a.length() - b.length()) > maximum) {
+            return maximum + 1;
+        }
+        int[] avantPrecedente = new int[b.length() + 1];
+        int[] precedente = new int[b.length() + 1];
+        int[] courante = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            precedente[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            courante[0] = i;
+            int minimumLigne = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cout = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int valeur = Math.min(Math.min(precedente[j] + 1, courante[j - 1] + 1), precedente[j - 1] + cout);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    valeur = Math.min(valeur, avantPrecedente[j - 2] + 1);
+                }
+                courante[j] = valeur;
+                minimumLigne = Math.min(minimumLigne, valeur);
+            }
+            if (minimumLigne > maximum) {
+                return maximum + 1;
+            }
+            int[] recyclee = avantPrecedente;
+            avantPrecedente = precedente;
+            precedente = courante;
+            courante = recyclee;
+        }
+        return precedente[b.length()];
+    }
+
+    /**
+     * État d'une recherche, sous le verrou de lecture
+     */
+    private final class Recherche {
+        private final List<String> mots;
+        // Documents trouvés par la recherche exacte (exclus de la recherche approchée)
+        private final List<Integer> exacts = new ArrayList<>();
+
+        private Recherche(List<String> mots) {
+            this.mots = mots;
+        }
+
+        /**
+         * Documents contenant tous les mots, classés par score. Les candidats sont
+         * regroupés par borne de score (champs et positions des trigrammes) et
+         * vérifiés par borne décroissante, jusqu'à ce que la limite soit atteinte
+         * par des scores qu'aucun groupe suivant ne peut dépasser.
+         */
+        private void exacte(int limite, List<Long> ids) {
+            Candidats candidats = null;
+            for (String mot : mots) {
+                candidats = filtrer(candidats, mot);
+                if (candidats.taille == 0) {
+                    return;
+                }
+            }
+
+            TreeMap<Double, List<Integer>> parBorne = new TreeMap<>(Comparator.reverseOrder());
+            for (int i = 0; i < candidats.taille; i++) {
+                if (documents.get(candidats.docs[i]) != null) {
+                    parBorne.computeIfAbsent(candidats.bornes[i], b -> new ArrayList<>()).add(candidats.docs[i]);
+                }
+            }
+
+            List<Resultat> meilleurs = new ArrayList<>();
+            for (Map.Entry<Double, List<Integer>> groupe : parBorne.entrySet()) {
+                double borne = groupe.getKey() - 1e-6;
+                if (meilleurs.size() >= limite && meilleurs.get(limite - 1).score >= borne) {
+                    break;
+                }
+                int atteignantLaBorne = 0;
+                for (int doc : groupe.getValue()) {
+                    double score = score(documents.get(doc), false);
+                    if (score <= 0) {
+                        continue;
+                    }
+                    meilleurs.add(new Resultat(doc, score));
+                    // Les documents suivants du groupe ne peuvent dépasser ceux qui atteignent la borne
+                    if (score >= borne && ++atteignantLaBorne >= limite) {
+                        break;
+                    }
+                }
+                meilleurs.sort(Comparator.comparingDouble((Resultat r) -> -r.score).thenComparingInt(r -> r.doc));
+            }
+            for (Resultat resultat : meilleurs) {
+                exacts.add(resultat.doc);
+                if (ids.size() < limite) {
+                    ids.add(documents.get(resultat.doc).idProduit);
+                }
+            }
+        }
+
+        /**
+         * Candidats restants contenant toutes les clés du mot (intersection des
+         * listes triées, la plus courte d'abord), avec la borne du score du mot
+         */
+        private Candidats filtrer(Candidats precedents, String mot) {
+            List<String> cles = cles(mot);
+            List<Postings> listes = new ArrayList<>();
+            for (String cle : cles) {
+                Postings liste = postings.get(cle);
+                if (liste == null) {
+                    return new Candidats(0);
+                }
+                listes.add(liste);
+            }
+
+            List<Integer> ordre = new ArrayList<>();
+            for (int k = 0; k < cles.size(); k++) {
+                ordre.add(k);
+            }
+            ordre.sort(Comparator.comparingInt(k -> listes.get(k).taille));
+
+            // Par candidat : champs contenant toutes les clés, début et fin de mot
+            Candidats candidats;
+            int[] presents;
+            int[] debuts;
+            int[] fins;
+            if (precedents == null) {
+                // Premier mot : les candidats sont les documents de la plus courte liste
+                int k = ordre.remove(0);
+                Postings liste = listes.get(k);
+                candidats = new Candidats(liste.taille);
+                presents = new int[liste.taille];
+                debuts = new int[liste.taille];
+                fins = new int[liste.taille];
+                for (int i = 0; i < liste.taille; i++) {
+                    candidats.docs[i] = liste.docs[i];
+                    presents[i] = liste.champs[i] & TOUS_CHAMPS;
+                    debuts[i] = k == 0 ? liste.champs[i] >> NOMBRE_CHAMPS : 0;
+                    fins[i] = k == cles.size() - 1 ? liste.champs[i] >> (2 * NOMBRE_CHAMPS) : 0;
+                }
+                candidats.taille = liste.taille;
+            } else {
+                candidats = precedents;
+                presents = new int[candidats.taille];
+                debuts = new int[candidats.taille];
+                fins = new int[candidats.taille];
+                Arrays.fill(presents, TOUS_CHAMPS);
+            }
+
+            for (int k : ordre) {
+                Postings liste = listes.get(k);
+                boolean premiere = k == 0;
+                boolean derniere = k == cles.size() - 1;
+                int retenus = 0;
+                int position = 0;
+                for (int i = 0; i < candidats.taille; i++) {
+                    position = liste.chercher(candidats.docs[i], position);
+                    if (position < 0) {
+                        position = -position - 1;
+                        continue;
+                    }
+                    int champs = liste.champs[position];
+                    int present = presents[i] & champs;
+                    if ((present & TOUS_CHAMPS) == 0) {
+                        continue;
+                    }
+                    candidats.docs[retenus] = candidats.docs[i];
+                    candidats.bornes[retenus] = candidats.bornes[i];
+                    presents[retenus] = present & TOUS_CHAMPS;
+                    debuts[retenus] = premiere ? champs >> NOMBRE_CHAMPS : debuts[i];
+                    fins[retenus] = derniere ? champs >> (2 * NOMBRE_CHAMPS) : fins[i];
+                    retenus++;
+                }
+                candidats.taille = retenus;
+            }
+
+            for (int i = 0; i < candidats.taille; i++) {
+                candidats.bornes[i] += borne(presents[i], debuts[i], fins[i]);
+            }
+            return candidats;
+        }
+
+        /**
+         * Compléter avec les documents proches (fautes de frappe), les plus
+         * semblables d'abord (nombre de clés partagées)
+         */
+        private void approchee(int limite, List<Long> ids) {
+            int nombreDocuments = documents.size();
+            int[] compteurs = new int[nombreDocuments];
+            int[] motsRetenus = new int[nombreDocuments];
+            int[] similarites = new int[nombreDocuments];
+            for (int m = 0; m < mots.size(); m++) {
+                String mot = mots.get(m);
+                List<String> cles = cles(mot);
+                int fautes = fautesTolerees(mot);
+                // Une faute de frappe touche au plus 3 trigrammes
+                int seuil = fautes == 0 ? cles.size() : Math.max(2, cles.size() - 3 * fautes);
+                Arrays.fill(compteurs, 0);
+                for (String cle : cles) {
+                    Postings liste = postings.get(cle);
+                    if (liste == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < liste.taille; i++) {
+                        int doc = liste.docs[i];
+                        if (motsRetenus[doc] == m || (motsRetenus[doc] == m + 1 && compteurs[doc] > 0)) {
+                            similarites[doc]++;
+                            if (++compteurs[doc] == seuil) {
+                                motsRetenus[doc] = m + 1;
+                            }
+                        }
+                    }
+                }
+            }
+            for (int doc : exacts) {
+                motsRetenus[doc] = 0;
+            }
+
+            TreeMap<Integer, List<Integer>> parSimilarite = new TreeMap<>(Comparator.reverseOrder());
+            for (int doc = 0; doc < nombreDocuments; doc++) {
+                if (motsRetenus[doc] == mots.size() && documents.get(doc) != null) {
+                    parSimilarite.computeIfAbsent(similarites[doc], s -> new ArrayList<>()).add(doc);
+                }
+            }
+
+            List<Resultat> proches = new ArrayList<>();
+            int manquants = limite - ids.size();
+            verification:
+            for (List<Integer> groupe : parSimilarite.values()) {
+                for (int doc : groupe) {
+                    double score = score(documents.get(doc), true);
+                    if (score > 0) {
+                        proches.add(new Resultat(doc, score));
+                        if (proches.size() >= manquants) {
+                            break verification;
+                        }
+                    }
+                }
+            }
+            proches.sort(Comparator.comparingDouble((Resultat r) -> -r.score).thenComparingInt(r -> r.doc));
+            for (Resultat resultat : proches) {
+                ids.add(documents.get(resultat.doc).idProduit);
+            }
+        }
+
+        // Somme des meilleurs scores des mots (0 = un mot sans correspondance)
+        private double score(Document document, boolean approche) {
+            double score = 0;
+            for (String mot : mots) {
+                double scoreMot = document.score(mot, approche);
+                if (scoreMot == 0) {
+                    return 0;
+                }
+                score += scoreMot;
+            }
+            return score;
+        }
+    }
+
+    // Meilleur score possible d'un mot d'après les champs où ses clés apparaissent
+    private static double borne(int presents, int debuts, int fins) {
+        double borne = 0;
+        for (int champ = 0; champ < NOMBRE_CHAMPS; champ++) {
+            int bit = 1 << champ;
+            if ((presents & bit) != 0) {
+                double qualite = (debuts & bit) == 0 ? SCORE_FRAGMENT
+                        : (fins & bit) != 0 ? SCORE_MOT_ENTIER : SCORE_DEBUT_MOT;
+                borne = Math.max(borne, qualite * POIDS_CHAMPS[champ]);
+            }
+        }
+        return borne;
+    }
+
+    private static final class Candidats {
+        private final int[] docs;
+        private final double[] bornes;
+        private int taille;
+
+        private Candidats(int capacite) {
+            this.docs = new int[capacite];
+            this.bornes = new double[capacite];
+        }
+    }
+
+    private static final class Document {
+        private final ProduitDTO produit;
+        private final long idProduit;
+        // Textes normalisés entourés d'espaces (recherche de mots entiers par sous-chaîne)
+        private final String[] textes = new String[NOMBRE_CHAMPS];
+        private final String[][] mots = new String[NOMBRE_CHAMPS][];
+
+        private Document(ProduitDTO produit) {
+            this.produit = produit;
+            this.idProduit = produit.getId();
+            String[] sources = {produit.getNom(), produit.getCategorieNom(), produit.getDescription()};
+            for (int champ = 0; champ < NOMBRE_CHAMPS; champ++) {
+                String normalise = normaliser(sources[champ]);
+                textes[champ] = " " + normalise + " ";
+                mots[champ] = normalise.isEmpty() ? new String[0] : normalise.split(" ");
+            }
+        }
+
+        // Meilleur score du mot sur les champs du produit (0 = aucune correspondance)
+        private double score(String mot, boolean approche) {
+            double meilleur = 0;
+            for (int champ = 0; champ < NOMBRE_CHAMPS; champ++) {
+                meilleur = Math.max(meilleur, qualite(champ, mot, approche) * POIDS_CHAMPS[champ]);
+            }
+            return meilleur;
+        }
+
+        private double qualite(int champ, String mot, boolean approche) {
+            String texte = textes[champ];
+            if (texte.contains(" " + mot + " ")) {
+                return SCORE_MOT_ENTIER;
+            }
+            if (texte.contains(" " + mot)) {
+                return SCORE_DEBUT_MOT;
+            }
+            if (mot.length() >= 3 && texte.contains(mot)) {
+                return SCORE_FRAGMENT;
+            }
+            int fautes = fautesTolerees(mot);
+            if (!approche || fautes == 0) {
+                return 0;
+            }
+            for (String motChamp : mots[champ]) {
+                // Mot entier, ou début d'un mot plus long (saisie en cours)
+                if (distance(mot, motChamp, fautes) <= fautes
+                        || (motChamp.length() > mot.length()
+                        && distance(mot, motChamp.substring(0, mot.length()), fautes) <= fautes)) {
+                    return SCORE_APPROCHE;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private static final class Postings {
+        private int[] docs = new int[4];
+        // Par document : champs où la clé apparaît (bits 0 à 2 : nom, catégorie, description),
+        // en début de mot (bits 3 à 5) et en fin de mot (bits 6 à 8)
+        private short[] champs = new short[4];
+        private int taille;
+
+        private void ajouter(int doc, short masque) {
+            if (taille == docs.length) {
+                docs = Arrays.copyOf(docs, taille * 2);
+                champs = Arrays.copyOf(champs, taille * 2);
+            }
+            docs[taille] = doc;
+            champs[taille] = masque;
+            taille++;
+        }
+
+        /**
+         * Position du document (liste triée), cherchée par bonds croissants à
+         * partir de la position donnée ; -(point d'insertion) - 1 s'il est absent
+         */
+        private int chercher(int doc, int depuis) {
+            int bas = depuis;
+            int haut = depuis;
+            int pas = 1;
+            while (haut < taille && docs[haut] < doc) {
+                bas = haut + 1;
+                haut = depuis + pas;
+                pas <<= 1;
+            }
+            return Arrays.binarySearch(docs, bas, Math.min(haut + 1, taille), doc);
+        }
+    }
+
+    private static final class Resultat {
+        private final int doc;
+        private final double score;
+
+        private Resultat(int doc, double score) {
+            this.doc = doc;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.IndicateursCatalogueDTO;
+import com.facturation.facture.event.ProduitModifieEvent;
+import com.facturation.facture.event.StockModifieEvent;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.repository.ProduitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indicateurs du catalogue tenus en mémoire : nombre de produits disponibles,
+ * en stock faible, en rupture, prix moyen et valeur du stock.
+ *
+ * Les totaux sont mis à jour à chaque modification, à partir des variations
+ * de stock publiées par le journal et des produits créés, modifiés ou
+ * supprimés (relus par id, par lots) : la lecture ne coûte aucune requête.
+ * Les totaux sont recalculés périodiquement en un seul parcours de la table
+ * (facturation.catalogue.indicateurs.reconciliation-ms) ; un écart éventuel
+ * est corrigé et compté (catalogue.indicateurs.ecarts).
+ *
+ * Une variation est connue dès sa publication dans la transaction (avant la
+ * validation) et appliquée une fois la transaction validée. Une lecture ne dit
+ * pas si elle inclut une variation en cours ou terminée pendant la lecture :
+ * le stock relu d'un tel produit n'est pas retenu (état en mémoire conservé,
+ * ou nouvelle lecture au passage suivant), si bien qu'une variation appliquée
+ * en retard n'est jamais comptée deux fois.
+ *
+ * Cet état fait aussi foi pour la détection des stocks faibles
+ * (AlerteStockService) et les suggestions de réapprovisionnement.
+ */
+@Service
+public class IndicateursCatalogueService {
+
+    public static final String COMPTEUR_ECARTS = "catalogue.indicateurs.ecarts";
+
+    private static final Logger log = LoggerFactory.getLogger(IndicateursCatalogueService.class);
+
+    private final ProduitRepository produitRepository;
+    private final SupervisionService supervisionService;
+    private final TransactionTemplate transactionTemplate;
+
+    // Produits à relire (créés, modifiés, supprimés ou inconnus)
+    private final Set<Long> aRelire = ConcurrentHashMap.newKeySet();
+
+    // État des produits et totaux, modifiés ensemble sous le verrou de l'instance
+    private Map<Long, EtatProduit> etats = new HashMap<>();
+    private Totaux totaux = new Totaux();
+    private LocalDateTime derniereReconciliation;
+
+    // Produits dont le stock a varié depuis le début de la réconciliation ou de
+    // l'actualisation en cours (null hors lecture ; sous le verrou de l'instance)
+    private Set<Long> variesPendantReconciliation;
+    private Set<Long> variesPendantActualisation;
+
+    // Variations publiées dont la transaction n'est pas terminée, par produit
+    // (sous le verrou de l'instance)
+    private final Map<Long, Integer> variationsEnCours = new HashMap<>();
+
+    // Une réconciliation à la fois
+    private final Object reconciliation = new Object();
+
+    @Autowired
+    public IndicateursCatalogueService(ProduitRepository produitRepository,
+                                       SupervisionService supervisionService,
+                                       PlatformTransactionManager transactionManager) {
+        this.produitRepository = produitRepository;
+        this.supervisionService = supervisionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Indicateurs actuels du catalogue
+     */
+    public IndicateursCatalogueDTO obtenirIndicateurs() {
+        synchronized (this) {
+            if (derniereReconciliation != null) {
+                return totaux.versDTO(derniereReconciliation);
+            }
+        }
+        reconcilier();
+        synchronized (this) {
+            return totaux.versDTO(derniereReconciliation);
+        }
+    }
+
+    /**
+     * Stock actuel des produits disponibles demandés, lu en mémoire
+     * (les produits inconnus ou indisponibles sont absents du résultat)
+     */
+    public synchronized Map<Long, EtatStock> obtenirEtatsStock(Collection<Long> idsProduits) {
+        Map<Long, EtatStock> resultat = new HashMap<>();
+        for (Long idProduit : idsProduits) {
+            EtatProduit etat = etats.get(idProduit);
+            if (etat != null && etat.disponible) {
+                resultat.put(idProduit, new EtatStock(etat.nom, etat.stock, etat.seuil));
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Produit signalé comme modifié mais pas encore relu (état absent ou en retard)
+     */
+    public boolean estARelire(Long idProduit) {
+        return aRelire.contains(idProduit);
+    }
+
+    /**
+     * Noter des variations de stock sur le point d'être validées : jusqu'à leur
+     * application, une lecture de ces produits peut les inclure ou non
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public synchronized void surStockEnCours(StockModifieEvent evenement) {
+        evenement.getVariations().keySet().forEach(idProduit -> variationsEnCours.merge(idProduit, 1, Integer::sum));
+    }
+
+    /**
+     * Oublier des variations de stock annulées
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_ROLLBACK)
+    public synchronized void surStockAnnule(StockModifieEvent evenement) {
+        terminer(evenement);
+    }
+
+    /**
+     * Appliquer des variations de stock validées
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void surStockModifie(StockModifieEvent evenement) {
+        synchronized (this) {
+            terminer(evenement);
+            evenement.getVariations().forEach((idProduit, variation) -> {
+                EtatProduit etat = etats.get(idProduit);
+                if (etat == null) {
+                    aRelire.add(idProduit);
+                    return;
+                }
+                totaux.retirer(etat);
+                etat.stock += variation;
+                totaux.ajouter(etat);
+            });
+        }
+    }
+
+    /**
+     * Relire au prochain passage un produit créé, modifié ou supprimé
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void surProduitModifie(ProduitModifieEvent evenement) {
+        aRelire.add(evenement.getIdProduit());
+    }
+
+    /**
+     * Relire par id les produits signalés. Le stock d'un produit déjà suivi n'est
+     * pas recopié : seules les variations le modifient. Un nouveau produit dont
+     * une variation est en cours ou se termine pendant la lecture est relu au
+     * passage suivant.
+     */
+    @Scheduled(fixedDelayString = "${facturation.catalogue.indicateurs.actualisation-ms:2000}")
+    public void actualiser() {
+        if (aRelire.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(aRelire);
+        ids.forEach(aRelire::remove);
+        Set<Long> enCours;
+        synchronized (this) {
+            enCours = new HashSet<>(variationsEnCours.keySet());
+            variesPendantActualisation = new HashSet<>();
+        }
+        try {
+            List<Produit> produits = transactionTemplate.execute(status -> produitRepository.findAllById(ids));
+            Set<Long> trouves = new HashSet<>();
+            synchronized (this) {
+                for (Produit produit : produits) {
+                    trouves.add(produit.getId());
+                    EtatProduit etat = etats.get(produit.getId());
+                    if (etat == null && (enCours.contains(produit.getId())
+                            || variesPendantActualisation.contains(produit.getId()))) {
+                        aRelire.add(produit.getId());
+                        continue;
+                    }
+                    if (etat == null) {
+                        etat = new EtatProduit(produit.getQuantiteStock() != null ? produit.getQuantiteStock() : 0);
+                        etats.put(produit.getId(), etat);
+                    } else {
+                        totaux.retirer(etat);
+                    }
+                    etat.definir(produit.getNom(), produit.getPrix(), produit.getSeuilAlerte(), produit.getDisponible());
+                    totaux.ajouter(etat);
+                }
+                for (Long idProduit : ids) {
+                    EtatProduit etat = trouves.contains(idProduit) ? null : etats.remove(idProduit);
+                    if (etat != null) {
+                        totaux.retirer(etat);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            aRelire.addAll(ids);
+            log.warn("Actualisation des indicateurs du catalogue impossible : {}", e.getMessage());
+        } finally {
+            synchronized (this) {
+                variesPendantActualisation = null;
+            }
+        }
+    }
+
+    /**
+     * Recalculer les indicateurs depuis la base et corriger un éventuel écart.
+     * Un produit dont une variation était en cours au début de la lecture ou
+     * s'est terminée avant le remplacement de l'état garde son état en mémoire,
+     * à jour de toutes les variations appliquées (la lecture peut les inclure
+     * ou non) ; sans état en mémoire, il est relu par l'actualisation.
+     */
+    @Scheduled(fixedDelayString = "${facturation.catalogue.indicateurs.reconciliation-ms:600000}",
+            initialDelayString = "${facturation.catalogue.indicateurs.reconciliation-ms:600000}")
+    public void reconcilier() {
+        synchronized (reconciliation) {
+            synchronized (this) {
+                variesPendantReconciliation = new HashSet<>(variationsEnCours.keySet());
+            }
+            try {
+                List<Object[]> lignes = transactionTemplate.execute(status -> produitRepository.findEtatsStock());
+                Map<Long, EtatProduit> relus = new HashMap<>();
+                Totaux recalcules = new Totaux();
+                for (Object[] ligne : lignes) {
+                    EtatProduit etat = new EtatProduit(((Number) ligne[2]).intValue());
+                    etat.definir((String) ligne[1], (BigDecimal) ligne[6], (Integer) ligne[3], (Boolean) ligne[4]);
+                    relus.put((Long) ligne[0], etat);
+                    recalcules.ajouter(etat);
+                }
+
+                synchronized (this) {
+                    for (Long idProduit : variesPendantReconciliation) {
+                        EtatProduit relu = relus.remove(idProduit);
+                        if (relu != null) {
+                            recalcules.retirer(relu);
+                        }
+                        EtatProduit enMemoire = etats.get(idProduit);
+                        if (enMemoire != null) {
+                            relus.put(idProduit, enMemoire);
+                            recalcules.ajouter(enMemoire);
+                        } else if (relu != null) {
+                            aRelire.add(idProduit);
+                        }
+                    }
+                    if (derniereReconciliation != null && !recalcules.egal(totaux)) {
+                        supervisionService.incrementer(COMPTEUR_ECARTS);
+                        log.info("Indicateurs du catalogue corrigés à la réconciliation ({} produit(s))", relus.size());
+                    }
+                    etats = relus;
+                    totaux = recalcules;
+                    derniereReconciliation = LocalDateTime.now();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Réconciliation des indicateurs du catalogue impossible : {}", e.getMessage());
+            } finally {
+                synchronized (this) {
+                    variesPendantReconciliation = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculer les indicateurs au démarrage
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void charger() {
+        reconcilier();
+    }
+
+    // Variations terminées (validées ou annulées) : sous le verrou de l'instance
+    private void terminer(StockModifieEvent evenement) {
+        for (Long idProduit : evenement.getVariations().keySet()) {
+            variationsEnCours.computeIfPresent(idProduit, (id, nombre) -> nombre > 1 ? nombre - 1 : null);
+            if (variesPendantReconciliation != null) {
+                variesPendantReconciliation.add(idProduit);
+            }
+            if (variesPendantActualisation != null) {
+                variesPendantActualisation.add(idProduit);
+            }
+        }
+    }
+
+    /**
+     * Stock d'un produit à un instant (copie de l'état en mémoire)
+     */
+    public static class EtatStock {
+        private final String nom;
+        private final int stock;
+        private final int seuilAlerte;
+
+        private EtatStock(String nom, int stock, int seuilAlerte) {
+            this.nom = nom;
+            this.stock = stock;
+            this.seuilAlerte = seuilAlerte;
+        }
+
+        public String getNom() { return nom; }
+        public int getStock() { return stock; }
+        public int getSeuilAlerte() { return seuilAlerte; }
+    }
+
+    private static class EtatProduit {
+        private String nom;
+        private int stock;
+        private BigDecimal prix = BigDecimal.ZERO;
+        private int seuil;
+        private boolean disponible;
+
+        private EtatProduit(int stock) {
+            this.stock = stock;
+        }
+
+        private void definir(String nom, BigDecimal prix, Integer seuil, Boolean disponible) {
+            this.nom = nom;
+            this.prix = prix != null ? prix : BigDecimal.ZERO;
+            this.seuil = seuil != null ? seuil : 0;
+            this.disponible = Boolean.TRUE.equals(disponible);
+        }
+    }
+
+    /**
+     * Totaux du catalogue ; mêmes règles que les requêtes de ProduitRepository
+     * (produits disponibles seulement, sauf le nombre total)
+     */
+    private static class Totaux {
+        private long produits;
+        private long disponibles;
+        private long stockFaible;
+        private long rupture;
+        private BigDecimal sommePrix = BigDecimal.ZERO;
+        private BigDecimal valeurStock = BigDecimal.ZERO;
+
+        private void ajouter(EtatProduit etat) {
+            appliquer(etat, 1);
+        }
+
+        private void retirer(EtatProduit etat) {
+            appliquer(etat, -1);
+        }
+
+        private void appliquer(EtatProduit etat, int signe) {
+            produits += signe;
+            if (!etat.disponible) {
+                return;
+            }
+            disponibles += signe;
+            if (etat.stock <= etat.seuil) {
+                stockFaible += signe;
+            }
+            if (etat.stock == 0) {
+                rupture += signe;
+            }
+            sommePrix = sommePrix.add(etat.prix.multiply(BigDecimal.valueOf(signe)));
+            valeurStock = valeurStock.add(etat.prix.multiply(BigDecimal.valueOf((long) signe * etat.stock)));
+        }
+
+        private boolean egal(Totaux autres) {
+            return produits == autres.produits && disponibles == autres.disponibles
+                    && stockFaible == autres.stockFaible && rupture == autres.rupture
+                    && sommePrix.compareTo(autres.sommePrix) == 0
+                    && valeurStock.compareTo(autres.valeurStock) == 0;
+        }
+
+        private IndicateursCatalogueDTO versDTO(LocalDateTime derniereReconciliation) {
+            IndicateursCatalogueDTO dto = new IndicateursCatalogueDTO();
+            dto.setNombreProduits(produits);
+            dto.setProduitsDisponibles(disponibles);
+            dto.setProduitsStockFaible(stockFaible);
+            dto.setProduitsRuptureStock(rupture);
+            // Comme AVG et SUM en SQL : null sans produit disponible
+            dto.setPrixMoyen(disponibles > 0
+                    ? sommePrix.divide(BigDecimal.valueOf(disponibles), 2, RoundingMode.HALF_UP) : null);
+            dto.setValeurTotaleStock(disponibles > 0 ? valeurStock : null);
+            dto.setDerniereReconciliation(derniereReconciliation);
+            return dto;
+        }
+    }
+}
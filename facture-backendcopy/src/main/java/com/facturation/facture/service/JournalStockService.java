@@ -0,0 +1,233 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.event.ProduitModifieEvent;
+import com.facturation.facture.event.StockModifieEvent;
+import com.facturation.facture.model.InstantaneStock;
+import com.facturation.facture.model.MouvementStock;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.model.enums.TypeMouvementStock;
+import com.facturation.facture.repository.InstantaneStockRepository;
+import com.facturation.facture.repository.MouvementStockRepository;
+import com.facturation.facture.repository.StockBatchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Journal des mouvements de stock.
+ *
+ * Chaque sortie (commande, vente), entrée (restitution, réapprovisionnement)
+ * ou ajustement est ajouté à la table mouvements_stock, par batch, dans la
+ * transaction qui modifie le stock : le journal n'est jamais mis à jour, et
+ * s'annule avec l'opération. Des instantanés par produit sont calculés
+ * périodiquement ; le stock à une date est le dernier instantané antérieur
+ * plus la courte série des mouvements suivants.
+ *
+ * Les instantanés ne couvrent que les mouvements plus anciens qu'une marge
+ * (facturation.stock.journal.marge-secondes) : un mouvement daté avant un
+ * instantané mais validé après ne peut donc pas lui échapper.
+ *
+ * Au-delà de la rétention (facturation.stock.journal.retention-jours), la
+ * compaction supprime les mouvements remplacés par un instantané : le stock
+ * à une date plus ancienne n'est alors connu qu'à la résolution des
+ * instantanés, mais la table des mouvements ne grossit plus indéfiniment.
+ *
+ * Chaque variation journalisée est aussi publiée (StockModifieEvent) pour la
+ * détection des stocks faibles (voir AlerteStockService).
+ */
+@Service
+public class JournalStockService {
+
+    public static final String COMPTEUR_MOUVEMENTS = "stock.mouvements";
+    public static final String COMPTEUR_INSTANTANES = "stock.instantanes";
+
+    private static final Logger log = LoggerFactory.getLogger(JournalStockService.class);
+
+    private final MouvementStockRepository mouvementStockRepository;
+    private final InstantaneStockRepository instantaneStockRepository;
+    private final StockBatchRepository stockBatchRepository;
+    private final SupervisionService supervisionService;
+    private final ApplicationEventPublisher evenements;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${facturation.stock.journal.marge-secondes:300}")
+    private long margeSecondes = 300;
+
+    @Value("${facturation.stock.journal.retention-jours:90}")
+    private long retentionJours = 90;
+
+    @Autowired
+    public JournalStockService(MouvementStockRepository mouvementStockRepository,
+                               InstantaneStockRepository instantaneStockRepository,
+                               StockBatchRepository stockBatchRepository,
+                               SupervisionService supervisionService,
+                               ApplicationEventPublisher evenements,
+                               PlatformTransactionManager transactionManager) {
+        this.mouvementStockRepository = mouvementStockRepository;
+        this.instantaneStockRepository = instantaneStockRepository;
+        this.stockBatchRepository = stockBatchRepository;
+        this.supervisionService = supervisionService;
+        this.evenements = evenements;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Journaliser des sorties de stock (quantités positives, enregistrées en négatif)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enregistrerSorties(TypeMouvementStock type, Map<Long, Integer> quantitesParProduit) {
+        enregistrer(type, quantitesParProduit, -1);
+    }
+
+    /**
+     * Journaliser des entrées de stock
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enregistrerEntrees(TypeMouvementStock type, Map<Long, Integer> quantitesParProduit) {
+        enregistrer(type, quantitesParProduit, 1);
+    }
+
+    /**
+     * Journaliser une variation signée du stock d'un produit (ajustement d'inventaire)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enregistrerVariation(TypeMouvementStock type, Long idProduit, int variation) {
+        if (variation == 0) {
+            return;
+        }
+        stockBatchRepository.insererMouvements(List.of(
+                new MouvementStock(idProduit, type, variation, LocalDateTime.now())));
+        supervisionService.incrementer(COMPTEUR_MOUVEMENTS);
+        evenements.publishEvent(new StockModifieEvent(Map.of(idProduit, variation)));
+    }
+
+    /**
+     * Ouvrir le journal d'un nouveau produit : instantané vide puis entrée du stock initial
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ouvrir(Produit produit) {
+        ouvrir(Map.of(produit.getId(), produit.getQuantiteStock() != null ? produit.getQuantiteStock() : 0));
+    }
+
+    /**
+     * Ouvrir en batch le journal de nouveaux produits (stock initial par id de produit)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ouvrir(Map<Long, Integer> stocksInitiaux) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<InstantaneStock> instantanes = new ArrayList<>();
+        List<MouvementStock> mouvements = new ArrayList<>();
+        new TreeMap<>(stocksInitiaux).forEach((idProduit, stockInitial) -> {
+            instantanes.add(new InstantaneStock(idProduit, 0, maintenant));
+            if (stockInitial != null && stockInitial != 0) {
+                mouvements.add(new MouvementStock(idProduit, TypeMouvementStock.CREATION, stockInitial, maintenant));
+            }
+        });
+        stockBatchRepository.insererInstantanes(instantanes);
+        stockBatchRepository.insererMouvements(mouvements);
+        supervisionService.ajouter(COMPTEUR_MOUVEMENTS, mouvements.size());
+        stocksInitiaux.keySet().forEach(idProduit -> evenements.publishEvent(new ProduitModifieEvent(idProduit)));
+    }
+
+    /**
+     * Stock d'un produit à une date, d'après le journal
+     */
+    @Transactional(readOnly = true)
+    public int quantiteADate(Long idProduit, LocalDateTime date) {
+        InstantaneStock instantane = instantaneStockRepository
+                .findFirstByProduitIdAndArreteAuLessThanEqualOrderByArreteAuDesc(idProduit, date)
+                .orElseThrow(() -> new RuntimeException(
+                        "Historique du stock indisponible pour le produit " + idProduit + " au " + date));
+        return instantane.getQuantite()
+                + mouvementStockRepository.sommeVariations(idProduit, instantane.getArreteAu(), date).intValue();
+    }
+
+    /**
+     * Calculer un nouvel instantané pour chaque produit ayant des mouvements
+     * depuis son dernier instantané, puis supprimer les mouvements que les
+     * instantanés antérieurs à la rétention remplacent
+     *
+     * @return le nombre d'instantanés créés
+     */
+    @Scheduled(fixedDelayString = "${facturation.stock.journal.compaction-ms:300000}")
+    public int compacter() {
+        // À la seconde : la colonne DATETIME arrondirait l'arrêté, et l'horizon ne le couvrirait plus
+        LocalDateTime maintenant = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime arreteAu = maintenant.minusSeconds(margeSecondes);
+        LocalDateTime horizon = maintenant.minusDays(retentionJours);
+        try {
+            Integer crees = transactionTemplate.execute(status -> {
+                List<InstantaneStock> instantanes = new ArrayList<>();
+                for (Object[] ligne : mouvementStockRepository.variationsDepuisDernierInstantane(arreteAu)) {
+                    instantanes.add(new InstantaneStock((Long) ligne[0],
+                            ((Number) ligne[1]).intValue() + ((Number) ligne[2]).intValue(), arreteAu));
+                }
+                stockBatchRepository.insererInstantanes(instantanes);
+                // Jamais au-delà du nouvel instantané : la marge reste hors compaction
+                int supprimes = mouvementStockRepository.supprimerCouvertsParInstantane(
+                        horizon.isBefore(arreteAu) ? horizon : arreteAu);
+                if (supprimes > 0) {
+                    log.debug("Journal de stock : {} mouvement(s) remplacé(s) par un instantané supprimé(s)", supprimes);
+                }
+                return instantanes.size();
+            });
+            if (crees != null && crees > 0) {
+                supervisionService.ajouter(COMPTEUR_INSTANTANES, crees);
+                log.debug("Journal de stock : {} instantané(s) arrêté(s) au {}", crees, arreteAu);
+            }
+            return crees != null ? crees : 0;
+        } catch (RuntimeException e) {
+            log.warn("Compaction du journal de stock impossible : {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Ouvrir au démarrage le journal des produits qui n'ont pas encore d'instantané
+     * (produits antérieurs au journal : l'historique commence à leur stock actuel)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ouvrirProduitsExistants() {
+        Integer ouverts = transactionTemplate.execute(status ->
+                instantaneStockRepository.ouvrirProduitsSansInstantane(LocalDateTime.now()));
+        if (ouverts != null && ouverts > 0) {
+            log.info("Journal de stock ouvert pour {} produit(s) existant(s)", ouverts);
+        }
+    }
+
+    private void enregistrer(TypeMouvementStock type, Map<Long, Integer> quantitesParProduit, int signe) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<MouvementStock> mouvements = new ArrayList<>();
+        Map<Long, Integer> variations = new HashMap<>();
+        new TreeMap<>(quantitesParProduit).forEach((idProduit, quantite) -> {
+            if (quantite != null && quantite > 0) {
+                mouvements.add(new MouvementStock(idProduit, type, signe * quantite, maintenant));
+                variations.put(idProduit, signe * quantite);
+            }
+        });
+        if (mouvements.isEmpty()) {
+            return;
+        }
+        stockBatchRepository.insererMouvements(mouvements);
+        supervisionService.ajouter(COMPTEUR_MOUVEMENTS, mouvements.size());
+        evenements.publishEvent(new StockModifieEvent(variations));
+    }
+}
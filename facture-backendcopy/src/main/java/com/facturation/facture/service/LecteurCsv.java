@@ -0,0 +1,103 @@
+package com.facturation.facture.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lecture incrémentale d'un fichier CSV, enregistrement par enregistrement
+ * (champs entre guillemets, guillemets doublés et retours à la ligne dans
+ * un champ acceptés). Seul l'enregistrement courant est tenu en mémoire.
+ */
+class LecteurCsv {
+
+    private final Reader source;
+    private final char separateur;
+
+    private int numeroLigne = 1;
+    private int numeroEnregistrement;
+    private int suivant = -2;
+
+    LecteurCsv(Reader source, char separateur) {
+        this.source = source;
+        this.separateur = separateur;
+    }
+
+    /**
+     * Lire l'enregistrement suivant
+     *
+     * @return les champs, ou null en fin de fichier
+     */
+    List<String> lire() throws IOException {
+        int c = lireCaractere();
+        if (c == -1) {
+            return null;
+        }
+        numeroEnregistrement = numeroLigne;
+
+        List<String> champs = new ArrayList<>();
+        StringBuilder champ = new StringBuilder();
+        boolean entreGuillemets = false;
+        while (true) {
+            if (entreGuillemets) {
+                if (c == -1) {
+                    throw new IOException("Guillemet non fermé à partir de la ligne " + numeroEnregistrement);
+                }
+                if (c == '"') {
+                    if (regarder() == '"') {
+                        champ.append('"');
+                        lireCaractere();
+                    } else {
+                        entreGuillemets = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        numeroLigne++;
+                    }
+                    champ.append((char) c);
+                }
+            } else if (c == -1 || c == '\n' || c == '\r') {
+                if (c == '\r' && regarder() == '\n') {
+                    lireCaractere();
+                }
+                if (c != -1) {
+                    numeroLigne++;
+                }
+                champs.add(champ.toString());
+                return champs;
+            } else if (c == separateur) {
+                champs.add(champ.toString());
+                champ.setLength(0);
+            } else if (c == '"' && champ.length() == 0) {
+                entreGuillemets = true;
+            } else {
+                champ.append((char) c);
+            }
+            c = lireCaractere();
+        }
+    }
+
+    /**
+     * Numéro de la ligne du fichier où commence le dernier enregistrement lu
+     */
+    int getNumeroLigne() {
+        return numeroEnregistrement;
+    }
+
+    private int lireCaractere() throws IOException {
+        if (suivant != -2) {
+            int c = suivant;
+            suivant = -2;
+            return c;
+        }
+        return source.read();
+    }
+
+    private int regarder() throws IOException {
+        if (suivant == -2) {
+            suivant = source.read();
+        }
+        return suivant;
+    }
+}
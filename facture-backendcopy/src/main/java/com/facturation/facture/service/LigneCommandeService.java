@@ -13,7 +13,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,6 +31,9 @@ public class LigneCommandeService {
     @Autowired
     private ProduitRepository produitRepository;
 
+    @Autowired
+    private StockService stockService;
+
     /**
      * Vérifie si la commande appartient bien au client
      */
@@ -67,7 +72,11 @@ public class LigneCommandeService {
                 produit
         );
 
+        stockService.ajusterReservation(commande, produit.getId(), ligneCommande.getQuantite());
         LigneCommande savedLigne = ligneCommandeRepository.save(ligneCommande);
+
+        // Répercuter la nouvelle ligne sur les totaux de la commande
+        commande.ajusterSousTotal(savedLigne.getSousTotal());
         return LigneCommandeDTO.fromEntity(savedLigne);
     }
 
@@ -118,6 +127,10 @@ public class LigneCommandeService {
         LigneCommande ligneExistante = ligneCommandeRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Ligne de commande non trouvée avec l'ID : " + id));
 
+        BigDecimal ancienSousTotal = ligneExistante.getSousTotal() != null ? ligneExistante.getSousTotal() : BigDecimal.ZERO;
+        Long ancienProduitId = ligneExistante.getProduit().getId();
+        Integer ancienneQuantite = ligneExistante.getQuantite();
+
         // Mettre à jour les champs modifiables
         ligneExistante.setQuantite(ligneCommandeDTO.getQuantite());
         ligneExistante.setPrixUnitaire(ligneCommandeDTO.getPrixUnitaire());
@@ -136,7 +149,16 @@ public class LigneCommandeService {
             ligneExistante.setNomProduit(nouveauProduit.getNom());
         }
 
+        // Stock : l'ancienne quantité est rendue et la nouvelle réservée (variation nette par produit)
+        Map<Long, Integer> variations = new HashMap<>();
+        variations.merge(ancienProduitId, -ancienneQuantite, Integer::sum);
+        variations.merge(ligneExistante.getProduit().getId(), ligneExistante.getQuantite(), Integer::sum);
+        stockService.ajusterReservation(ligneExistante.getCommande(), variations);
+
         LigneCommande ligneUpdated = ligneCommandeRepository.save(ligneExistante);
+
+        // Répercuter la variation sur les totaux de la commande
+        ligneUpdated.getCommande().ajusterSousTotal(ligneUpdated.getSousTotal().subtract(ancienSousTotal));
         return LigneCommandeDTO.fromEntity(ligneUpdated);
     }
 
@@ -144,17 +166,36 @@ public class LigneCommandeService {
      * Supprimer une ligne de commande
      */
     public void supprimerLigneCommande(Long id) {
-        if (!ligneCommandeRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Ligne de commande non trouvée avec l'ID : " + id);
+        LigneCommande ligneCommande = ligneCommandeRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Ligne de commande non trouvée avec l'ID : " + id));
+
+        if (ligneCommande.getSousTotal() != null) {
+            ligneCommande.getCommande().ajusterSousTotal(ligneCommande.getSousTotal().negate());
         }
-        ligneCommandeRepository.deleteById(id);
+        stockService.ajusterReservation(ligneCommande.getCommande(),
+                ligneCommande.getProduit().getId(), -ligneCommande.getQuantite());
+        ligneCommandeRepository.delete(ligneCommande);
     }
 
     /**
      * Supprimer toutes les lignes d'une commande
      */
     public void supprimerLignesCommandeParCommandeId(Long commandeId) {
+        // Le stock réservé par les lignes est rendu avant leur suppression
+        commandeRepository.findById(commandeId).ifPresent(commande -> {
+            Map<Long, Integer> variations = new HashMap<>();
+            for (Object[] ligne : ligneCommandeRepository.sumQuantitesParProduit(List.of(commandeId))) {
+                variations.put((Long) ligne[0], -((Number) ligne[1]).intValue());
+            }
+            stockService.ajusterReservation(commande, variations);
+        });
+
         ligneCommandeRepository.deleteByCommandeId(commandeId);
+
+        // La commande n'a plus de lignes : ses totaux repartent de zéro
+        commandeRepository.findById(commandeId)
+                .filter(commande -> commande.getSousTotal() != null)
+                .ifPresent(commande -> commande.ajusterSousTotal(commande.getSousTotal().negate()));
     }
 
     /**
@@ -0,0 +1,47 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.model.Notification;
+import com.facturation.facture.repository.NotificationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+@Transactional
+public class NotificationService {
+
+    private final NotificationRepository notificationRepository;
+
+    @Autowired
+    public NotificationService(NotificationRepository notificationRepository) {
+        this.notificationRepository = notificationRepository;
+    }
+
+    /**
+     * Notifications non lues d'un utilisateur
+     */
+    @Transactional(readOnly = true)
+    public List<Notification> obtenirNonLues(Long idUtilisateur) {
+        return notificationRepository.findByUserIdAndLueFalseOrderByDateCreationDesc(idUtilisateur);
+    }
+
+    /**
+     * Marquer une notification comme lue
+     */
+    public void marquerLue(Long idNotification, Long idUtilisateur) {
+        if (notificationRepository.marquerLue(idNotification, idUtilisateur) == 0) {
+            throw new RuntimeException("Notification non trouvée avec l'ID : " + idNotification);
+        }
+    }
+
+    /**
+     * Marquer toutes les notifications d'un utilisateur comme lues
+     *
+     * @return le nombre de notifications marquées
+     */
+    public int marquerToutesLues(Long idUtilisateur) {
+        return notificationRepository.marquerToutesLues(idUtilisateur);
+    }
+}
@@ -0,0 +1,417 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.LigneCommandeDTO;
+import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.event.UtilisateurModifieEvent;
+import com.facturation.facture.model.Commande;
+import com.facturation.facture.model.LignePanier;
+import com.facturation.facture.model.Panier;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.model.User;
+import com.facturation.facture.repository.ProduitRepository;
+import com.facturation.facture.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Paniers clients tenus en mémoire.
+ *
+ * Les modifications du panier ne touchent pas la base : la commande (et sa
+ * facture) n'est écrite qu'à la validation du panier. Le stockage est borné ;
+ * au-delà de la capacité, les paniers les moins récemment utilisés sont
+ * écrits dans un répertoire de débordement (s'il est configuré) ou abandonnés.
+ * Les paniers inactifs expirent après la durée de vie configurée.
+ *
+ * Un panier n'est accessible qu'à son client : l'email du jeton
+ * d'authentification est comparé au compte une fois, puis retenu par le
+ * panier jusqu'à une modification du compte. Pendant la validation, la
+ * commande est créée hors du verrou du panier à partir d'une copie de ses
+ * lignes ; le panier refuse alors toute modification. Un panier retiré de la
+ * mémoire l'est sous son verrou avec ses réservations de stock : une
+ * modification concurrente qui le trouve retiré reprend le panier courant.
+ */
+@Service
+public class PanierService {
+
+    private static final Logger log = LoggerFactory.getLogger(PanierService.class);
+
+    private final ProduitRepository produitRepository;
+    private final UserRepository userRepository;
+    private final CommandeService commandeService;
+    private final ReservationStockService reservationStockService;
+
+    private final Map<Long, Panier> paniers = new ConcurrentHashMap<>();
+
+    // Incrémenté à chaque modification de compte : une vérification lue avant n'est pas retenue
+    private final AtomicLong modificationsComptes = new AtomicLong();
+
+    @Value("${facturation.panier.capacite:10000}")
+    private int capacite;
+
+    @Value("${facturation.panier.duree-vie-minutes:1440}")
+    private long dureeVieMinutes;
+
+    // Répertoire de débordement sur disque ; vide = pas de débordement
+    @Value("${facturation.panier.debordement.repertoire:}")
+    private String repertoireDebordement;
+
+    @Autowired
+    public PanierService(ProduitRepository produitRepository, UserRepository userRepository,
+                         CommandeService commandeService, ReservationStockService reservationStockService) {
+        this.produitRepository = produitRepository;
+        this.userRepository = userRepository;
+        this.commandeService = commandeService;
+        this.reservationStockService = reservationStockService;
+    }
+
+    /**
+     * Le compte identifié par l'email (jeton d'authentification) est-il le client du panier
+     */
+    public boolean estProprietaire(Long idClient, String email) {
+        if (email == null) {
+            return false;
+        }
+        Panier panier = paniers.get(idClient);
+        if (panier != null && email.equals(panier.getEmailClient())) {
+            return true;
+        }
+        long modifications = modificationsComptes.get();
+        boolean proprietaire = userRepository.findByEmail(email)
+                .map(User::getId)
+                .filter(idClient::equals)
+                .isPresent();
+        if (proprietaire && panier != null && modificationsComptes.get() == modifications) {
+            panier.setEmailClient(email);
+        }
+        return proprietaire;
+    }
+
+    /**
+     * Compte modifié ou supprimé : son email sera de nouveau vérifié en base
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void surUtilisateurModifie(UtilisateurModifieEvent evenement) {
+        modificationsComptes.incrementAndGet();
+        Panier panier = paniers.get(evenement.getIdUtilisateur());
+        if (panier != null) {
+            panier.setEmailClient(null);
+        }
+    }
+
+    /**
+     * Obtenir le panier d'un client (créé vide s'il n'existe pas)
+     */
+    public Panier obtenirPanier(Long idClient) {
+        Panier panier = paniers.get(idClient);
+        if (panier == null) {
+            Panier recharge = chargerDepuisDebordement(idClient);
+            panier = paniers.computeIfAbsent(idClient, id -> recharge != null ? recharge : new Panier(id));
+            evincerSiPlein();
+        }
+        panier.marquerAcces();
+        return panier;
+    }
+
+    /**
+     * Ajouter un produit au panier
+     */
+    public Panier ajouterProduit(Long idClient, Long idProduit, Integer quantite) {
+        if (quantite == null || quantite <= 0) {
+            throw new RuntimeException("La quantité doit être positive");
+        }
+
+        Produit produit = produitRepository.findById(idProduit)
+                .orElseThrow(() -> new RuntimeException("Produit non trouvé avec l'ID : " + idProduit));
+        if (!produit.getDisponible()) {
+            throw new RuntimeException("Le produit '" + produit.getNom() + "' n'est plus disponible");
+        }
+
+        return modifierPanier(idClient, panier -> {
+            // La quantité totale du produit dans le panier est réservée (échoue si le stock ne suffit plus)
+            reservationStockService.reserver(idClient, produit, panier.getQuantite(idProduit) + quantite);
+            panier.ajouterProduit(produit.getId(), produit.getNom(), produit.getPrix(), quantite);
+        });
+    }
+
+    /**
+     * Modifier la quantité d'un produit du panier
+     */
+    public Panier modifierQuantite(Long idClient, Long idProduit, Integer quantite) {
+        if (quantite == null) {
+            throw new RuntimeException("La quantité est obligatoire");
+        }
+        return modifierPanier(idClient, panier -> {
+            if (quantite > 0) {
+                Produit produit = produitRepository.findById(idProduit)
+                        .orElseThrow(() -> new RuntimeException("Produit non trouvé avec l'ID : " + idProduit));
+                reservationStockService.reserver(idClient, produit, quantite);
+            } else {
+                reservationStockService.liberer(idClient, idProduit);
+            }
+            panier.modifierQuantite(idProduit, quantite);
+        });
+    }
+
+    /**
+     * Retirer un produit du panier
+     */
+    public Panier supprimerProduit(Long idClient, Long idProduit) {
+        return modifierPanier(idClient, panier -> {
+            panier.supprimerProduit(idProduit);
+            reservationStockService.liberer(idClient, idProduit);
+        });
+    }
+
+    /**
+     * Vider le panier d'un client
+     */
+    public void viderPanier(Long idClient) {
+        Panier panier;
+        while ((panier = paniers.get(idClient)) != null) {
+            synchronized (panier) {
+                if (!panier.isRetire()) {
+                    verifierModifiable(panier);
+                    retirer(panier);
+                    break;
+                }
+            }
+        }
+        supprimerDebordement(idClient);
+    }
+
+    /**
+     * Valider le panier : la commande et sa facture sont créées en une fois, hors
+     * du verrou du panier (qui refuse les modifications jusqu'à l'issue)
+     */
+    public Commande validerPanier(Long idClient) {
+        List<LigneCommandeDTO> lignes = new ArrayList<>();
+        Map<Long, Integer> quantites = new HashMap<>();
+
+        Panier panier = modifierPanier(idClient, p -> {
+            if (p.estVide()) {
+                throw new RuntimeException("Le panier est vide");
+            }
+            for (LignePanier lignePanier : p.getLignes()) {
+                quantites.put(lignePanier.getProduitId(), lignePanier.getQuantite());
+
+                ProduitDTO produit = new ProduitDTO();
+                produit.setId(lignePanier.getProduitId());
+
+                LigneCommandeDTO ligne = new LigneCommandeDTO();
+                ligne.setProduit(produit);
+                ligne.setQuantite(lignePanier.getQuantite());
+                lignes.add(ligne);
+            }
+            p.setValidationEnCours(true);
+        });
+
+        boolean validee = false;
+        try {
+            // Le stock réservé par les paniers des autres clients n'est pas pris
+            reservationStockService.verifierDisponibilite(idClient, quantites);
+
+            // Le prix de chaque ligne est relu en base au moment de la validation
+            Commande commande = commandeService.creerCommandePourClient(idClient, lignes);
+            validee = true;
+            return commande;
+        } finally {
+            synchronized (panier) {
+                panier.setValidationEnCours(false);
+                if (validee) {
+                    retirer(panier);
+                }
+            }
+            if (validee) {
+                supprimerDebordement(idClient);
+            }
+        }
+    }
+
+    /**
+     * Nombre de paniers actuellement en mémoire
+     */
+    public int getNombrePaniers() {
+        return paniers.size();
+    }
+
+    /**
+     * Supprimer les paniers inactifs depuis plus que la durée de vie
+     */
+    @Scheduled(fixedDelayString = "${facturation.panier.purge-ms:300000}")
+    public void purgerPaniersExpires() {
+        long limite = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(dureeVieMinutes);
+        for (Panier panier : paniers.values()) {
+            synchronized (panier) {
+                if (panier.getDernierAcces() < limite && !panier.isValidationEnCours() && !panier.isRetire()) {
+                    retirer(panier);
+                }
+            }
+        }
+
+        Path repertoire = repertoireDebordement();
+        if (repertoire == null || !Files.isDirectory(repertoire)) {
+            return;
+        }
+        try (DirectoryStream<Path> fichiers = Files.newDirectoryStream(repertoire, "panier-*.ser")) {
+            for (Path fichier : fichiers) {
+                if (Files.getLastModifiedTime(fichier).toMillis() < limite) {
+                    Files.deleteIfExists(fichier);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Purge des paniers en débordement impossible : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Évincer les paniers les moins récemment utilisés au-delà de la capacité
+     */
+    private void evincerSiPlein() {
+        int excedent = paniers.size() - capacite;
+        if (excedent <= 0) {
+            return;
+        }
+
+        // On évince un dixième de la capacité d'un coup pour amortir le tri
+        int aEvincer = Math.max(excedent, capacite / 10);
+        List<Panier> candidats = new ArrayList<>(paniers.values());
+        candidats.sort(Comparator.comparingLong(Panier::getDernierAcces));
+
+        for (int i = 0; i < aEvincer && i < candidats.size(); i++) {
+            Panier panier = candidats.get(i);
+            synchronized (panier) {
+                // Un panier en cours de validation reste en mémoire ; ses réservations suivent leur propre durée de vie
+                if (panier.isValidationEnCours() || panier.isRetire() || !paniers.remove(panier.getClientId(), panier)) {
+                    continue;
+                }
+                panier.setRetire(true);
+            }
+            if (!panier.estVide()) {
+                ecrireDebordement(panier);
+            }
+        }
+    }
+
+    /**
+     * Appliquer une modification au panier courant du client, sous son verrou.
+     * Un panier retiré entre la lecture et le verrou est remplacé par le panier courant.
+     */
+    private Panier modifierPanier(Long idClient, Consumer<Panier> modification) {
+        while (true) {
+            Panier panier = obtenirPanier(idClient);
+            synchronized (panier) {
+                if (panier.isRetire()) {
+                    continue;
+                }
+                verifierModifiable(panier);
+                modification.accept(panier);
+                return panier;
+            }
+        }
+    }
+
+    /**
+     * Retirer un panier de la mémoire et libérer ses réservations (appelant sous le verrou du panier)
+     */
+    private void retirer(Panier panier) {
+        panier.setRetire(true);
+        paniers.remove(panier.getClientId(), panier);
+        reservationStockService.liberer(panier.getClientId(), idsProduits(panier));
+    }
+
+    private static void verifierModifiable(Panier panier) {
+        if (panier.isValidationEnCours()) {
+            throw new RuntimeException("Le panier est en cours de validation");
+        }
+    }
+
+    private static List<Long> idsProduits(Panier panier) {
+        List<Long> ids = new ArrayList<>();
+        for (LignePanier ligne : panier.getLignes()) {
+            ids.add(ligne.getProduitId());
+        }
+        return ids;
+    }
+
+    private Path repertoireDebordement() {
+        if (repertoireDebordement == null || repertoireDebordement.isBlank()) {
+            return null;
+        }
+        return Paths.get(repertoireDebordement);
+    }
+
+    private Path fichierDebordement(Long idClient) {
+        Path repertoire = repertoireDebordement();
+        return repertoire != null ? repertoire.resolve("panier-" + idClient + ".ser") : null;
+    }
+
+    private void ecrireDebordement(Panier panier) {
+        Path fichier = fichierDebordement(panier.getClientId());
+        if (fichier == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(fichier.getParent());
+            Path temporaire = Files.createTempFile(fichier.getParent(), "panier-", ".tmp");
+            synchronized (panier) {
+                try (ObjectOutputStream sortie = new ObjectOutputStream(Files.newOutputStream(temporaire))) {
+                    sortie.writeObject(panier);
+                }
+            }
+            Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Écriture du panier du client {} en débordement impossible : {}", panier.getClientId(), e.getMessage());
+        }
+    }
+
+    private Panier chargerDepuisDebordement(Long idClient) {
+        Path fichier = fichierDebordement(idClient);
+        if (fichier == null || !Files.exists(fichier)) {
+            return null;
+        }
+        try (ObjectInputStream entree = new ObjectInputStream(Files.newInputStream(fichier))) {
+            Panier panier = (Panier) entree.readObject();
+            Files.deleteIfExists(fichier);
+            return panier;
+        } catch (IOException | ClassNotFoundException e) {
+            log.warn("Lecture du panier du client {} en débordement impossible : {}", idClient, e.getMessage());
+            return null;
+        }
+    }
+
+    private void supprimerDebordement(Long idClient) {
+        Path fichier = fichierDebordement(idClient);
+        if (fichier == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(fichier);
+        } catch (IOException e) {
+            log.warn("Suppression du panier du client {} en débordement impossible : {}", idClient, e.getMessage());
+        }
+    }
+}
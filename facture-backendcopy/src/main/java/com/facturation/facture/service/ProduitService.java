@@ -1,16 +1,24 @@
 package com.facturation.facture.service;
 
+import com.facturation.facture.config.ReessaiSurConflit;
+import com.facturation.facture.dto.IndicateursCatalogueDTO;
+import com.facturation.facture.event.ProduitModifieEvent;
 import com.facturation.facture.model.Produit;
 import com.facturation.facture.model.Categorie;
+import com.facturation.facture.model.enums.TypeMouvementStock;
 import com.facturation.facture.repository.ProduitRepository;
 import com.facturation.facture.repository.CategorieRepository;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -19,11 +27,27 @@ public class ProduitService {
 
     private final ProduitRepository produitRepository;
     private final CategorieRepository categorieRepository;
+    private final StockService stockService;
+    private final StockSegmenteService stockSegmenteService;
+    private final JournalStockService journalStockService;
+    private final IndicateursCatalogueService indicateursCatalogueService;
+    private final ApplicationEventPublisher evenements;
+    private final EntityManager entityManager;
 
     @Autowired
-    public ProduitService(ProduitRepository produitRepository, CategorieRepository categorieRepository) {
+    public ProduitService(ProduitRepository produitRepository, CategorieRepository categorieRepository,
+                          StockService stockService, StockSegmenteService stockSegmenteService,
+                          JournalStockService journalStockService,
+                          IndicateursCatalogueService indicateursCatalogueService,
+                          ApplicationEventPublisher evenements, EntityManager entityManager) {
         this.produitRepository = produitRepository;
         this.categorieRepository = categorieRepository;
+        this.stockService = stockService;
+        this.stockSegmenteService = stockSegmenteService;
+        this.journalStockService = journalStockService;
+        this.indicateursCatalogueService = indicateursCatalogueService;
+        this.evenements = evenements;
+        this.entityManager = entityManager;
     }
 
     /**
@@ -47,12 +71,15 @@ public class ProduitService {
 
         produit.setDateCreation(LocalDateTime.now());
         produit.setDateModification(LocalDateTime.now());
-        return produitRepository.save(produit);
+        Produit produitSauvegarde = produitRepository.save(produit);
+        journalStockService.ouvrir(produitSauvegarde);
+        return produitSauvegarde;
     }
 
     /**
      * Mettre à jour un produit existant
      */
+    @ReessaiSurConflit
     public Produit mettreAJourProduit(Long idProduit, Produit produitMisAJour, Long categorieId) {
         Optional<Produit> produitExistant = produitRepository.findById(idProduit);
         if (produitExistant.isEmpty()) {
@@ -76,6 +103,11 @@ public class ProduitService {
             produit.setCategorie(categorie.get());
         }
 
+        if (produitMisAJour.getQuantiteStock() != null
+                && !produit.getQuantiteStock().equals(produitMisAJour.getQuantiteStock())) {
+            journaliserAjustement(produit, produitMisAJour.getQuantiteStock());
+        }
+
         // Mettre à jour les champs
         produit.setNom(produitMisAJour.getNom());
         produit.setDescription(produitMisAJour.getDescription());
@@ -86,6 +118,8 @@ public class ProduitService {
         produit.setImagePath(produitMisAJour.getImagePath());
         produit.setDateModification(LocalDateTime.now());
 
+        // Seuil d'alerte ou disponibilité modifiés : relus par la détection des stocks faibles
+        evenements.publishEvent(new ProduitModifieEvent(idProduit));
         return produitRepository.save(produit);
     }
 
@@ -190,11 +224,13 @@ public class ProduitService {
         }
 
         produitRepository.deleteById(idProduit);
+        evenements.publishEvent(new ProduitModifieEvent(idProduit, true));
     }
 
     /**
      * Marquer un produit comme non disponible
      */
+    @ReessaiSurConflit
     public Produit marquerIndisponible(Long idProduit) {
         Optional<Produit> produitOpt = produitRepository.findById(idProduit);
         if (produitOpt.isEmpty()) {
@@ -204,12 +240,14 @@ public class ProduitService {
         Produit produit = produitOpt.get();
         produit.setDisponible(false);
         produit.setDateModification(LocalDateTime.now());
+        evenements.publishEvent(new ProduitModifieEvent(idProduit));
         return produitRepository.save(produit);
     }
 
     /**
      * Marquer un produit comme disponible
      */
+    @ReessaiSurConflit
     public Produit marquerDisponible(Long idProduit) {
         Optional<Produit> produitOpt = produitRepository.findById(idProduit);
         if (produitOpt.isEmpty()) {
@@ -219,12 +257,14 @@ public class ProduitService {
         Produit produit = produitOpt.get();
         produit.setDisponible(true);
         produit.setDateModification(LocalDateTime.now());
+        evenements.publishEvent(new ProduitModifieEvent(idProduit));
         return produitRepository.save(produit);
     }
 
     /**
      * Ajuster le stock d'un produit
      */
+    @ReessaiSurConflit
     public Produit ajusterStock(Long idProduit, Integer nouvelleQuantite) {
         Optional<Produit> produitOpt = produitRepository.findById(idProduit);
         if (produitOpt.isEmpty()) {
@@ -236,88 +276,127 @@ public class ProduitService {
         }
 
         Produit produit = produitOpt.get();
+        journaliserAjustement(produit, nouvelleQuantite);
         produit.setQuantiteStock(nouvelleQuantite);
         produit.setDateModification(LocalDateTime.now());
         return produitRepository.save(produit);
     }
 
     /**
-     * Réduire le stock d'un produit (pour une vente)
+     * Réduire le stock d'un produit (pour une vente).
+     * Décrément conditionnel en une requête : pas de survente sous concurrence.
+     * Réessayé sur conflit de verrou : le chemin segmenté verrouille des segments.
      */
+    @ReessaiSurConflit
     public Produit reduireStock(Long idProduit, Integer quantiteVendue) {
-        Optional<Produit> produitOpt = produitRepository.findById(idProduit);
-        if (produitOpt.isEmpty()) {
-            throw new RuntimeException("Produit non trouvé avec l'ID : " + idProduit);
+        if (quantiteVendue == null || quantiteVendue <= 0) {
+            throw new IllegalArgumentException("La quantité vendue doit être positive");
         }
 
-        Produit produit = produitOpt.get();
-
-        if (produit.getQuantiteStock() < quantiteVendue) {
+        if (produitRepository.decrementerStock(idProduit, quantiteVendue, LocalDateTime.now()) == 0) {
+            if (stockSegmenteService.actualiser(idProduit)) {
+                stockService.reserver(Map.of(idProduit, quantiteVendue), TypeMouvementStock.VENTE);
+                return relireProduit(idProduit);
+            }
+            Produit produit = relireProduit(idProduit);
             throw new RuntimeException("Stock insuffisant. Stock actuel : " + produit.getQuantiteStock());
         }
-
-        produit.setQuantiteStock(produit.getQuantiteStock() - quantiteVendue);
-        produit.setDateModification(LocalDateTime.now());
-        return produitRepository.save(produit);
+        journalStockService.enregistrerSorties(TypeMouvementStock.VENTE, Map.of(idProduit, quantiteVendue));
+        return relireProduit(idProduit);
     }
 
     /**
      * Augmenter le stock d'un produit (réapprovisionnement)
      */
+    @ReessaiSurConflit
     public Produit augmenterStock(Long idProduit, Integer quantiteAjoutee) {
-        Optional<Produit> produitOpt = produitRepository.findById(idProduit);
-        if (produitOpt.isEmpty()) {
+        if (quantiteAjoutee == null || quantiteAjoutee <= 0) {
+            throw new IllegalArgumentException("La quantité à ajouter doit être positive");
+        }
+
+        if (produitRepository.incrementerStock(idProduit, quantiteAjoutee, LocalDateTime.now()) == 0) {
+            if (stockSegmenteService.actualiser(idProduit)) {
+                stockService.remettreEnStock(Map.of(idProduit, quantiteAjoutee), TypeMouvementStock.REAPPROVISIONNEMENT);
+                return relireProduit(idProduit);
+            }
             throw new RuntimeException("Produit non trouvé avec l'ID : " + idProduit);
         }
+        journalStockService.enregistrerEntrees(TypeMouvementStock.REAPPROVISIONNEMENT, Map.of(idProduit, quantiteAjoutee));
+        return relireProduit(idProduit);
+    }
 
-        if (quantiteAjoutee <= 0) {
-            throw new IllegalArgumentException("La quantité à ajouter doit être positive");
+    /**
+     * Relire un produit modifié par une requête UPDATE : seule cette instance est
+     * rafraîchie, les autres entités de l'appelant restent gérées
+     */
+    private Produit relireProduit(Long idProduit) {
+        Produit produit = produitRepository.findById(idProduit)
+                .orElseThrow(() -> new RuntimeException("Produit non trouvé avec l'ID : " + idProduit));
+        entityManager.refresh(produit);
+        return produit;
+    }
+
+    /**
+     * Journaliser l'écart d'un nouveau stock fixé à la main ; un stock segmenté est
+     * réparti de nouveau sur ses segments (l'écart est alors mesuré sur leur total)
+     */
+    private void journaliserAjustement(Produit produit, int nouvelleQuantite) {
+        Integer ancienneQuantite = Boolean.TRUE.equals(produit.getStockSegmente())
+                ? stockSegmenteService.redefinir(produit.getId(), nouvelleQuantite)
+                : null;
+        if (ancienneQuantite == null) {
+            ancienneQuantite = produit.getQuantiteStock();
         }
+        journalStockService.enregistrerVariation(TypeMouvementStock.AJUSTEMENT, produit.getId(),
+                nouvelleQuantite - ancienneQuantite);
+    }
 
-        Produit produit = produitOpt.get();
-        produit.setQuantiteStock(produit.getQuantiteStock() + quantiteAjoutee);
-        produit.setDateModification(LocalDateTime.now());
-        return produitRepository.save(produit);
+    /**
+     * Indicateurs du catalogue, tenus en mémoire (voir IndicateursCatalogueService)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public IndicateursCatalogueDTO obtenirIndicateurs() {
+        return indicateursCatalogueService.obtenirIndicateurs();
     }
 
     /**
      * Compter les produits disponibles
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Long compterProduitsDisponibles() {
-        return produitRepository.countProduitsDisponibles();
+        return indicateursCatalogueService.obtenirIndicateurs().getProduitsDisponibles();
     }
 
     /**
      * Compter les produits avec stock faible
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Long compterProduitsStockFaible() {
-        return produitRepository.countProduitsStockFaible();
+        return indicateursCatalogueService.obtenirIndicateurs().getProduitsStockFaible();
     }
 
     /**
      * Compter les produits en rupture de stock
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Long compterProduitsRuptureStock() {
-        return produitRepository.countProduitsRuptureStock();
+        return indicateursCatalogueService.obtenirIndicateurs().getProduitsRuptureStock();
     }
 
     /**
      * Obtenir le prix moyen des produits
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public BigDecimal obtenirPrixMoyen() {
-        return produitRepository.getPrixMoyenProduits();
+        return indicateursCatalogueService.obtenirIndicateurs().getPrixMoyen();
     }
 
     /**
      * Obtenir la valeur totale du stock
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public BigDecimal obtenirValeurTotaleStock() {
-        return produitRepository.getValeurTotaleStock();
+        return indicateursCatalogueService.obtenirIndicateurs().getValeurTotaleStock();
     }
 
     /**
@@ -346,9 +425,9 @@ public class ProduitService {
     }
 
     /**
-     * Valider les données d'un produit
+     * Valider les données d'un produit (règles partagées avec l'import de fichiers)
      */
-    private void validerProduit(Produit produit) {
+    static void validerProduit(Produit produit) {
         if (produit.getNom() == null || produit.getNom().trim().isEmpty()) {
             throw new IllegalArgumentException("Le nom du produit est obligatoire");
         }
@@ -0,0 +1,101 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.dto.RechercheFacettesDTO;
+import com.facturation.facture.event.CatalogueModifieEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Recherche à facettes dans les produits disponibles : filtres combinés
+ * (catégories, fourchette de prix, stock) et décomptes par catégorie,
+ * histogramme des prix et nombre de produits en stock, calculés en un seul
+ * parcours d'un index en colonnes (voir IndexFacettes), sans requête.
+ *
+ * L'index est reconstruit à chaque nouvel instantané du catalogue en mémoire
+ * (stock compris), hors des requêtes, puis publié pour les recherches
+ * suivantes.
+ */
+@Service
+public class RechercheFacettesService {
+
+    public static final int TAILLE_MAX = 1000;
+    public static final int TRANCHES_MAX = 50;
+
+    private static final Logger log = LoggerFactory.getLogger(RechercheFacettesService.class);
+
+    private final CatalogueService catalogueService;
+    private final ReservationStockService reservationStockService;
+
+    private volatile IndexFacettes index;
+
+    @Autowired
+    public RechercheFacettesService(CatalogueService catalogueService, ReservationStockService reservationStockService) {
+        this.catalogueService = catalogueService;
+        this.reservationStockService = reservationStockService;
+    }
+
+    /**
+     * Produits correspondant à tous les filtres (null = filtre inactif) et
+     * décomptes par facette ; une taille de 0 ne renvoie que les facettes
+     */
+    public RechercheFacettesDTO rechercher(Collection<Long> categorieIds, BigDecimal prixMin, BigDecimal prixMax,
+                                           Boolean enStock, int page, int taille, int tranches) {
+        if (page < 0) {
+            throw new RuntimeException("Le numéro de page doit être positif");
+        }
+        if (taille < 0 || taille > TAILLE_MAX) {
+            throw new RuntimeException("La taille de page doit être comprise entre 0 et " + TAILLE_MAX);
+        }
+        if (tranches < 1 || tranches > TRANCHES_MAX) {
+            throw new RuntimeException("Le nombre de tranches de prix doit être compris entre 1 et " + TRANCHES_MAX);
+        }
+        if (prixMin != null && prixMax != null && prixMin.compareTo(prixMax) > 0) {
+            throw new RuntimeException("Le prix minimum doit être inférieur ou égal au prix maximum");
+        }
+
+        RechercheFacettesDTO resultat = obtenirIndex().rechercher(categorieIds, prixMin, prixMax, enStock, page, taille, tranches);
+
+        // Copies avec le stock disponible (hors réservations des paniers), comme le catalogue client
+        List<ProduitDTO> produits = new ArrayList<>(resultat.getProduits().size());
+        for (ProduitDTO produit : resultat.getProduits()) {
+            ProduitDTO dto = produit.copie();
+            dto.setQuantiteDisponible(reservationStockService.quantiteDisponible(dto.getId(), dto.getQuantiteStock()));
+            produits.add(dto);
+        }
+        resultat.setProduits(produits);
+        return resultat;
+    }
+
+    /**
+     * Suivre les instantanés du catalogue
+     */
+    @EventListener
+    public synchronized void surCatalogueModifie(CatalogueModifieEvent evenement) {
+        long debut = System.currentTimeMillis();
+        index = IndexFacettes.construire(evenement.getCatalogue());
+        log.debug("Index des facettes construit ({} produit(s), {} ms)",
+                evenement.getCatalogue().getProduitsDisponibles().size(), System.currentTimeMillis() - debut);
+    }
+
+    private IndexFacettes obtenirIndex() {
+        IndexFacettes actuel = index;
+        if (actuel != null) {
+            return actuel;
+        }
+        synchronized (this) {
+            if (index == null) {
+                index = IndexFacettes.construire(catalogueService.obtenirCatalogue());
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.event.CatalogueModifieEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recherche plein texte des produits (nom, catégorie, description) sur un
+ * index de trigrammes en mémoire (voir IndexRechercheProduits), tolérant aux
+ * accents, à la casse et aux fautes de frappe.
+ *
+ * L'index suit le catalogue en mémoire : les produits créés, modifiés ou
+ * supprimés de chaque nouvel instantané sont réindexés, un rechargement
+ * complet du catalogue reconstruit l'index. Les résultats sont servis depuis
+ * l'instantané du catalogue, sans requête.
+ */
+@Service
+public class RechercheProduitsService {
+
+    public static final int LIMITE_MAX = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(RechercheProduitsService.class);
+
+    private final CatalogueService catalogueService;
+
+    private volatile IndexRechercheProduits index;
+
+    @Autowired
+    public RechercheProduitsService(CatalogueService catalogueService) {
+        this.catalogueService = catalogueService;
+    }
+
+    /**
+     * Produits correspondant au terme, les plus pertinents d'abord
+     */
+    public List<ProduitDTO> rechercher(String terme, Integer limite) {
+        int maximum = limite != null ? limite : LIMITE_MAX;
+        if (maximum < 1 || maximum > LIMITE_MAX) {
+            throw new RuntimeException("La limite doit être comprise entre 1 et " + LIMITE_MAX);
+        }
+
+        CatalogueService.Catalogue catalogue = catalogueService.obtenirCatalogue();
+        List<ProduitDTO> produits = new ArrayList<>();
+        for (Long idProduit : obtenirIndex(catalogue).rechercher(terme, maximum)) {
+            ProduitDTO produit = catalogue.getProduit(idProduit);
+            if (produit != null) {
+                produits.add(produit);
+            }
+        }
+        return produits;
+    }
+
+    /**
+     * Suivre les instantanés du catalogue
+     */
+    @EventListener
+    public synchronized void surCatalogueModifie(CatalogueModifieEvent evenement) {
+        CatalogueService.Catalogue catalogue = evenement.getCatalogue();
+        IndexRechercheProduits actuel = index;
+        if (evenement.isComplet() || actuel == null) {
+            long debut = System.currentTimeMillis();
+            index = new IndexRechercheProduits(catalogue.getProduits());
+            log.debug("Index de recherche construit ({} produit(s), {} ms)",
+                    catalogue.getProduits().size(), System.currentTimeMillis() - debut);
+            return;
+        }
+
+        List<ProduitDTO> modifies = new ArrayList<>();
+        List<Long> supprimes = new ArrayList<>();
+        for (Long idProduit : evenement.getIdsModifies()) {
+            ProduitDTO produit = catalogue.getProduit(idProduit);
+            if (produit != null) {
+                modifies.add(produit);
+            } else {
+                supprimes.add(idProduit);
+            }
+        }
+        actuel.mettreAJour(modifies, supprimes);
+    }
+
+    private IndexRechercheProduits obtenirIndex(CatalogueService.Catalogue catalogue) {
+        IndexRechercheProduits actuel = index;
+        if (actuel != null) {
+            return actuel;
+        }
+        synchronized (this) {
+            if (index == null) {
+                index = new IndexRechercheProduits(catalogue.getProduits());
+            }
+            return index;
+        }
+    }
+}
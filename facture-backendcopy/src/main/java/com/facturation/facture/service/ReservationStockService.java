@@ -0,0 +1,342 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.model.ReservationStock;
+import com.facturation.facture.repository.ProduitRepository;
+import com.facturation.facture.repository.ReservationStockRepository;
+import com.facturation.facture.repository.StockBatchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Réservations temporaires du stock par les paniers.
+ *
+ * Un produit mis au panier est réservé pour une durée limitée : le stock
+ * disponible affiché au catalogue est la quantité en stock moins les
+ * réservations actives. Les réservations sont tenues en mémoire (aucun
+ * verrou sur la table produits à chaque clic), purgées par lots à
+ * expiration et sauvegardées périodiquement en base pour survivre à un
+ * redémarrage. La décrémentation réelle du stock reste faite à la
+ * validation du panier (voir StockService) ; les commandes directes et les
+ * lots de commandes ne prennent pas non plus le stock réservé par les
+ * paniers des autres clients (voir CommandeService).
+ */
+@Service
+public class ReservationStockService {
+
+    public static final String COMPTEUR_PLACEES = "reservations.placees";
+    public static final String COMPTEUR_REFUSEES = "reservations.refusees";
+    public static final String COMPTEUR_EXPIREES = "reservations.expirees";
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationStockService.class);
+
+    private final ProduitRepository produitRepository;
+    private final ReservationStockRepository reservationStockRepository;
+    private final StockBatchRepository stockBatchRepository;
+    private final SupervisionService supervisionService;
+    private final TransactionTemplate transactionTemplate;
+
+    // Réservations par produit
+    private final Map<Long, ReservationsProduit> reservations = new ConcurrentHashMap<>();
+
+    // Modifiées depuis la dernière sauvegarde
+    private final AtomicBoolean modifiees = new AtomicBoolean();
+
+    @Value("${facturation.reservation.duree-vie-minutes:30}")
+    private long dureeVieMinutes;
+
+    @Autowired
+    public ReservationStockService(ProduitRepository produitRepository,
+                                   ReservationStockRepository reservationStockRepository,
+                                   StockBatchRepository stockBatchRepository,
+                                   SupervisionService supervisionService,
+                                   PlatformTransactionManager transactionManager) {
+        this.produitRepository = produitRepository;
+        this.reservationStockRepository = reservationStockRepository;
+        this.stockBatchRepository = stockBatchRepository;
+        this.supervisionService = supervisionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Réserver pour un client une quantité d'un produit (remplace sa réservation
+     * précédente sur ce produit et repart pour une durée de vie complète)
+     */
+    public void reserver(Long idClient, Produit produit, int quantite) {
+        if (quantite <= 0) {
+            liberer(idClient, produit.getId());
+            return;
+        }
+
+        long maintenant = System.currentTimeMillis();
+        long expiration = maintenant + TimeUnit.MINUTES.toMillis(dureeVieMinutes);
+
+        boolean placee = false;
+        while (!placee) {
+            ReservationsProduit reservationsProduit = reservations.computeIfAbsent(produit.getId(), id -> new ReservationsProduit());
+            synchronized (reservationsProduit) {
+                if (reservationsProduit.retire) {
+                    // Retirée par la purge entre la lecture et le verrou : on reprend l'instance courante
+                    continue;
+                }
+                reservationsProduit.purger(maintenant);
+                int disponible = produit.getQuantiteStock() - reservationsProduit.reserveParAutres(idClient);
+                if (quantite > disponible) {
+                    supervisionService.incrementer(COMPTEUR_REFUSEES);
+                    throw new RuntimeException("Stock insuffisant pour '" + produit.getNom() + "' : "
+                            + Math.max(0, disponible) + " disponible(s)");
+                }
+                reservationsProduit.placer(idClient, quantite, expiration);
+                placee = true;
+            }
+        }
+        modifiees.set(true);
+        supervisionService.incrementer(COMPTEUR_PLACEES);
+    }
+
+    /**
+     * Libérer la réservation d'un client sur un produit
+     */
+    public void liberer(Long idClient, Long idProduit) {
+        ReservationsProduit reservationsProduit = reservations.get(idProduit);
+        if (reservationsProduit == null) {
+            return;
+        }
+        synchronized (reservationsProduit) {
+            if (reservationsProduit.retirer(idClient)) {
+                modifiees.set(true);
+            }
+        }
+    }
+
+    /**
+     * Libérer les réservations d'un client sur plusieurs produits (panier vidé ou validé)
+     */
+    public void liberer(Long idClient, Iterable<Long> idsProduits) {
+        for (Long idProduit : idsProduits) {
+            liberer(idClient, idProduit);
+        }
+    }
+
+    /**
+     * Contrôler qu'un client peut commander les quantités données sans prendre
+     * le stock réservé par les paniers des autres clients
+     */
+    public void verifierDisponibilite(Long idClient, Map<Long, Integer> quantitesParProduit) {
+        Map<Long, Produit> produits = new HashMap<>();
+        for (Produit produit : produitRepository.findAllById(quantitesParProduit.keySet())) {
+            produits.put(produit.getId(), produit);
+        }
+        verifierDisponibilite(idClient, quantitesParProduit, produits);
+    }
+
+    /**
+     * Même contrôle sur des produits déjà chargés par l'appelant (sans nouvelle lecture) ;
+     * un produit absent de la table fournie est ignoré
+     */
+    public void verifierDisponibilite(Long idClient, Map<Long, Integer> quantitesParProduit, Map<Long, Produit> produits) {
+        List<String> insuffisants = new ArrayList<>();
+        for (Map.Entry<Long, Integer> demande : quantitesParProduit.entrySet()) {
+            Produit produit = produits.get(demande.getKey());
+            if (produit == null) {
+                continue;
+            }
+            int disponible = produit.getQuantiteStock() - quantiteReservee(produit.getId(), idClient);
+            int demandee = demande.getValue();
+            if (demandee > disponible) {
+                insuffisants.add("'" + produit.getNom() + "' (demandé : " + demandee
+                        + ", disponible : " + Math.max(0, disponible) + ")");
+            }
+        }
+        if (!insuffisants.isEmpty()) {
+            throw new RuntimeException("Stock insuffisant : " + String.join(", ", insuffisants));
+        }
+    }
+
+    /**
+     * Stock disponible d'un produit : quantité en stock moins les réservations actives
+     */
+    public int quantiteDisponible(Produit produit) {
+        return quantiteDisponible(produit.getId(), produit.getQuantiteStock());
+    }
+
+    /**
+     * Stock disponible d'un produit à partir de sa quantité en stock
+     */
+    public int quantiteDisponible(Long idProduit, Integer quantiteStock) {
+        int stock = quantiteStock != null ? quantiteStock : 0;
+        return Math.max(0, stock - quantiteReservee(idProduit, null));
+    }
+
+    /**
+     * Quantité réservée sur un produit (hors réservation du client exclu, s'il est donné)
+     */
+    public int quantiteReservee(Long idProduit, Long idClientExclu) {
+        ReservationsProduit reservationsProduit = reservations.get(idProduit);
+        if (reservationsProduit == null) {
+            return 0;
+        }
+        if (idClientExclu == null) {
+            // Lecture sans verrou du total maintenu à chaque modification
+            return reservationsProduit.total;
+        }
+        synchronized (reservationsProduit) {
+            return reservationsProduit.reserveParAutres(idClientExclu);
+        }
+    }
+
+    /**
+     * Libérer par lots les réservations expirées
+     */
+    @Scheduled(fixedDelayString = "${facturation.reservation.purge-ms:30000}")
+    public int purgerReservationsExpirees() {
+        long maintenant = System.currentTimeMillis();
+        int expirees = 0;
+
+        Iterator<Map.Entry<Long, ReservationsProduit>> iterateur = reservations.entrySet().iterator();
+        while (iterateur.hasNext()) {
+            ReservationsProduit reservationsProduit = iterateur.next().getValue();
+            synchronized (reservationsProduit) {
+                expirees += reservationsProduit.purger(maintenant);
+                if (reservationsProduit.parClient.isEmpty()) {
+                    // Un produit sans réservation n'est plus suivi ; l'instance retirée
+                    // n'est plus utilisable (un nouvel appel en recrée une)
+                    reservationsProduit.retire = true;
+                    iterateur.remove();
+                }
+            }
+        }
+
+        if (expirees > 0) {
+            modifiees.set(true);
+            supervisionService.ajouter(COMPTEUR_EXPIREES, expirees);
+            log.debug("Réservations de stock : {} réservation(s) expirée(s) libérée(s)", expirees);
+        }
+        return expirees;
+    }
+
+    /**
+     * Sauvegarder l'état des réservations s'il a changé depuis la dernière sauvegarde
+     */
+    @Scheduled(fixedDelayString = "${facturation.reservation.persistence-ms:60000}")
+    public void sauvegarder() {
+        if (!modifiees.getAndSet(false)) {
+            return;
+        }
+
+        List<ReservationStock> copie = new ArrayList<>();
+        reservations.forEach((idProduit, reservationsProduit) -> {
+            synchronized (reservationsProduit) {
+                reservationsProduit.parClient.forEach((idClient, reservation) -> copie.add(new ReservationStock(
+                        idProduit, idClient, reservation.quantite, versDate(reservation.expiration))));
+            }
+        });
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                reservationStockRepository.deleteAllInBatch();
+                stockBatchRepository.insererReservations(copie);
+            });
+        } catch (RuntimeException e) {
+            modifiees.set(true);
+            log.warn("Sauvegarde des réservations de stock impossible : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recharger au démarrage les réservations encore actives
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void charger() {
+        int chargees = 0;
+        for (ReservationStock reservation : reservationStockRepository.findByExpirationAfter(LocalDateTime.now())) {
+            ReservationsProduit reservationsProduit = reservations.computeIfAbsent(
+                    reservation.getProduitId(), id -> new ReservationsProduit());
+            synchronized (reservationsProduit) {
+                reservationsProduit.placer(reservation.getClientId(), reservation.getQuantite(),
+                        reservation.getExpiration().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            }
+            chargees++;
+        }
+        if (chargees > 0) {
+            log.info("Réservations de stock : {} réservation(s) rechargée(s)", chargees);
+        }
+    }
+
+    private static LocalDateTime versDate(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    /**
+     * Réservations d'un produit, par client. Modifiées sous le verrou de l'instance ;
+     * le total est lisible sans verrou.
+     */
+    private static class ReservationsProduit {
+        private final Map<Long, Reservation> parClient = new HashMap<>();
+        private volatile int total;
+        private boolean retire;
+
+        private void placer(Long idClient, int quantite, long expiration) {
+            Reservation precedente = parClient.put(idClient, new Reservation(quantite, expiration));
+            total += quantite - (precedente != null ? precedente.quantite : 0);
+        }
+
+        private boolean retirer(Long idClient) {
+            Reservation precedente = parClient.remove(idClient);
+            if (precedente == null) {
+                return false;
+            }
+            total -= precedente.quantite;
+            return true;
+        }
+
+        private int reserveParAutres(Long idClient) {
+            Reservation propre = parClient.get(idClient);
+            return total - (propre != null ? propre.quantite : 0);
+        }
+
+        private int purger(long maintenant) {
+            int expirees = 0;
+            Iterator<Reservation> iterateur = parClient.values().iterator();
+            while (iterateur.hasNext()) {
+                Reservation reservation = iterateur.next();
+                if (reservation.expiration <= maintenant) {
+                    total -= reservation.quantite;
+                    iterateur.remove();
+                    expirees++;
+                }
+            }
+            return expirees;
+        }
+    }
+
+    private static class Reservation {
+        private final int quantite;
+        private final long expiration;
+
+        private Reservation(int quantite, long expiration) {
+            this.quantite = quantite;
+            this.expiration = expiration;
+        }
+    }
+}
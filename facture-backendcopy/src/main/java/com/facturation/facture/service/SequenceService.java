@@ -0,0 +1,122 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.repository.CompteurSequenceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Numérotation des commandes et des factures.
+ *
+ * Commandes : chaque instance réserve en base un bloc de numéros sur le
+ * compteur du jour (incrément atomique dans une transaction courte et
+ * indépendante), puis distribue les numéros du bloc depuis la mémoire sans
+ * verrou. Plusieurs instances de l'application obtiennent ainsi des blocs
+ * disjoints. Les numéros restent uniques mais pas forcément contigus (bloc
+ * entamé perdu au redémarrage).
+ *
+ * Factures : la numérotation doit être continue. Le compteur du jour est
+ * incrémenté dans la transaction de l'appelant ; le verrou de ligne est tenu
+ * jusqu'à sa validation et une annulation rend le numéro.
+ */
+@Service
+public class SequenceService {
+
+    private static final DateTimeFormatter FORMAT_JOUR = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final CompteurSequenceRepository compteurSequenceRepository;
+    private final TransactionTemplate transactionReservation;
+
+    @Value("${facturation.sequence.commande.taille-bloc:50}")
+    private int tailleBlocCommande;
+
+    private final AtomicReference<Bloc> blocCommande = new AtomicReference<>();
+
+    @Autowired
+    public SequenceService(CompteurSequenceRepository compteurSequenceRepository,
+                           PlatformTransactionManager transactionManager) {
+        this.compteurSequenceRepository = compteurSequenceRepository;
+        this.transactionReservation = new TransactionTemplate(transactionManager);
+        this.transactionReservation.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Prochain numéro de commande au format CMD-yyyyMMdd-NNNN
+     */
+    public String prochainNumeroCommande() {
+        String jour = LocalDate.now().format(FORMAT_JOUR);
+        while (true) {
+            Bloc bloc = blocCommande.get();
+            if (bloc != null && bloc.jour.equals(jour)) {
+                long numero = bloc.prochain.getAndIncrement();
+                if (numero <= bloc.dernier) {
+                    return String.format("CMD-%s-%04d", jour, numero);
+                }
+            }
+            renouvelerBloc(bloc, jour);
+        }
+    }
+
+    /**
+     * Prochain numéro de facture au format FAC-yyyyMMdd-NNNN, sans trou.
+     * Doit être appelé dans la transaction qui enregistre la facture.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public String prochainNumeroFacture() {
+        String jour = LocalDate.now().format(FORMAT_JOUR);
+        long numero = reserver("FAC-" + jour, 1);
+        return String.format("FAC-%s-%04d", jour, numero);
+    }
+
+    /**
+     * Réserver un nouveau bloc si le bloc courant est épuisé ou d'un autre jour.
+     * Seul le renouvellement est synchronisé ; la distribution reste sans verrou.
+     */
+    private synchronized void renouvelerBloc(Bloc epuise, String jour) {
+        if (blocCommande.get() != epuise) {
+            return; // Un autre thread a déjà renouvelé le bloc
+        }
+        String cle = "CMD-" + jour;
+        int taille = Math.max(1, tailleBlocCommande);
+        Long fin = transactionReservation.execute(status -> reserver(cle, taille));
+        blocCommande.set(new Bloc(jour, fin - taille + 1, fin));
+    }
+
+    /**
+     * Incrémenter le compteur de la clé dans la transaction courante et
+     * retourner la nouvelle valeur (fin de l'intervalle réservé)
+     */
+    private Long reserver(String cle, long pas) {
+        if (compteurSequenceRepository.incrementer(cle, pas) == 0) {
+            // Premier numéro du jour : le compteur est créé et validé à part, pour ne pas
+            // garder de verrou d'insertion dans la transaction appelante
+            transactionReservation.executeWithoutResult(status -> compteurSequenceRepository.initialiser(cle));
+            if (compteurSequenceRepository.incrementer(cle, pas) != 1) {
+                throw new RuntimeException("Compteur de séquence introuvable : " + cle);
+            }
+        }
+        return compteurSequenceRepository.lireValeur(cle);
+    }
+
+    private static class Bloc {
+        private final String jour;
+        private final AtomicLong prochain;
+        private final long dernier;
+
+        private Bloc(String jour, long premier, long dernier) {
+            this.jour = jour;
+            this.prochain = new AtomicLong(premier);
+            this.dernier = dernier;
+        }
+    }
+}
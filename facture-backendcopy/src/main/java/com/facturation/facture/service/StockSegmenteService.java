@@ -0,0 +1,291 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.repository.StockSegmenteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stock segmenté des produits très demandés (ventes flash).
+ *
+ * Le stock d'un produit signalé est réparti sur plusieurs segments
+ * (table stocks_segments) ; chaque commande décrémente un segment tiré au
+ * hasard, et des commandes concurrentes sur le même produit ne se disputent
+ * plus une seule ligne. Quand le segment tiré ne couvre pas la quantité, les
+ * segments libres sont regroupés (sans attendre) et répartis de nouveau ;
+ * s'ils ne suffisent pas alors que d'autres segments sont tenus par des
+ * commandes en cours, la commande n'attend pas ces segments en gardant les
+ * siens (risque d'interblocage) : elle est annulée, ce qui relâche ses
+ * verrous, puis rejouée (voir SegmentsOccupesException). Un refus correspond
+ * donc toujours à un stock réellement insuffisant. La colonne
+ * quantite_stock du produit reçoit périodiquement la somme des segments
+ * (lectures du catalogue, alertes de stock).
+ *
+ * Le mode de chaque produit est tenu en cache ; les UPDATE du stock simple
+ * sont conditionnés à stock_segmente = FALSE, un cache en retard n'entraîne
+ * donc qu'un second essai dans l'autre mode (voir StockService).
+ */
+@Service
+public class StockSegmenteService {
+
+    public static final String COMPTEUR_REEQUILIBRAGES = "stock.segments.reequilibrages";
+    public static final String COMPTEUR_SEGMENTS_OCCUPES = "stock.segments.occupes";
+
+    public static final int SEGMENTS_MIN = 2;
+    public static final int SEGMENTS_MAX = 64;
+
+    private static final Logger log = LoggerFactory.getLogger(StockSegmenteService.class);
+
+    public enum Resultat { DECREMENTE, INSUFFISANT, NON_SEGMENTE }
+
+    private final StockSegmenteRepository stockSegmenteRepository;
+    private final SupervisionService supervisionService;
+    private final TransactionTemplate transactionTemplate;
+
+    // Nombre de segments des produits en stock segmenté
+    private final Map<Long, Integer> segmentsParProduit = new ConcurrentHashMap<>();
+
+    @Value("${facturation.stock.segments.nombre:8}")
+    private int nombreSegmentsParDefaut = 8;
+
+    @Autowired
+    public StockSegmenteService(StockSegmenteRepository stockSegmenteRepository,
+                                SupervisionService supervisionService,
+                                PlatformTransactionManager transactionManager) {
+        this.stockSegmenteRepository = stockSegmenteRepository;
+        this.supervisionService = supervisionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Le produit est-il en stock segmenté (d'après le cache)
+     */
+    public boolean estSegmente(Long idProduit) {
+        return segmentsParProduit.containsKey(idProduit);
+    }
+
+    /**
+     * Relire en base le mode d'un produit (bascule faite depuis la lecture du cache)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean actualiser(Long idProduit) {
+        int segments = stockSegmenteRepository.nombreSegments(idProduit);
+        if (segments == 0) {
+            segmentsParProduit.remove(idProduit);
+            return false;
+        }
+        segmentsParProduit.put(idProduit, segments);
+        return true;
+    }
+
+    /**
+     * Décrémenter le stock segmenté d'un produit : un segment tiré au hasard, ou à
+     * défaut le regroupement des segments libres
+     *
+     * @throws SegmentsOccupesException si les segments libres ne suffisent pas
+     *         alors que d'autres sont tenus par des commandes en cours
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Resultat decrementer(Long idProduit, int quantite) {
+        Integer segments = segmentsParProduit.get(idProduit);
+        if (segments == null) {
+            if (!actualiser(idProduit)) {
+                return Resultat.NON_SEGMENTE;
+            }
+            segments = segmentsParProduit.get(idProduit);
+        }
+
+        if (stockSegmenteRepository.decrementerSegment(idProduit, ThreadLocalRandom.current().nextInt(segments), quantite)) {
+            return Resultat.DECREMENTE;
+        }
+
+        // Segment insuffisant : les segments libres sont regroupés, la quantité est
+        // prise sur leur total et le reste est réparti de nouveau entre eux
+        Map<Integer, Integer> libres = stockSegmenteRepository.verrouillerSegmentsLibres(idProduit);
+        int total = libres.values().stream().mapToInt(Integer::intValue).sum();
+        if (total < quantite) {
+            if (!actualiser(idProduit)) {
+                return Resultat.NON_SEGMENTE;
+            }
+            if (libres.size() < segmentsParProduit.getOrDefault(idProduit, 0)) {
+                // Segments tenus par des commandes en cours : pas d'attente en gardant les
+                // segments libres verrouillés, la commande est annulée puis rejouée
+                supervisionService.incrementer(COMPTEUR_SEGMENTS_OCCUPES);
+                throw new SegmentsOccupesException(idProduit);
+            }
+            return Resultat.INSUFFISANT;
+        }
+        stockSegmenteRepository.definirSegments(idProduit, repartir(total - quantite, libres.keySet()));
+        supervisionService.incrementer(COMPTEUR_REEQUILIBRAGES);
+        return Resultat.DECREMENTE;
+    }
+
+    /**
+     * Remettre une quantité dans un segment tiré au hasard
+     *
+     * @return false si le produit n'est pas en stock segmenté
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean incrementer(Long idProduit, int quantite) {
+        Integer segments = segmentsParProduit.get(idProduit);
+        if (segments == null) {
+            if (!actualiser(idProduit)) {
+                return false;
+            }
+            segments = segmentsParProduit.get(idProduit);
+        }
+        if (stockSegmenteRepository.incrementerSegment(idProduit, ThreadLocalRandom.current().nextInt(segments), quantite)) {
+            return true;
+        }
+        // Le nombre de segments a changé depuis la lecture du cache
+        return actualiser(idProduit) && stockSegmenteRepository.incrementerSegment(idProduit, 0, quantite);
+    }
+
+    /**
+     * Passer un produit en stock segmenté avec le nombre de segments par défaut
+     */
+    public void activer(Long idProduit) {
+        activer(idProduit, nombreSegmentsParDefaut);
+    }
+
+    /**
+     * Passer un produit en stock segmenté : son stock est réparti sur le nombre de segments donné
+     */
+    public void activer(Long idProduit, int segments) {
+        if (segments < SEGMENTS_MIN || segments > SEGMENTS_MAX) {
+            throw new RuntimeException("Le nombre de segments doit être compris entre "
+                    + SEGMENTS_MIN + " et " + SEGMENTS_MAX);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            Integer stock = stockSegmenteRepository.verrouillerProduit(idProduit, false);
+            if (stock == null) {
+                throw new RuntimeException("Produit non trouvé ou déjà en stock segmenté : " + idProduit);
+            }
+            stockSegmenteRepository.supprimerSegments(idProduit);
+            stockSegmenteRepository.creerSegments(idProduit, repartir(stock, segments));
+            stockSegmenteRepository.changerMode(idProduit, true, stock);
+        });
+        segmentsParProduit.put(idProduit, segments);
+        log.info("Produit {} passé en stock segmenté ({} segments)", idProduit, segments);
+    }
+
+    /**
+     * Repasser un produit en stock simple : quantite_stock reçoit la somme des segments
+     */
+    public void desactiver(Long idProduit) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Ligne produit puis segments, dans le même ordre que les commandes
+            if (stockSegmenteRepository.verrouillerProduit(idProduit, true) == null) {
+                throw new RuntimeException("Produit non trouvé ou pas en stock segmenté : " + idProduit);
+            }
+            int total = stockSegmenteRepository.verrouillerSegments(idProduit).values().stream()
+                    .mapToInt(Integer::intValue).sum();
+            stockSegmenteRepository.supprimerSegments(idProduit);
+            stockSegmenteRepository.changerMode(idProduit, false, total);
+        });
+        segmentsParProduit.remove(idProduit);
+        log.info("Produit {} repassé en stock simple", idProduit);
+    }
+
+    /**
+     * Fixer le stock total d'un produit segmenté (ajustement d'inventaire)
+     *
+     * @return le total des segments avant ajustement, ou null si le produit n'est pas en stock segmenté
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Integer redefinir(Long idProduit, int quantite) {
+        Map<Integer, Integer> segments = stockSegmenteRepository.verrouillerSegments(idProduit);
+        if (segments.isEmpty()) {
+            return null;
+        }
+        stockSegmenteRepository.definirSegments(idProduit, repartir(quantite, segments.keySet()));
+        return segments.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Reporter la somme des segments dans quantite_stock et rééquilibrer les
+     * produits dont un segment est vide alors que le total suffirait à tous
+     */
+    @Scheduled(fixedDelayString = "${facturation.stock.segments.synchronisation-ms:5000}")
+    public void synchroniser() {
+        try {
+            Map<Long, int[]> quantitesParProduit = stockSegmenteRepository.quantitesParProduit();
+            Map<Long, Integer> totaux = new HashMap<>();
+            quantitesParProduit.forEach((idProduit, quantites) -> {
+                totaux.put(idProduit, Arrays.stream(quantites).sum());
+                segmentsParProduit.put(idProduit, quantites.length);
+            });
+            segmentsParProduit.keySet().retainAll(quantitesParProduit.keySet());
+            if (totaux.isEmpty()) {
+                return;
+            }
+
+            transactionTemplate.executeWithoutResult(status -> stockSegmenteRepository.synchroniserStocks(totaux));
+
+            quantitesParProduit.forEach((idProduit, quantites) -> {
+                if (Arrays.stream(quantites).min().orElse(0) == 0 && totaux.get(idProduit) >= quantites.length) {
+                    transactionTemplate.executeWithoutResult(status -> reequilibrer(idProduit));
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Synchronisation du stock segmenté impossible : {}", e.getMessage());
+        }
+    }
+
+    private void reequilibrer(Long idProduit) {
+        Map<Integer, Integer> segments = stockSegmenteRepository.verrouillerSegments(idProduit);
+        if (segments.isEmpty()) {
+            return;
+        }
+        int total = segments.values().stream().mapToInt(Integer::intValue).sum();
+        stockSegmenteRepository.definirSegments(idProduit, repartir(total, segments.keySet()));
+        supervisionService.incrementer(COMPTEUR_REEQUILIBRAGES);
+    }
+
+    /**
+     * Répartir une quantité sur des segments (écart d'au plus une unité)
+     */
+    static int[] repartir(int quantite, int segments) {
+        int[] quantites = new int[segments];
+        for (int numero = 0; numero < segments; numero++) {
+            quantites[numero] = quantite / segments + (numero < quantite % segments ? 1 : 0);
+        }
+        return quantites;
+    }
+
+    private static Map<Integer, Integer> repartir(int quantite, Collection<Integer> numeros) {
+        int[] quantites = repartir(quantite, numeros.size());
+        Map<Integer, Integer> parNumero = new HashMap<>();
+        int index = 0;
+        for (Integer numero : numeros) {
+            parNumero.put(numero, quantites[index++]);
+        }
+        return parNumero;
+    }
+
+    /**
+     * Stock segmenté indécidable sans attendre des segments tenus par d'autres
+     * commandes. Seul conflit de verrou pessimiste rejoué par ReessaiSurConflit :
+     * la nouvelle tentative repart d'une transaction sans verrou.
+     */
+    public static class SegmentsOccupesException extends PessimisticLockingFailureException {
+        public SegmentsOccupesException(Long idProduit) {
+            super("Stock du produit " + idProduit + " en cours de réservation par d'autres commandes, veuillez réessayer");
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.model.Commande;
+import com.facturation.facture.model.LigneCommande;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.model.enums.StatutCommande;
+import com.facturation.facture.model.enums.TypeMouvementStock;
+import com.facturation.facture.repository.CommandeRepository;
+import com.facturation.facture.repository.LigneCommandeRepository;
+import com.facturation.facture.repository.ProduitRepository;
+import com.facturation.facture.repository.StockBatchRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Réservation du stock des commandes.
+ *
+ * Le stock est décrémenté dès que des produits entrent dans une commande
+ * (validation du panier, création, ajout de lignes) par des UPDATE
+ * conditionnels groupés : un produit dont le stock est insuffisant fait
+ * échouer l'opération immédiatement, et l'annulation de la transaction
+ * appelante restitue les produits déjà décrémentés. Le stock réservé est
+ * rendu à l'annulation de la commande. Les produits en stock segmenté sont
+ * décrémentés segment par segment (voir StockSegmenteService). Chaque
+ * mouvement est ajouté au journal de stock (voir JournalStockService).
+ *
+ * Les méthodes s'exécutent dans la transaction de l'appelant.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class StockService {
+
+    public static final String COMPTEUR_RESERVATIONS = "stock.reservations";
+    public static final String COMPTEUR_RUPTURES = "stock.ruptures";
+    public static final String COMPTEUR_RESTITUTIONS = "stock.restitutions";
+
+    private final StockBatchRepository stockBatchRepository;
+    private final ProduitRepository produitRepository;
+    private final CommandeRepository commandeRepository;
+    private final LigneCommandeRepository ligneCommandeRepository;
+    private final StockSegmenteService stockSegmenteService;
+    private final JournalStockService journalStockService;
+    private final SupervisionService supervisionService;
+
+    @Autowired
+    public StockService(StockBatchRepository stockBatchRepository,
+                        ProduitRepository produitRepository,
+                        CommandeRepository commandeRepository,
+                        LigneCommandeRepository ligneCommandeRepository,
+                        StockSegmenteService stockSegmenteService,
+                        JournalStockService journalStockService,
+                        SupervisionService supervisionService) {
+        this.stockBatchRepository = stockBatchRepository;
+        this.produitRepository = produitRepository;
+        this.commandeRepository = commandeRepository;
+        this.ligneCommandeRepository = ligneCommandeRepository;
+        this.stockSegmenteService = stockSegmenteService;
+        this.journalStockService = journalStockService;
+        this.supervisionService = supervisionService;
+    }
+
+    /**
+     * Réserver le stock de toutes les lignes d'une commande
+     */
+    public void reserverStock(Commande commande) {
+        Map<Long, Integer> quantites = new HashMap<>();
+        if (commande.getLignesCommande() != null) {
+            for (LigneCommande ligne : commande.getLignesCommande()) {
+                quantites.merge(ligne.getProduit().getId(), ligne.getQuantite(), Integer::sum);
+            }
+        }
+        reserver(quantites);
+        commande.setStockReserve(true);
+    }
+
+    /**
+     * Répercuter sur le stock la variation de quantité d'un produit dans une
+     * commande (positive = réservation, négative = restitution).
+     * Sans effet si le stock de la commande n'est pas réservé.
+     */
+    public void ajusterReservation(Commande commande, Long idProduit, int variation) {
+        Map<Long, Integer> variations = new HashMap<>();
+        variations.put(idProduit, variation);
+        ajusterReservation(commande, variations);
+    }
+
+    /**
+     * Répercuter sur le stock plusieurs variations de quantité (par produit)
+     */
+    public void ajusterReservation(Commande commande, Map<Long, Integer> variations) {
+        if (!Boolean.TRUE.equals(commande.getStockReserve())) {
+            return;
+        }
+        Map<Long, Integer> aReserver = new HashMap<>();
+        Map<Long, Integer> aRestituer = new HashMap<>();
+        variations.forEach((idProduit, variation) -> {
+            if (variation > 0) {
+                aReserver.put(idProduit, variation);
+            } else if (variation < 0) {
+                aRestituer.put(idProduit, -variation);
+            }
+        });
+        reserver(aReserver);
+        remettreEnStock(aRestituer);
+    }
+
+    /**
+     * Restituer le stock réservé d'une commande (annulation)
+     */
+    public void restituerStock(Commande commande) {
+        if (!Boolean.TRUE.equals(commande.getStockReserve())) {
+            return;
+        }
+        if (commande.getId() != null) {
+            remettreEnStock(
+                    quantitesParProduit(ligneCommandeRepository.sumQuantitesParProduit(List.of(commande.getId()))));
+        }
+        commande.setStockReserve(false);
+        supervisionService.incrementer(COMPTEUR_RESTITUTIONS);
+    }
+
+    /**
+     * Restituer en une fois le stock réservé des commandes annulées parmi les ids
+     * donnés (traitements ensemblistes). Les commandes sont verrouillées avant la
+     * lecture des quantités : une même réservation n'est jamais rendue deux fois.
+     *
+     * @return le nombre de commandes dont le stock a été restitué
+     */
+    public int restituerStockCommandes(Collection<Long> idsCommandes) {
+        if (idsCommandes.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = commandeRepository.verrouillerIdsAvecStockReserve(idsCommandes, StatutCommande.ANNULEE);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        remettreEnStock(quantitesParProduit(ligneCommandeRepository.sumQuantitesParProduit(ids)));
+        commandeRepository.libererStockCommandes(ids);
+        supervisionService.ajouter(COMPTEUR_RESTITUTIONS, ids.size());
+        return ids.size();
+    }
+
+    /**
+     * Réserver en une fois le stock des commandes d'un statut dont le stock
+     * n'est pas encore réservé parmi les ids donnés (commandes antérieures à
+     * la réservation, traitements ensemblistes). Les commandes sont verrouillées
+     * avant la lecture des quantités : un même stock n'est jamais pris deux fois.
+     * Échoue sans rien décrémenter si un produit manque.
+     *
+     * @return le nombre de commandes dont le stock a été réservé
+     */
+    public int reserverStockCommandes(Collection<Long> idsCommandes, StatutCommande statut) {
+        if (idsCommandes.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = commandeRepository.verrouillerIdsSansStockReserve(idsCommandes, statut);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        reserver(quantitesParProduit(ligneCommandeRepository.sumQuantitesParProduit(ids)));
+        commandeRepository.reserverStockCommandes(ids);
+        return ids.size();
+    }
+
+    /**
+     * Décrémenter le stock des quantités données, ou échouer si un produit manque
+     */
+    public void reserver(Map<Long, Integer> quantitesParProduit) {
+        reserver(quantitesParProduit, TypeMouvementStock.COMMANDE);
+    }
+
+    /**
+     * Décrémenter le stock, journalisé sous le type de mouvement donné
+     */
+    public void reserver(Map<Long, Integer> quantitesParProduit, TypeMouvementStock type) {
+        if (quantitesParProduit.isEmpty()) {
+            return;
+        }
+        List<Long> insuffisants = decrementer(quantitesParProduit);
+        if (insuffisants.isEmpty()) {
+            journalStockService.enregistrerSorties(type, quantitesParProduit);
+            supervisionService.incrementer(COMPTEUR_RESERVATIONS);
+            return;
+        }
+
+        // La transaction appelante est annulée : les produits déjà décrémentés sont restitués
+        supervisionService.incrementer(COMPTEUR_RUPTURES);
+        String detail = produitRepository.findAllById(insuffisants).stream()
+                .map(produit -> descriptionRupture(produit, quantitesParProduit.get(produit.getId())))
+                .collect(Collectors.joining(", "));
+        throw new RuntimeException("Stock insuffisant : " + detail);
+    }
+
+    /**
+     * Remettre en stock les quantités données (restitution)
+     */
+    public void remettreEnStock(Map<Long, Integer> quantitesParProduit) {
+        remettreEnStock(quantitesParProduit, TypeMouvementStock.RESTITUTION);
+    }
+
+    /**
+     * Remettre en stock, journalisé sous le type de mouvement donné
+     */
+    public void remettreEnStock(Map<Long, Integer> quantitesParProduit, TypeMouvementStock type) {
+        Map<Long, Integer> simples = new HashMap<>();
+        Map<Long, Integer> segmentes = new TreeMap<>();
+        repartirParMode(quantitesParProduit, simples, segmentes);
+
+        for (Long idProduit : stockBatchRepository.incrementer(simples)) {
+            if (stockSegmenteService.actualiser(idProduit)) {
+                segmentes.put(idProduit, simples.get(idProduit));
+            }
+        }
+        segmentes.forEach((idProduit, quantite) -> {
+            if (quantite != null && quantite > 0 && !stockSegmenteService.incrementer(idProduit, quantite)) {
+                // Repassé en stock simple depuis la lecture du cache
+                stockBatchRepository.incrementer(Map.of(idProduit, quantite));
+            }
+        });
+        journalStockService.enregistrerEntrees(type, quantitesParProduit);
+    }
+
+    /**
+     * Décrémenter le stock simple (un batch) puis le stock segmenté des produits
+     *
+     * @return les ids des produits dont le stock était insuffisant
+     */
+    private List<Long> decrementer(Map<Long, Integer> quantitesParProduit) {
+        Map<Long, Integer> simples = new HashMap<>();
+        Map<Long, Integer> segmentes = new TreeMap<>();
+        repartirParMode(quantitesParProduit, simples, segmentes);
+
+        List<Long> insuffisants = new ArrayList<>();
+        for (Long idProduit : stockBatchRepository.decrementer(simples)) {
+            if (stockSegmenteService.actualiser(idProduit)) {
+                segmentes.put(idProduit, simples.get(idProduit));
+            } else {
+                insuffisants.add(idProduit);
+            }
+        }
+        segmentes.forEach((idProduit, quantite) -> {
+            if (quantite == null || quantite <= 0) {
+                return;
+            }
+            switch (stockSegmenteService.decrementer(idProduit, quantite)) {
+                case INSUFFISANT -> insuffisants.add(idProduit);
+                case NON_SEGMENTE -> insuffisants.addAll(stockBatchRepository.decrementer(Map.of(idProduit, quantite)));
+                default -> { }
+            }
+        });
+        return insuffisants;
+    }
+
+    private void repartirParMode(Map<Long, Integer> quantitesParProduit,
+                                 Map<Long, Integer> simples, Map<Long, Integer> segmentes) {
+        quantitesParProduit.forEach((idProduit, quantite) ->
+                (stockSegmenteService.estSegmente(idProduit) ? segmentes : simples).put(idProduit, quantite));
+    }
+
+    private static String descriptionRupture(Produit produit, Integer quantiteDemandee) {
+        return "'" + produit.getNom() + "' (demandé : " + quantiteDemandee
+                + ", disponible : " + produit.getQuantiteStock() + ")";
+    }
+
+    private static Map<Long, Integer> quantitesParProduit(List<Object[]> lignes) {
+        Map<Long, Integer> quantites = new HashMap<>();
+        for (Object[] ligne : lignes) {
+            quantites.put((Long) ligne[0], ((Number) ligne[1]).intValue());
+        }
+        return quantites;
+    }
+}
@@ -0,0 +1,40 @@
+package com.facturation.facture.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compteurs de supervision en mémoire (conflits de verrouillage, traitements
+ * planifiés...). Les compteurs sont cumulés depuis le démarrage de l'instance.
+ */
+@Service
+public class SupervisionService {
+
+    private final Map<String, LongAdder> compteurs = new ConcurrentHashMap<>();
+
+    public void incrementer(String nom) {
+        ajouter(nom, 1);
+    }
+
+    public void ajouter(String nom, long valeur) {
+        compteurs.computeIfAbsent(nom, n -> new LongAdder()).add(valeur);
+    }
+
+    public long valeur(String nom) {
+        LongAdder compteur = compteurs.get(nom);
+        return compteur != null ? compteur.sum() : 0;
+    }
+
+    /**
+     * Valeurs actuelles de tous les compteurs, triées par nom
+     */
+    public Map<String, Long> obtenirCompteurs() {
+        Map<String, Long> valeurs = new TreeMap<>();
+        compteurs.forEach((nom, compteur) -> valeurs.put(nom, compteur.sum()));
+        return valeurs;
+    }
+}
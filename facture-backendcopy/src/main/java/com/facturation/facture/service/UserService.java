@@ -3,10 +3,12 @@
 // ============================================
         package com.facturation.facture.service;
 
+import com.facturation.facture.event.UtilisateurModifieEvent;
 import com.facturation.facture.model.User;
 import com.facturation.facture.model.enums.Role;
 import com.facturation.facture.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,10 +21,12 @@ import java.util.Optional;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher evenements;
 
     @Autowired
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, ApplicationEventPublisher evenements) {
         this.userRepository = userRepository;
+        this.evenements = evenements;
     }
 
     // ====================== MÉTHODES CLIENTS ======================
@@ -72,6 +76,11 @@ public class UserService {
             throw new RuntimeException("Un autre utilisateur utilise déjà cet email : " + clientMisAJour.getEmail());
         }
 
+        // Email (identité du jeton d'authentification) retenu par le panier du client
+        if (!client.getEmail().equals(clientMisAJour.getEmail())) {
+            evenements.publishEvent(new UtilisateurModifieEvent(idClient));
+        }
+
         // Mettre à jour les champs (garder le rôle CLIENT)
         client.setNom(clientMisAJour.getNom());
         client.setPrenom(clientMisAJour.getPrenom());
@@ -145,6 +154,7 @@ public class UserService {
         }
 
         userRepository.deleteById(idClient);
+        evenements.publishEvent(new UtilisateurModifieEvent(idClient));
     }
 
     /**
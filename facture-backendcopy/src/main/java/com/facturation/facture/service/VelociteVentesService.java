@@ -0,0 +1,341 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.SuggestionReapprovisionnementDTO;
+import com.facturation.facture.event.CommandePayeeEvent;
+import com.facturation.facture.event.ProduitModifieEvent;
+import com.facturation.facture.model.enums.StatutCommande;
+import com.facturation.facture.repository.LigneCommandeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vélocité des ventes par produit et suggestions de réapprovisionnement.
+ *
+ * Chaque produit a un rythme de ventes (unités par jour) en moyenne mobile
+ * exponentielle, mis à jour à chaque commande payée : le rythme décroît avec
+ * le temps écoulé (demi-vie facturation.stock.velocite.demi-vie-jours) puis la
+ * quantité vendue s'y ajoute. Les rythmes sont rangés dans des tableaux
+ * primitifs indexés par une table à adressage ouvert, sans objet par produit ;
+ * un produit supprimé, ou dont le rythme est retombé à zéro (passage périodique
+ * facturation.stock.velocite.purge-ms), libère sa case.
+ * Les suggestions croisent ces rythmes avec le stock tenu en mémoire par les
+ * indicateurs du catalogue : aucune requête sur les commandes ni les produits.
+ * Au démarrage, les ventes récentes sont relues une fois
+ * (facturation.stock.velocite.historique-jours, 0 = pas de relecture).
+ */
+@Service
+public class VelociteVentesService {
+
+    public static final int JOURS_MAX = 365;
+
+    private static final Logger log = LoggerFactory.getLogger(VelociteVentesService.class);
+
+    private static final double MS_PAR_JOUR = 86_400_000d;
+    private static final int CAPACITE_INITIALE = 1024;
+
+    // En dessous de ce rythme (unités par jour), le produit n'est plus considéré comme vendu
+    private static final double VELOCITE_MIN = 0.001;
+
+    private final LigneCommandeRepository ligneCommandeRepository;
+    private final IndicateursCatalogueService indicateursCatalogueService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${facturation.stock.velocite.demi-vie-jours:7}")
+    private double demiVieJours;
+
+    @Value("${facturation.stock.velocite.historique-jours:28}")
+    private int historiqueJours;
+
+    // Table à adressage ouvert (id produit -> case) et tableaux parallèles, sous le verrou de l'instance ;
+    // id 0 = case libre
+    private long[] ids = new long[CAPACITE_INITIALE];
+    private double[] velocites = new double[CAPACITE_INITIALE];
+    private long[] instants = new long[CAPACITE_INITIALE];
+    private int taille;
+
+    @Autowired
+    public VelociteVentesService(LigneCommandeRepository ligneCommandeRepository,
+                                 IndicateursCatalogueService indicateursCatalogueService,
+                                 PlatformTransactionManager transactionManager) {
+        this.ligneCommandeRepository = ligneCommandeRepository;
+        this.indicateursCatalogueService = indicateursCatalogueService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Ajouter les ventes d'une ou plusieurs commandes payées
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void surCommandePayee(CommandePayeeEvent evenement) {
+        long maintenant = System.currentTimeMillis();
+        synchronized (this) {
+            evenement.getQuantites().forEach((idProduit, quantite) -> {
+                if (idProduit != null && quantite != null && quantite > 0) {
+                    enregistrer(idProduit, quantite, maintenant);
+                }
+            });
+        }
+    }
+
+    /**
+     * Libérer la case d'un produit supprimé
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void surProduitModifie(ProduitModifieEvent evenement) {
+        if (evenement.isSupprime() && evenement.getIdProduit() != null) {
+            int i = chercher(evenement.getIdProduit());
+            if (i >= 0) {
+                liberer(i);
+            }
+        }
+    }
+
+    /**
+     * Libérer les cases des produits dont le rythme est retombé sous le minimum
+     *
+     * @return le nombre de produits retirés
+     */
+    @Scheduled(fixedDelayString = "${facturation.stock.velocite.purge-ms:3600000}",
+            initialDelayString = "${facturation.stock.velocite.purge-ms:3600000}")
+    public int purger() {
+        long maintenant = System.currentTimeMillis();
+        int retires = 0;
+        synchronized (this) {
+            for (int i = 0; i < ids.length; ) {
+                if (ids[i] != 0 && velociteA(i, maintenant) < VELOCITE_MIN) {
+                    // La case reçoit éventuellement un produit décalé : revue à nouveau
+                    liberer(i);
+                    retires++;
+                } else {
+                    i++;
+                }
+            }
+        }
+        if (retires > 0) {
+            log.debug("Vélocité des ventes : {} produit(s) sans vente récente retiré(s)", retires);
+        }
+        return retires;
+    }
+
+    /**
+     * Produits vendus dont le stock devrait atteindre le seuil d'alerte d'ici
+     * le nombre de jours donné, les plus urgents d'abord. La quantité suggérée
+     * maintient le stock au-dessus du seuil sur tout l'horizon.
+     */
+    public List<SuggestionReapprovisionnementDTO> obtenirSuggestions(int jours) {
+        if (jours < 1 || jours > JOURS_MAX) {
+            throw new RuntimeException("Le nombre de jours doit être compris entre 1 et " + JOURS_MAX);
+        }
+
+        Map<Long, Double> vendus = obtenirVelocites();
+        Map<Long, IndicateursCatalogueService.EtatStock> stocks =
+                indicateursCatalogueService.obtenirEtatsStock(vendus.keySet());
+        List<SuggestionReapprovisionnementDTO> suggestions = new ArrayList<>();
+        vendus.forEach((idProduit, velocite) -> {
+            IndicateursCatalogueService.EtatStock etat = stocks.get(idProduit);
+            if (etat == null) {
+                return;
+            }
+            int marge = etat.getStock() - etat.getSeuilAlerte();
+            double joursAvantSeuil = marge <= 0 ? 0 : marge / velocite;
+            if (joursAvantSeuil > jours) {
+                return;
+            }
+
+            SuggestionReapprovisionnementDTO suggestion = new SuggestionReapprovisionnementDTO();
+            suggestion.setProduitId(idProduit);
+            suggestion.setNom(etat.getNom());
+            suggestion.setQuantiteStock(etat.getStock());
+            suggestion.setSeuilAlerte(etat.getSeuilAlerte());
+            suggestion.setVentesParJour(BigDecimal.valueOf(velocite).setScale(2, RoundingMode.HALF_UP));
+            suggestion.setJoursAvantSeuil(BigDecimal.valueOf(joursAvantSeuil).setScale(1, RoundingMode.DOWN));
+            suggestion.setQuantiteSuggeree((int) Math.floor(velocite * jours - marge) + 1);
+            suggestions.add(suggestion);
+        });
+
+        suggestions.sort(Comparator.comparing(SuggestionReapprovisionnementDTO::getJoursAvantSeuil)
+                .thenComparing(SuggestionReapprovisionnementDTO::getVentesParJour, Comparator.reverseOrder()));
+        return suggestions;
+    }
+
+    /**
+     * Rythme de ventes actuel des produits vendus (unités par jour)
+     */
+    public synchronized Map<Long, Double> obtenirVelocites() {
+        long maintenant = System.currentTimeMillis();
+        Map<Long, Double> vendus = new LinkedHashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] != 0) {
+                double velocite = velociteA(i, maintenant);
+                if (velocite >= VELOCITE_MIN) {
+                    vendus.put(ids[i], velocite);
+                }
+            }
+        }
+        return vendus;
+    }
+
+    /**
+     * Rythme de ventes actuel d'un produit (0 s'il n'est pas vendu)
+     */
+    public synchronized double obtenirVelocite(Long idProduit) {
+        int i = idProduit != null ? chercher(idProduit) : -1;
+        if (i < 0) {
+            return 0;
+        }
+        double velocite = velociteA(i, System.currentTimeMillis());
+        return velocite >= VELOCITE_MIN ? velocite : 0;
+    }
+
+    /**
+     * Relire les ventes récentes au démarrage
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void charger() {
+        if (historiqueJours <= 0) {
+            return;
+        }
+        try {
+            List<Object[]> ventes = transactionTemplate.execute(status -> ligneCommandeRepository.findVentesDepuis(
+                    List.of(StatutCommande.PAYEE, StatutCommande.LIVREE),
+                    LocalDateTime.now().minusDays(historiqueJours)));
+            ZoneId zone = ZoneId.systemDefault();
+            synchronized (this) {
+                for (Object[] vente : ventes) {
+                    Integer quantite = (Integer) vente[2];
+                    if (vente[0] != null && vente[1] != null && quantite != null && quantite > 0) {
+                        long instant = ((LocalDateTime) vente[1]).atZone(zone).toInstant().toEpochMilli();
+                        enregistrer((Long) vente[0], quantite, instant);
+                    }
+                }
+            }
+            log.info("Vélocité des ventes initialisée ({} ligne(s) de commande)", ventes.size());
+        } catch (RuntimeException e) {
+            log.warn("Initialisation de la vélocité des ventes impossible : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ajouter une vente : r(t) = somme des q * exp(-(t - t_vente) / tau) / tau, en unités par jour.
+     * Une vente antérieure au dernier instant de la case est ajoutée déjà amortie.
+     */
+    private void enregistrer(long idProduit, int quantite, long instant) {
+        int i = caseProduit(idProduit);
+        double tauJours = demiVieJours / Math.log(2);
+        if (instants[i] == 0) {
+            instants[i] = instant;
+        } else if (instant > instants[i]) {
+            velocites[i] = velociteA(i, instant);
+            instants[i] = instant;
+        }
+        double ecartJours = (instants[i] - instant) / MS_PAR_JOUR;
+        velocites[i] += quantite / tauJours * Math.exp(-ecartJours / tauJours);
+    }
+
+    private double velociteA(int i, long instant) {
+        double ecartJours = Math.max(0, instant - instants[i]) / MS_PAR_JOUR;
+        return velocites[i] * Math.exp(-ecartJours * Math.log(2) / demiVieJours);
+    }
+
+    private int chercher(long idProduit) {
+        int masque = ids.length - 1;
+        for (int i = hacher(idProduit) & masque; ; i = (i + 1) & masque) {
+            if (ids[i] == idProduit) {
+                return i;
+            }
+            if (ids[i] == 0) {
+                return -1;
+            }
+        }
+    }
+
+    // Case du produit, créée au besoin (la table reste au plus à moitié pleine)
+    private int caseProduit(long idProduit) {
+        int i = chercher(idProduit);
+        if (i >= 0) {
+            return i;
+        }
+        if ((taille + 1) * 2 > ids.length) {
+            agrandir();
+        }
+        int masque = ids.length - 1;
+        i = hacher(idProduit) & masque;
+        while (ids[i] != 0) {
+            i = (i + 1) & masque;
+        }
+        ids[i] = idProduit;
+        taille++;
+        return i;
+    }
+
+    // Vider une case puis y ramener les produits suivants de la même série de
+    // sondage (pas de marqueur de suppression : chercher s'arrête à la première case libre)
+    private void liberer(int i) {
+        int masque = ids.length - 1;
+        int libre = i;
+        vider(libre);
+        taille--;
+        for (int j = (libre + 1) & masque; ids[j] != 0; j = (j + 1) & masque) {
+            int origine = hacher(ids[j]) & masque;
+            if (((j - origine) & masque) >= ((j - libre) & masque)) {
+                ids[libre] = ids[j];
+                velocites[libre] = velocites[j];
+                instants[libre] = instants[j];
+                vider(j);
+                libre = j;
+            }
+        }
+    }
+
+    private void vider(int i) {
+        ids[i] = 0;
+        velocites[i] = 0;
+        instants[i] = 0;
+    }
+
+    private void agrandir() {
+        long[] anciensIds = ids;
+        double[] anciennesVelocites = velocites;
+        long[] anciensInstants = instants;
+        ids = new long[anciensIds.length * 2];
+        velocites = new double[ids.length];
+        instants = new long[ids.length];
+        int masque = ids.length - 1;
+        for (int j = 0; j < anciensIds.length; j++) {
+            if (anciensIds[j] != 0) {
+                int i = hacher(anciensIds[j]) & masque;
+                while (ids[i] != 0) {
+                    i = (i + 1) & masque;
+                }
+                ids[i] = anciensIds[j];
+                velocites[i] = anciennesVelocites[j];
+                instants[i] = anciensInstants[j];
+            }
+        }
+    }
+
+    private static int hacher(long idProduit) {
+        long h = idProduit * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,94 @@
+package com.facturation.facture.benchmark;
+
+import com.facturation.facture.dto.SuggestionAutocompletionDTO;
+import com.facturation.facture.event.CatalogueModifieEvent;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.service.AutocompletionService;
+import com.facturation.facture.service.CatalogueAleatoire;
+import com.facturation.facture.service.CatalogueService;
+import com.facturation.facture.service.VelociteVentesService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Complétion pendant la saisie sur le catalogue en mémoire : préfixes
+ * tournants (courts, précalculés, et longs, sur plusieurs mots), et
+ * reconstruction complète de l'index.
+ *
+ * Lancement (après mvn test-compile) : exécuter main depuis l'IDE, ou
+ * java -cp target/test-classes:target/classes:&lt;classpath de test&gt;
+ * com.facturation.facture.benchmark.AutocompletionBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutocompletionBenchmark {
+
+    private static final String[] PREFIXES = {"c", "cl", "cla", "clavier", "clavier sans", "ecran n", "tel", "port",
+            "adaptateur u", "batt"};
+
+    @Param({"10000", "100000"})
+    private int nombreProduits;
+
+    private CatalogueService.Catalogue catalogue;
+    private AutocompletionService autocompletionService;
+    private int numeroPrefixe;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        List<Produit> produits = CatalogueAleatoire.entites(nombreProduits, 42);
+        Map<Long, Double> velocites = new HashMap<>();
+        for (Produit produit : produits) {
+            velocites.put(produit.getId(), (double) (produit.getId() % 97));
+        }
+        VelociteVentesService velociteVentesService = mock(VelociteVentesService.class);
+        when(velociteVentesService.obtenirVelocites()).thenReturn(velocites);
+
+        CatalogueService catalogueService = CatalogueAleatoire.service(produits);
+        catalogue = catalogueService.obtenirCatalogue();
+        autocompletionService = new AutocompletionService(catalogueService, velociteVentesService);
+        autocompletionService.surCatalogueModifie(new CatalogueModifieEvent(catalogue, null));
+    }
+
+    @Benchmark
+    public List<SuggestionAutocompletionDTO> completer() {
+        numeroPrefixe = (numeroPrefixe + 1) % PREFIXES.length;
+        return autocompletionService.completer(PREFIXES[numeroPrefixe], 10);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void construction() {
+        autocompletionService.surCatalogueModifie(new CatalogueModifieEvent(catalogue, null));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AutocompletionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
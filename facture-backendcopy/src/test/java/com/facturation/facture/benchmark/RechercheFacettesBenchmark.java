@@ -0,0 +1,96 @@
+package com.facturation.facture.benchmark;
+
+import com.facturation.facture.dto.RechercheFacettesDTO;
+import com.facturation.facture.event.CatalogueModifieEvent;
+import com.facturation.facture.repository.ProduitRepository;
+import com.facturation.facture.repository.ReservationStockRepository;
+import com.facturation.facture.repository.StockBatchRepository;
+import com.facturation.facture.service.CatalogueAleatoire;
+import com.facturation.facture.service.CatalogueService;
+import com.facturation.facture.service.RechercheFacettesService;
+import com.facturation.facture.service.ReservationStockService;
+import com.facturation.facture.service.SupervisionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Recherche à facettes dans le catalogue en mémoire : tous les filtres
+ * combinés (première page), facettes seules sans filtre, et reconstruction
+ * de l'index à chaque instantané du catalogue.
+ *
+ * Lancement (après mvn test-compile) : exécuter main depuis l'IDE, ou
+ * java -cp target/test-classes:target/classes:&lt;classpath de test&gt;
+ * com.facturation.facture.benchmark.RechercheFacettesBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RechercheFacettesBenchmark {
+
+    private static final List<Long> CATEGORIES = List.of(2L, 5L, 7L);
+    private static final BigDecimal PRIX_MIN = new BigDecimal("100");
+    private static final BigDecimal PRIX_MAX = new BigDecimal("30000");
+
+    @Param({"10000", "100000"})
+    private int nombreProduits;
+
+    private CatalogueService.Catalogue catalogue;
+    private RechercheFacettesService rechercheFacettesService;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        CatalogueService catalogueService = CatalogueAleatoire.service(CatalogueAleatoire.entites(nombreProduits, 42));
+        catalogue = catalogueService.obtenirCatalogue();
+        // Aucune réservation en cours : stock disponible = stock
+        ReservationStockService reservationStockService = new ReservationStockService(mock(ProduitRepository.class),
+                mock(ReservationStockRepository.class), mock(StockBatchRepository.class), mock(SupervisionService.class),
+                mock(PlatformTransactionManager.class));
+        rechercheFacettesService = new RechercheFacettesService(catalogueService, reservationStockService);
+        rechercheFacettesService.surCatalogueModifie(new CatalogueModifieEvent(catalogue, null));
+    }
+
+    @Benchmark
+    public RechercheFacettesDTO filtresCombines() {
+        return rechercheFacettesService.rechercher(CATEGORIES, PRIX_MIN, PRIX_MAX, true, 0, 50, 10);
+    }
+
+    @Benchmark
+    public RechercheFacettesDTO facettesSeules() {
+        return rechercheFacettesService.rechercher(null, null, null, null, 0, 0, 10);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void construction() {
+        rechercheFacettesService.surCatalogueModifie(new CatalogueModifieEvent(catalogue, null));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RechercheFacettesBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
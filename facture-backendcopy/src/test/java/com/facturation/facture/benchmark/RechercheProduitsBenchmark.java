@@ -0,0 +1,119 @@
+package com.facturation.facture.benchmark;
+
+import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.event.CatalogueModifieEvent;
+import com.facturation.facture.service.CatalogueAleatoire;
+import com.facturation.facture.service.CatalogueService;
+import com.facturation.facture.service.RechercheProduitsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recherche plein texte dans le catalogue en mémoire : index de trigrammes
+ * (requêtes tournantes, fautes de frappe comprises) contre parcours linéaire
+ * des textes normalisés (sous-chaînes exactes, sans classement), et
+ * reconstruction complète de l'index.
+ *
+ * Lancement (après mvn test-compile) : exécuter main depuis l'IDE, ou
+ * java -cp target/test-classes:target/classes:&lt;classpath de test&gt;
+ * com.facturation.facture.benchmark.RechercheProduitsBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RechercheProduitsBenchmark {
+
+    private static final String[] REQUETES = {"clavier sans fil", "ecran", "chargeur usb", "imprimnate", "casque gamer",
+            "batterie etanche", "proc", "souris ergonomique noir", "7ps", "ventilateur silencieux"};
+
+    @Param({"10000", "100000"})
+    private int nombreProduits;
+
+    private CatalogueService.Catalogue catalogue;
+    private RechercheProduitsService rechercheProduitsService;
+    private String[] textes;
+    private String[][] motsRequetes;
+    private int numeroRequete;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        CatalogueService catalogueService = CatalogueAleatoire.service(CatalogueAleatoire.entites(nombreProduits, 42));
+        catalogue = catalogueService.obtenirCatalogue();
+        rechercheProduitsService = new RechercheProduitsService(catalogueService);
+        rechercheProduitsService.surCatalogueModifie(new CatalogueModifieEvent(catalogue, null));
+
+        textes = catalogue.getProduits().stream()
+                .map(produit -> normaliser(produit.getNom() + " " + produit.getCategorieNom() + " " + produit.getDescription()))
+                .toArray(String[]::new);
+        motsRequetes = new String[REQUETES.length][];
+        for (int i = 0; i < REQUETES.length; i++) {
+            motsRequetes[i] = normaliser(REQUETES[i]).split(" ");
+        }
+    }
+
+    private int prochaineRequete() {
+        numeroRequete = (numeroRequete + 1) % REQUETES.length;
+        return numeroRequete;
+    }
+
+    @Benchmark
+    public List<ProduitDTO> index() {
+        return rechercheProduitsService.rechercher(REQUETES[prochaineRequete()], 50);
+    }
+
+    @Benchmark
+    public int parcoursLineaire() {
+        String[] mots = motsRequetes[prochaineRequete()];
+        int trouves = 0;
+        for (String texte : textes) {
+            boolean tous = true;
+            for (String mot : mots) {
+                if (!texte.contains(mot)) {
+                    tous = false;
+                    break;
+                }
+            }
+            if (tous) {
+                trouves++;
+            }
+        }
+        return trouves;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void construction() {
+        rechercheProduitsService.surCatalogueModifie(new CatalogueModifieEvent(catalogue, null));
+    }
+
+    private static String normaliser(String texte) {
+        return Normalizer.normalize(texte, Normalizer.Form.NFD).replaceAll("\\p{M}+", "").toLowerCase(Locale.ROOT);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RechercheProduitsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,139 @@
+package com.facturation.facture.benchmark;
+
+import com.facturation.facture.model.Categorie;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.repository.CategorieRepository;
+import com.facturation.facture.repository.ProduitRepository;
+import com.facturation.facture.repository.StockBatchRepository;
+import com.facturation.facture.repository.StockSegmenteRepository;
+import com.facturation.facture.service.JournalStockService;
+import com.facturation.facture.service.StockSegmenteService;
+import com.facturation.facture.service.StockService;
+import com.facturation.facture.service.SupervisionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit des commandes sur un seul produit très demandé : stock simple (une
+ * ligne produit disputée par toutes les commandes) contre stock segmenté.
+ * Chaque commande tient son verrou pendant la durée simulée du reste de la
+ * validation (lignes, facture).
+ *
+ * Lancement (après mvn test-compile) : exécuter main depuis l'IDE, ou
+ * java -cp target/test-classes:target/classes:&lt;classpath de test&gt;
+ * com.facturation.facture.benchmark.StockSegmenteBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class StockSegmenteBenchmark {
+
+    // Durée du reste de la commande pendant laquelle le verrou est tenu
+    private static final long DUREE_COMMANDE_MS = 2;
+
+    @Param({"simple", "segmente"})
+    private String mode;
+
+    private ConfigurableApplicationContext contexte;
+    private StockService stockService;
+    private TransactionTemplate transaction;
+    private Long idProduit;
+
+    /**
+     * Services du stock sur une base H2 en mémoire (mode MySQL)
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan("com.facturation.facture.model")
+    @EnableJpaRepositories("com.facturation.facture.repository")
+    @Import({StockService.class, StockSegmenteService.class, JournalStockService.class, StockBatchRepository.class,
+            StockSegmenteRepository.class, SupervisionService.class})
+    static class Contexte {
+    }
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        // Arguments de ligne de commande : prioritaires sur application.properties (MySQL)
+        contexte = new SpringApplicationBuilder(Contexte.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark-" + mode + ";MODE=MySQL;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.hikari.maximum-pool-size=50",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.sql.init.mode=never",
+                        "--logging.level.root=WARN");
+        stockService = contexte.getBean(StockService.class);
+        transaction = new TransactionTemplate(contexte.getBean(PlatformTransactionManager.class));
+
+        Categorie categorie = contexte.getBean(CategorieRepository.class).save(new Categorie("Consoles", null));
+        Produit produit = new Produit();
+        produit.setNom("Console");
+        produit.setPrix(new BigDecimal("10.00"));
+        produit.setQuantiteStock(10_000_000);
+        produit.setSeuilAlerte(0);
+        produit.setCategorie(categorie);
+        idProduit = contexte.getBean(ProduitRepository.class).save(produit).getId();
+        if ("segmente".equals(mode)) {
+            contexte.getBean(StockSegmenteService.class).activer(idProduit, 8);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        contexte.close();
+    }
+
+    @Benchmark
+    public void commande() {
+        transaction.executeWithoutResult(status -> {
+            stockService.reserver(Map.of(idProduit, 1));
+            try {
+                Thread.sleep(DUREE_COMMANDE_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StockSegmenteBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
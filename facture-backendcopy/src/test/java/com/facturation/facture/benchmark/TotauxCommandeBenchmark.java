@@ -0,0 +1,85 @@
+package com.facturation.facture.benchmark;
+
+import com.facturation.facture.model.Commande;
+import com.facturation.facture.model.LigneCommande;
+import com.facturation.facture.model.Produit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mise à jour des totaux d'une commande après modification d'une ligne :
+ * recalcul complet depuis toutes les lignes contre report de la variation.
+ *
+ * Lancement (après mvn test-compile) : exécuter main depuis l'IDE, ou
+ * java -cp target/test-classes:target/classes:&lt;classpath de test&gt;
+ * com.facturation.facture.benchmark.TotauxCommandeBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TotauxCommandeBenchmark {
+
+    @Param({"10", "100", "10000"})
+    private int nombreLignes;
+
+    private Commande commande;
+    private LigneCommande ligneModifiee;
+    private int quantite;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        commande = new Commande();
+        commande.setTauxTVA(new BigDecimal("20.00"));
+        for (int i = 0; i < nombreLignes; i++) {
+            Produit produit = new Produit();
+            produit.setId((long) i + 1);
+            produit.setNom("Produit " + i);
+            produit.setPrix(new BigDecimal("12.50"));
+            commande.ajouterLigneCommande(new LigneCommande(1 + i % 5, produit.getPrix(), commande, produit));
+        }
+        ligneModifiee = commande.getLignesCommande().get(nombreLignes / 2);
+    }
+
+    private int prochaineQuantite() {
+        quantite = quantite % 9 + 1;
+        return quantite;
+    }
+
+    @Benchmark
+    public BigDecimal recalculComplet() {
+        ligneModifiee.setQuantite(prochaineQuantite());
+        commande.calculerTotaux();
+        return commande.getTotalTTC();
+    }
+
+    @Benchmark
+    public BigDecimal reportVariation() {
+        commande.modifierQuantiteLigne(ligneModifiee, prochaineQuantite());
+        return commande.getTotalTTC();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TotauxCommandeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
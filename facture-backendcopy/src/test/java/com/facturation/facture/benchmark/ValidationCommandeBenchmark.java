@@ -0,0 +1,144 @@
+package com.facturation.facture.benchmark;
+
+import com.facturation.facture.dto.LigneCommandeDTO;
+import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.model.Categorie;
+import com.facturation.facture.model.Commande;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.model.User;
+import com.facturation.facture.model.enums.Role;
+import com.facturation.facture.repository.CategorieRepository;
+import com.facturation.facture.repository.LigneCommandeBatchRepository;
+import com.facturation.facture.repository.ProduitRepository;
+import com.facturation.facture.repository.StockBatchRepository;
+import com.facturation.facture.repository.StockSegmenteRepository;
+import com.facturation.facture.repository.UserRepository;
+import com.facturation.facture.service.CommandeService;
+import com.facturation.facture.service.JournalStockService;
+import com.facturation.facture.service.ReservationStockService;
+import com.facturation.facture.service.SequenceService;
+import com.facturation.facture.service.StockSegmenteService;
+import com.facturation.facture.service.StockService;
+import com.facturation.facture.service.SupervisionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latence d'une validation de commande (produits, réservation du stock,
+ * numérotation, commande, lignes en batch, facture) selon le nombre de
+ * lignes. Mode échantillonné : JMH rapporte les percentiles (p50, p99,
+ * p99.9), la queue de distribution étant ce que le regroupement des
+ * requêtes doit réduire.
+ *
+ * Lancement (après mvn test-compile) : exécuter main depuis l'IDE, ou
+ * java -cp target/test-classes:target/classes:&lt;classpath de test&gt;
+ * com.facturation.facture.benchmark.ValidationCommandeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationCommandeBenchmark {
+
+    @Param({"1", "10", "40"})
+    private int nombreLignes;
+
+    private ConfigurableApplicationContext contexte;
+    private CommandeService commandeService;
+    private Long idClient;
+    private List<LigneCommandeDTO> lignes;
+
+    /**
+     * Services de la commande sur une base H2 en mémoire (mode MySQL)
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan("com.facturation.facture.model")
+    @EnableJpaRepositories("com.facturation.facture.repository")
+    @Import({CommandeService.class, LigneCommandeBatchRepository.class, SequenceService.class, StockService.class,
+            StockSegmenteService.class, JournalStockService.class, StockBatchRepository.class,
+            StockSegmenteRepository.class, SupervisionService.class, ReservationStockService.class})
+    static class Contexte {
+    }
+
+    @Setup(Level.Trial)
+    public void demarrer() {
+        // Arguments de ligne de commande : prioritaires sur application.properties (MySQL)
+        contexte = new SpringApplicationBuilder(Contexte.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:validation-" + nombreLignes + ";MODE=MySQL;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.sql.init.mode=never",
+                        "--logging.level.root=WARN");
+        commandeService = contexte.getBean(CommandeService.class);
+        idClient = contexte.getBean(UserRepository.class)
+                .save(new User("benchmark@test.fr", "motdepasse123", "Client", "Benchmark", Role.CLIENT)).getId();
+
+        Categorie categorie = contexte.getBean(CategorieRepository.class).save(new Categorie("Benchmark", null));
+        ProduitRepository produitRepository = contexte.getBean(ProduitRepository.class);
+        lignes = new ArrayList<>();
+        for (int i = 0; i < nombreLignes; i++) {
+            Produit produit = new Produit();
+            produit.setNom("Produit " + i);
+            produit.setPrix(new BigDecimal("10.00"));
+            produit.setQuantiteStock(100_000_000);
+            produit.setSeuilAlerte(0);
+            produit.setCategorie(categorie);
+            ProduitDTO produitDTO = new ProduitDTO();
+            produitDTO.setId(produitRepository.save(produit).getId());
+            LigneCommandeDTO ligne = new LigneCommandeDTO();
+            ligne.setProduit(produitDTO);
+            ligne.setQuantite(1);
+            lignes.add(ligne);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        contexte.close();
+    }
+
+    @Benchmark
+    public Commande validation() {
+        return commandeService.creerCommandePourClient(idClient, lignes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ValidationCommandeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
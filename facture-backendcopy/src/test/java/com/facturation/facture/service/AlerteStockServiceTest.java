@@ -0,0 +1,158 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.event.StockModifieEvent;
+import com.facturation.facture.model.Categorie;
+import com.facturation.facture.model.Notification;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.model.User;
+import com.facturation.facture.model.enums.Role;
+import com.facturation.facture.model.enums.TypeNotification;
+import com.facturation.facture.repository.CategorieRepository;
+import com.facturation.facture.repository.NotificationBatchRepository;
+import com.facturation.facture.repository.ProduitRepository;
+import com.facturation.facture.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import({AlerteStockService.class, IndicateursCatalogueService.class, NotificationService.class,
+        NotificationBatchRepository.class, SupervisionService.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:alertes;MODE=MySQL;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never",
+        // Envois et relectures déclenchés par le test seulement
+        "facturation.stock.alerte.envoi-ms=3600000",
+        "facturation.catalogue.indicateurs.actualisation-ms=3600000"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AlerteStockServiceTest {
+
+    @Autowired
+    private AlerteStockService alerteStockService;
+
+    @Autowired
+    private IndicateursCatalogueService indicateursCatalogueService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private SupervisionService supervisionService;
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Autowired
+    private CategorieRepository categorieRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void uneAlerteParPassageSousLeSeuilPuisRearmement() throws Exception {
+        User administrateur = userRepository.save(new User("admin" + System.nanoTime() + "@test.fr",
+                "motdepasse123", "Admin", "Test", Role.ADMIN));
+        Long id = creerProduit("Imprimante", 10, 2).getId();
+        indicateursCatalogueService.reconcilier();
+
+        // Rafale concurrente autour du seuil : 20 sorties, 12 entrées, soit 10 - 8 = 2
+        rafale(id, 20, 12);
+        alerteStockService.envoyerAlertes();
+        List<Notification> alertes = notificationService.obtenirNonLues(administrateur.getId());
+        assertEquals(1, alertes.size());
+        assertEquals(TypeNotification.STOCK_FAIBLE, alertes.get(0).getType());
+        assertEquals("Stock faible : Imprimante", alertes.get(0).getTitre());
+        assertTrue(alertes.get(0).getMessage().contains("est de 2 (seuil d'alerte : 2)"), alertes.get(0).getMessage());
+
+        // Oscillations sans remonter au-dessus du seuil à l'envoi : même passage, pas de nouvelle alerte
+        rafale(id, 15, 15);
+        alerteStockService.envoyerAlertes();
+        assertEquals(1, notificationService.obtenirNonLues(administrateur.getId()).size());
+        assertTrue(supervisionService.valeur(AlerteStockService.COMPTEUR_REGROUPEES) >= 1);
+
+        // Réapprovisionnement : le produit est réarmé
+        publier(Map.of(id, 5));
+        alerteStockService.envoyerAlertes();
+        assertEquals(1, notificationService.obtenirNonLues(administrateur.getId()).size());
+
+        // Nouveau passage sous le seuil : nouvelle alerte, dans la même fenêtre
+        rafale(id, 6, 0);
+        alerteStockService.envoyerAlertes();
+        assertEquals(2, notificationService.obtenirNonLues(administrateur.getId()).size());
+        assertEquals(2, supervisionService.valeur(AlerteStockService.COMPTEUR_EMISES));
+
+        // Lecture par l'administrateur (AdminNotificationController)
+        Long premiere = alertes.get(0).getId();
+        assertThrows(RuntimeException.class, () -> notificationService.marquerLue(premiere, administrateur.getId() + 1));
+        notificationService.marquerLue(premiere, administrateur.getId());
+        assertEquals(1, notificationService.obtenirNonLues(administrateur.getId()).size());
+        assertEquals(1, notificationService.marquerToutesLues(administrateur.getId()));
+        assertTrue(notificationService.obtenirNonLues(administrateur.getId()).isEmpty());
+    }
+
+    /**
+     * Publier en parallèle des sorties et des entrées unitaires du stock d'un produit
+     */
+    private void rafale(Long idProduit, int sorties, int entrees) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Future<?>> taches = new ArrayList<>();
+        for (int i = 0; i < sorties + entrees; i++) {
+            int variation = i < sorties ? -1 : 1;
+            taches.add(executor.submit(() -> {
+                depart.await();
+                publier(Map.of(idProduit, variation));
+                return null;
+            }));
+        }
+        depart.countDown();
+        for (Future<?> tache : taches) {
+            tache.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    // Même ordre que les écouteurs après validation de la transaction
+    private void publier(Map<Long, Integer> variations) {
+        StockModifieEvent evenement = new StockModifieEvent(variations);
+        indicateursCatalogueService.surStockModifie(evenement);
+        alerteStockService.surStockModifie(evenement);
+    }
+
+    private Produit creerProduit(String nom, int stock, int seuilAlerte) {
+        Categorie categorie = categorieRepository.save(new Categorie("Catégorie " + nom, null));
+        Produit produit = new Produit();
+        produit.setNom(nom);
+        produit.setPrix(new BigDecimal("10.00"));
+        produit.setQuantiteStock(stock);
+        produit.setSeuilAlerte(seuilAlerte);
+        produit.setCategorie(categorie);
+        return produitRepository.save(produit);
+    }
+}
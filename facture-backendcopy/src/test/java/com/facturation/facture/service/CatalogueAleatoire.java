@@ -0,0 +1,95 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.model.Categorie;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.repository.ProduitRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Produits générés pour les tests et les benchmarks des index du catalogue :
+ * noms, descriptions, catégories, prix et stock tirés à partir d'une graine.
+ */
+public final class CatalogueAleatoire {
+
+    private static final String[] NOMS = {"clavier", "souris", "écran", "ordinateur", "portable", "câble", "chargeur",
+            "imprimante", "casque", "enceinte", "tablette", "téléphone", "batterie", "adaptateur", "support",
+            "station", "disque", "mémoire", "processeur", "ventilateur"};
+    private static final String[] QUALIFICATIFS = {"sans fil", "USB", "gamer", "professionnel", "compact", "noir",
+            "blanc", "rétroéclairé", "ergonomique", "étanche", "rapide", "silencieux", "pliable", "magnétique"};
+    private static final String[] CATEGORIES = {"Informatique", "Périphériques", "Audio", "Téléphonie", "Accessoires",
+            "Stockage", "Réseau", "Bureautique", "Photo", "Jeux"};
+
+    private CatalogueAleatoire() {
+    }
+
+    /**
+     * Produit disponible réduit à son nom et à sa catégorie
+     */
+    public static ProduitDTO produit(long id, String nom, Long idCategorie, String categorie) {
+        ProduitDTO produit = new ProduitDTO();
+        produit.setId(id);
+        produit.setNom(nom);
+        produit.setCategorieId(idCategorie);
+        produit.setCategorieNom(categorie);
+        produit.setDisponible(true);
+        return produit;
+    }
+
+    /**
+     * Produit disponible tiré au hasard (les noms se répètent d'un produit à l'autre)
+     */
+    public static ProduitDTO produit(Random aleatoire, long id) {
+        return ProduitDTO.fromEntity(entite(aleatoire, id));
+    }
+
+    /**
+     * Produits d'id 1 à nombre, leur nom rendu unique par l'id en base 36
+     */
+    public static List<Produit> entites(int nombre, long graine) {
+        Random aleatoire = new Random(graine);
+        List<Produit> produits = new ArrayList<>(nombre);
+        for (long id = 1; id <= nombre; id++) {
+            Produit produit = entite(aleatoire, id);
+            produit.setNom(produit.getNom() + " " + Long.toString(id, 36));
+            produits.add(produit);
+        }
+        return produits;
+    }
+
+    /**
+     * Catalogue en mémoire chargé depuis un dépôt simulé contenant ces produits
+     */
+    public static CatalogueService service(List<Produit> produits) {
+        ProduitRepository produitRepository = mock(ProduitRepository.class);
+        when(produitRepository.findAllAvecCategorie()).thenReturn(produits);
+        return new CatalogueService(produitRepository, mock(PlatformTransactionManager.class),
+                mock(ApplicationEventPublisher.class));
+    }
+
+    private static Produit entite(Random aleatoire, long id) {
+        int numeroCategorie = aleatoire.nextInt(CATEGORIES.length);
+        Categorie categorie = new Categorie(CATEGORIES[numeroCategorie], null);
+        categorie.setId(numeroCategorie + 1L);
+
+        Produit produit = new Produit();
+        produit.setId(id);
+        produit.setNom(NOMS[aleatoire.nextInt(NOMS.length)] + " " + QUALIFICATIFS[aleatoire.nextInt(QUALIFICATIFS.length)]);
+        produit.setDescription("Modèle " + QUALIFICATIFS[aleatoire.nextInt(QUALIFICATIFS.length)] + ", compatible "
+                + NOMS[aleatoire.nextInt(NOMS.length)] + ", garantie " + (1 + aleatoire.nextInt(5)) + " ans");
+        produit.setPrix(BigDecimal.valueOf(100 + aleatoire.nextInt(5_000_000), 2));
+        produit.setQuantiteStock(aleatoire.nextInt(3) == 0 ? 0 : aleatoire.nextInt(50));
+        produit.setDisponible(true);
+        produit.setCategorie(categorie);
+        return produit;
+    }
+}
@@ -0,0 +1,83 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.event.StockModifieEvent;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.repository.ProduitRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CatalogueServiceTest {
+
+    private final ProduitRepository produitRepository = mock(ProduitRepository.class);
+    private final CatalogueService service = nouveauService();
+
+    @Test
+    void variationPendantLeRechargementNonIncluseDansLaLecture() {
+        when(produitRepository.findAllAvecCategorie()).thenReturn(List.of(produit(1L, 10)));
+        service.actualiser();
+
+        // La commande est validée pendant la lecture, que la lecture ne voit pas encore
+        when(produitRepository.findAllAvecCategorie()).thenAnswer(invocation -> {
+            service.surStockModifie(new StockModifieEvent(Map.of(1L, -3)));
+            return List.of(produit(1L, 10));
+        });
+        service.recharger();
+        service.actualiser();
+
+        assertEquals(7, service.obtenirCatalogue().getProduit(1L).getQuantiteStock());
+    }
+
+    @Test
+    void variationPendantLeRechargementDejaIncluseDansLaLecture() {
+        when(produitRepository.findAllAvecCategorie()).thenReturn(List.of(produit(1L, 10)));
+        service.actualiser();
+
+        // Une variation reçue avant le rechargement, puis une autre que la lecture voit déjà
+        service.surStockModifie(new StockModifieEvent(Map.of(1L, -2)));
+        when(produitRepository.findAllAvecCategorie()).thenAnswer(invocation -> {
+            service.surStockModifie(new StockModifieEvent(Map.of(1L, -3)));
+            return List.of(produit(1L, 5));
+        });
+        service.recharger();
+        service.actualiser();
+
+        assertEquals(5, service.obtenirCatalogue().getProduit(1L).getQuantiteStock());
+    }
+
+    @Test
+    void etiquetteDistincteDUnDemarrageALAutre() {
+        when(produitRepository.findAllAvecCategorie()).thenReturn(List.of(produit(1L, 10)));
+        CatalogueService.Catalogue premier = service.obtenirCatalogue();
+        CatalogueService.Catalogue apresRedemarrage = nouveauService().obtenirCatalogue();
+
+        assertEquals(premier.getVersion(), apresRedemarrage.getVersion());
+        assertNotEquals(premier.getEtiquette(), apresRedemarrage.getEtiquette());
+        assertTrue(premier.getEtiquette().endsWith("-" + premier.getVersion()));
+    }
+
+    private CatalogueService nouveauService() {
+        return new CatalogueService(produitRepository, mock(PlatformTransactionManager.class),
+                mock(ApplicationEventPublisher.class));
+    }
+
+    private static Produit produit(Long id, int stock) {
+        Produit produit = new Produit();
+        produit.setId(id);
+        produit.setNom("Produit " + id);
+        produit.setPrix(new BigDecimal("2.00"));
+        produit.setQuantiteStock(stock);
+        produit.setDisponible(true);
+        return produit;
+    }
+}
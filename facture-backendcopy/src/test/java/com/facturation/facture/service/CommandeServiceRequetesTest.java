@@ -0,0 +1,221 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.LigneCommandeDTO;
+import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.model.Categorie;
+import com.facturation.facture.model.Commande;
+import com.facturation.facture.model.LigneCommande;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.model.User;
+import com.facturation.facture.model.enums.Role;
+import com.facturation.facture.model.enums.StatutCommande;
+import com.facturation.facture.repository.CategorieRepository;
+import com.facturation.facture.repository.CommandeRepository;
+import com.facturation.facture.repository.LigneCommandeBatchRepository;
+import com.facturation.facture.repository.LigneCommandeRepository;
+import com.facturation.facture.repository.ProduitRepository;
+import com.facturation.facture.repository.StockBatchRepository;
+import com.facturation.facture.repository.StockSegmenteRepository;
+import com.facturation.facture.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Nombre de requêtes envoyées à la base par une validation de commande,
+ * compté au niveau JDBC (un appel execute* = un aller-retour ; un batch
+ * compte pour un, réécrit en une seule requête multi-lignes par MySQL).
+ */
+@DataJpaTest
+@Import({CommandeService.class, LigneCommandeBatchRepository.class, SequenceService.class, StockService.class,
+        StockSegmenteService.class, JournalStockService.class, StockBatchRepository.class,
+        StockSegmenteRepository.class, SupervisionService.class, ReservationStockService.class,
+        CommandeServiceRequetesTest.Comptage.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:requetes;MODE=MySQL;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CommandeServiceRequetesTest {
+
+    private static final AtomicInteger REQUETES = new AtomicInteger();
+
+    /**
+     * Enveloppe la source de données pour compter les exécutions de requêtes
+     */
+    @TestConfiguration
+    static class Comptage {
+        @Bean
+        static BeanPostProcessor compteurRequetes() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String nom) {
+                    return bean instanceof DataSource ? enveloppe(bean, DataSource.class) : bean;
+                }
+            };
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T enveloppe(Object cible, Class<T> type) {
+        InvocationHandler handler = (proxy, methode, arguments) -> {
+            if (methode.getName().startsWith("execute") && cible instanceof Statement) {
+                REQUETES.incrementAndGet();
+            }
+            Object resultat;
+            try {
+                resultat = methode.invoke(cible, arguments);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (resultat instanceof Connection) {
+                return enveloppe(resultat, Connection.class);
+            }
+            if (resultat instanceof Statement && methode.getReturnType().isInterface()) {
+                return enveloppe(resultat, (Class<? extends Statement>) methode.getReturnType());
+            }
+            return resultat;
+        };
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    @Autowired
+    private CommandeService commandeService;
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Autowired
+    private CategorieRepository categorieRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CommandeRepository commandeRepository;
+
+    @Autowired
+    private LigneCommandeRepository ligneCommandeRepository;
+
+    @Autowired
+    private LigneCommandeBatchRepository ligneCommandeBatchRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void validationEnNombreDeRequetesConstant() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        User client = userRepository.save(new User("requetes@test.fr", "motdepasse123", "Client", "Test", Role.CLIENT));
+        List<Produit> produits = creerProduits(40);
+
+        // Première commande : initialisation des compteurs de numérotation
+        transaction.execute(status -> commandeService.creerCommandePourClient(client.getId(), lignes(produits, 1)));
+
+        int requetesUneLigne = compter(() -> transaction.execute(status ->
+                commandeService.creerCommandePourClient(client.getId(), lignes(produits, 1))));
+        int requetesQuaranteLignes = compter(() -> transaction.execute(status ->
+                commandeService.creerCommandePourClient(client.getId(), lignes(produits, 40))));
+
+        // Produits, réservation du stock, commande, lignes, facture : indépendant du nombre de lignes
+        assertEquals(requetesUneLigne, requetesQuaranteLignes);
+    }
+
+    @Test
+    void insertionDesLignesEnUnSeulBatch() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        User client = userRepository.save(new User("batch@test.fr", "motdepasse123", "Client", "Batch", Role.CLIENT));
+        List<Produit> produits = creerProduits(40);
+
+        int requetesBatch = compter(() -> transaction.executeWithoutResult(status -> {
+            Commande commande = nouvelleCommande(client, "CMD-BATCH-1");
+            ligneCommandeBatchRepository.insererLignes(commande.getId(), lignesEntites(commande, produits));
+        }));
+        // Sans le batch : un INSERT par ligne (identifiant IDENTITY, Hibernate ne regroupe pas)
+        int requetesUnitaires = compter(() -> transaction.executeWithoutResult(status -> {
+            Commande commande = nouvelleCommande(client, "CMD-BATCH-2");
+            ligneCommandeRepository.saveAll(lignesEntites(commande, produits));
+        }));
+
+        assertEquals(1 + 1, requetesBatch);
+        assertEquals(1 + produits.size(), requetesUnitaires);
+    }
+
+    private static int compter(Runnable operation) {
+        REQUETES.set(0);
+        operation.run();
+        return REQUETES.get();
+    }
+
+    private List<Produit> creerProduits(int nombre) {
+        Categorie categorie = categorieRepository.save(new Categorie("Catégorie " + System.nanoTime(), null));
+        List<Produit> produits = new ArrayList<>();
+        for (int i = 0; i < nombre; i++) {
+            Produit produit = new Produit();
+            produit.setNom("Produit " + i);
+            produit.setPrix(new BigDecimal("10.00"));
+            produit.setQuantiteStock(1000);
+            produit.setSeuilAlerte(0);
+            produit.setCategorie(categorie);
+            produits.add(produitRepository.save(produit));
+        }
+        return produits;
+    }
+
+    private static List<LigneCommandeDTO> lignes(List<Produit> produits, int nombre) {
+        List<LigneCommandeDTO> lignes = new ArrayList<>();
+        for (Produit produit : produits.subList(0, nombre)) {
+            ProduitDTO produitDTO = new ProduitDTO();
+            produitDTO.setId(produit.getId());
+            LigneCommandeDTO ligne = new LigneCommandeDTO();
+            ligne.setProduit(produitDTO);
+            ligne.setQuantite(1);
+            lignes.add(ligne);
+        }
+        return lignes;
+    }
+
+    private Commande nouvelleCommande(User client, String numero) {
+        Commande commande = new Commande(client);
+        commande.setNumeroCommande(numero);
+        commande.setStatut(StatutCommande.EN_ATTENTE);
+        return commandeRepository.save(commande);
+    }
+
+    private static List<LigneCommande> lignesEntites(Commande commande, List<Produit> produits) {
+        List<LigneCommande> lignes = new ArrayList<>();
+        for (Produit produit : produits) {
+            lignes.add(new LigneCommande(1, produit.getPrix(), commande, produit));
+        }
+        return lignes;
+    }
+}
@@ -0,0 +1,55 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.config.CleIdempotenceReutiliseeException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotenceServiceTest {
+
+    private IdempotenceService creerService() {
+        IdempotenceService service = new IdempotenceService(new ObjectMapper());
+        ReflectionTestUtils.setField(service, "dureeVieMinutes", 30L);
+        ReflectionTestUtils.setField(service, "capacite", 100);
+        ReflectionTestUtils.setField(service, "attenteSecondes", 5L);
+        return service;
+    }
+
+    @Test
+    void memeCleEtMemeCorpsRejoueLaPremiereReponse() {
+        IdempotenceService service = creerService();
+        AtomicInteger executions = new AtomicInteger();
+
+        IdempotenceService.Execution<Integer> premiere = service.executer("cle-1", Map.of("produit", 1, "quantite", 2),
+                executions::incrementAndGet);
+        IdempotenceService.Execution<Integer> seconde = service.executer("cle-1", Map.of("produit", 1, "quantite", 2),
+                executions::incrementAndGet);
+
+        assertFalse(premiere.isRejeu());
+        assertTrue(seconde.isRejeu());
+        assertEquals(1, seconde.getResultat());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void memeCleAvecUnAutreCorpsEstRefusee() {
+        IdempotenceService service = creerService();
+        AtomicInteger executions = new AtomicInteger();
+
+        service.executer("cle-2", Map.of("produit", 1, "quantite", 2), executions::incrementAndGet);
+        assertThrows(CleIdempotenceReutiliseeException.class,
+                () -> service.executer("cle-2", Map.of("produit", 1, "quantite", 3), executions::incrementAndGet));
+
+        // Aucune nouvelle exécution, et la réponse d'origine reste rejouable
+        assertEquals(1, executions.get());
+        assertTrue(service.executer("cle-2", Map.of("produit", 1, "quantite", 2), executions::incrementAndGet).isRejeu());
+    }
+}
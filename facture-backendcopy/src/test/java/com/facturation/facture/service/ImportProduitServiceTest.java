@@ -0,0 +1,105 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.RapportImportProduitsDTO;
+import com.facturation.facture.model.Categorie;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.repository.CategorieRepository;
+import com.facturation.facture.repository.ProduitBatchRepository;
+import com.facturation.facture.repository.ProduitRepository;
+import com.facturation.facture.repository.StockBatchRepository;
+import com.facturation.facture.repository.StockSegmenteRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import({ImportProduitService.class, ProduitBatchRepository.class, StockSegmenteService.class,
+        StockSegmenteRepository.class, JournalStockService.class, StockBatchRepository.class, SupervisionService.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:importproduits;MODE=MySQL;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never",
+        "facturation.import.taille-lot=3"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ImportProduitServiceTest {
+
+    @Autowired
+    private ImportProduitService importProduitService;
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Autowired
+    private CategorieRepository categorieRepository;
+
+    @Test
+    void rapportLigneParLigneEtSeparateurVirgule() {
+        Categorie categorie = categorieRepository.save(new Categorie("Bureau", null));
+        Produit lampe = creerProduit("Lampe", categorie, 5);
+        creerProduit("Tapis", categorie, 2);
+
+        // Virgule détectée sur l'en-tête (après le BOM) ; lots de 3 lignes
+        String fichier = "﻿id,nom,prix,quantite_stock,categorie\n"
+                + lampe.getId() + ",,\"12,50\",8,\n"
+                + ",Tapis,,4,\n"
+                + ",\"Chaise, pliante\",30,10,Bureau\n"
+                + ",Fauteuil,abc,1,Bureau\n"
+                + ",Étagère,40,1,Jardin\n"
+                + "999999,,,3,\n"
+                + ",Tabouret,15,2,\n"
+                + ",Bureau d'angle,120,1,Bureau,en trop\n";
+
+        RapportImportProduitsDTO rapport = importProduitService.importer(
+                new ByteArrayInputStream(fichier.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(8, rapport.getLignes());
+        assertEquals(1, rapport.getCreees());
+        assertEquals(2, rapport.getMisesAJour());
+        assertEquals(5, rapport.getErreurs());
+
+        Map<Integer, String> erreurs = new TreeMap<>();
+        rapport.getDetailErreurs().forEach(erreur -> erreurs.put(erreur.getLigne(), erreur.getMessage()));
+        assertEquals(Map.of(
+                5, "Valeur invalide pour prix : 'abc'",
+                6, "Catégorie non trouvée : Jardin",
+                7, "Produit non trouvé avec l'ID : 999999",
+                8, "La catégorie est obligatoire pour un nouveau produit",
+                9, "La ligne contient 6 champs, l'en-tête en déclare 5"), erreurs);
+
+        Produit lampeImportee = produitRepository.findById(lampe.getId()).orElseThrow();
+        assertEquals(0, new BigDecimal("12.50").compareTo(lampeImportee.getPrix()));
+        assertEquals(8, lampeImportee.getQuantiteStock());
+        assertEquals(4, produitRepository.findByNom("Tapis").orElseThrow().getQuantiteStock());
+        assertTrue(produitRepository.findByNom("Chaise, pliante").isPresent());
+    }
+
+    private Produit creerProduit(String nom, Categorie categorie, int stock) {
+        Produit produit = new Produit();
+        produit.setNom(nom);
+        produit.setPrix(new BigDecimal("10.00"));
+        produit.setQuantiteStock(stock);
+        produit.setSeuilAlerte(0);
+        produit.setCategorie(categorie);
+        return produitRepository.save(produit);
+    }
+}
@@ -0,0 +1,109 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.dto.SuggestionAutocompletionDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class IndexAutocompletionTest {
+
+    private static List<String> libelles(List<SuggestionAutocompletionDTO> suggestions) {
+        return suggestions.stream().map(SuggestionAutocompletionDTO::getLibelle).collect(Collectors.toList());
+    }
+
+    @Test
+    void completionParDebutDeMotClasseeParPopularite() {
+        Map<Long, Double> ventes = Map.of(1L, 2.0, 2L, 5.0, 3L, 0.5);
+        IndexAutocompletion index = IndexAutocompletion.construire(List.of(
+                CatalogueAleatoire.produit(1, "Clavier mécanique", 10L, "Périphériques"),
+                CatalogueAleatoire.produit(2, "Mini clavier", 10L, "Périphériques"),
+                CatalogueAleatoire.produit(3, "Clavette", 20L, "Quincaillerie"),
+                CatalogueAleatoire.produit(4, "Écran plat", 10L, "Périphériques")), id -> ventes.getOrDefault(id, 0d), 20);
+
+        // Tout début de mot, sans accents ni casse
+        assertEquals(List.of("Mini clavier", "Clavier mécanique", "Clavette"), libelles(index.completer("CLA", 10)));
+        assertEquals(List.of("Mini clavier", "Clavier mécanique"), libelles(index.completer("clavi", 10)));
+        assertEquals(List.of("Mini clavier"), libelles(index.completer("cla", 1)));
+        assertEquals(List.of("Écran plat"), libelles(index.completer("ecr", 10)));
+        // Catégorie : popularité = somme de ses produits
+        List<SuggestionAutocompletionDTO> categories = index.completer("peri", 10);
+        assertEquals(1, categories.size());
+        assertEquals(SuggestionAutocompletionDTO.TYPE_CATEGORIE, categories.get(0).getType());
+        assertEquals(7.0, categories.get(0).getPopularite(), 1e-9);
+        assertEquals(List.of(), index.completer("  ", 10));
+        assertEquals(List.of(), index.completer("canard", 10));
+    }
+
+    @Test
+    void pliageIdentiqueALaNormalisation() {
+        char[] cible = new char[64];
+        // Chaque caractère entre deux lettres : ignoré (marque), séparateur ou lettres
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            String texte = "a" + (char) c + "b";
+            assertEquals(IndexRechercheProduits.normaliser(texte),
+                    new String(cible, 0, IndexRechercheProduits.plier(texte, cible)), "U+" + Integer.toHexString(c));
+        }
+        for (String texte : List.of("  Œuvre d'ÆSOP  ", "Écran 27\" — 4K", "e\u0301te\u0301", "x\uD834\uDD65y",
+                "\uD83D\uDE00 emoji", "", " - ", "ÀÉÎÕÜ ÿ İstanbul KELVIN \u212A")) {
+            assertEquals(IndexRechercheProduits.normaliser(texte),
+                    new String(cible, 0, IndexRechercheProduits.plier(texte, cible)), texte);
+        }
+    }
+
+    @Test
+    void miseAJourIncrementaleIdentiqueAUneReconstruction() {
+        Random aleatoire = new Random(7);
+        Map<Long, ProduitDTO> produits = new HashMap<>();
+        for (long id = 1; id <= 3000; id++) {
+            produits.put(id, CatalogueAleatoire.produit(aleatoire, id));
+        }
+        Map<Long, Double> ventes = new HashMap<>();
+        produits.keySet().forEach(id -> ventes.put(id, (double) aleatoire.nextInt(50)));
+        IndexAutocompletion index = IndexAutocompletion.construire(produits.values(), ventes::get, 20);
+
+        for (int lot = 0; lot < 20; lot++) {
+            List<ProduitDTO> modifies = new ArrayList<>();
+            List<Long> supprimes = new ArrayList<>();
+            for (int k = 0; k < 50; k++) {
+                long id = 1 + aleatoire.nextInt(3200);
+                if (aleatoire.nextInt(5) == 0) {
+                    produits.remove(id);
+                    supprimes.add(id);
+                    continue;
+                }
+                ProduitDTO produit = CatalogueAleatoire.produit(aleatoire, id);
+                produit.setDisponible(aleatoire.nextInt(4) != 0);
+                produits.put(id, produit);
+                ventes.putIfAbsent(id, (double) aleatoire.nextInt(50));
+                modifies.add(produit);
+            }
+            index = index.avec(modifies, supprimes, ventes::get);
+        }
+
+        List<ProduitDTO> disponibles = produits.values().stream()
+                .filter(produit -> Boolean.TRUE.equals(produit.getDisponible())).collect(Collectors.toList());
+        IndexAutocompletion reconstruit = IndexAutocompletion.construire(disponibles, ventes::get, 20);
+        // Préfixes sans catégorie : leur popularité n'est recalculée que par une reconstruction
+        for (String prefixe : List.of("c", "ca", "cab", "cable", "s", "so", "sou", "sans f", "ta", "tab", "telephone u",
+                "e", "ec", "ecr", "ecran n", "b", "bl", "bla", "ad", "ada", "adaptateur")) {
+            assertEquals(identifiants(reconstruit.completer(prefixe, 20)), identifiants(index.completer(prefixe, 20)), prefixe);
+        }
+
+        // Aucun libellé modifié : même index
+        ProduitDTO inchange = disponibles.get(0);
+        assertSame(index, index.avec(List.of(inchange), List.of(), ventes::get));
+    }
+
+    private static List<String> identifiants(List<SuggestionAutocompletionDTO> suggestions) {
+        return suggestions.stream().map(s -> s.getType() + ":" + s.getId()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,118 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.dto.RechercheFacettesDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IndexFacettesTest {
+
+    private static ProduitDTO produit(long id, String nom, String prix, int stock, Long idCategorie, String categorie) {
+        ProduitDTO produit = CatalogueAleatoire.produit(id, nom, idCategorie, categorie);
+        produit.setPrix(new BigDecimal(prix));
+        produit.setQuantiteStock(stock);
+        return produit;
+    }
+
+    private static List<Long> nombresParCategorie(RechercheFacettesDTO resultat) {
+        return resultat.getCategories().stream().map(RechercheFacettesDTO.FacetteCategorie::getNombre).collect(Collectors.toList());
+    }
+
+    private static List<Long> identifiants(RechercheFacettesDTO resultat) {
+        return resultat.getProduits().stream().map(ProduitDTO::getId).collect(Collectors.toList());
+    }
+
+    private final IndexFacettes index = new IndexFacettes(3, List.of(
+            produit(1, "Câble", "5.00", 10, 20L, "Accessoires"),
+            produit(2, "Chargeur", "19.90", 0, 20L, "Accessoires"),
+            produit(3, "Clavier", "49.00", 3, 10L, "Périphériques"),
+            produit(4, "Écran", "199.00", 0, 10L, "Périphériques"),
+            produit(5, "Souris", "25.00", 7, 10L, "Périphériques"),
+            produit(6, "Tournevis", "8.50", 2, null, null)));
+
+    @Test
+    void sansFiltreToutEstCompte() {
+        RechercheFacettesDTO resultat = index.rechercher(null, null, null, null, 0, 50, 4);
+
+        assertEquals(6, resultat.getTotal());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), identifiants(resultat));
+        // Catégories par nom
+        assertEquals(List.of("Accessoires", "Périphériques"),
+                resultat.getCategories().stream().map(RechercheFacettesDTO.FacetteCategorie::getNom).collect(Collectors.toList()));
+        assertEquals(List.of(2L, 3L), nombresParCategorie(resultat));
+        assertEquals(4, resultat.getEnStock());
+        assertEquals(2, resultat.getEnRupture());
+        // 5,00 à 199,00 en 4 tranches de 48,51
+        assertEquals(4, resultat.getTranchesPrix().size());
+        assertEquals(new BigDecimal("5.00"), resultat.getTranchesPrix().get(0).getPrixMin());
+        assertEquals(List.of(5L, 0L, 0L, 1L),
+                resultat.getTranchesPrix().stream().map(RechercheFacettesDTO.TranchePrix::getNombre).collect(Collectors.toList()));
+        assertEquals(3, resultat.getVersionCatalogue());
+    }
+
+    @Test
+    void chaqueFacetteIgnoreSonPropreFiltre() {
+        RechercheFacettesDTO resultat = index.rechercher(List.of(10L), new BigDecimal("10"), new BigDecimal("100"), true, 0, 50, 4);
+
+        // Tous les filtres : clavier et souris
+        assertEquals(List.of(3L, 5L), identifiants(resultat));
+        assertEquals(2, resultat.getTotal());
+        // Catégories : prix et stock seulement (le chargeur est en rupture)
+        assertEquals(List.of(0L, 2L), nombresParCategorie(resultat));
+        // Stock : catégorie et prix seulement (l'écran est hors fourchette)
+        assertEquals(2, resultat.getEnStock());
+        assertEquals(0, resultat.getEnRupture());
+        // Histogramme : catégorie et stock seulement (clavier, souris)
+        assertEquals(List.of(2L, 0L, 0L, 0L),
+                resultat.getTranchesPrix().stream().map(RechercheFacettesDTO.TranchePrix::getNombre).collect(Collectors.toList()));
+    }
+
+    @Test
+    void paginationEtFacettesSeules() {
+        RechercheFacettesDTO page = index.rechercher(null, null, null, null, 1, 4, 10);
+        assertEquals(List.of(5L, 6L), identifiants(page));
+        assertEquals(2, page.getTotalPages());
+
+        RechercheFacettesDTO facettes = index.rechercher(null, null, null, false, 0, 0, 10);
+        assertEquals(List.of(), identifiants(facettes));
+        assertEquals(2, facettes.getTotal());
+        assertEquals(0, facettes.getTotalPages());
+
+        // Catégorie inconnue : aucun produit, mais les facettes restent calculées
+        RechercheFacettesDTO inconnue = index.rechercher(List.of(99L), null, null, null, 0, 10, 10);
+        assertEquals(0, inconnue.getTotal());
+        assertEquals(List.of(2L, 3L), nombresParCategorie(inconnue));
+    }
+
+    @Test
+    void facettesIdentiquesAUnCalculNaif() {
+        List<ProduitDTO> produits = CatalogueAleatoire.entites(5000, 42).stream()
+                .map(ProduitDTO::fromEntity).collect(Collectors.toList());
+        IndexFacettes grand = new IndexFacettes(1, produits);
+
+        List<Long> categories = List.of(2L, 5L, 7L);
+        BigDecimal prixMin = new BigDecimal("100");
+        BigDecimal prixMax = new BigDecimal("30000");
+        RechercheFacettesDTO resultat = grand.rechercher(categories, prixMin, prixMax, true, 0, 50, 10);
+
+        // Recoupement avec un calcul naïf, filtre par filtre
+        long attendu = produits.stream().filter(p -> categories.contains(p.getCategorieId())
+                && p.getPrix().compareTo(prixMin) >= 0 && p.getPrix().compareTo(prixMax) <= 0
+                && p.getQuantiteStock() > 0).count();
+        assertEquals(attendu, resultat.getTotal());
+        assertEquals(50, resultat.getProduits().size());
+        assertEquals(10, resultat.getCategories().size());
+        // Filtre de stock actif : les produits en stock de la facette sont exactement les résultats
+        assertEquals(resultat.getTotal(), resultat.getEnStock());
+        // Histogramme : tous les prix de la catégorie en stock, y compris hors fourchette
+        assertEquals(resultat.getTotal(), resultat.getTranchesPrix().stream()
+                .mapToLong(RechercheFacettesDTO.TranchePrix::getNombre).sum()
+                - produits.stream().filter(p -> categories.contains(p.getCategorieId()) && p.getQuantiteStock() > 0
+                && (p.getPrix().compareTo(prixMin) < 0 || p.getPrix().compareTo(prixMax) > 0)).count());
+    }
+}
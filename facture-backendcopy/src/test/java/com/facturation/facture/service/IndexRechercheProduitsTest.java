@@ -0,0 +1,62 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.ProduitDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IndexRechercheProduitsTest {
+
+    private static ProduitDTO produit(long id, String nom, String categorie, String description) {
+        ProduitDTO produit = CatalogueAleatoire.produit(id, nom, null, categorie);
+        produit.setDescription(description);
+        return produit;
+    }
+
+    @Test
+    void rechercheSansAccentsNiCasseEtClasseeParChamp() {
+        IndexRechercheProduits index = new IndexRechercheProduits(List.of(
+                produit(1, "Écran 27 pouces", "Périphériques", "Dalle mate"),
+                produit(2, "Support d'écran", "Accessoires", "Bras articulé"),
+                produit(3, "Câble HDMI", "Accessoires", "Pour relier un ecran"),
+                produit(4, "Clavier", "Périphériques", "Touches silencieuses")));
+
+        // Nom (mot entier) avant nom (fragment) avant description
+        assertEquals(List.of(1L, 2L, 3L), index.rechercher("ECRAN", 10));
+        assertEquals(List.of(3L), index.rechercher("cable hdmi", 10));
+        // Début de mot pour les termes courts, catégorie indexée
+        assertEquals(List.of(3L), index.rechercher("hd", 10));
+        assertEquals(List.of(1L, 4L), index.rechercher("peripheriques", 10));
+        assertEquals(List.of(), index.rechercher("clavier hdmi", 10));
+    }
+
+    @Test
+    void toleranceAuxFautesDeFrappe() {
+        IndexRechercheProduits index = new IndexRechercheProduits(List.of(
+                produit(1, "Clavier mécanique", "Périphériques", null),
+                produit(2, "Imprimante laser", "Périphériques", null),
+                produit(3, "Clavette", "Quincaillerie", null)));
+
+        assertEquals(List.of(1L), index.rechercher("clavuer", 10));
+        assertEquals(List.of(1L), index.rechercher("calvier", 10));
+        assertEquals(List.of(2L), index.rechercher("imprimnate", 10));
+        // Pas de tolérance sous 5 lettres
+        assertEquals(List.of(), index.rechercher("lasr", 10));
+    }
+
+    @Test
+    void miseAJourIncrementale() {
+        IndexRechercheProduits index = new IndexRechercheProduits(List.of(
+                produit(1, "Souris optique", "Périphériques", null),
+                produit(2, "Tapis de souris", "Accessoires", null)));
+
+        index.mettreAJour(List.of(produit(1, "Trackball", "Périphériques", null),
+                produit(3, "Souris verticale", "Périphériques", null)), List.of(2L));
+
+        assertEquals(List.of(3L), index.rechercher("souris", 10));
+        assertEquals(List.of(1L), index.rechercher("trackball", 10));
+        assertEquals(2, index.taille());
+    }
+}
@@ -0,0 +1,150 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.event.ProduitModifieEvent;
+import com.facturation.facture.event.StockModifieEvent;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.repository.ProduitRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IndicateursCatalogueServiceTest {
+
+    private final ProduitRepository produitRepository = mock(ProduitRepository.class);
+    private final SupervisionService supervisionService = new SupervisionService();
+    private final IndicateursCatalogueService service = new IndicateursCatalogueService(
+            produitRepository, supervisionService, mock(PlatformTransactionManager.class));
+
+    @Test
+    void variationPendantLaLectureNonIncluseDansLaLecture() {
+        when(produitRepository.findEtatsStock()).thenReturn(List.<Object[]>of(ligne(1L, 10)));
+        service.reconcilier();
+
+        // La commande est validée pendant la lecture, que la lecture ne voit pas encore
+        when(produitRepository.findEtatsStock()).thenAnswer(invocation -> {
+            service.surStockModifie(new StockModifieEvent(Map.of(1L, -3)));
+            return List.<Object[]>of(ligne(1L, 10));
+        });
+        service.reconcilier();
+
+        assertEquals(7, service.obtenirEtatsStock(List.of(1L)).get(1L).getStock());
+        assertEquals(0, new BigDecimal("14.00").compareTo(service.obtenirIndicateurs().getValeurTotaleStock()));
+        assertEquals(0, supervisionService.valeur(IndicateursCatalogueService.COMPTEUR_ECARTS));
+    }
+
+    @Test
+    void variationPendantLaLectureDejaIncluseDansLaLecture() {
+        when(produitRepository.findEtatsStock()).thenReturn(List.<Object[]>of(ligne(1L, 10)));
+        service.reconcilier();
+
+        // La lecture voit déjà la commande dont l'événement arrive ensuite
+        when(produitRepository.findEtatsStock()).thenAnswer(invocation -> {
+            service.surStockModifie(new StockModifieEvent(Map.of(1L, -3)));
+            return List.<Object[]>of(ligne(1L, 7));
+        });
+        service.reconcilier();
+
+        assertEquals(7, service.obtenirEtatsStock(List.of(1L)).get(1L).getStock());
+        assertEquals(0, supervisionService.valeur(IndicateursCatalogueService.COMPTEUR_ECARTS));
+    }
+
+    @Test
+    void ecartCorrigeEtCompte() {
+        when(produitRepository.findEtatsStock()).thenReturn(List.<Object[]>of(ligne(1L, 10), ligne(2L, 5)));
+        service.reconcilier();
+
+        // Stock modifié en base sans passer par le journal
+        when(produitRepository.findEtatsStock()).thenReturn(List.<Object[]>of(ligne(1L, 10), ligne(2L, 0)));
+        service.reconcilier();
+
+        assertEquals(0, service.obtenirEtatsStock(List.of(2L)).get(2L).getStock());
+        assertEquals(1, service.obtenirIndicateurs().getProduitsRuptureStock());
+        assertEquals(1, supervisionService.valeur(IndicateursCatalogueService.COMPTEUR_ECARTS));
+    }
+
+    @Test
+    void evenementEnRetardNonComptePourUnProduitRelu() {
+        when(produitRepository.findEtatsStock()).thenReturn(List.of());
+        service.reconcilier();
+
+        // Commande validée en base (10 -> 7) dont l'événement n'est pas encore appliqué
+        service.surStockEnCours(new StockModifieEvent(Map.of(1L, -3)));
+        when(produitRepository.findAllById(List.of(1L))).thenReturn(List.of(produit(1L, 7)));
+        service.surProduitModifie(new ProduitModifieEvent(1L));
+        service.actualiser();
+        assertTrue(service.estARelire(1L));
+
+        service.surStockModifie(new StockModifieEvent(Map.of(1L, -3)));
+        service.actualiser();
+        assertFalse(service.estARelire(1L));
+        assertEquals(7, service.obtenirEtatsStock(List.of(1L)).get(1L).getStock());
+    }
+
+    @Test
+    void variationTermineePendantLActualisationRelueAuPassageSuivant() {
+        when(produitRepository.findEtatsStock()).thenReturn(List.of());
+        service.reconcilier();
+
+        // Variation validée pendant la lecture : la lecture peut l'inclure ou non
+        when(produitRepository.findAllById(List.of(1L))).thenAnswer(invocation -> {
+            service.surStockEnCours(new StockModifieEvent(Map.of(1L, -3)));
+            service.surStockModifie(new StockModifieEvent(Map.of(1L, -3)));
+            return List.of(produit(1L, 7));
+        });
+        service.surProduitModifie(new ProduitModifieEvent(1L));
+        service.actualiser();
+        assertTrue(service.obtenirEtatsStock(List.of(1L)).isEmpty());
+
+        when(produitRepository.findAllById(List.of(1L))).thenReturn(List.of(produit(1L, 7)));
+        service.actualiser();
+        assertEquals(7, service.obtenirEtatsStock(List.of(1L)).get(1L).getStock());
+
+        // Variation annulée : plus rien en cours, la lecture est retenue
+        service.surStockEnCours(new StockModifieEvent(Map.of(2L, -1)));
+        service.surStockAnnule(new StockModifieEvent(Map.of(2L, -1)));
+        when(produitRepository.findAllById(List.of(2L))).thenReturn(List.of(produit(2L, 4)));
+        service.surProduitModifie(new ProduitModifieEvent(2L));
+        service.actualiser();
+        assertEquals(4, service.obtenirEtatsStock(List.of(2L)).get(2L).getStock());
+    }
+
+    @Test
+    void evenementEnRetardNonComptePendantLaReconciliation() {
+        when(produitRepository.findEtatsStock()).thenReturn(List.<Object[]>of(ligne(1L, 10)));
+        service.reconcilier();
+
+        // Validée avant la lecture, qui l'inclut ; l'événement arrive après
+        service.surStockEnCours(new StockModifieEvent(Map.of(1L, -3)));
+        when(produitRepository.findEtatsStock()).thenReturn(List.<Object[]>of(ligne(1L, 7)));
+        service.reconcilier();
+        service.surStockModifie(new StockModifieEvent(Map.of(1L, -3)));
+
+        assertEquals(7, service.obtenirEtatsStock(List.of(1L)).get(1L).getStock());
+        assertEquals(0, supervisionService.valeur(IndicateursCatalogueService.COMPTEUR_ECARTS));
+    }
+
+    private static Produit produit(Long id, int stock) {
+        Produit produit = new Produit();
+        produit.setId(id);
+        produit.setNom("Produit " + id);
+        produit.setPrix(new BigDecimal("2.00"));
+        produit.setQuantiteStock(stock);
+        produit.setSeuilAlerte(2);
+        produit.setDisponible(true);
+        return produit;
+    }
+
+    // id, nom, quantite_stock, seuil_alerte, disponible, stock_segmente, prix
+    private static Object[] ligne(Long id, int stock) {
+        return new Object[]{id, "Produit " + id, stock, 2, true, false, new BigDecimal("2.00")};
+    }
+}
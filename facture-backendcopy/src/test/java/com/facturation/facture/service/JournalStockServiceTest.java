@@ -0,0 +1,158 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.model.Categorie;
+import com.facturation.facture.model.InstantaneStock;
+import com.facturation.facture.model.MouvementStock;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.model.enums.TypeMouvementStock;
+import com.facturation.facture.repository.CategorieRepository;
+import com.facturation.facture.repository.InstantaneStockRepository;
+import com.facturation.facture.repository.MouvementStockRepository;
+import com.facturation.facture.repository.ProduitRepository;
+import com.facturation.facture.repository.StockBatchRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import({JournalStockService.class, StockBatchRepository.class, SupervisionService.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:journal;MODE=MySQL;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JournalStockServiceTest {
+
+    @Autowired
+    private JournalStockService journalStockService;
+
+    @Autowired
+    private MouvementStockRepository mouvementStockRepository;
+
+    @Autowired
+    private InstantaneStockRepository instantaneStockRepository;
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Autowired
+    private CategorieRepository categorieRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void nettoyer() {
+        ReflectionTestUtils.setField(journalStockService, "margeSecondes", 300L);
+        ReflectionTestUtils.setField(journalStockService, "retentionJours", 90L);
+    }
+
+    @Test
+    void stockADateDapresLeDernierInstantaneEtLesMouvementsSuivants() {
+        Long id = creerProduit("Souris", 0).getId();
+        LocalDateTime t0 = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+        instantaneStockRepository.save(new InstantaneStock(id, 10, t0));
+        mouvement(id, TypeMouvementStock.REAPPROVISIONNEMENT, 1, t0);
+        mouvement(id, TypeMouvementStock.VENTE, -3, t0.plusMinutes(10));
+        mouvement(id, TypeMouvementStock.REAPPROVISIONNEMENT, 5, t0.plusMinutes(20));
+
+        // Date exacte de l'instantané : les mouvements de cet instant sont comptés
+        assertEquals(11, journalStockService.quantiteADate(id, t0));
+        // Entre l'instantané et les mouvements suivants
+        assertEquals(8, journalStockService.quantiteADate(id, t0.plusMinutes(15)));
+        assertEquals(13, journalStockService.quantiteADate(id, LocalDateTime.now()));
+
+        // Avant le premier instantané : pas d'historique
+        RuntimeException erreur = assertThrows(RuntimeException.class,
+                () -> journalStockService.quantiteADate(id, t0.minusSeconds(1)));
+        assertTrue(erreur.getMessage().startsWith("Historique du stock indisponible pour le produit " + id),
+                erreur.getMessage());
+    }
+
+    @Test
+    void compactionRemplaceLesMouvementsAnciensPuisReouverture() {
+        ReflectionTestUtils.setField(journalStockService, "retentionJours", 0L);
+        Long id = creerProduit("Tapis", 0).getId();
+        LocalDateTime t0 = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+        instantaneStockRepository.save(new InstantaneStock(id, 10, t0));
+        mouvement(id, TypeMouvementStock.VENTE, -3, t0.plusMinutes(10));
+        mouvement(id, TypeMouvementStock.REAPPROVISIONNEMENT, 5, t0.plusMinutes(20));
+        // Dans la marge de sécurité : ni compacté ni supprimé
+        mouvement(id, TypeMouvementStock.VENTE, -2, LocalDateTime.now().minusMinutes(1));
+
+        assertTrue(journalStockService.compacter() >= 1);
+
+        InstantaneStock instantane = instantaneStockRepository
+                .findFirstByProduitIdAndArreteAuLessThanEqualOrderByArreteAuDesc(id, LocalDateTime.now())
+                .orElseThrow();
+        assertEquals(12, instantane.getQuantite());
+        assertTrue(instantane.getArreteAu().isAfter(t0.plusMinutes(20)));
+        List<MouvementStock> restants = mouvements(id);
+        assertEquals(1, restants.size());
+        assertEquals(-2, restants.get(0).getQuantite());
+        assertEquals(10, journalStockService.quantiteADate(id, LocalDateTime.now()));
+        assertEquals(12, journalStockService.quantiteADate(id, instantane.getArreteAu()));
+
+        // Rien de nouveau à compacter : le mouvement de la marge reste en place
+        journalStockService.compacter();
+        assertEquals(1, mouvements(id).size());
+
+        // Réouverture après compaction : l'historique repart du nouveau stock initial
+        LocalDateTime avantReouverture = LocalDateTime.now();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                journalStockService.ouvrir(Map.of(id, 4)));
+        assertEquals(4, journalStockService.quantiteADate(id, LocalDateTime.now()));
+        assertEquals(10, journalStockService.quantiteADate(id, avantReouverture));
+        assertEquals(12, journalStockService.quantiteADate(id, instantane.getArreteAu()));
+
+        journalStockService.compacter();
+        assertEquals(2, mouvements(id).size());
+        assertEquals(4, journalStockService.quantiteADate(id, LocalDateTime.now()));
+    }
+
+    private void mouvement(Long idProduit, TypeMouvementStock type, int quantite, LocalDateTime date) {
+        mouvementStockRepository.save(new MouvementStock(idProduit, type, quantite, date));
+    }
+
+    private List<MouvementStock> mouvements(Long idProduit) {
+        return mouvementStockRepository.findAll().stream()
+                .filter(m -> m.getProduitId().equals(idProduit))
+                .toList();
+    }
+
+    private Produit creerProduit(String nom, int stock) {
+        Categorie categorie = categorieRepository.save(new Categorie("Catégorie " + nom, null));
+        Produit produit = new Produit();
+        produit.setNom(nom);
+        produit.setPrix(new BigDecimal("10.00"));
+        produit.setQuantiteStock(stock);
+        produit.setSeuilAlerte(0);
+        produit.setCategorie(categorie);
+        return produitRepository.save(produit);
+    }
+}
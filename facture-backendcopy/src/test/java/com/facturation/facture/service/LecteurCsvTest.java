@@ -0,0 +1,55 @@
+package com.facturation.facture.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LecteurCsvTest {
+
+    @Test
+    void champsSimplesEtFinDeFichier() throws IOException {
+        LecteurCsv csv = new LecteurCsv(new StringReader("nom;prix\nClavier;25\r\nSouris;;\n"), ';');
+
+        assertEquals(List.of("nom", "prix"), csv.lire());
+        assertEquals(List.of("Clavier", "25"), csv.lire());
+        assertEquals(List.of("Souris", "", ""), csv.lire());
+        assertNull(csv.lire());
+    }
+
+    @Test
+    void guillemetsEtSeparateurDansUnChamp() throws IOException {
+        LecteurCsv csv = new LecteurCsv(new StringReader("\"Câble; 2 m\";\"Écran \"\"27\"\"\";12,5\n"), ';');
+
+        assertEquals(List.of("Câble; 2 m", "Écran \"27\"", "12,5"), csv.lire());
+        assertNull(csv.lire());
+    }
+
+    @Test
+    void retourALaLigneDansUnChampEtNumerosDeLigne() throws IOException {
+        LecteurCsv csv = new LecteurCsv(new StringReader(
+                "nom,description\nLampe,\"Première ligne\nseconde ligne\"\nTapis,Simple"), ',');
+
+        csv.lire();
+        assertEquals(List.of("Lampe", "Première ligne\nseconde ligne"), csv.lire());
+        assertEquals(2, csv.getNumeroLigne());
+        assertEquals(List.of("Tapis", "Simple"), csv.lire());
+        assertEquals(4, csv.getNumeroLigne());
+        assertNull(csv.lire());
+    }
+
+    @Test
+    void guillemetNonFerme() throws IOException {
+        LecteurCsv csv = new LecteurCsv(new StringReader("nom\n\"Lampe\nTapis\n"), ';');
+
+        csv.lire();
+        IOException erreur = assertThrows(IOException.class, csv::lire);
+        assertTrue(erreur.getMessage().contains("ligne 2"), erreur.getMessage());
+    }
+}
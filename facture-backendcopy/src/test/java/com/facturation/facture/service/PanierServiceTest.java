@@ -0,0 +1,176 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.event.UtilisateurModifieEvent;
+import com.facturation.facture.model.Commande;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.model.User;
+import com.facturation.facture.model.enums.Role;
+import com.facturation.facture.repository.ProduitRepository;
+import com.facturation.facture.repository.ReservationStockRepository;
+import com.facturation.facture.repository.StockBatchRepository;
+import com.facturation.facture.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PanierServiceTest {
+
+    private final ProduitRepository produitRepository = mock(ProduitRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final CommandeService commandeService = mock(CommandeService.class);
+    private final ReservationStockService reservationStockService = mock(ReservationStockService.class);
+    private final PanierService service = new PanierService(produitRepository, userRepository, commandeService,
+            reservationStockService);
+
+    PanierServiceTest() {
+        ReflectionTestUtils.setField(service, "capacite", 100);
+        ReflectionTestUtils.setField(service, "dureeVieMinutes", 60L);
+    }
+
+    @Test
+    void proprietaireVerifieEnBaseUneSeuleFois() {
+        when(userRepository.findByEmail("client@test.fr")).thenReturn(Optional.of(client(1L, "client@test.fr")));
+        service.obtenirPanier(1L);
+
+        assertTrue(service.estProprietaire(1L, "client@test.fr"));
+        assertTrue(service.estProprietaire(1L, "client@test.fr"));
+        verify(userRepository, times(1)).findByEmail("client@test.fr");
+        assertFalse(service.estProprietaire(2L, "client@test.fr"));
+        assertFalse(service.estProprietaire(1L, null));
+
+        // Email changé : l'ancien n'ouvre plus le panier sans nouvelle vérification
+        service.surUtilisateurModifie(new UtilisateurModifieEvent(1L));
+        when(userRepository.findByEmail("client@test.fr")).thenReturn(Optional.empty());
+        assertFalse(service.estProprietaire(1L, "client@test.fr"));
+    }
+
+    @Test
+    void validationHorsDuVerrouDuPanier() throws Exception {
+        when(produitRepository.findById(10L)).thenReturn(Optional.of(produit(10L)));
+        service.ajouterProduit(1L, 10L, 2);
+
+        CountDownLatch commandeEnCours = new CountDownLatch(1);
+        CountDownLatch terminer = new CountDownLatch(1);
+        Commande commande = new Commande();
+        when(commandeService.creerCommandePourClient(eq(1L), anyList())).thenAnswer(invocation -> {
+            commandeEnCours.countDown();
+            terminer.await();
+            return commande;
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Commande> validation = executor.submit(() -> service.validerPanier(1L));
+        assertTrue(commandeEnCours.await(10, TimeUnit.SECONDS));
+
+        // Pendant la création de la commande : lecture possible, modifications refusées sans attendre
+        assertEquals(2, service.obtenirPanier(1L).getNombreArticles());
+        RuntimeException refus = assertThrows(RuntimeException.class, () -> service.ajouterProduit(1L, 10L, 1));
+        assertEquals("Le panier est en cours de validation", refus.getMessage());
+        assertThrows(RuntimeException.class, () -> service.validerPanier(1L));
+        assertThrows(RuntimeException.class, () -> service.supprimerProduit(1L, 10L));
+        assertThrows(RuntimeException.class, () -> service.viderPanier(1L));
+
+        terminer.countDown();
+        assertEquals(commande, validation.get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(service.obtenirPanier(1L).estVide());
+        verify(reservationStockService).liberer(eq(1L), any(Iterable.class));
+    }
+
+    @Test
+    void panierConserveSiLaValidationEchoue() {
+        when(produitRepository.findById(10L)).thenReturn(Optional.of(produit(10L)));
+        service.ajouterProduit(1L, 10L, 2);
+        when(commandeService.creerCommandePourClient(eq(1L), anyList())).thenThrow(new RuntimeException("Conflit"));
+
+        assertThrows(RuntimeException.class, () -> service.validerPanier(1L));
+
+        // Le panier reste modifiable avec ses lignes
+        service.ajouterProduit(1L, 10L, 1);
+        assertEquals(3, service.obtenirPanier(1L).getNombreArticles());
+    }
+
+    @Test
+    void reservationsSuiventLePanierSousModificationsConcurrentes() throws Exception {
+        // Vraies réservations (en mémoire) pour comparer au contenu du panier
+        ReservationStockService reservations = new ReservationStockService(produitRepository,
+                mock(ReservationStockRepository.class), mock(StockBatchRepository.class), new SupervisionService(),
+                mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(reservations, "dureeVieMinutes", 30L);
+        PanierService paniers = new PanierService(produitRepository, userRepository, commandeService, reservations);
+        ReflectionTestUtils.setField(paniers, "capacite", 100);
+        ReflectionTestUtils.setField(paniers, "dureeVieMinutes", 60L);
+        Produit produit = produit(10L);
+        produit.setQuantiteStock(1_000_000);
+        when(produitRepository.findById(10L)).thenReturn(Optional.of(produit));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Future<?>> taches = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int fil = t;
+            taches.add(executor.submit(() -> {
+                depart.await();
+                for (int i = 0; i < 500; i++) {
+                    switch ((fil + i) % 3) {
+                        case 0 -> paniers.ajouterProduit(1L, 10L, 1);
+                        case 1 -> {
+                            try {
+                                paniers.supprimerProduit(1L, 10L);
+                            } catch (RuntimeException e) {
+                                // Déjà retiré par un autre fil
+                            }
+                        }
+                        default -> paniers.viderPanier(1L);
+                    }
+                }
+                return null;
+            }));
+        }
+        depart.countDown();
+        for (Future<?> tache : taches) {
+            tache.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Aucune réservation orpheline : ce qui est réservé est exactement ce que contient le panier
+        assertEquals(paniers.obtenirPanier(1L).getQuantite(10L), reservations.quantiteReservee(10L, null));
+    }
+
+    private static User client(Long id, String email) {
+        User user = new User(email, "motdepasse123", "Client", "Test", Role.CLIENT);
+        user.setId(id);
+        return user;
+    }
+
+    private static Produit produit(Long id) {
+        Produit produit = new Produit();
+        produit.setId(id);
+        produit.setNom("Produit " + id);
+        produit.setPrix(new BigDecimal("10.00"));
+        produit.setQuantiteStock(100);
+        return produit;
+    }
+}
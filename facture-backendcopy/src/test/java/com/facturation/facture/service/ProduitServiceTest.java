@@ -0,0 +1,88 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.model.Categorie;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.repository.CategorieRepository;
+import com.facturation.facture.repository.ProduitRepository;
+import com.facturation.facture.repository.StockBatchRepository;
+import com.facturation.facture.repository.StockSegmenteRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@DataJpaTest
+@Import({ProduitService.class, StockService.class, StockSegmenteService.class, JournalStockService.class,
+        IndicateursCatalogueService.class, StockBatchRepository.class, StockSegmenteRepository.class,
+        SupervisionService.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:produits;MODE=MySQL;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProduitServiceTest {
+
+    @Autowired
+    private ProduitService produitService;
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Autowired
+    private CategorieRepository categorieRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void mouvementDeStockSansViderLeContexteDeLAppelant() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Produit cree = creerProduit("Clavier", 10);
+
+        transaction.executeWithoutResult(status -> {
+            // Modification en attente d'une autre entité, et produit déjà chargé par l'appelant
+            Categorie categorie = categorieRepository.findById(cree.getCategorie().getId()).orElseThrow();
+            categorie.setNom("Périphériques");
+            Produit produit = produitRepository.findById(cree.getId()).orElseThrow();
+
+            Produit apresVente = produitService.reduireStock(cree.getId(), 3);
+            assertSame(produit, apresVente);
+            assertEquals(7, produit.getQuantiteStock());
+
+            Produit apresReappro = produitService.augmenterStock(cree.getId(), 5);
+            assertSame(produit, apresReappro);
+            assertEquals(12, produit.getQuantiteStock());
+        });
+
+        assertEquals("Périphériques", categorieRepository.findById(cree.getCategorie().getId()).orElseThrow().getNom());
+        assertEquals(12, produitRepository.findById(cree.getId()).orElseThrow().getQuantiteStock());
+    }
+
+    private Produit creerProduit(String nom, int stock) {
+        Categorie categorie = categorieRepository.save(new Categorie("Catégorie " + nom, null));
+        Produit produit = new Produit();
+        produit.setNom(nom);
+        produit.setPrix(new BigDecimal("10.00"));
+        produit.setQuantiteStock(stock);
+        produit.setSeuilAlerte(0);
+        produit.setCategorie(categorie);
+        return produitRepository.save(produit);
+    }
+}
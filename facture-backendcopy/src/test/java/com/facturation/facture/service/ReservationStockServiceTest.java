@@ -0,0 +1,232 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.CommandeDTO;
+import com.facturation.facture.dto.LigneCommandeDTO;
+import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.dto.RapportCommandesMasseDTO;
+import com.facturation.facture.model.Categorie;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.model.ReservationStock;
+import com.facturation.facture.model.User;
+import com.facturation.facture.model.enums.Role;
+import com.facturation.facture.repository.CategorieRepository;
+import com.facturation.facture.repository.LigneCommandeBatchRepository;
+import com.facturation.facture.repository.ProduitRepository;
+import com.facturation.facture.repository.ReservationStockRepository;
+import com.facturation.facture.repository.StockBatchRepository;
+import com.facturation.facture.repository.StockSegmenteRepository;
+import com.facturation.facture.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import({ReservationStockService.class, CommandeService.class, LigneCommandeBatchRepository.class,
+        SequenceService.class, StockService.class, StockSegmenteService.class, JournalStockService.class,
+        StockBatchRepository.class, StockSegmenteRepository.class, SupervisionService.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reservations;MODE=MySQL;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReservationStockServiceTest {
+
+    @Autowired
+    private ReservationStockService reservationStockService;
+
+    @Autowired
+    private CommandeService commandeService;
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Autowired
+    private CategorieRepository categorieRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReservationStockRepository reservationStockRepository;
+
+    @Autowired
+    private StockBatchRepository stockBatchRepository;
+
+    @Autowired
+    private SupervisionService supervisionService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void nettoyer() {
+        SecurityContextHolder.clearContext();
+        ReflectionTestUtils.setField(reservationStockService, "dureeVieMinutes", 30L);
+    }
+
+    @Test
+    void reservationLimiteeAuStockNonReserveParLesAutres() {
+        Produit produit = creerProduit("Webcam", 10);
+
+        reservationStockService.reserver(1L, produit, 6);
+        RuntimeException refus = assertThrows(RuntimeException.class, () -> reservationStockService.reserver(2L, produit, 5));
+        assertEquals("Stock insuffisant pour 'Webcam' : 4 disponible(s)", refus.getMessage());
+        reservationStockService.reserver(2L, produit, 4);
+        assertEquals(0, reservationStockService.quantiteDisponible(produit));
+
+        // Une nouvelle réservation du même client remplace la précédente
+        reservationStockService.reserver(1L, produit, 2);
+        assertEquals(4, reservationStockService.quantiteDisponible(produit));
+        assertEquals(4, reservationStockService.quantiteReservee(produit.getId(), 1L));
+
+        reservationStockService.liberer(2L, List.of(produit.getId()));
+        reservationStockService.liberer(1L, produit.getId());
+        assertEquals(10, reservationStockService.quantiteDisponible(produit));
+    }
+
+    @Test
+    void reservationsExpireesLibereesParLaPurge() throws InterruptedException {
+        Produit produit = creerProduit("Micro", 10);
+        Produit autre = creerProduit("Pied de micro", 10);
+        ReflectionTestUtils.setField(reservationStockService, "dureeVieMinutes", 0L);
+        reservationStockService.reserver(1L, produit, 3);
+        reservationStockService.reserver(2L, autre, 2);
+        Thread.sleep(5);
+
+        assertEquals(2, reservationStockService.purgerReservationsExpirees());
+        assertEquals(0, reservationStockService.quantiteReservee(produit.getId(), null));
+        assertEquals(0, reservationStockService.quantiteReservee(autre.getId(), null));
+        assertEquals(0, reservationStockService.purgerReservationsExpirees());
+
+        // Une réservation expirée ne bloque pas non plus un autre client avant la purge
+        reservationStockService.reserver(1L, produit, 3);
+        Thread.sleep(5);
+        reservationStockService.reserver(2L, produit, 10);
+        reservationStockService.liberer(2L, produit.getId());
+
+        // Durée de vie rétablie : la nouvelle réservation est comptée
+        ReflectionTestUtils.setField(reservationStockService, "dureeVieMinutes", 30L);
+        reservationStockService.reserver(1L, produit, 4);
+        assertEquals(6, reservationStockService.quantiteDisponible(produit));
+        reservationStockService.liberer(1L, produit.getId());
+    }
+
+    @Test
+    void reservationsSauvegardeesPuisRechargeesAuDemarrage() {
+        Produit produit = creerProduit("Casque audio", 10);
+        reservationStockService.reserver(1L, produit, 3);
+        reservationStockService.reserver(2L, produit, 2);
+        reservationStockService.sauvegarder();
+
+        List<ReservationStock> sauvegardees = reservationStockRepository.findAll();
+        assertEquals(2, sauvegardees.size());
+        assertEquals(5, sauvegardees.stream().mapToInt(ReservationStock::getQuantite).sum());
+
+        // Une réservation expirée en base n'est pas rechargée
+        reservationStockRepository.save(new ReservationStock(produit.getId(), 3L, 4, LocalDateTime.now().minusMinutes(1)));
+
+        ReservationStockService redemarre = new ReservationStockService(produitRepository, reservationStockRepository,
+                stockBatchRepository, supervisionService, transactionManager);
+        redemarre.charger();
+        assertEquals(5, redemarre.quantiteReservee(produit.getId(), null));
+        assertEquals(2, redemarre.quantiteReservee(produit.getId(), 1L));
+
+        reservationStockService.liberer(1L, produit.getId());
+        reservationStockService.liberer(2L, produit.getId());
+        reservationStockService.sauvegarder();
+        assertTrue(reservationStockRepository.findAll().isEmpty());
+    }
+
+    @Test
+    void commandeDirecteNePrendPasLeStockReserve() {
+        Produit produit = creerProduit("Enceinte", 5);
+        authentifier(creerClient());
+        reservationStockService.reserver(-1L, produit, 4);
+
+        RuntimeException refus = assertThrows(RuntimeException.class,
+                () -> commandeService.creerCommandeAvecProduits(commande(produit, 2)));
+        assertTrue(refus.getMessage().startsWith("Stock insuffisant"), refus.getMessage());
+        assertEquals(5, produitRepository.findById(produit.getId()).orElseThrow().getQuantiteStock());
+
+        commandeService.creerCommandeAvecProduits(commande(produit, 1));
+        assertEquals(4, produitRepository.findById(produit.getId()).orElseThrow().getQuantiteStock());
+        reservationStockService.liberer(-1L, produit.getId());
+    }
+
+    @Test
+    void lotDeCommandesNePrendPasLeStockReserve() {
+        Produit produit = creerProduit("Lampe", 5);
+        authentifier(creerClient());
+        reservationStockService.reserver(-1L, produit, 3);
+
+        // Demande cumulée du lot : 1 + 1 accepté, la troisième dépasse les 2 non réservés
+        RapportCommandesMasseDTO rapport = commandeService.creerCommandesEnMasse(
+                List.of(commande(produit, 1), commande(produit, 1), commande(produit, 1)));
+
+        assertEquals(2, rapport.getSucces());
+        assertEquals(1, rapport.getEchecs());
+        RapportCommandesMasseDTO.ResultatCommande rejet = rapport.getResultats().get(2);
+        assertFalse(rejet.isSucces());
+        assertTrue(rejet.getErreur().startsWith("Stock insuffisant"), rejet.getErreur());
+        assertEquals(3, produitRepository.findById(produit.getId()).orElseThrow().getQuantiteStock());
+        reservationStockService.liberer(-1L, produit.getId());
+    }
+
+    private static CommandeDTO commande(Produit produit, int quantite) {
+        ProduitDTO produitDTO = new ProduitDTO();
+        produitDTO.setId(produit.getId());
+        LigneCommandeDTO ligne = new LigneCommandeDTO();
+        ligne.setProduit(produitDTO);
+        ligne.setQuantite(quantite);
+        CommandeDTO commande = new CommandeDTO();
+        commande.setLignesCommande(new ArrayList<>(List.of(ligne)));
+        return commande;
+    }
+
+    private User creerClient() {
+        return userRepository.save(new User("client" + System.nanoTime() + "@test.fr", "motdepasse123",
+                "Client", "Test", Role.CLIENT));
+    }
+
+    private static void authentifier(User client) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(client.getEmail(), null, List.of()));
+    }
+
+    private Produit creerProduit(String nom, int stock) {
+        Categorie categorie = categorieRepository.save(new Categorie("Catégorie " + nom, null));
+        Produit produit = new Produit();
+        produit.setNom(nom);
+        produit.setPrix(new BigDecimal("10.00"));
+        produit.setQuantiteStock(stock);
+        produit.setSeuilAlerte(0);
+        produit.setCategorie(categorie);
+        return produitRepository.save(produit);
+    }
+}
@@ -0,0 +1,114 @@
+package com.facturation.facture.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import(SequenceService.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sequence;MODE=MySQL;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=50",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SequenceServiceTest {
+
+    private static final int FACTURATIONS_PARALLELES = 200;
+
+    @Autowired
+    private SequenceService sequenceService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void numerosFactureUniquesEtContinusSousConcurrence() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch depart = new CountDownLatch(1);
+
+        List<Future<String>> resultats = new ArrayList<>();
+        for (int i = 0; i < FACTURATIONS_PARALLELES; i++) {
+            Callable<String> facturation = () -> {
+                depart.await();
+                return transaction.execute(status -> sequenceService.prochainNumeroFacture());
+            };
+            resultats.add(executor.submit(facturation));
+        }
+        depart.countDown();
+
+        Set<String> numeros = new HashSet<>();
+        Set<Integer> sequences = new HashSet<>();
+        for (Future<String> resultat : resultats) {
+            String numero = resultat.get(60, TimeUnit.SECONDS);
+            assertTrue(numero.matches("FAC-\\d{8}-\\d{4}"), numero);
+            numeros.add(numero);
+            sequences.add(Integer.parseInt(numero.substring(numero.lastIndexOf('-') + 1)));
+        }
+        executor.shutdown();
+
+        // Aucun doublon et aucun trou : exactement 1..200
+        assertEquals(FACTURATIONS_PARALLELES, numeros.size());
+        for (int i = 1; i <= FACTURATIONS_PARALLELES; i++) {
+            assertTrue(sequences.contains(i), "Numéro manquant : " + i);
+        }
+    }
+
+    @Test
+    void numeroFactureRenduSiLaTransactionEstAnnulee() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        String premier = transaction.execute(status -> sequenceService.prochainNumeroFacture());
+        transaction.executeWithoutResult(status -> {
+            sequenceService.prochainNumeroFacture();
+            status.setRollbackOnly();
+        });
+        String suivant = transaction.execute(status -> sequenceService.prochainNumeroFacture());
+
+        int sequencePremier = Integer.parseInt(premier.substring(premier.lastIndexOf('-') + 1));
+        int sequenceSuivant = Integer.parseInt(suivant.substring(suivant.lastIndexOf('-') + 1));
+        assertEquals(sequencePremier + 1, sequenceSuivant);
+    }
+
+    @Test
+    void numerosCommandeUniques() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<String>> resultats = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            resultats.add(executor.submit(sequenceService::prochainNumeroCommande));
+        }
+        Set<String> numeros = new HashSet<>();
+        for (Future<String> resultat : resultats) {
+            numeros.add(resultat.get(60, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(500, numeros.size());
+    }
+}
@@ -0,0 +1,196 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.model.Categorie;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.repository.CategorieRepository;
+import com.facturation.facture.repository.ProduitRepository;
+import com.facturation.facture.repository.StockBatchRepository;
+import com.facturation.facture.repository.StockSegmenteRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import({StockService.class, StockSegmenteService.class, JournalStockService.class, StockBatchRepository.class,
+        StockSegmenteRepository.class, SupervisionService.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stocksegmente;MODE=MySQL;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=50",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockSegmenteServiceTest {
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockSegmenteService stockSegmenteService;
+
+    @Autowired
+    private StockSegmenteRepository stockSegmenteRepository;
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Autowired
+    private CategorieRepository categorieRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void aucuneSurventeEnStockSegmente() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Produit produit = creerProduit("Carte graphique", 50);
+        stockSegmenteService.activer(produit.getId(), 8);
+
+        AtomicInteger vendus = new AtomicInteger();
+        AtomicInteger refus = new AtomicInteger();
+        AtomicInteger plusPetitRefus = new AtomicInteger(Integer.MAX_VALUE);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Future<?>> commandes = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            int quantite = 1 + new Random(i).nextInt(3);
+            commandes.add(executor.submit(() -> {
+                depart.await();
+                while (true) {
+                    try {
+                        transaction.executeWithoutResult(status ->
+                                stockService.reserver(Map.of(produit.getId(), quantite)));
+                        vendus.addAndGet(quantite);
+                    } catch (StockSegmenteService.SegmentsOccupesException e) {
+                        // Segments tenus par d'autres commandes : rejoué, comme par ReessaiSurConflit
+                        continue;
+                    } catch (RuntimeException e) {
+                        assertTrue(e.getMessage().startsWith("Stock insuffisant"), e.getMessage());
+                        refus.incrementAndGet();
+                        plusPetitRefus.accumulateAndGet(quantite, Math::min);
+                    }
+                    return null;
+                }
+            }));
+        }
+        depart.countDown();
+        for (Future<?> commande : commandes) {
+            commande.get(120, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Un refus n'arrive que si le stock total ne couvre plus la quantité : le stock ne
+        // faisant que baisser, ce qui reste à la fin est inférieur à toute quantité refusée
+        assertTrue(refus.get() > 0);
+        int restant = totalSegments(produit.getId());
+        assertEquals(50 - vendus.get(), restant);
+        assertTrue(restant >= 0 && restant < plusPetitRefus.get(),
+                "restant : " + restant + ", plus petit refus : " + plusPetitRefus.get());
+    }
+
+    @Test
+    void segmentsTenusParUneCommandeEnCoursRejouesSansAttendre() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Produit produit = creerProduit("Casque VR", 16);
+        stockSegmenteService.activer(produit.getId(), 8);
+
+        // Une commande en cours tient un segment (1 unité restante) sans valider
+        CountDownLatch segmentTenu = new CountDownLatch(1);
+        CountDownLatch valider = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> enCours = executor.submit(() -> transaction.executeWithoutResult(status -> {
+            stockService.reserver(Map.of(produit.getId(), 1));
+            segmentTenu.countDown();
+            try {
+                valider.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        segmentTenu.await();
+
+        // Les segments libres (14 unités) ne suffisent pas : ni attente du segment tenu
+        // (interblocage possible), ni refus pour rupture, la commande est à rejouer
+        assertThrows(StockSegmenteService.SegmentsOccupesException.class, () -> transaction.executeWithoutResult(status ->
+                stockService.reserver(Map.of(produit.getId(), 15))));
+
+        valider.countDown();
+        enCours.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Rejouée une fois le segment relâché, elle prend tout le stock restant
+        transaction.executeWithoutResult(status -> stockService.reserver(Map.of(produit.getId(), 15)));
+        assertEquals(0, totalSegments(produit.getId()));
+    }
+
+    @Test
+    void basculeAllerRetourConserveLeStock() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Produit produit = creerProduit("Manette", 103);
+
+        stockSegmenteService.activer(produit.getId(), 4);
+        transaction.executeWithoutResult(status -> {
+            stockService.reserver(Map.of(produit.getId(), 10));
+            stockService.remettreEnStock(Map.of(produit.getId(), 4));
+        });
+        assertEquals(97, totalSegments(produit.getId()));
+
+        stockSegmenteService.synchroniser();
+        assertEquals(97, produitRepository.findById(produit.getId()).orElseThrow().getQuantiteStock());
+
+        stockSegmenteService.desactiver(produit.getId());
+        assertFalse(stockSegmenteService.estSegmente(produit.getId()));
+        Produit relu = produitRepository.findById(produit.getId()).orElseThrow();
+        assertFalse(relu.getStockSegmente());
+        assertEquals(97, relu.getQuantiteStock());
+        assertEquals(0, totalSegments(produit.getId()));
+    }
+
+    private int totalSegments(Long idProduit) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        return transaction.execute(status ->
+                stockSegmenteRepository.verrouillerSegments(idProduit).values().stream().mapToInt(Integer::intValue).sum());
+    }
+
+    private Produit creerProduit(String nom, int stock) {
+        Categorie categorie = categorieRepository.save(new Categorie("Catégorie " + nom, null));
+        Produit produit = new Produit();
+        produit.setNom(nom);
+        produit.setPrix(new BigDecimal("10.00"));
+        produit.setQuantiteStock(stock);
+        produit.setSeuilAlerte(0);
+        produit.setCategorie(categorie);
+        return produitRepository.save(produit);
+    }
+}
@@ -0,0 +1,316 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.dto.LigneCommandeDTO;
+import com.facturation.facture.dto.ProduitDTO;
+import com.facturation.facture.dto.RapportTransitionStatutDTO;
+import com.facturation.facture.dto.TransitionStatutMasseDTO;
+import com.facturation.facture.model.Categorie;
+import com.facturation.facture.model.Commande;
+import com.facturation.facture.model.LigneCommande;
+import com.facturation.facture.model.Produit;
+import com.facturation.facture.model.User;
+import com.facturation.facture.model.enums.Role;
+import com.facturation.facture.model.enums.StatutCommande;
+import com.facturation.facture.repository.CategorieRepository;
+import com.facturation.facture.repository.CommandeRepository;
+import com.facturation.facture.repository.LigneCommandeBatchRepository;
+import com.facturation.facture.repository.LigneCommandeRepository;
+import com.facturation.facture.repository.ProduitRepository;
+import com.facturation.facture.repository.StockBatchRepository;
+import com.facturation.facture.repository.StockSegmenteRepository;
+import com.facturation.facture.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import({StockService.class, StockSegmenteService.class, JournalStockService.class, StockBatchRepository.class,
+        StockSegmenteRepository.class, SupervisionService.class, CommandeService.class, ReservationStockService.class,
+        LigneCommandeBatchRepository.class, SequenceService.class, LigneCommandeService.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stock;MODE=MySQL;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=50",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockServiceTest {
+
+    private static final int COMMANDES_PARALLELES = 1000;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private LigneCommandeService ligneCommandeService;
+
+    @Autowired
+    private ProduitRepository produitRepository;
+
+    @Autowired
+    private CategorieRepository categorieRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CommandeRepository commandeRepository;
+
+    @Autowired
+    private LigneCommandeRepository ligneCommandeRepository;
+
+    @Autowired
+    private CommandeService commandeService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void aucuneSurventeSousForteConcurrence() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<Produit> produits = List.of(creerProduit("Clavier", 100), creerProduit("Souris", 60), creerProduit("Écran", 25));
+
+        Map<Long, AtomicInteger> vendus = new ConcurrentHashMap<>();
+        produits.forEach(produit -> vendus.put(produit.getId(), new AtomicInteger()));
+        AtomicInteger refus = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Future<?>> commandes = new ArrayList<>();
+        for (int i = 0; i < COMMANDES_PARALLELES; i++) {
+            Random aleatoire = new Random(i);
+            commandes.add(executor.submit(() -> {
+                // Commande de 1 à 3 produits, 1 à 4 unités chacun
+                Map<Long, Integer> quantites = new HashMap<>();
+                int nombreProduits = 1 + aleatoire.nextInt(produits.size());
+                for (int p = 0; p < nombreProduits; p++) {
+                    quantites.merge(produits.get(aleatoire.nextInt(produits.size())).getId(),
+                            1 + aleatoire.nextInt(4), Integer::sum);
+                }
+                depart.await();
+                try {
+                    transaction.executeWithoutResult(status -> stockService.reserver(quantites));
+                    quantites.forEach((id, quantite) -> vendus.get(id).addAndGet(quantite));
+                } catch (RuntimeException e) {
+                    assertTrue(e.getMessage().startsWith("Stock insuffisant"), e.getMessage());
+                    refus.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        depart.countDown();
+        for (Future<?> commande : commandes) {
+            commande.get(120, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // La demande dépasse largement le stock : des commandes sont refusées,
+        // et le stock restant correspond exactement aux commandes acceptées
+        assertTrue(refus.get() > 0);
+        for (Produit produit : produits) {
+            int stockFinal = produitRepository.findById(produit.getId()).orElseThrow().getQuantiteStock();
+            assertTrue(stockFinal >= 0, produit.getNom() + " : " + stockFinal);
+            assertEquals(produit.getQuantiteStock() - vendus.get(produit.getId()).get(), stockFinal, produit.getNom());
+        }
+    }
+
+    @Test
+    void ruptureAnnuleLesDecrementsDeLaCommande() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Produit disponible = creerProduit("Câble", 10);
+        Produit rare = creerProduit("Adaptateur", 1);
+
+        Map<Long, Integer> quantites = Map.of(disponible.getId(), 5, rare.getId(), 2);
+        RuntimeException erreur = assertThrows(RuntimeException.class,
+                () -> transaction.executeWithoutResult(status -> stockService.reserver(quantites)));
+
+        assertTrue(erreur.getMessage().contains("Adaptateur"), erreur.getMessage());
+        assertFalse(erreur.getMessage().contains("Câble"), erreur.getMessage());
+        assertEquals(10, produitRepository.findById(disponible.getId()).orElseThrow().getQuantiteStock());
+        assertEquals(1, produitRepository.findById(rare.getId()).orElseThrow().getQuantiteStock());
+    }
+
+    @Test
+    void restitutionGroupeeUneSeuleFoisParCommande() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Produit produit = creerProduit("Casque", 20);
+        Long idCommande = creerCommandeAnnuleeAvecStockReserve(produit, 7);
+
+        int premiere = transaction.execute(status -> stockService.restituerStockCommandes(List.of(idCommande)));
+        int seconde = transaction.execute(status -> stockService.restituerStockCommandes(List.of(idCommande)));
+
+        assertEquals(1, premiere);
+        assertEquals(0, seconde);
+        assertEquals(27, produitRepository.findById(produit.getId()).orElseThrow().getQuantiteStock());
+        assertFalse(commandeRepository.findById(idCommande).orElseThrow().getStockReserve());
+    }
+
+    @Test
+    void transitionEnMasseReserveLeStockDesCommandesAnterieures() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Produit produit = creerProduit("Tablette", 20);
+        Long anterieure1 = creerCommande(produit, 3, StatutCommande.EN_ATTENTE, false);
+        Long anterieure2 = creerCommande(produit, 4, StatutCommande.EN_ATTENTE, false);
+        Long dejaReservee = creerCommande(produit, 5, StatutCommande.EN_ATTENTE, true);
+
+        TransitionStatutMasseDTO demande = new TransitionStatutMasseDTO();
+        demande.setIds(List.of(anterieure1, anterieure2, dejaReservee));
+        demande.setNouveauStatut(StatutCommande.PAYEE);
+        RapportTransitionStatutDTO rapport = transaction.execute(status -> commandeService.changerStatutCommandesEnMasse(demande));
+
+        // Seules les commandes sans stock réservé décrémentent le stock (3 + 4)
+        assertEquals(3, rapport.getModifiees());
+        assertEquals(13, produitRepository.findById(produit.getId()).orElseThrow().getQuantiteStock());
+        for (Long id : List.of(anterieure1, anterieure2, dejaReservee)) {
+            Commande commande = commandeRepository.findById(id).orElseThrow();
+            assertEquals(StatutCommande.PAYEE, commande.getStatut());
+            assertTrue(commande.getStockReserve());
+        }
+    }
+
+    @Test
+    void transitionEnMasseRefuseeSiLeStockManque() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Produit produit = creerProduit("Liseuse", 5);
+        Long premiere = creerCommande(produit, 3, StatutCommande.EN_ATTENTE, false);
+        Long seconde = creerCommande(produit, 3, StatutCommande.EN_ATTENTE, false);
+
+        TransitionStatutMasseDTO demande = new TransitionStatutMasseDTO();
+        demande.setIds(List.of(premiere, seconde));
+        demande.setNouveauStatut(StatutCommande.PAYEE);
+        RuntimeException erreur = assertThrows(RuntimeException.class,
+                () -> transaction.execute(status -> commandeService.changerStatutCommandesEnMasse(demande)));
+
+        assertTrue(erreur.getMessage().startsWith("Stock insuffisant"), erreur.getMessage());
+        assertEquals(5, produitRepository.findById(produit.getId()).orElseThrow().getQuantiteStock());
+        for (Long id : List.of(premiere, seconde)) {
+            Commande commande = commandeRepository.findById(id).orElseThrow();
+            assertEquals(StatutCommande.EN_ATTENTE, commande.getStatut());
+            assertFalse(commande.getStockReserve());
+        }
+    }
+
+    @Test
+    void transitionEnMasseParFiltrePlafonneeALaTailleMaxDuLot() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Produit produit = creerProduit("Enceinte", 20);
+        LocalDateTime debut = LocalDateTime.now();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(creerCommande(produit, 1, StatutCommande.EN_ATTENTE, false));
+        }
+
+        TransitionStatutMasseDTO demande = new TransitionStatutMasseDTO();
+        demande.setStatutActuel(StatutCommande.EN_ATTENTE);
+        demande.setDateDebut(debut);
+        demande.setNouveauStatut(StatutCommande.ANNULEE);
+        ReflectionTestUtils.setField(commandeService, "tailleMaxLotCommandes", 2);
+        try {
+            RuntimeException erreur = assertThrows(RuntimeException.class,
+                    () -> transaction.execute(status -> commandeService.changerStatutCommandesEnMasse(demande)));
+            assertTrue(erreur.getMessage().startsWith("Un lot ne peut pas dépasser 2 commandes"), erreur.getMessage());
+            for (Long id : ids) {
+                assertEquals(StatutCommande.EN_ATTENTE, commandeRepository.findById(id).orElseThrow().getStatut());
+            }
+
+            // Dans la limite, le filtre s'applique normalement
+            ReflectionTestUtils.setField(commandeService, "tailleMaxLotCommandes", 3);
+            RapportTransitionStatutDTO rapport = transaction.execute(status -> commandeService.changerStatutCommandesEnMasse(demande));
+            assertEquals(3, rapport.getModifiees());
+        } finally {
+            ReflectionTestUtils.setField(commandeService, "tailleMaxLotCommandes", 1000);
+        }
+    }
+
+    @Test
+    void changementDeProduitDUneLigneReindexeLaCommande() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Produit ancien = creerProduit("Souris", 20);
+        Produit nouveau = creerProduit("Trackball", 20);
+        Long idCommande = creerCommande(ancien, 2, StatutCommande.EN_ATTENTE, true);
+
+        transaction.executeWithoutResult(status -> {
+            Commande commande = commandeRepository.findById(idCommande).orElseThrow();
+            LigneCommande ligne = commande.getLigneCommandeParProduit(ancien.getId());
+
+            // Même nombre de lignes, autre produit : l'index ne doit pas garder l'ancienne clé
+            LigneCommandeDTO modification = new LigneCommandeDTO();
+            modification.setQuantite(2);
+            modification.setPrixUnitaire(nouveau.getPrix());
+            ProduitDTO produit = new ProduitDTO();
+            produit.setId(nouveau.getId());
+            modification.setProduit(produit);
+            ligneCommandeService.mettreAJourLigneCommande(ligne.getId(), modification);
+
+            assertEquals(ligne, commande.getLigneCommandeParProduit(nouveau.getId()));
+            assertFalse(commande.contientProduit(ancien.getId()));
+        });
+    }
+
+    private Long creerCommande(Produit produit, int quantite, StatutCommande statut, boolean stockReserve) {
+        User client = userRepository.save(new User("client" + System.nanoTime() + "@test.fr", "motdepasse123",
+                "Client", "Test", Role.CLIENT));
+        Commande commande = new Commande(client);
+        commande.setNumeroCommande("CMD-TEST-" + System.nanoTime());
+        commande.setStatut(statut);
+        commande.setStockReserve(stockReserve);
+        commande = commandeRepository.save(commande);
+        ligneCommandeRepository.save(new LigneCommande(quantite, produit.getPrix(), commande, produit));
+        return commande.getId();
+    }
+
+    private Produit creerProduit(String nom, int stock) {
+        Categorie categorie = categorieRepository.save(new Categorie("Catégorie " + nom, null));
+        Produit produit = new Produit();
+        produit.setNom(nom);
+        produit.setPrix(new BigDecimal("10.00"));
+        produit.setQuantiteStock(stock);
+        produit.setSeuilAlerte(0);
+        produit.setCategorie(categorie);
+        return produitRepository.save(produit);
+    }
+
+    private Long creerCommandeAnnuleeAvecStockReserve(Produit produit, int quantite) {
+        User client = userRepository.save(new User("client@test.fr", "motdepasse123", "Client", "Test", Role.CLIENT));
+        Commande commande = new Commande(client);
+        commande.setNumeroCommande("CMD-TEST-1");
+        commande.setStatut(StatutCommande.ANNULEE);
+        commande.setStockReserve(true);
+        commande = commandeRepository.save(commande);
+        ligneCommandeRepository.save(new LigneCommande(quantite, produit.getPrix(), commande, produit));
+        return commande.getId();
+    }
+}
@@ -0,0 +1,138 @@
+package com.facturation.facture.service;
+
+import com.facturation.facture.event.CommandePayeeEvent;
+import com.facturation.facture.event.ProduitModifieEvent;
+import com.facturation.facture.repository.LigneCommandeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VelociteVentesServiceTest {
+
+    // Rythme d'une unité vendue à l'instant : 1 / tau, tau = demi-vie / ln 2 (demi-vie de 7 jours)
+    private static final double PAR_UNITE = Math.log(2) / 7;
+
+    private final LigneCommandeRepository ligneCommandeRepository = mock(LigneCommandeRepository.class);
+    private final VelociteVentesService service = new VelociteVentesService(ligneCommandeRepository,
+            mock(IndicateursCatalogueService.class), mock(PlatformTransactionManager.class));
+
+    VelociteVentesServiceTest() {
+        ReflectionTestUtils.setField(service, "demiVieJours", 7d);
+        ReflectionTestUtils.setField(service, "historiqueJours", 500);
+    }
+
+    @Test
+    void moyenneMobileCalculeeALaMainApresPlusieursCommandes() {
+        // 10 unités il y a une demi-vie, puis trois commandes payées maintenant
+        ventesHistoriques(vente(1L, 7, 10));
+        service.surCommandePayee(new CommandePayeeEvent(Map.of(1L, 2)));
+        service.surCommandePayee(new CommandePayeeEvent(Map.of(1L, 3, 2L, 4)));
+
+        // (10 * 2^-1 + 2 + 3) * ln 2 / 7 = 0,990210 ; 4 * ln 2 / 7 = 0,396084
+        assertEquals(0.990210, service.obtenirVelocite(1L), 1e-6);
+        assertEquals(0.396084, service.obtenirVelocite(2L), 1e-6);
+    }
+
+    @Test
+    void rythmeDecroitSansVentePuisRetireParLaPurge() {
+        ventesHistoriques(vente(1L, 14, 8), vente(2L, 400, 1000));
+
+        // Deux demi-vies : 8 * 2^-2 * ln 2 / 7 = 0,198042 ; après 400 jours, plus considéré comme vendu
+        assertEquals(0.198042, service.obtenirVelocite(1L), 1e-6);
+        assertEquals(0, service.obtenirVelocite(2L));
+        assertFalse(service.obtenirVelocites().containsKey(2L));
+        assertEquals(2, taille());
+
+        assertEquals(1, service.purger());
+        assertEquals(1, taille());
+        assertEquals(0.198042, service.obtenirVelocite(1L), 1e-6);
+        assertEquals(0, service.purger());
+    }
+
+    @Test
+    void collisionsEtSuppressionDansLaTable() {
+        // Trois produits qui se disputent la même case de la table initiale
+        List<Long> memeCase = new ArrayList<>();
+        int casePremier = caseInitiale(1L);
+        for (long id = 1; memeCase.size() < 3; id++) {
+            if (caseInitiale(id) == casePremier) {
+                memeCase.add(id);
+            }
+        }
+        for (int i = 0; i < memeCase.size(); i++) {
+            service.surCommandePayee(new CommandePayeeEvent(Map.of(memeCase.get(i), i + 1)));
+        }
+        for (int i = 0; i < memeCase.size(); i++) {
+            assertEquals((i + 1) * PAR_UNITE, service.obtenirVelocite(memeCase.get(i)), 1e-6);
+        }
+
+        // Modification sans suppression : rien ne change ; suppression du premier de la série de sondage
+        service.surProduitModifie(new ProduitModifieEvent(memeCase.get(0)));
+        assertEquals(3, taille());
+        service.surProduitModifie(new ProduitModifieEvent(memeCase.get(0), true));
+        assertEquals(2, taille());
+        assertEquals(0, service.obtenirVelocite(memeCase.get(0)));
+        assertEquals(2 * PAR_UNITE, service.obtenirVelocite(memeCase.get(1)), 1e-6);
+        assertEquals(3 * PAR_UNITE, service.obtenirVelocite(memeCase.get(2)), 1e-6);
+
+        // Produit supprimé puis revendu : repart de zéro
+        service.surCommandePayee(new CommandePayeeEvent(Map.of(memeCase.get(0), 5)));
+        assertEquals(5 * PAR_UNITE, service.obtenirVelocite(memeCase.get(0)), 1e-6);
+        assertEquals(3, taille());
+    }
+
+    @Test
+    void agrandissementAuDelaDuTauxDeRemplissage() {
+        // Table au plus à moitié pleine : 3000 produits font passer la table de 1024 à 8192 cases
+        for (long id = 1; id <= 3000; id++) {
+            service.surCommandePayee(new CommandePayeeEvent(Map.of(id, (int) (id % 7) + 1)));
+        }
+        assertEquals(8192, ((long[]) ReflectionTestUtils.getField(service, "ids")).length);
+        assertEquals(3000, taille());
+        assertEquals(3000, service.obtenirVelocites().size());
+        for (long id = 1; id <= 3000; id++) {
+            assertEquals(((id % 7) + 1) * PAR_UNITE, service.obtenirVelocite(id), 1e-6);
+        }
+
+        for (long id = 2; id <= 3000; id += 2) {
+            service.surProduitModifie(new ProduitModifieEvent(id, true));
+        }
+        assertEquals(1500, taille());
+        for (long id = 1; id <= 3000; id++) {
+            double attendue = id % 2 == 0 ? 0 : ((id % 7) + 1) * PAR_UNITE;
+            assertEquals(attendue, service.obtenirVelocite(id), 1e-6);
+        }
+    }
+
+    private void ventesHistoriques(Object[]... ventes) {
+        when(ligneCommandeRepository.findVentesDepuis(anyList(), any(LocalDateTime.class)))
+                .thenReturn(List.of(ventes));
+        service.charger();
+    }
+
+    // id produit, date de commande, quantité
+    private static Object[] vente(Long idProduit, int joursEcoules, int quantite) {
+        return new Object[]{idProduit, LocalDateTime.now().minusDays(joursEcoules), quantite};
+    }
+
+    private int taille() {
+        return (Integer) ReflectionTestUtils.getField(service, "taille");
+    }
+
+    private static int caseInitiale(long idProduit) {
+        Integer h = ReflectionTestUtils.invokeMethod(VelociteVentesService.class, "hacher", idProduit);
+        return h & 1023;
+    }
+}
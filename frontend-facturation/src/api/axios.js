@@ -38,6 +38,20 @@ export const createProduit = (data) => api.post("/admin/produits", data);
 export const updateProduit = (id, data) => api.put(`/admin/produits/${id}`, data);
 export const deleteProduit = (id) => api.delete(`/admin/produits/${id}`);
 
+// Indicateurs du catalogue (calculés en mémoire côté serveur)
+export const getIndicateursCatalogue = () => api.get("/admin/produits/statistiques");
+
+// Produits à réapprovisionner : stock sous le seuil d'alerte d'ici `jours` jours au rythme de ventes actuel
+export const getSuggestionsReapprovisionnement = (jours = 14) =>
+  api.get("/admin/produits/reapprovisionnement", { params: { jours } });
+
+// Import CSV : le fichier est envoyé tel quel (lu au fil de l'eau côté serveur)
+export const importerProduitsCsv = (fichier) =>
+  api.post("/admin/produits/import", fichier, {
+    headers: { "Content-Type": "text/csv" },
+    timeout: 600000,
+  });
+
 // ============================
 // 🛒 CLIENT — PRODUITS
 // ============================
@@ -46,6 +60,12 @@ export const getAllProduitsClient = () => api.get("/clients/produits");
 export const getProduitByIdClient = (id) => api.get(`/clients/produits/${id}`);
 export const getProduitsClient = (categorieId) => 
   api.get("/clients/produits", { params: { categorieId } });
+// Complétions pendant la saisie (produits disponibles et catégories, les plus vendus d'abord)
+export const getAutocompletionProduits = (prefixe, limite = 8) =>
+  api.get("/clients/produits/autocompletion", { params: { prefixe, limite } });
+// Recherche à facettes (categorieId répété pour plusieurs catégories ; taille 0 = facettes seules)
+export const getRechercheFacettes = (params) =>
+  api.get("/clients/produits/facettes", { params, paramsSerializer: { indexes: null } });
 
 // ============================
 // 🛠 ADMIN — COMMANDES
@@ -96,30 +116,26 @@ export const creerCommandeAvecProduits = (commandeDTO) => {
   );
 };
 
-export const ajouterProduitACommande = (idCommande, idProduit, quantite) => {
+/**
+ * Appliquer plusieurs modifications de lignes en une seule requête
+ * @param {Array<{type: 'AJOUTER'|'SUPPRIMER'|'DEFINIR_QUANTITE', produitId: number, quantite?: number}>} operations
+ */
+export const modifierLignesCommande = (idCommande, operations) => {
   const user = JSON.parse(localStorage.getItem('user'));
   const clientId = user?.id;
-  
-  return api.post(`/client/commandes/${idCommande}/produits/${idProduit}`, null, { 
-    params: { quantite, idClient: clientId } 
-  });
-};
 
-export const supprimerProduitDeCommande = (idCommande, idProduit) => {
-  const user = JSON.parse(localStorage.getItem('user'));
-  const clientId = user?.id;
-  
-  return api.delete(`/client/commandes/${idCommande}/produits/${idProduit}`, {
+  return api.patch(`/client/commandes/${idCommande}/lignes`, operations, {
     params: { idClient: clientId }
   });
 };
 
-export const modifierQuantiteProduit = (idCommande, idProduit, nouvelleQuantite) => {
+// Lignes d'une grande commande, page par page (commande.lignesPaginees === true)
+export const obtenirLignesCommande = (idCommande, page = 0, taille = 50) => {
   const user = JSON.parse(localStorage.getItem('user'));
   const clientId = user?.id;
-  
-  return api.put(`/client/commandes/${idCommande}/produits/${idProduit}`, null, { 
-    params: { nouvelleQuantite, idClient: clientId } 
+
+  return api.get(`/client/commandes/${idCommande}/lignes`, {
+    params: { idClient: clientId, page, taille }
   });
 };
 
@@ -377,4 +393,24 @@ export const previewFacturePDF = (factureId, clientId) => {
   });
 };
   
+// ============================
+// 🔔 ADMIN — NOTIFICATIONS
+// ============================
+
+// Notifications non lues de l'admin connecté (alertes de stock faible)
+export const getNotificationsAdmin = () => {
+  const user = JSON.parse(localStorage.getItem('user'));
+  return api.get("/admin/notifications", { params: { idAdmin: user?.id } });
+};
+
+export const marquerNotificationLue = (id) => {
+  const user = JSON.parse(localStorage.getItem('user'));
+  return api.patch(`/admin/notifications/${id}/lue`, null, { params: { idAdmin: user?.id } });
+};
+
+export const marquerToutesNotificationsLues = () => {
+  const user = JSON.parse(localStorage.getItem('user'));
+  return api.patch("/admin/notifications/lues", null, { params: { idAdmin: user?.id } });
+};
+
 export default api;
\ No newline at end of file
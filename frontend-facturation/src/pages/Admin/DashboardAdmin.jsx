@@ -1,4 +1,4 @@
-import React, { useState } from "react";
+import React, { useEffect, useState } from "react";
 import { useNavigate } from "react-router-dom";
 import { 
   LayoutGrid, 
@@ -11,14 +11,74 @@ import {
   Sparkles,
   TrendingUp,
   Users,
-  DollarSign
+  DollarSign,
+  AlertTriangle
 } from "lucide-react";
+import {
+  getIndicateursCatalogue,
+  getNotificationsAdmin,
+  getSuggestionsReapprovisionnement,
+  marquerNotificationLue,
+  marquerToutesNotificationsLues
+} from "../../api/axios";
 import "./DashboardAdmin.css";
 
 const DashboardAdmin = () => {
   const [isSidebarOpen, setIsSidebarOpen] = useState(true);
+  const [alertes, setAlertes] = useState([]);
+  const [indicateurs, setIndicateurs] = useState(null);
+  const [reapprovisionnement, setReapprovisionnement] = useState([]);
   const navigate = useNavigate();
 
+  // Alertes de stock faible écrites par le serveur (aucun parcours des produits)
+  useEffect(() => {
+    const chargerAlertes = async () => {
+      try {
+        const res = await getNotificationsAdmin();
+        setAlertes(res.data);
+      } catch (err) {
+        console.error("Erreur chargement des alertes :", err);
+      }
+    };
+    const chargerIndicateurs = async () => {
+      try {
+        const res = await getIndicateursCatalogue();
+        setIndicateurs(res.data);
+      } catch (err) {
+        console.error("Erreur chargement des indicateurs :", err);
+      }
+    };
+    const chargerReapprovisionnement = async () => {
+      try {
+        const res = await getSuggestionsReapprovisionnement(14);
+        setReapprovisionnement(res.data);
+      } catch (err) {
+        console.error("Erreur chargement du réapprovisionnement :", err);
+      }
+    };
+    chargerAlertes();
+    chargerIndicateurs();
+    chargerReapprovisionnement();
+  }, []);
+
+  const marquerLue = async (id) => {
+    try {
+      await marquerNotificationLue(id);
+      setAlertes((precedentes) => precedentes.filter((a) => a.id !== id));
+    } catch (err) {
+      console.error("Erreur :", err);
+    }
+  };
+
+  const toutMarquerLu = async () => {
+    try {
+      await marquerToutesNotificationsLues();
+      setAlertes([]);
+    } catch (err) {
+      console.error("Erreur :", err);
+    }
+  };
+
   const menuItems = [
     { 
       icon: LayoutGrid, 
@@ -63,7 +123,7 @@ const DashboardAdmin = () => {
     },
     { 
       label: "Produits", 
-      value: "89", 
+      value: indicateurs ? String(indicateurs.produitsDisponibles) : "—", 
       icon: Package, 
       colorClass: "stat-purple",
       iconBg: "bg-purple-light"
@@ -163,6 +223,59 @@ const DashboardAdmin = () => {
               ))}
             </div>
 
+            {/* Alertes de stock */}
+            {alertes.length > 0 && (
+              <div className="action-card alertes-card mb-4 mb-lg-5">
+                <div className="d-flex align-items-center justify-content-between mb-3">
+                  <h2 className="h5 fw-bold mb-0 d-flex align-items-center gap-2">
+                    <AlertTriangle size={20} className="stat-orange" />
+                    Alertes de stock ({alertes.length})
+                  </h2>
+                  <button onClick={toutMarquerLu} className="btn btn-sm btn-outline-secondary">
+                    Tout marquer comme lu
+                  </button>
+                </div>
+                <ul className="list-unstyled mb-0">
+                  {alertes.map((alerte) => (
+                    <li key={alerte.id} className="alerte-item">
+                      <div>
+                        <p className="fw-semibold mb-0">{alerte.titre}</p>
+                        <p className="small text-muted mb-0">{alerte.message}</p>
+                      </div>
+                      <button onClick={() => marquerLue(alerte.id)} className="btn btn-sm btn-link">
+                        Lu
+                      </button>
+                    </li>
+                  ))}
+                </ul>
+              </div>
+            )}
+
+            {/* Produits à réapprovisionner (rythme de ventes) */}
+            {reapprovisionnement.length > 0 && (
+              <div className="action-card alertes-card mb-4 mb-lg-5">
+                <h2 className="h5 fw-bold mb-3 d-flex align-items-center gap-2">
+                  <TrendingUp size={20} className="stat-orange" />
+                  À réapprovisionner sous 14 jours ({reapprovisionnement.length})
+                </h2>
+                <ul className="list-unstyled mb-0">
+                  {reapprovisionnement.map((suggestion) => (
+                    <li key={suggestion.produitId} className="alerte-item">
+                      <div>
+                        <p className="fw-semibold mb-0">{suggestion.nom}</p>
+                        <p className="small text-muted mb-0">
+                          Stock {suggestion.quantiteStock} (seuil {suggestion.seuilAlerte}) —{" "}
+                          {suggestion.ventesParJour} vente(s)/jour — seuil atteint dans{" "}
+                          {suggestion.joursAvantSeuil} jour(s)
+                        </p>
+                      </div>
+                      <span className="fw-semibold">+{suggestion.quantiteSuggeree}</span>
+                    </li>
+                  ))}
+                </ul>
+              </div>
+            )}
+
             {/* Quick Actions */}
             <div className="action-card">
               <h2 className="h4 fw-bold mb-4">Actions rapides</h2>
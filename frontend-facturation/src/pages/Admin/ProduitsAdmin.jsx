@@ -1,5 +1,5 @@
 import React, { useEffect, useState } from "react";
-import { getAllProduitsAdmin, createProduit, deleteProduit } from "../../api/axios";
+import { getAllProduitsAdmin, createProduit, deleteProduit, importerProduitsCsv } from "../../api/axios";
 import { useNavigate } from "react-router-dom";
 import {
   Package,
@@ -11,7 +11,8 @@ import {
   DollarSign,
   Grid,
   AlertCircle,
-  Edit2
+  Edit2,
+  Upload
 } from "lucide-react";
 import "./ProduitsAdmin.css";
 
@@ -22,6 +23,8 @@ export default function ProduitsAdmin() {
   const [categorieId, setCategorieId] = useState("");
   const [searchTerm, setSearchTerm] = useState("");
   const [showForm, setShowForm] = useState(false);
+  const [rapportImport, setRapportImport] = useState(null);
+  const [importEnCours, setImportEnCours] = useState(false);
   const token = localStorage.getItem("token");
   const navigate = useNavigate();
 
@@ -61,6 +64,22 @@ export default function ProduitsAdmin() {
     }
   };
 
+  const handleImport = async (e) => {
+    const fichier = e.target.files[0];
+    e.target.value = "";
+    if (!fichier) return;
+    setImportEnCours(true);
+    try {
+      const res = await importerProduitsCsv(fichier);
+      setRapportImport(res.data);
+      fetchProduits();
+    } catch (err) {
+      alert(err.response?.data?.error || "Erreur lors de l'import");
+    } finally {
+      setImportEnCours(false);
+    }
+  };
+
   const handleCancel = () => {
     setNom("");
     setPrix("");
@@ -122,6 +141,11 @@ export default function ProduitsAdmin() {
               </div>
             </div>
             <div className="col-md-6 text-md-end">
+              <label className={`btn btn-outline-secondary me-2 mb-0 ${importEnCours ? "disabled" : ""}`}>
+                <Upload size={20} className="me-2" />
+                {importEnCours ? "Import en cours..." : "Importer CSV"}
+                <input type="file" accept=".csv,text/csv" hidden onChange={handleImport} disabled={importEnCours} />
+              </label>
               <button
                 onClick={() => setShowForm(!showForm)}
                 className="btn btn-primary-custom"
@@ -133,6 +157,32 @@ export default function ProduitsAdmin() {
           </div>
         </div>
 
+        {/* Rapport d'import */}
+        {rapportImport && (
+          <div className="form-card">
+            <div className="d-flex align-items-center justify-content-between mb-3">
+              <h5 className="fw-bold mb-0">Rapport d'import</h5>
+              <button onClick={() => setRapportImport(null)} className="btn btn-sm btn-close-form">
+                ✕
+              </button>
+            </div>
+            <p className="mb-2">
+              {rapportImport.lignes} ligne(s) : {rapportImport.creees} création(s),{" "}
+              {rapportImport.misesAJour} mise(s) à jour, {rapportImport.erreurs} erreur(s)
+            </p>
+            {rapportImport.detailErreurs.length > 0 && (
+              <ul className="small text-danger mb-0">
+                {rapportImport.detailErreurs.map((erreur) => (
+                  <li key={erreur.ligne}>
+                    Ligne {erreur.ligne} : {erreur.message}
+                  </li>
+                ))}
+                {rapportImport.erreursTronquees && <li>…</li>}
+              </ul>
+            )}
+          </div>
+        )}
+
         {/* Formulaire */}
         {showForm && (
           <div className="form-card">
@@ -1,5 +1,5 @@
 import React, { useEffect, useState } from "react";
-import { getAllCategoriesClient } from "../../api/axios";
+import { getAllCategoriesClient, getRechercheFacettes } from "../../api/axios";
 import { useAuth } from "../../context/AuthContext";
 import { LayoutGrid, LogOut, AlertCircle } from "lucide-react";
 import "./CategoriesClient.css";
@@ -8,6 +8,8 @@ const CategoriesClient = () => {
   const { logout } = useAuth();
   const [categories, setCategories] = useState([]);
   const [searchTerm, setSearchTerm] = useState("");
+  // Nombre de produits disponibles par catégorie (facettes seules, sans produits)
+  const [nombresProduits, setNombresProduits] = useState({});
 
   const loadCategories = async () => {
     try {
@@ -18,8 +20,22 @@ const CategoriesClient = () => {
     }
   };
 
+  const loadNombresProduits = async () => {
+    try {
+      const res = await getRechercheFacettes({ taille: 0 });
+      const nombres = {};
+      res.data.categories.forEach((cat) => {
+        nombres[cat.categorieId] = cat.nombre;
+      });
+      setNombresProduits(nombres);
+    } catch (err) {
+      console.error("Erreur chargement des décomptes:", err);
+    }
+  };
+
   useEffect(() => {
     loadCategories();
+    loadNombresProduits();
   }, []);
 
   const filteredCategories = categories.filter((cat) =>
@@ -92,6 +108,9 @@ const CategoriesClient = () => {
                 <p className="category-desc">
                   {cat.description || "Aucune description disponible."}
                 </p>
+                <span className="badge bg-light text-dark">
+                  {nombresProduits[cat.id] ?? 0} produit(s)
+                </span>
               </div>
             </div>
           ))
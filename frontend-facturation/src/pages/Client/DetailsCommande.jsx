@@ -3,9 +3,7 @@ import React, { useState, useEffect } from "react";
 import { useParams, useNavigate } from "react-router-dom";
 import {
   getCommandeByIdAdmin,
-  ajouterProduitACommande,
-  supprimerProduitDeCommande,
-  modifierQuantiteProduit,
+  modifierLignesCommande,
   getAllProduitsClient,
 } from "../../api/axios";
 
@@ -18,6 +16,9 @@ const DetailsCommande = () => {
   const [showAjoutProduit, setShowAjoutProduit] = useState(false);
   const [selectedProduit, setSelectedProduit] = useState(null);
   const [quantite, setQuantite] = useState(1);
+  // Modifications en attente, par produit : envoyées en une seule requête à l'enregistrement
+  const [modifications, setModifications] = useState({});
+  const [enregistrement, setEnregistrement] = useState(false);
 
   useEffect(() => {
     fetchCommande();
@@ -46,44 +47,81 @@ const DetailsCommande = () => {
     }
   };
 
-  const handleAjouterProduit = async () => {
+  const ligneDuProduit = (produitId) =>
+    commande?.lignesCommande?.find((ligne) => ligne.produit?.id === produitId);
+
+  const quantiteAffichee = (ligne) => {
+    const modification = modifications[ligne.produit.id];
+    return modification?.type === "DEFINIR_QUANTITE" ? modification.quantite : ligne.quantite;
+  };
+
+  const modifier = (produitId, modification) => {
+    setModifications((precedentes) => {
+      const suivantes = { ...precedentes };
+      if (modification) {
+        suivantes[produitId] = modification;
+      } else {
+        delete suivantes[produitId];
+      }
+      return suivantes;
+    });
+  };
+
+  const handleAjouterProduit = () => {
     if (!selectedProduit || quantite <= 0) {
       alert("Veuillez sélectionner un produit et une quantité valide");
       return;
     }
-    try {
-      await ajouterProduitACommande(id, selectedProduit, quantite);
-      alert("Produit ajouté avec succès");
-      setShowAjoutProduit(false);
-      setSelectedProduit(null);
-      setQuantite(1);
-      fetchCommande();
-    } catch (err) {
-      alert(err.response?.data?.error || "Erreur lors de l'ajout du produit");
+    const ligne = ligneDuProduit(selectedProduit);
+    const modification = modifications[selectedProduit];
+    if (ligne) {
+      const actuelle = modification?.type === "SUPPRIMER" ? 0 : quantiteAffichee(ligne);
+      modifier(selectedProduit, { type: "DEFINIR_QUANTITE", quantite: actuelle + quantite });
+    } else {
+      modifier(selectedProduit, { type: "AJOUTER", quantite: (modification?.quantite || 0) + quantite });
     }
+    setShowAjoutProduit(false);
+    setSelectedProduit(null);
+    setQuantite(1);
   };
 
-  const handleSupprimerProduit = async (produitId) => {
+  const handleSupprimerProduit = (produitId) => {
     if (!window.confirm("Voulez-vous vraiment supprimer ce produit?")) return;
-    try {
-      await supprimerProduitDeCommande(id, produitId);
-      alert("Produit supprimé avec succès");
-      fetchCommande();
-    } catch (err) {
-      alert(err.response?.data?.error || "Erreur lors de la suppression");
-    }
+    // Produit ajouté mais pas encore enregistré : l'ajout est simplement abandonné
+    modifier(produitId, ligneDuProduit(produitId) ? { type: "SUPPRIMER" } : null);
   };
 
-  const handleModifierQuantite = async (produitId, nouvelleQuantite) => {
+  const handleModifierQuantite = (produitId, nouvelleQuantite) => {
     if (nouvelleQuantite <= 0) {
       handleSupprimerProduit(produitId);
       return;
     }
+    const ligne = ligneDuProduit(produitId);
+    if (!ligne) {
+      modifier(produitId, { type: "AJOUTER", quantite: nouvelleQuantite });
+    } else if (nouvelleQuantite === ligne.quantite) {
+      modifier(produitId, null);
+    } else {
+      modifier(produitId, { type: "DEFINIR_QUANTITE", quantite: nouvelleQuantite });
+    }
+  };
+
+  const handleEnregistrer = async () => {
+    const operations = Object.entries(modifications).map(([produitId, modification]) => ({
+      type: modification.type,
+      produitId: Number(produitId),
+      quantite: modification.quantite,
+    }));
     try {
-      await modifierQuantiteProduit(id, produitId, nouvelleQuantite);
-      fetchCommande();
+      setEnregistrement(true);
+      const response = await modifierLignesCommande(id, operations);
+      setCommande(response.data);
+      setModifications({});
+      alert("Commande mise à jour avec succès");
     } catch (err) {
-      alert(err.response?.data?.error || "Erreur lors de la modification");
+      alert(err.response?.data?.error || "Erreur lors de la mise à jour de la commande");
+    } finally {
+      setEnregistrement(false);
     }
   };
 
@@ -116,6 +154,14 @@ const DetailsCommande = () => {
     );
 
   const peutModifier = commande.statut === "EN_ATTENTE";
+  const nombreModifications = Object.keys(modifications).length;
+  // Produits ajoutés en attente d'enregistrement
+  const ajouts = Object.entries(modifications)
+    .filter(([, modification]) => modification.type === "AJOUTER")
+    .map(([produitId, modification]) => ({
+      produit: produits.find((p) => p.id === Number(produitId)) || { id: Number(produitId) },
+      quantite: modification.quantite,
+    }));
 
   return (
     <div className="container my-5">
@@ -217,7 +263,7 @@ const DetailsCommande = () => {
                 className="btn btn-success mt-3"
                 onClick={handleAjouterProduit}
               >
-                Confirmer l'ajout
+                Ajouter à la commande
               </button>
             </div>
           )}
@@ -234,59 +280,128 @@ const DetailsCommande = () => {
                 </tr>
               </thead>
               <tbody>
-                {commande.lignesCommande?.map((ligne) => (
-                  <tr key={ligne.id}>
+                {commande.lignesCommande?.map((ligne) => {
+                  const supprimee = modifications[ligne.produit?.id]?.type === "SUPPRIMER";
+                  return (
+                    <tr key={ligne.id} className={supprimee ? "text-decoration-line-through text-muted" : ""}>
+                      <td>
+                        <strong>{ligne.produit?.nom}</strong>
+                        <br />
+                        <small className="text-muted">{ligne.produit?.description}</small>
+                      </td>
+                      <td className="text-end">{ligne.prixUnitaire?.toFixed(2)} €</td>
+                      <td className="text-center">
+                        {peutModifier && !supprimee ? (
+                          <div className="d-flex justify-content-center align-items-center gap-1">
+                            <button
+                              className="btn btn-outline-secondary btn-sm"
+                              onClick={() =>
+                                handleModifierQuantite(ligne.produit.id, quantiteAffichee(ligne) - 1)
+                              }
+                            >
+                              -
+                            </button>
+                            <span className="px-2">{quantiteAffichee(ligne)}</span>
+                            <button
+                              className="btn btn-outline-secondary btn-sm"
+                              onClick={() =>
+                                handleModifierQuantite(ligne.produit.id, quantiteAffichee(ligne) + 1)
+                              }
+                            >
+                              +
+                            </button>
+                          </div>
+                        ) : (
+                          ligne.quantite
+                        )}
+                      </td>
+                      <td className="text-end fw-bold">{ligne.sousTotal?.toFixed(2)} €</td>
+                      {peutModifier && (
+                        <td className="text-center">
+                          {supprimee ? (
+                            <button
+                              className="btn btn-sm btn-outline-secondary"
+                              onClick={() => modifier(ligne.produit.id, null)}
+                            >
+                              Rétablir
+                            </button>
+                          ) : (
+                            <button
+                              className="btn btn-sm btn-danger"
+                              onClick={() => handleSupprimerProduit(ligne.produit.id)}
+                            >
+                              Supprimer
+                            </button>
+                          )}
+                        </td>
+                      )}
+                    </tr>
+                  );
+                })}
+                {ajouts.map(({ produit, quantite: quantiteAjoutee }) => (
+                  <tr key={`ajout-${produit.id}`} className="table-success">
                     <td>
-                      <strong>{ligne.produit?.nom}</strong>
+                      <strong>{produit.nom || `Produit ${produit.id}`}</strong>
                       <br />
-                      <small className="text-muted">{ligne.produit?.description}</small>
+                      <small className="text-muted">Nouveau (non enregistré)</small>
                     </td>
-                    <td className="text-end">{ligne.prixUnitaire?.toFixed(2)} €</td>
+                    <td className="text-end">{produit.prix?.toFixed(2)} €</td>
                     <td className="text-center">
-                      {peutModifier ? (
-                        <div className="d-flex justify-content-center align-items-center gap-1">
-                          <button
-                            className="btn btn-outline-secondary btn-sm"
-                            onClick={() =>
-                              handleModifierQuantite(ligne.produit.id, ligne.quantite - 1)
-                            }
-                          >
-                            -
-                          </button>
-                          <span className="px-2">{ligne.quantite}</span>
-                          <button
-                            className="btn btn-outline-secondary btn-sm"
-                            onClick={() =>
-                              handleModifierQuantite(ligne.produit.id, ligne.quantite + 1)
-                            }
-                          >
-                            +
-                          </button>
-                        </div>
-                      ) : (
-                        ligne.quantite
-                      )}
-                    </td>
-                    <td className="text-end fw-bold">{ligne.sousTotal?.toFixed(2)} €</td>
-                    {peutModifier && (
-                      <td className="text-center">
+                      <div className="d-flex justify-content-center align-items-center gap-1">
                         <button
-                          className="btn btn-sm btn-danger"
-                          onClick={() => handleSupprimerProduit(ligne.produit.id)}
+                          className="btn btn-outline-secondary btn-sm"
+                          onClick={() => handleModifierQuantite(produit.id, quantiteAjoutee - 1)}
                         >
-                          Supprimer
+                          -
                         </button>
-                      </td>
-                    )}
+                        <span className="px-2">{quantiteAjoutee}</span>
+                        <button
+                          className="btn btn-outline-secondary btn-sm"
+                          onClick={() => handleModifierQuantite(produit.id, quantiteAjoutee + 1)}
+                        >
+                          +
+                        </button>
+                      </div>
+                    </td>
+                    <td className="text-end fw-bold">—</td>
+                    <td className="text-center">
+                      <button
+                        className="btn btn-sm btn-danger"
+                        onClick={() => handleSupprimerProduit(produit.id)}
+                      >
+                        Supprimer
+                      </button>
+                    </td>
                   </tr>
                 ))}
               </tbody>
             </table>
-            {!commande.lignesCommande?.length && (
+            {!commande.lignesCommande?.length && !ajouts.length && (
               <div className="text-center py-3 text-muted">Aucun produit dans cette commande</div>
             )}
           </div>
 
+          {peutModifier && nombreModifications > 0 && (
+            <div className="alert alert-info d-flex justify-content-between align-items-center mt-3">
+              <span>
+                {nombreModifications} modification(s) non enregistrée(s) : les totaux seront recalculés à
+                l'enregistrement
+              </span>
+              <div className="d-flex gap-2">
+                <button
+                  className="btn btn-outline-secondary btn-sm"
+                  onClick={() => setModifications({})}
+                  disabled={enregistrement}
+                >
+                  Annuler
+                </button>
+                <button className="btn btn-success btn-sm" onClick={handleEnregistrer} disabled={enregistrement}>
+                  {enregistrement ? "Enregistrement..." : "Enregistrer les modifications"}
+                </button>
+              </div>
+            </div>
+          )}
+
           {/* Totaux */}
           <div className="d-flex justify-content-end mt-3">
             <div className="w-100 w-md-50 w-lg-33">
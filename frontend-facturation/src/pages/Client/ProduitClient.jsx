@@ -1,10 +1,12 @@
 // src/pages/Client/ProduitsClient.jsx
 import React, { useState, useEffect } from "react";
 import { useNavigate } from "react-router-dom";
-import { getAllProduitsClient, creerCommandeAvecProduits } from "../../api/axios";
+import { getRechercheFacettes, creerCommandeAvecProduits, getAutocompletionProduits } from "../../api/axios";
 import { ShoppingCart, Plus, Minus, X, Search, LogOut, Trash2 } from "lucide-react";
 import { useAuth } from "../../context/AuthContext";
 
+const TAILLE_PAGE = 48;
+
 const ProduitsClient = () => {
   const navigate = useNavigate();
   const { user, logout } = useAuth();
@@ -16,6 +18,15 @@ const ProduitsClient = () => {
   const [commentaire, setCommentaire] = useState("");
   const [searchTerm, setSearchTerm] = useState("");
   const [showPanier, setShowPanier] = useState(false);
+  const [suggestions, setSuggestions] = useState([]);
+  const [showSuggestions, setShowSuggestions] = useState(false);
+  // Facettes calculées par le serveur (décomptes par catégorie, tranches de prix, stock)
+  const [facettes, setFacettes] = useState(null);
+  const [page, setPage] = useState(0);
+  const [categoriesChoisies, setCategoriesChoisies] = useState([]);
+  const [prixMin, setPrixMin] = useState("");
+  const [prixMax, setPrixMax] = useState("");
+  const [enStockSeulement, setEnStockSeulement] = useState(false);
 
   // Récupérer clientId
   const clientId = user?.id || JSON.parse(localStorage.getItem("user"))?.id;
@@ -26,27 +37,87 @@ const ProduitsClient = () => {
       navigate("/login");
       return;
     }
-    fetchProduits();
     chargerPanier();
   }, [clientId]);
 
+  // Nouvelle recherche à chaque changement de filtre (après une courte pause pour les prix)
+  useEffect(() => {
+    if (!clientId) return;
+    const delai = setTimeout(() => fetchProduits(0), 300);
+    return () => clearTimeout(delai);
+  }, [clientId, categoriesChoisies, prixMin, prixMax, enStockSeulement]);
+
   useEffect(() => {
     sauvegarderPanier();
   }, [panier]);
 
-  const fetchProduits = async () => {
+  // Complétions pendant la saisie (appel regroupé après une courte pause)
+  useEffect(() => {
+    const prefixe = searchTerm.trim();
+    if (!prefixe) {
+      setSuggestions([]);
+      return;
+    }
+    let annule = false;
+    const delai = setTimeout(async () => {
+      try {
+        const response = await getAutocompletionProduits(prefixe);
+        if (!annule) setSuggestions(response.data || []);
+      } catch (err) {
+        console.error("Erreur autocomplétion:", err);
+      }
+    }, 150);
+    return () => {
+      annule = true;
+      clearTimeout(delai);
+    };
+  }, [searchTerm]);
+
+  const fetchProduits = async (numeroPage) => {
     try {
       setLoadingProduits(true);
-      const response = await getAllProduitsClient();
-      setProduits(response.data || []);
+      const response = await getRechercheFacettes({
+        categorieId: categoriesChoisies.length > 0 ? categoriesChoisies : undefined,
+        prixMin: prixMin || undefined,
+        prixMax: prixMax || undefined,
+        enStock: enStockSeulement || undefined,
+        page: numeroPage,
+        taille: TAILLE_PAGE,
+      });
+      const resultat = response.data;
+      setProduits((precedents) =>
+        numeroPage === 0 ? resultat.produits || [] : [...precedents, ...(resultat.produits || [])]
+      );
+      setFacettes(resultat);
+      setPage(numeroPage);
     } catch (err) {
       console.error("Erreur chargement produits:", err);
-      alert("Erreur lors du chargement des produits");
+      alert(err.response?.data?.error || "Erreur lors du chargement des produits");
     } finally {
       setLoadingProduits(false);
     }
   };
 
+  const basculerCategorie = (categorieId) => {
+    setCategoriesChoisies((choisies) =>
+      choisies.includes(categorieId)
+        ? choisies.filter((id) => id !== categorieId)
+        : [...choisies, categorieId]
+    );
+  };
+
+  const choisirTranche = (tranche) => {
+    setPrixMin(String(tranche.prixMin));
+    setPrixMax(String(tranche.prixMax));
+  };
+
+  const reinitialiserFiltres = () => {
+    setCategoriesChoisies([]);
+    setPrixMin("");
+    setPrixMax("");
+    setEnStockSeulement(false);
+  };
+
   const chargerPanier = () => {
     const stored = localStorage.getItem("panier");
     if (stored) {
@@ -162,10 +233,17 @@ const ProduitsClient = () => {
 
   const produitsFiltres = produits.filter((p) =>
     p.nom.toLowerCase().includes(searchTerm.toLowerCase()) ||
-    p.description?.toLowerCase().includes(searchTerm.toLowerCase())
+    p.description?.toLowerCase().includes(searchTerm.toLowerCase()) ||
+    p.categorieNom?.toLowerCase().includes(searchTerm.toLowerCase())
   );
 
+  const choisirSuggestion = (suggestion) => {
+    setSearchTerm(suggestion.libelle);
+    setShowSuggestions(false);
+  };
+
   const totalArticles = panier.reduce((sum, item) => sum + item.quantite, 0);
+  const maxTranche = Math.max(1, ...(facettes?.tranchesPrix || []).map((t) => t.nombre));
 
   return (
     <div className="container-fluid p-4" style={{ backgroundColor: "#f8f9fa", minHeight: "100vh" }}>
@@ -209,12 +287,107 @@ const ProduitsClient = () => {
                   className="form-control ps-5"
                   placeholder="Rechercher un produit..."
                   value={searchTerm}
-                  onChange={(e) => setSearchTerm(e.target.value)}
+                  onChange={(e) => {
+                    setSearchTerm(e.target.value);
+                    setShowSuggestions(true);
+                  }}
+                  onFocus={() => setShowSuggestions(true)}
+                  onBlur={() => setShowSuggestions(false)}
                 />
+                {showSuggestions && suggestions.length > 0 && (
+                  <ul className="list-group position-absolute w-100 shadow-sm" style={{ zIndex: 10 }}>
+                    {suggestions.map((suggestion) => (
+                      <li
+                        key={`${suggestion.type}-${suggestion.id}`}
+                        className="list-group-item list-group-item-action d-flex justify-content-between align-items-center"
+                        style={{ cursor: "pointer" }}
+                        onMouseDown={() => choisirSuggestion(suggestion)}
+                      >
+                        {suggestion.libelle}
+                        {suggestion.type === "CATEGORIE" && (
+                          <span className="badge bg-secondary">Catégorie</span>
+                        )}
+                      </li>
+                    ))}
+                  </ul>
+                )}
               </div>
 
+              {/* Filtres à facettes */}
+              {facettes && (
+                <div className="mb-3">
+                  <div className="d-flex flex-wrap gap-2 mb-2">
+                    {facettes.categories.map((cat) => (
+                      <button
+                        key={cat.categorieId}
+                        className={`btn btn-sm ${
+                          categoriesChoisies.includes(cat.categorieId) ? "btn-primary" : "btn-outline-primary"
+                        }`}
+                        disabled={cat.nombre === 0 && !categoriesChoisies.includes(cat.categorieId)}
+                        onClick={() => basculerCategorie(cat.categorieId)}
+                      >
+                        {cat.nom} <span className="badge bg-light text-dark ms-1">{cat.nombre}</span>
+                      </button>
+                    ))}
+                  </div>
+
+                  <div className="d-flex flex-wrap align-items-center gap-2">
+                    <input
+                      type="number"
+                      min="0"
+                      step="0.01"
+                      className="form-control form-control-sm"
+                      style={{ width: "110px" }}
+                      placeholder="Prix min"
+                      value={prixMin}
+                      onChange={(e) => setPrixMin(e.target.value)}
+                    />
+                    <input
+                      type="number"
+                      min="0"
+                      step="0.01"
+                      className="form-control form-control-sm"
+                      style={{ width: "110px" }}
+                      placeholder="Prix max"
+                      value={prixMax}
+                      onChange={(e) => setPrixMax(e.target.value)}
+                    />
+                    <div className="form-check ms-2">
+                      <input
+                        id="filtre-en-stock"
+                        type="checkbox"
+                        className="form-check-input"
+                        checked={enStockSeulement}
+                        onChange={(e) => setEnStockSeulement(e.target.checked)}
+                      />
+                      <label htmlFor="filtre-en-stock" className="form-check-label small">
+                        En stock ({facettes.enStock}) · rupture : {facettes.enRupture}
+                      </label>
+                    </div>
+                    <button className="btn btn-sm btn-link" onClick={reinitialiserFiltres}>
+                      Réinitialiser
+                    </button>
+                  </div>
+
+                  {/* Histogramme des prix : une barre par tranche, cliquable */}
+                  {facettes.tranchesPrix.length > 0 && (
+                    <div className="d-flex align-items-end gap-1 mt-2" style={{ height: "40px" }}>
+                      {facettes.tranchesPrix.map((tranche) => (
+                        <div
+                          key={tranche.prixMin}
+                          className="bg-primary bg-opacity-50 flex-fill"
+                          style={{ height: `${(tranche.nombre / maxTranche) * 100}%`, minHeight: "2px", cursor: "pointer" }}
+                          title={`${tranche.prixMin} € – ${tranche.prixMax} € : ${tranche.nombre} produit(s)`}
+                          onClick={() => choisirTranche(tranche)}
+                        />
+                      ))}
+                    </div>
+                  )}
+                </div>
+              )}
+
               {/* Liste des produits */}
-              {loadingProduits ? (
+              {loadingProduits && produits.length === 0 ? (
                 <div className="text-center py-5">
                   <div className="spinner-border text-primary"></div>
                   <p className="mt-2 text-muted">Chargement des produits...</p>
@@ -233,14 +406,14 @@ const ProduitsClient = () => {
                             <h5 className="card-title fw-bold mb-0">{produit.nom}</h5>
                             <span
                               className={`badge ${
-                                produit.quantiteStock > 10
+                                (produit.quantiteDisponible ?? produit.quantiteStock) > 10
                                   ? "bg-success"
-                                  : produit.quantiteStock > 0
+                                  : (produit.quantiteDisponible ?? produit.quantiteStock) > 0
                                   ? "bg-warning"
                                   : "bg-danger"
                               }`}
                             >
-                              Stock: {produit.quantiteStock}
+                              Stock: {(produit.quantiteDisponible ?? produit.quantiteStock)}
                             </span>
                           </div>
                           
@@ -256,7 +429,7 @@ const ProduitsClient = () => {
                             </span>
                             <button
                               className="btn btn-primary btn-sm"
-                              disabled={produit.quantiteStock === 0}
+                              disabled={(produit.quantiteDisponible ?? produit.quantiteStock) === 0}
                               onClick={() => handleAjouterAuPanier(produit)}
                             >
                               <Plus size={16} className="me-1" />
@@ -267,6 +440,17 @@ const ProduitsClient = () => {
                       </div>
                     </div>
                   ))}
+                  {facettes && page + 1 < facettes.totalPages && (
+                    <div className="col-12 text-center">
+                      <button
+                        className="btn btn-outline-primary"
+                        disabled={loadingProduits}
+                        onClick={() => fetchProduits(page + 1)}
+                      >
+                        Afficher plus ({facettes.total - produits.length} restant(s))
+                      </button>
+                    </div>
+                  )}
                 </div>
               )}
             </div>